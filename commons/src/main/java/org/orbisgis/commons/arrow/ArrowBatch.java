@@ -0,0 +1,109 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.arrow;
+
+import java.util.BitSet;
+
+/**
+ * Batch of rows stored column by column, as a java array per column whose type is given by
+ * {@link ArrowField.Type}.
+ *
+ * The null values of the columns stored as object arrays are the <code>null</code> entries of the arrays. The
+ * null values of the columns stored as primitive arrays are given by a {@link BitSet} per column, which can be
+ * <code>null</code> if the column has no null value.
+ */
+public final class ArrowBatch {
+
+    private final int rowCount;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+
+    /**
+     * Create a batch.
+     *
+     * @param rowCount Number of rows of the batch.
+     * @param columns  Values of each column.
+     * @param nulls    Null rows of each column, can be null or contains null items.
+     */
+    public ArrowBatch(int rowCount, Object[] columns, BitSet[] nulls) {
+        if (nulls != null && nulls.length != columns.length) {
+            throw new IllegalArgumentException("There should be one null bit set per column");
+        }
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.nulls = nulls;
+    }
+
+    /**
+     * @return The number of rows of the batch.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of columns of the batch.
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Return the values of a column.
+     *
+     * @param column Index of the column.
+     * @return The java array containing the values of the column.
+     */
+    public Object getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Return true if the value of a column at the given row is null.
+     *
+     * @param column Index of the column.
+     * @param row    Index of the row.
+     * @return True if the value is null.
+     */
+    public boolean isNull(int column, int row) {
+        if (nulls != null && nulls[column] != null) {
+            return nulls[column].get(row);
+        }
+        Object values = columns[column];
+        return values instanceof Object[] && ((Object[]) values)[row] == null;
+    }
+}
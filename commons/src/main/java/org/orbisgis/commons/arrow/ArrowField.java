@@ -0,0 +1,222 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.arrow;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Description of a column of an Apache Arrow schema as read or written by {@link ArrowWriter} and
+ * {@link ArrowReader}.
+ *
+ * Geometries are stored as a {@link Type#BINARY} column holding WKB values and flagged with the GeoArrow
+ * <code>geoarrow.wkb</code> extension type, the SRID being saved as an <code>EPSG:code</code> CRS in the extension
+ * metadata.
+ */
+public final class ArrowField {
+
+    /**
+     * Key of the field metadata containing the extension type name.
+     */
+    public static final String EXTENSION_NAME = "ARROW:extension:name";
+    /**
+     * Key of the field metadata containing the extension type metadata.
+     */
+    public static final String EXTENSION_METADATA = "ARROW:extension:metadata";
+    /**
+     * GeoArrow extension name of the WKB encoded geometries.
+     */
+    public static final String GEOARROW_WKB = "geoarrow.wkb";
+
+    private static final Pattern EPSG = Pattern.compile("EPSG:(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Type of the values of a column. The java array used to store the values of a batch is given for each type.
+     */
+    public enum Type {
+        /** <code>boolean[]</code> */
+        BOOLEAN,
+        /** <code>int[]</code> */
+        INT,
+        /** <code>long[]</code> */
+        LONG,
+        /** <code>float[]</code> */
+        FLOAT,
+        /** <code>double[]</code> */
+        DOUBLE,
+        /** <code>BigDecimal[]</code> */
+        DECIMAL,
+        /** <code>String[]</code> */
+        STRING,
+        /** <code>byte[][]</code> */
+        BINARY,
+        /** <code>int[]</code> of days since the epoch. */
+        DATE,
+        /** <code>long[]</code> of nanoseconds since midnight. */
+        TIME,
+        /** <code>long[]</code> of microseconds since the epoch, without time zone. */
+        TIMESTAMP
+    }
+
+    private final String name;
+    private final Type type;
+    private final int precision;
+    private final int scale;
+    private final Map<String, String> metadata;
+
+    /**
+     * Create a field without metadata.
+     *
+     * @param name Name of the field.
+     * @param type Type of the field.
+     */
+    public ArrowField(String name, Type type) {
+        this(name, type, Collections.emptyMap());
+    }
+
+    /**
+     * Create a field.
+     *
+     * @param name     Name of the field.
+     * @param type     Type of the field.
+     * @param metadata Custom metadata of the field.
+     */
+    public ArrowField(String name, Type type, Map<String, String> metadata) {
+        this(name, type, 38, 0, metadata);
+    }
+
+    /**
+     * Create a {@link Type#DECIMAL} field.
+     *
+     * @param name      Name of the field.
+     * @param precision Number of digits of the values, at most 38.
+     * @param scale     Number of digits after the decimal point.
+     */
+    public ArrowField(String name, int precision, int scale) {
+        this(name, Type.DECIMAL, precision, scale, Collections.emptyMap());
+    }
+
+    private ArrowField(String name, Type type, int precision, int scale, Map<String, String> metadata) {
+        if (name == null || type == null) {
+            throw new IllegalArgumentException("The name and the type of a field cannot be null");
+        }
+        if (precision < 1 || precision > 38 || scale < 0 || scale > precision) {
+            throw new IllegalArgumentException("Unsupported decimal precision " + precision + " and scale " + scale);
+        }
+        this.name = name;
+        this.type = type;
+        this.precision = precision;
+        this.scale = scale;
+        this.metadata = Collections.unmodifiableMap(new LinkedHashMap<>(metadata));
+    }
+
+    /**
+     * Create a WKB geometry field flagged with the GeoArrow extension type.
+     *
+     * @param name Name of the field.
+     * @param srid SRID of the geometries, 0 if unknown.
+     * @return The geometry field.
+     */
+    public static ArrowField geometry(String name, int srid) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put(EXTENSION_NAME, GEOARROW_WKB);
+        metadata.put(EXTENSION_METADATA, srid > 0 ? "{\"crs\":\"EPSG:" + srid + "\",\"crs_type\":\"authority_code\"}" : "{}");
+        return new ArrowField(name, Type.BINARY, metadata);
+    }
+
+    /**
+     * @return The name of the field.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The type of the field.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The precision of a {@link Type#DECIMAL} field.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return The scale of a {@link Type#DECIMAL} field.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @return The custom metadata of the field.
+     */
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return True if the field contains WKB geometries flagged with the GeoArrow extension type.
+     */
+    public boolean isGeometry() {
+        return type == Type.BINARY && GEOARROW_WKB.equals(metadata.get(EXTENSION_NAME));
+    }
+
+    /**
+     * @return The SRID of a geometry field, 0 if unknown.
+     */
+    public int getSrid() {
+        String extension = metadata.get(EXTENSION_METADATA);
+        if (!isGeometry() || extension == null) {
+            return 0;
+        }
+        Matcher matcher = EPSG.matcher(extension);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + (type == Type.DECIMAL ? "DECIMAL(" + precision + "," + scale + ")" : type.name());
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.arrow;
+
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.FloatingPointVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeNanoVector;
+import org.apache.arrow.vector.TimeSecVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.UInt8Vector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reader of the Apache Arrow IPC stream and file formats based on the Arrow java library. The file format is read
+ * sequentially as a stream, so any {@link InputStream} can be used.
+ *
+ * The integer, floating point, boolean, decimal, date, time, timestamp, UTF-8 and binary types (including the large,
+ * view and fixed size variants) are converted to the {@link ArrowField.Type} representation, the fixed width buffers
+ * being bulk copied into the java arrays. The dictionary encoded fields are decoded and the record batches compressed
+ * with LZ4 or ZSTD are supported. The nested types are not supported.
+ */
+public class ArrowReader implements IBatchReader {
+
+    /**
+     * Magic bytes starting the file format, followed by two padding bytes.
+     */
+    private static final byte[] MAGIC = {'A', 'R', 'R', 'O', 'W', '1'};
+
+    private final BufferAllocator allocator;
+    private final ArrowStreamReader reader;
+    private final List<ArrowField> fields = new ArrayList<>();
+
+    /**
+     * Create a reader and read the schema.
+     *
+     * @param in Input stream, closed with the reader.
+     * @throws IOException Exception thrown when the schema cannot be read.
+     */
+    public ArrowReader(InputStream in) throws IOException {
+        InputStream buffered = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        buffered.mark(MAGIC.length);
+        byte[] magic = new byte[MAGIC.length];
+        if (buffered.readNBytes(magic, 0, magic.length) == MAGIC.length && Arrays.equals(magic, MAGIC)) {
+            buffered.readNBytes(8 - MAGIC.length);
+        } else {
+            buffered.reset();
+        }
+        allocator = new RootAllocator();
+        reader = new ArrowStreamReader(buffered, allocator, CommonsCompressionFactory.INSTANCE);
+        try {
+            for (Field field : reader.getVectorSchemaRoot().getSchema().getFields()) {
+                fields.add(field(field));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e instanceof IOException ? (IOException) e :
+                    new IOException("Unable to read the Arrow schema : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<ArrowField> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    @Override
+    public ArrowBatch next() throws IOException {
+        if (!reader.loadNextBatch()) {
+            return null;
+        }
+        VectorSchemaRoot root = reader.getVectorSchemaRoot();
+        int rowCount = root.getRowCount();
+        Object[] columns = new Object[fields.size()];
+        BitSet[] nulls = new BitSet[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            FieldVector vector = root.getVector(i);
+            if (vector.getField().getDictionary() == null) {
+                columns[i] = values(fields.get(i), vector, rowCount);
+                nulls[i] = nulls(vector, rowCount);
+            } else {
+                try (ValueVector decoded = DictionaryEncoder.decode(vector,
+                        reader.lookup(vector.getField().getDictionary().getId()))) {
+                    columns[i] = values(fields.get(i), decoded, rowCount);
+                    nulls[i] = nulls(decoded, rowCount);
+                }
+            }
+        }
+        return new ArrowBatch(rowCount, columns, nulls);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } finally {
+            allocator.close();
+        }
+    }
+
+    /**
+     * Convert an Arrow field, decoding the dictionary encoded fields, to the {@link ArrowField} representation.
+     */
+    private ArrowField field(Field field) throws IOException {
+        String name = field.getName();
+        ArrowType type = field.getType();
+        if (field.getDictionary() != null) {
+            Dictionary dictionary = reader.lookup(field.getDictionary().getId());
+            type = dictionary.getVectorType();
+        }
+        switch (type.getTypeID()) {
+            case Bool:
+                return new ArrowField(name, ArrowField.Type.BOOLEAN, field.getMetadata());
+            case Int: {
+                ArrowType.Int integer = (ArrowType.Int) type;
+                if (integer.getBitWidth() == 64 && !integer.getIsSigned()) {
+                    return new ArrowField(name, 20, 0);
+                }
+                boolean isInt = integer.getBitWidth() < 32 || integer.getBitWidth() == 32 && integer.getIsSigned();
+                return new ArrowField(name, isInt ? ArrowField.Type.INT : ArrowField.Type.LONG, field.getMetadata());
+            }
+            case FloatingPoint:
+                return new ArrowField(name, ((ArrowType.FloatingPoint) type).getPrecision() ==
+                        FloatingPointPrecision.DOUBLE ? ArrowField.Type.DOUBLE :
+                        ArrowField.Type.FLOAT, field.getMetadata());
+            case Decimal: {
+                ArrowType.Decimal decimal = (ArrowType.Decimal) type;
+                if (decimal.getPrecision() > 38) {
+                    throw new IOException("The decimal precision " + decimal.getPrecision() + " of the Arrow field " +
+                            name + " is not supported, the maximum is 38");
+                }
+                return new ArrowField(name, decimal.getPrecision(), decimal.getScale());
+            }
+            case Date:
+                return new ArrowField(name, ArrowField.Type.DATE, field.getMetadata());
+            case Time:
+                return new ArrowField(name, ArrowField.Type.TIME, field.getMetadata());
+            case Timestamp:
+                return new ArrowField(name, ArrowField.Type.TIMESTAMP, field.getMetadata());
+            case Utf8:
+            case LargeUtf8:
+            case Utf8View:
+                return new ArrowField(name, ArrowField.Type.STRING, field.getMetadata());
+            case Binary:
+            case LargeBinary:
+            case BinaryView:
+            case FixedSizeBinary:
+                return new ArrowField(name, ArrowField.Type.BINARY, field.getMetadata());
+            default:
+                throw new IOException("The type " + type + " of the Arrow field " + name + " is not supported");
+        }
+    }
+
+    /**
+     * Return the null rows of a vector, null if there is no null value.
+     */
+    private static BitSet nulls(ValueVector vector, int rowCount) {
+        if (vector.getNullCount() == 0) {
+            return null;
+        }
+        BitSet nulls = new BitSet(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            if (vector.isNull(row)) {
+                nulls.set(row);
+            }
+        }
+        return nulls;
+    }
+
+    /**
+     * Copy the values of a vector into the java array of the field type.
+     */
+    private static Object values(ArrowField field, ValueVector vector, int rowCount) {
+        switch (field.getType()) {
+            case BOOLEAN: {
+                BitVector bits = (BitVector) vector;
+                boolean[] values = new boolean[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = !bits.isNull(row) && bits.get(row) == 1;
+                }
+                return values;
+            }
+            case INT: {
+                int[] values = new int[rowCount];
+                if (vector instanceof IntVector) {
+                    bulkCopy(vector, rowCount).asIntBuffer().get(values);
+                } else {
+                    BaseIntVector integers = (BaseIntVector) vector;
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = integers.isNull(row) ? 0 : (int) integers.getValueAsLong(row);
+                    }
+                }
+                return values;
+            }
+            case LONG: {
+                long[] values = new long[rowCount];
+                if (vector instanceof BigIntVector) {
+                    bulkCopy(vector, rowCount).asLongBuffer().get(values);
+                } else {
+                    BaseIntVector integers = (BaseIntVector) vector;
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = integers.isNull(row) ? 0 : integers.getValueAsLong(row);
+                    }
+                }
+                return values;
+            }
+            case FLOAT: {
+                float[] values = new float[rowCount];
+                if (vector instanceof Float4Vector) {
+                    bulkCopy(vector, rowCount).asFloatBuffer().get(values);
+                } else {
+                    FloatingPointVector floats = (FloatingPointVector) vector;
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = floats.isNull(row) ? 0 : (float) floats.getValueAsDouble(row);
+                    }
+                }
+                return values;
+            }
+            case DOUBLE: {
+                double[] values = new double[rowCount];
+                bulkCopy(vector, rowCount).asDoubleBuffer().get(values);
+                return values;
+            }
+            case DECIMAL: {
+                BigDecimal[] values = new BigDecimal[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    if (vector instanceof UInt8Vector) {
+                        values[row] = vector.isNull(row) ? null :
+                                new BigDecimal(((UInt8Vector) vector).getObjectNoOverflow(row));
+                    } else {
+                        values[row] = (BigDecimal) vector.getObject(row);
+                    }
+                }
+                return values;
+            }
+            case DATE: {
+                int[] values = new int[rowCount];
+                if (vector instanceof DateDayVector) {
+                    bulkCopy(vector, rowCount).asIntBuffer().get(values);
+                } else {
+                    DateMilliVector dates = (DateMilliVector) vector;
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = dates.isNull(row) ? 0 : (int) Math.floorDiv(dates.get(row), 86_400_000L);
+                    }
+                }
+                return values;
+            }
+            case TIME: {
+                long[] values = new long[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    if (vector.isNull(row)) {
+                        continue;
+                    }
+                    if (vector instanceof TimeSecVector) {
+                        values[row] = ((TimeSecVector) vector).get(row) * 1_000_000_000L;
+                    } else if (vector instanceof TimeMilliVector) {
+                        values[row] = ((TimeMilliVector) vector).get(row) * 1_000_000L;
+                    } else if (vector instanceof TimeMicroVector) {
+                        values[row] = ((TimeMicroVector) vector).get(row) * 1_000L;
+                    } else {
+                        values[row] = ((TimeNanoVector) vector).get(row);
+                    }
+                }
+                return values;
+            }
+            case TIMESTAMP: {
+                TimeStampVector timestamps = (TimeStampVector) vector;
+                TimeUnit unit = ((ArrowType.Timestamp) vector.getField().getType()).getUnit();
+                long[] values = new long[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = timestamps.isNull(row) ? 0 : toMicros(timestamps.get(row), unit);
+                }
+                return values;
+            }
+            case STRING: {
+                String[] values = new String[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    Object value = vector.getObject(row);
+                    values[row] = value == null ? null : value.toString();
+                }
+                return values;
+            }
+            default: {
+                byte[][] values = new byte[rowCount][];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = (byte[]) vector.getObject(row);
+                }
+                return values;
+            }
+        }
+    }
+
+    /**
+     * Return a little endian view of the data buffer of a fixed width vector.
+     */
+    private static ByteBuffer bulkCopy(ValueVector vector, int rowCount) {
+        int width = vector instanceof IntVector || vector instanceof Float4Vector || vector instanceof DateDayVector ?
+                4 : 8;
+        return vector.getDataBuffer().nioBuffer(0, width * rowCount).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long toMicros(long value, TimeUnit unit) {
+        switch (unit) {
+            case SECOND:
+                return value * 1_000_000L;
+            case MILLISECOND:
+                return value * 1_000L;
+            case MICROSECOND:
+                return value;
+            default:
+                return Math.floorDiv(value, 1_000L);
+        }
+    }
+}
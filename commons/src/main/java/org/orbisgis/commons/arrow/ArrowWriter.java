@@ -0,0 +1,250 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.arrow;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeNanoVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writer of the Apache Arrow IPC stream and file formats based on the Arrow java library, so tables can be exchanged
+ * with the Arrow ecosystem (pyarrow, pandas, polars, DuckDB...) without any row to row conversion.
+ *
+ * The schema is written when the writer is created, then each {@link ArrowBatch} is written as an uncompressed
+ * record batch. Closing the writer writes the end of stream marker and, for the file format, the footer indexing the
+ * record batches.
+ */
+public class ArrowWriter implements IBatchWriter {
+
+    private final List<ArrowField> fields;
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final org.apache.arrow.vector.ipc.ArrowWriter writer;
+    private boolean closed;
+
+    /**
+     * Create a writer and write the schema.
+     *
+     * @param out    Output stream, closed with the writer.
+     * @param fields Fields of the schema.
+     * @param file   True to write the random access file format, false to write the stream format.
+     * @throws IOException Exception thrown when the schema cannot be written.
+     */
+    public ArrowWriter(OutputStream out, List<ArrowField> fields, boolean file) throws IOException {
+        this.fields = new ArrayList<>(fields);
+        List<Field> arrowFields = new ArrayList<>();
+        for (ArrowField field : fields) {
+            arrowFields.add(new Field(field.getName(), new FieldType(true, type(field), null,
+                    field.getMetadata().isEmpty() ? null : field.getMetadata()), null));
+        }
+        allocator = new RootAllocator();
+        root = VectorSchemaRoot.create(new Schema(arrowFields), allocator);
+        writer = file ? new ArrowFileWriter(root, null, Channels.newChannel(out)) :
+                new ArrowStreamWriter(root, null, Channels.newChannel(out));
+        try {
+            writer.start();
+        } catch (IOException | RuntimeException e) {
+            closeResources();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ArrowField> getFields() {
+        return fields;
+    }
+
+    @Override
+    public void write(ArrowBatch batch) throws IOException {
+        if (batch.getColumnCount() != fields.size()) {
+            throw new IllegalArgumentException("The batch contains " + batch.getColumnCount() +
+                    " columns instead of " + fields.size());
+        }
+        int rowCount = batch.getRowCount();
+        root.allocateNew();
+        for (int i = 0; i < fields.size(); i++) {
+            setValues(fields.get(i), root.getVector(i), batch, i);
+        }
+        root.setRowCount(rowCount);
+        writer.writeBatch();
+    }
+
+    /**
+     * Write the end of stream marker and the footer of the file format, then close the output stream.
+     *
+     * @throws IOException Exception thrown when the stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.end();
+        } finally {
+            closeResources();
+        }
+    }
+
+    private void closeResources() {
+        try {
+            writer.close();
+        } finally {
+            root.close();
+            allocator.close();
+        }
+    }
+
+    /**
+     * Return the Arrow type of a field.
+     */
+    private static ArrowType type(ArrowField field) {
+        switch (field.getType()) {
+            case BOOLEAN:
+                return ArrowType.Bool.INSTANCE;
+            case INT:
+                return new ArrowType.Int(32, true);
+            case LONG:
+                return new ArrowType.Int(64, true);
+            case FLOAT:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+            case DOUBLE:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+            case DECIMAL:
+                return new ArrowType.Decimal(field.getPrecision(), field.getScale(), 128);
+            case STRING:
+                return ArrowType.Utf8.INSTANCE;
+            case BINARY:
+                return ArrowType.Binary.INSTANCE;
+            case DATE:
+                return new ArrowType.Date(DateUnit.DAY);
+            case TIME:
+                return new ArrowType.Time(TimeUnit.NANOSECOND, 64);
+            default:
+                return new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+        }
+    }
+
+    /**
+     * Copy the values of a batch column into its vector.
+     */
+    private static void setValues(ArrowField field, FieldVector vector, ArrowBatch batch, int column)
+            throws IOException {
+        Object values = batch.getColumn(column);
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (batch.isNull(column, row)) {
+                vector.setNull(row);
+                continue;
+            }
+            switch (field.getType()) {
+                case BOOLEAN:
+                    ((BitVector) vector).setSafe(row, ((boolean[]) values)[row] ? 1 : 0);
+                    break;
+                case INT:
+                    ((IntVector) vector).setSafe(row, ((int[]) values)[row]);
+                    break;
+                case LONG:
+                    ((BigIntVector) vector).setSafe(row, ((long[]) values)[row]);
+                    break;
+                case FLOAT:
+                    ((Float4Vector) vector).setSafe(row, ((float[]) values)[row]);
+                    break;
+                case DOUBLE:
+                    ((Float8Vector) vector).setSafe(row, ((double[]) values)[row]);
+                    break;
+                case DECIMAL: {
+                    BigDecimal decimal = ((BigDecimal[]) values)[row].setScale(field.getScale(), RoundingMode.HALF_UP);
+                    if (decimal.precision() > field.getPrecision()) {
+                        throw new IOException("The decimal " + decimal + " of the column " + field.getName() +
+                                " does not fit the precision " + field.getPrecision());
+                    }
+                    ((DecimalVector) vector).setSafe(row, decimal);
+                    break;
+                }
+                case STRING: {
+                    Object value = ((Object[]) values)[row];
+                    ((VarCharVector) vector).setSafe(row, value instanceof byte[] ? (byte[]) value :
+                            value.toString().getBytes(StandardCharsets.UTF_8));
+                    break;
+                }
+                case BINARY:
+                    ((VarBinaryVector) vector).setSafe(row, (byte[]) ((Object[]) values)[row]);
+                    break;
+                case DATE:
+                    ((DateDayVector) vector).setSafe(row, ((int[]) values)[row]);
+                    break;
+                case TIME:
+                    ((TimeNanoVector) vector).setSafe(row, ((long[]) values)[row]);
+                    break;
+                default:
+                    ((TimeStampMicroVector) vector).setSafe(row, ((long[]) values)[row]);
+            }
+        }
+        vector.setValueCount(batch.getRowCount());
+    }
+}
@@ -0,0 +1,579 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.parquet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.orbisgis.commons.arrow.ArrowBatch;
+import org.orbisgis.commons.arrow.ArrowField;
+import org.orbisgis.commons.arrow.IBatchReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reader of the Apache Parquet format based on the parquet-hadoop library, returning each row group as an
+ * {@link ArrowBatch}. Only the flat schemas are supported. The read columns can be restricted with
+ * {@link #select(String...)}, the other column chunks not being read, and the row groups can be skipped according
+ * to the minimum and maximum of their column chunks with {@link #filter(String, Object, Object)}.
+ *
+ * The pages compressed with {@link #SUPPORTED_CODECS} are supported, the files using another codec are rejected
+ * when opened. The WKB columns described in the GeoParquet <code>geo</code> metadata are returned as geometry
+ * fields ({@link ArrowField#isGeometry()}).
+ */
+public class ParquetReader implements IBatchReader {
+
+    /**
+     * Compression codecs which can be read.
+     */
+    public static final Set<CompressionCodecName> SUPPORTED_CODECS = EnumSet.of(CompressionCodecName.UNCOMPRESSED,
+            CompressionCodecName.SNAPPY, CompressionCodecName.GZIP, CompressionCodecName.ZSTD,
+            CompressionCodecName.LZ4_RAW);
+    /**
+     * Key of the GeoParquet metadata.
+     */
+    static final String GEO = "geo";
+    /**
+     * Julian day of the 1970-01-01 epoch, used by the legacy INT96 timestamps.
+     */
+    private static final int JULIAN_EPOCH_DAY = 2440588;
+
+    private final ParquetFileReader reader;
+    private final MessageType schema;
+    private final List<Column> columns = new ArrayList<>();
+    private final List<Filter> filters = new ArrayList<>();
+    private List<Column> selection;
+    private int nextRowGroup;
+
+    /**
+     * Open a Parquet file and read its metadata.
+     *
+     * @param path Parquet file.
+     * @throws IOException Exception thrown if the file cannot be read or is not a supported Parquet file.
+     */
+    public ParquetReader(File path) throws IOException {
+        try {
+            reader = new ParquetFileReader(new LocalInputFile(path.toPath()),
+                    ParquetReadOptions.builder(new PlainParquetConfiguration()).build());
+        } catch (RuntimeException e) {
+            throw new IOException("The file " + path + " is not a Parquet file", e);
+        }
+        try {
+            schema = reader.getFileMetaData().getSchema();
+            Map<String, Integer> geometries = geometries(reader.getFileMetaData().getKeyValueMetaData());
+            for (Type type : schema.getFields()) {
+                if (!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED)) {
+                    throw new IOException("The nested and repeated Parquet columns are not supported");
+                }
+                columns.add(new Column(type.asPrimitiveType(), schema.getColumnDescription(
+                        new String[]{type.getName()}), columns.size(), geometries));
+            }
+            for (BlockMetaData block : reader.getRowGroups()) {
+                for (ColumnChunkMetaData chunk : block.getColumns()) {
+                    if (!SUPPORTED_CODECS.contains(chunk.getCodec())) {
+                        throw new IOException("The " + chunk.getCodec() + " compression of the Parquet column " +
+                                chunk.getPath().toDotString() + " is not supported, the supported codecs are " +
+                                SUPPORTED_CODECS);
+                    }
+                }
+            }
+            selection = columns;
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ArrowField> getFields() {
+        List<ArrowField> fields = new ArrayList<>();
+        for (Column column : selection) {
+            fields.add(column.field);
+        }
+        return fields;
+    }
+
+    /**
+     * @return The number of rows of the file.
+     */
+    public long getRowCount() {
+        return reader.getRecordCount();
+    }
+
+    /**
+     * @return The number of row groups of the file.
+     */
+    public int getRowGroupCount() {
+        return reader.getRowGroups().size();
+    }
+
+    /**
+     * Restrict the read columns, the other column chunks not being read.
+     *
+     * @param names Names of the columns to read, in the order of the returned batches.
+     * @return The reader.
+     */
+    public ParquetReader select(String... names) {
+        List<Column> selected = new ArrayList<>();
+        List<Type> types = new ArrayList<>();
+        for (String name : names) {
+            Column column = column(name);
+            selected.add(column);
+            if (!types.contains(column.type)) {
+                types.add(column.type);
+            }
+        }
+        selection = selected;
+        reader.setRequestedSchema(new MessageType(schema.getName(), types));
+        return this;
+    }
+
+    /**
+     * Skip the row groups whose values of a column are all outside the given range according to the column chunk
+     * statistics. The rows of the returned row groups are not filtered.
+     *
+     * @param name Name of the column.
+     * @param min  Minimum of the range, null for no minimum. It can be a {@link Number}, a {@link String}, a
+     *             {@link LocalDate}, a {@link LocalTime} or a {@link LocalDateTime}.
+     * @param max  Maximum of the range, null for no maximum.
+     * @return The reader.
+     */
+    public ParquetReader filter(String name, Object min, Object max) {
+        Column column = column(name);
+        filters.add(new Filter(column, column.bound(min), column.bound(max)));
+        return this;
+    }
+
+    @Override
+    public ArrowBatch next() throws IOException {
+        List<BlockMetaData> rowGroups = reader.getRowGroups();
+        while (nextRowGroup < rowGroups.size()) {
+            BlockMetaData rowGroup = rowGroups.get(nextRowGroup++);
+            int rows = Math.toIntExact(rowGroup.getRowCount());
+            if (rows == 0 || !accept(rowGroup)) {
+                reader.skipNextRowGroup();
+                continue;
+            }
+            PageReadStore pages = reader.readNextRowGroup();
+            ColumnReadStoreImpl store = new ColumnReadStoreImpl(pages, new IgnoredConverter(),
+                    reader.getFileMetaData().getSchema(), reader.getFileMetaData().getCreatedBy());
+            Object[] values = new Object[selection.size()];
+            BitSet[] nulls = new BitSet[selection.size()];
+            for (int i = 0; i < selection.size(); i++) {
+                Column column = selection.get(i);
+                values[i] = column.allocate(rows);
+                nulls[i] = new BitSet(rows);
+                column.read(store.getColumnReader(column.descriptor), rows, values[i], nulls[i]);
+            }
+            return new ArrowBatch(rows, values, nulls);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Column column(String name) {
+        for (Column column : columns) {
+            if (column.field.getName().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("The column " + name + " does not exist");
+    }
+
+    /**
+     * Return true if the row group may contain rows matching all the filters.
+     */
+    private boolean accept(BlockMetaData rowGroup) {
+        for (Filter filter : filters) {
+            Statistics<?> statistics = rowGroup.getColumns().get(filter.column.index).getStatistics();
+            if (statistics == null || statistics.isEmpty()) {
+                continue;
+            }
+            if (statistics.isNumNullsSet() && statistics.getNumNulls() == rowGroup.getRowCount()) {
+                return false;
+            }
+            if (!statistics.hasNonNullValue()) {
+                continue;
+            }
+            Object min = filter.column.statistic(statistics.genericGetMin());
+            Object max = filter.column.statistic(statistics.genericGetMax());
+            if (filter.min != null && max != null && compare(max, filter.min) < 0 ||
+                    filter.max != null && min != null && compare(min, filter.max) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(Object value, Object bound) {
+        if (value instanceof byte[] || bound instanceof byte[]) {
+            return value instanceof byte[] && bound instanceof byte[] ?
+                    Arrays.compareUnsigned((byte[]) value, (byte[]) bound) : 0;
+        }
+        if (value instanceof Double || bound instanceof Double) {
+            return Double.compare(((Number) value).doubleValue(), ((Number) bound).doubleValue());
+        }
+        return Long.compare((Long) value, (Long) bound);
+    }
+
+    /**
+     * Read the GeoParquet metadata and return the SRID of the WKB columns by name.
+     */
+    private static Map<String, Integer> geometries(Map<String, String> metadata) throws IOException {
+        Map<String, Integer> geometries = new HashMap<>();
+        String value = metadata.get(GEO);
+        if (value == null) {
+            return geometries;
+        }
+        JsonNode geoColumns = new ObjectMapper().readTree(value).path("columns");
+        Iterator<Map.Entry<String, JsonNode>> it = geoColumns.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode column = entry.getValue();
+            if (!"WKB".equalsIgnoreCase(column.path("encoding").asText())) {
+                continue;
+            }
+            int srid = 0;
+            if (!column.has("crs")) {
+                srid = 4326;
+            } else {
+                JsonNode id = column.path("crs").path("id");
+                if ("EPSG".equalsIgnoreCase(id.path("authority").asText())) {
+                    srid = id.path("code").asInt();
+                }
+            }
+            geometries.put(entry.getKey(), srid);
+        }
+        return geometries;
+    }
+
+    /**
+     * Converter required by the column readers, the values being read directly from the readers.
+     */
+    private static final class IgnoredConverter extends GroupConverter {
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return new PrimitiveConverter() {};
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+
+    /**
+     * Range of values of a column used to skip the row groups.
+     */
+    private static final class Filter {
+        private final Column column;
+        private final Object min;
+        private final Object max;
+
+        private Filter(Column column, Object min, Object max) {
+            this.column = column;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Leaf column of the schema and its conversion to the {@link ArrowField} representation.
+     */
+    private static final class Column {
+        private final PrimitiveType type;
+        private final ColumnDescriptor descriptor;
+        private final ArrowField field;
+        private final int index;
+        private final boolean unsigned;
+        private final LogicalTypeAnnotation.TimeUnit unit;
+
+        private Column(PrimitiveType type, ColumnDescriptor descriptor, int index, Map<String, Integer> geometries) {
+            this.type = type;
+            this.descriptor = descriptor;
+            this.index = index;
+            String name = type.getName();
+            LogicalTypeAnnotation logical = type.getLogicalTypeAnnotation();
+            unsigned = logical instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation &&
+                    !((LogicalTypeAnnotation.IntLogicalTypeAnnotation) logical).isSigned();
+            boolean time = logical instanceof LogicalTypeAnnotation.TimeLogicalTypeAnnotation;
+            boolean timestamp = logical instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
+            unit = time ? ((LogicalTypeAnnotation.TimeLogicalTypeAnnotation) logical).getUnit() :
+                    timestamp ? ((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) logical).getUnit() : null;
+            LogicalTypeAnnotation.DecimalLogicalTypeAnnotation decimal =
+                    logical instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation ?
+                            (LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) logical : null;
+            switch (type.getPrimitiveTypeName()) {
+                case BOOLEAN:
+                    field = new ArrowField(name, ArrowField.Type.BOOLEAN);
+                    break;
+                case INT32:
+                    field = decimal != null ? new ArrowField(name, decimal.getPrecision(), decimal.getScale()) :
+                            logical instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation ?
+                                    new ArrowField(name, ArrowField.Type.DATE) :
+                            time ? new ArrowField(name, ArrowField.Type.TIME) :
+                            new ArrowField(name, unsigned ? ArrowField.Type.LONG : ArrowField.Type.INT);
+                    break;
+                case INT64:
+                    field = decimal != null ? new ArrowField(name, decimal.getPrecision(), decimal.getScale()) :
+                            time ? new ArrowField(name, ArrowField.Type.TIME) :
+                            timestamp ? new ArrowField(name, ArrowField.Type.TIMESTAMP) :
+                            unsigned ? new ArrowField(name, 20, 0) : new ArrowField(name, ArrowField.Type.LONG);
+                    break;
+                case INT96:
+                    field = new ArrowField(name, ArrowField.Type.TIMESTAMP);
+                    break;
+                case FLOAT:
+                    field = new ArrowField(name, ArrowField.Type.FLOAT);
+                    break;
+                case DOUBLE:
+                    field = new ArrowField(name, ArrowField.Type.DOUBLE);
+                    break;
+                default:
+                    if (decimal != null) {
+                        field = new ArrowField(name, decimal.getPrecision(), decimal.getScale());
+                    } else if (geometries.containsKey(name)) {
+                        field = ArrowField.geometry(name, geometries.get(name));
+                    } else if (logical instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation ||
+                            logical instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation ||
+                            logical instanceof LogicalTypeAnnotation.JsonLogicalTypeAnnotation) {
+                        field = new ArrowField(name, ArrowField.Type.STRING);
+                    } else {
+                        field = new ArrowField(name, ArrowField.Type.BINARY);
+                    }
+            }
+        }
+
+        private Object allocate(int rows) {
+            switch (field.getType()) {
+                case BOOLEAN:
+                    return new boolean[rows];
+                case INT:
+                case DATE:
+                    return new int[rows];
+                case LONG:
+                case TIME:
+                case TIMESTAMP:
+                    return new long[rows];
+                case FLOAT:
+                    return new float[rows];
+                case DOUBLE:
+                    return new double[rows];
+                case DECIMAL:
+                    return new BigDecimal[rows];
+                case STRING:
+                    return new String[rows];
+                default:
+                    return new byte[rows][];
+            }
+        }
+
+        /**
+         * Read the values of the column chunk into the batch representation, marking the undefined rows as null.
+         */
+        private void read(ColumnReader reader, int rows, Object values, BitSet nulls) {
+            int maxDefinition = descriptor.getMaxDefinitionLevel();
+            for (int row = 0; row < rows; row++) {
+                if (reader.getCurrentDefinitionLevel() < maxDefinition) {
+                    nulls.set(row);
+                } else {
+                    switch (type.getPrimitiveTypeName()) {
+                        case BOOLEAN:
+                            ((boolean[]) values)[row] = reader.getBoolean();
+                            break;
+                        case INT32:
+                            setLong(values, row, unsigned ? Integer.toUnsignedLong(reader.getInteger()) :
+                                    reader.getInteger());
+                            break;
+                        case INT64:
+                            setLong(values, row, reader.getLong());
+                            break;
+                        case FLOAT:
+                            ((float[]) values)[row] = reader.getFloat();
+                            break;
+                        case DOUBLE:
+                            ((double[]) values)[row] = reader.getDouble();
+                            break;
+                        case INT96: {
+                            ByteBuffer buffer = reader.getBinary().toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+                            long nanos = buffer.getLong(buffer.position());
+                            long days = buffer.getInt(buffer.position() + 8) - (long) JULIAN_EPOCH_DAY;
+                            ((long[]) values)[row] = days * 86_400_000_000L + Math.floorDiv(nanos, 1000);
+                            break;
+                        }
+                        default: {
+                            byte[] bytes = reader.getBinary().getBytes();
+                            switch (field.getType()) {
+                                case DECIMAL:
+                                    ((Object[]) values)[row] = new BigDecimal(new BigInteger(bytes), field.getScale());
+                                    break;
+                                case STRING:
+                                    ((Object[]) values)[row] = new String(bytes, StandardCharsets.UTF_8);
+                                    break;
+                                default:
+                                    ((Object[]) values)[row] = bytes;
+                            }
+                        }
+                    }
+                }
+                reader.consume();
+            }
+        }
+
+        /**
+         * Set an integer value converted to the batch representation of the field.
+         */
+        private void setLong(Object values, int i, long value) {
+            switch (field.getType()) {
+                case INT:
+                case DATE:
+                    ((int[]) values)[i] = (int) value;
+                    break;
+                case TIME:
+                    ((long[]) values)[i] = unit == LogicalTypeAnnotation.TimeUnit.MILLIS ? value * 1_000_000L :
+                            unit == LogicalTypeAnnotation.TimeUnit.MICROS ? value * 1000 : value;
+                    break;
+                case TIMESTAMP:
+                    ((long[]) values)[i] = unit == LogicalTypeAnnotation.TimeUnit.MILLIS ? value * 1000 :
+                            unit == LogicalTypeAnnotation.TimeUnit.MICROS ? value : Math.floorDiv(value, 1000);
+                    break;
+                case DECIMAL:
+                    ((BigDecimal[]) values)[i] = unsigned ? new BigDecimal(Long.toUnsignedString(value)) :
+                            BigDecimal.valueOf(value, field.getScale());
+                    break;
+                default:
+                    ((long[]) values)[i] = value;
+            }
+        }
+
+        /**
+         * Convert a statistic of the column chunk in a comparable representation, null if it is not usable.
+         */
+        private Object statistic(Object value) {
+            if (value == null || unsigned || field.getType() == ArrowField.Type.DECIMAL) {
+                return null;
+            }
+            if (value instanceof Integer || value instanceof Long) {
+                return ((Number) value).longValue();
+            }
+            if (value instanceof Float || value instanceof Double) {
+                return ((Number) value).doubleValue();
+            }
+            if (value instanceof Binary && field.getType() == ArrowField.Type.STRING) {
+                return ((Binary) value).getBytes();
+            }
+            return null;
+        }
+
+        /**
+         * Convert a filter bound into the representation of the statistics.
+         */
+        private Object bound(Object value) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof String) {
+                return ((String) value).getBytes(StandardCharsets.UTF_8);
+            }
+            if (value instanceof LocalDate) {
+                return ((LocalDate) value).toEpochDay();
+            }
+            long factor = unit == LogicalTypeAnnotation.TimeUnit.MILLIS ? 1_000_000L :
+                    unit == LogicalTypeAnnotation.TimeUnit.MICROS ? 1000L : 1L;
+            if (value instanceof LocalTime) {
+                return ((LocalTime) value).toNanoOfDay() / factor;
+            }
+            if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+                return seconds * (1_000_000_000L / factor) + dateTime.getNano() / factor;
+            }
+            if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                return ((Number) value).doubleValue();
+            }
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            throw new IllegalArgumentException("Unsupported filter value " + value);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.parquet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.parquet.column.ColumnWriteStore;
+import org.apache.parquet.column.ColumnWriter;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.compression.CompressionCodecFactory;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.CodecFactory;
+import org.apache.parquet.hadoop.ColumnChunkPageWriteStore;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+import org.orbisgis.commons.arrow.ArrowBatch;
+import org.orbisgis.commons.arrow.ArrowField;
+import org.orbisgis.commons.arrow.IBatchWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of the Apache Parquet format based on the parquet-hadoop library, each written {@link ArrowBatch} becoming
+ * a row group. The columns are flat and optional, the values are dictionary encoded while the dictionary stays
+ * small, and the pages are compressed with the chosen {@link Codec}. The minimum, maximum and null count of each
+ * column chunk are saved in the metadata so the readers can skip the row groups.
+ *
+ * The geometry columns ({@link ArrowField#isGeometry()}) are written as WKB binary columns described in the
+ * GeoParquet <code>geo</code> metadata.
+ */
+public class ParquetWriter implements IBatchWriter {
+
+    /**
+     * Compression codec of the pages.
+     */
+    public enum Codec {UNCOMPRESSED, SNAPPY, GZIP, ZSTD}
+
+    private final List<ArrowField> fields;
+    private final MessageType schema;
+    private final ParquetProperties properties = ParquetProperties.builder().build();
+    private final CompressionCodecFactory codecs;
+    private final CompressionCodecFactory.BytesInputCompressor compressor;
+    private final ParquetFileWriter writer;
+    private boolean closed;
+
+    /**
+     * Create a writer compressing the pages with {@link Codec#GZIP}.
+     *
+     * @param out    Output stream, closed with the writer.
+     * @param fields Fields of the columns.
+     * @throws IOException Exception thrown when the header cannot be written.
+     */
+    public ParquetWriter(OutputStream out, List<ArrowField> fields) throws IOException {
+        this(out, fields, Codec.GZIP);
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param out    Output stream, closed with the writer.
+     * @param fields Fields of the columns.
+     * @param codec  Compression codec of the pages.
+     * @throws IOException Exception thrown when the header cannot be written.
+     */
+    public ParquetWriter(OutputStream out, List<ArrowField> fields, Codec codec) throws IOException {
+        this.fields = new ArrayList<>(fields);
+        List<Type> types = new ArrayList<>();
+        for (ArrowField field : fields) {
+            types.add(type(field));
+        }
+        schema = new MessageType("schema", types);
+        codecs = new CodecFactory(new PlainParquetConfiguration(), properties.getPageSizeThreshold());
+        compressor = codecs.getCompressor(CompressionCodecName.valueOf(codec.name()));
+        writer = new ParquetFileWriter(new StreamOutputFile(out), schema, ParquetFileWriter.Mode.CREATE,
+                org.apache.parquet.hadoop.ParquetWriter.DEFAULT_BLOCK_SIZE, 0);
+        writer.start();
+    }
+
+    @Override
+    public List<ArrowField> getFields() {
+        return fields;
+    }
+
+    @Override
+    public void write(ArrowBatch batch) throws IOException {
+        if (batch.getColumnCount() != fields.size()) {
+            throw new IllegalArgumentException("The batch contains " + batch.getColumnCount() +
+                    " columns instead of " + fields.size());
+        }
+        int rows = batch.getRowCount();
+        if (rows == 0) {
+            return;
+        }
+        ColumnChunkPageWriteStore pages = new ColumnChunkPageWriteStore(compressor, schema,
+                properties.getAllocator(), properties.getColumnIndexTruncateLength());
+        ColumnWriteStore store = properties.newColumnWriteStore(schema, pages);
+        try {
+            ColumnWriter[] writers = new ColumnWriter[fields.size()];
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = store.getColumnWriter(schema.getColumns().get(i));
+            }
+            for (int row = 0; row < rows; row++) {
+                for (int i = 0; i < writers.length; i++) {
+                    if (batch.isNull(i, row)) {
+                        writers[i].writeNull(0, 0);
+                    } else {
+                        writeValue(fields.get(i), writers[i], batch.getColumn(i), row);
+                    }
+                }
+                store.endRecord();
+            }
+            store.flush();
+            writer.startBlock(rows);
+            pages.flushToFileWriter(writer);
+            writer.endBlock();
+        } finally {
+            store.close();
+            pages.close();
+        }
+    }
+
+    /**
+     * Write the footer then close the output stream.
+     *
+     * @throws IOException Exception thrown when the stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.end(geoMetadata());
+        } finally {
+            writer.close();
+            codecs.release();
+        }
+    }
+
+    /**
+     * Return the Parquet type of a field.
+     */
+    private static Type type(ArrowField field) {
+        Types.PrimitiveBuilder<PrimitiveType> builder;
+        switch (field.getType()) {
+            case BOOLEAN:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.BOOLEAN);
+                break;
+            case INT:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.INT32);
+                break;
+            case LONG:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.INT64);
+                break;
+            case FLOAT:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.FLOAT);
+                break;
+            case DOUBLE:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.DOUBLE);
+                break;
+            case DECIMAL:
+                builder = Types.optional(field.getPrecision() <= 9 ? PrimitiveType.PrimitiveTypeName.INT32 :
+                        field.getPrecision() <= 18 ? PrimitiveType.PrimitiveTypeName.INT64 :
+                                PrimitiveType.PrimitiveTypeName.BINARY)
+                        .as(LogicalTypeAnnotation.decimalType(field.getScale(), field.getPrecision()));
+                break;
+            case STRING:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType());
+                break;
+            case DATE:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType());
+                break;
+            case TIME:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.timeType(false, LogicalTypeAnnotation.TimeUnit.MICROS));
+                break;
+            case TIMESTAMP:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MICROS));
+                break;
+            default:
+                builder = Types.optional(PrimitiveType.PrimitiveTypeName.BINARY);
+        }
+        return builder.named(field.getName());
+    }
+
+    /**
+     * Write the value of a row of a batch column.
+     */
+    private static void writeValue(ArrowField field, ColumnWriter writer, Object values, int row) throws IOException {
+        switch (field.getType()) {
+            case BOOLEAN:
+                writer.write(((boolean[]) values)[row], 0, 1);
+                break;
+            case INT:
+            case DATE:
+                writer.write(((int[]) values)[row], 0, 1);
+                break;
+            case LONG:
+            case TIMESTAMP:
+                writer.write(((long[]) values)[row], 0, 1);
+                break;
+            case TIME:
+                writer.write(((long[]) values)[row] / 1000, 0, 1);
+                break;
+            case FLOAT:
+                writer.write(((float[]) values)[row], 0, 1);
+                break;
+            case DOUBLE:
+                writer.write(((double[]) values)[row], 0, 1);
+                break;
+            case DECIMAL: {
+                BigDecimal decimal = ((BigDecimal[]) values)[row].setScale(field.getScale(), RoundingMode.HALF_UP);
+                if (decimal.precision() > field.getPrecision()) {
+                    throw new IOException("The decimal " + decimal + " of the column " + field.getName() +
+                            " does not fit the precision " + field.getPrecision());
+                }
+                if (field.getPrecision() <= 9) {
+                    writer.write(decimal.unscaledValue().intValue(), 0, 1);
+                } else if (field.getPrecision() <= 18) {
+                    writer.write(decimal.unscaledValue().longValue(), 0, 1);
+                } else {
+                    writer.write(Binary.fromConstantByteArray(decimal.unscaledValue().toByteArray()), 0, 1);
+                }
+                break;
+            }
+            case STRING: {
+                Object value = ((Object[]) values)[row];
+                writer.write(Binary.fromConstantByteArray(value instanceof byte[] ? (byte[]) value :
+                        value.toString().getBytes(StandardCharsets.UTF_8)), 0, 1);
+                break;
+            }
+            default:
+                writer.write(Binary.fromConstantByteArray((byte[]) ((Object[]) values)[row]), 0, 1);
+        }
+    }
+
+    /**
+     * Build the GeoParquet metadata of the geometry columns, the SRID being saved as an EPSG identifier.
+     */
+    private Map<String, String> geoMetadata() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode geo = mapper.createObjectNode();
+        ObjectNode columns = mapper.createObjectNode();
+        for (ArrowField field : fields) {
+            if (!field.isGeometry()) {
+                continue;
+            }
+            if (columns.isEmpty()) {
+                geo.put("version", "1.0.0");
+                geo.put("primary_column", field.getName());
+            }
+            ObjectNode column = columns.putObject(field.getName());
+            column.put("encoding", "WKB");
+            column.putArray("geometry_types");
+            if (field.getSrid() > 0) {
+                ObjectNode id = column.putObject("crs").putObject("id");
+                id.put("authority", "EPSG");
+                id.put("code", field.getSrid());
+            } else {
+                column.putNull("crs");
+            }
+        }
+        if (columns.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        geo.set("columns", columns);
+        return Collections.singletonMap(ParquetReader.GEO, mapper.writeValueAsString(geo));
+    }
+
+    /**
+     * Parquet output file writing sequentially into an {@link OutputStream}.
+     */
+    private static final class StreamOutputFile implements OutputFile {
+        private final OutputStream out;
+
+        private StreamOutputFile(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.utilities;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog sketch used to estimate the count of distinct values of a stream with a fixed memory footprint of
+ * <code>2^precision</code> bytes. The relative standard error of the estimation is about
+ * <code>1.04 / sqrt(2^precision)</code>, i.e. 0.8% with the default precision.
+ *
+ * Two sketches with the same precision can be merged, so a stream can be split and estimated in parallel.
+ */
+public class HyperLogLog {
+
+    /**
+     * Default precision of the sketch.
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    /**
+     * Number of bits of the hash used to select the register.
+     */
+    private final int precision;
+    /**
+     * Registers containing the maximum rank observed.
+     */
+    private final byte[] registers;
+
+    /**
+     * Main constructor using the {@link #DEFAULT_PRECISION}.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param precision Number of bits of the hash used to select the register, between 4 and 18.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("The precision should be between 4 and 18.");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Returns the precision of the sketch.
+     *
+     * @return The precision of the sketch.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Add a value to the sketch. Null values are ignored.
+     *
+     * @param value Value to add.
+     */
+    public void add(Object value) {
+        if (value != null) {
+            addHash(hash(value));
+        }
+    }
+
+    /**
+     * Add a long value to the sketch.
+     *
+     * @param value Value to add.
+     */
+    public void add(long value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Add a double value to the sketch.
+     *
+     * @param value Value to add.
+     */
+    public void add(double value) {
+        addHash(hash(Double.doubleToLongBits(value == 0.0 ? 0.0 : value)));
+    }
+
+    /**
+     * Add an already hashed value to the sketch. The hash should be uniformly distributed on the 64 bits.
+     *
+     * @param hash 64 bits hash of the value.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        long w = hash << precision;
+        int rank = w == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(w) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Merge the given sketch into this one.
+     *
+     * @param other {@link HyperLogLog} to merge.
+     * @return This {@link HyperLogLog}.
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Unable to merge sketches with different precisions.");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the estimation of the count of distinct values added to the sketch.
+     *
+     * @return The estimated count of distinct values.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha;
+        switch (m) {
+            case 16:
+                alpha = 0.673;
+                break;
+            case 32:
+                alpha = 0.697;
+                break;
+            case 64:
+                alpha = 0.709;
+                break;
+            default:
+                alpha = 0.7213 / (1 + 1.079 / m);
+        }
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns a 64 bits hash of the given value. Integral numbers are hashed on their long value so an int and a long
+     * with the same value are counted once.
+     *
+     * @param value Value to hash.
+     * @return The 64 bits hash.
+     */
+    public static long hash(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return hash(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return hash(Double.doubleToLongBits(d == 0.0 ? 0.0 : d));
+        } else if (value instanceof byte[]) {
+            return hash((byte[]) value);
+        } else {
+            return hash(value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns a 64 bits hash of the given long value (MurmurHash3 finalizer).
+     *
+     * @param value Value to hash.
+     * @return The 64 bits hash.
+     */
+    public static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns a 64 bits hash of the given bytes (FNV-1a followed by the MurmurHash3 finalizer).
+     *
+     * @param bytes Bytes to hash.
+     * @return The 64 bits hash.
+     */
+    public static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return hash(h);
+    }
+}
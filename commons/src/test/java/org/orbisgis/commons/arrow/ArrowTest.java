@@ -0,0 +1,238 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.arrow;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class dedicated to {@link ArrowWriter} and {@link ArrowReader} classes.
+ */
+public class ArrowTest {
+
+    private static final List<ArrowField> FIELDS = Arrays.asList(
+            new ArrowField("ID", ArrowField.Type.INT),
+            new ArrowField("BIG", ArrowField.Type.LONG),
+            new ArrowField("REAL", ArrowField.Type.FLOAT),
+            new ArrowField("VALUE", ArrowField.Type.DOUBLE),
+            new ArrowField("FLAG", ArrowField.Type.BOOLEAN),
+            new ArrowField("AMOUNT", 10, 2),
+            new ArrowField("NAME", ArrowField.Type.STRING),
+            new ArrowField("DAY", ArrowField.Type.DATE),
+            new ArrowField("HOUR", ArrowField.Type.TIME),
+            new ArrowField("STAMP", ArrowField.Type.TIMESTAMP),
+            ArrowField.geometry("THE_GEOM", 4326));
+
+    private static ArrowBatch batch(int offset) {
+        BitSet nulls = new BitSet();
+        nulls.set(1);
+        return new ArrowBatch(3, new Object[]{
+                new int[]{offset, offset + 1, offset + 2},
+                new long[]{Long.MAX_VALUE, -1, 0},
+                new float[]{1.5f, 0, -2.5f},
+                new double[]{Math.PI, 0, -1e300},
+                new boolean[]{true, false, true},
+                new BigDecimal[]{new BigDecimal("12.34"), null, new BigDecimal("-99999999.99")},
+                new String[]{"été", null, ""},
+                new int[]{0, 0, 19000},
+                new long[]{3_600_000_000_000L, 0, 1},
+                new long[]{-1, 0, 1_700_000_000_000_000L},
+                new byte[][]{{1, 2, 3}, null, {}}},
+                new BitSet[]{null, null, null, nulls, null, null, null, nulls, null, null, null});
+    }
+
+    private static void checkBatch(ArrowBatch batch, int offset) {
+        assertEquals(3, batch.getRowCount());
+        assertArrayEquals(new int[]{offset, offset + 1, offset + 2}, (int[]) batch.getColumn(0));
+        assertArrayEquals(new long[]{Long.MAX_VALUE, -1, 0}, (long[]) batch.getColumn(1));
+        assertArrayEquals(new float[]{1.5f, 0, -2.5f}, (float[]) batch.getColumn(2));
+        assertEquals(Math.PI, ((double[]) batch.getColumn(3))[0]);
+        assertEquals(-1e300, ((double[]) batch.getColumn(3))[2]);
+        assertTrue(batch.isNull(3, 1));
+        assertFalse(batch.isNull(3, 0));
+        assertArrayEquals(new boolean[]{true, false, true}, (boolean[]) batch.getColumn(4));
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("12.34"), null, new BigDecimal("-99999999.99")},
+                (BigDecimal[]) batch.getColumn(5));
+        assertArrayEquals(new String[]{"été", null, ""}, (String[]) batch.getColumn(6));
+        assertTrue(batch.isNull(6, 1));
+        assertTrue(batch.isNull(7, 1));
+        assertEquals(19000, ((int[]) batch.getColumn(7))[2]);
+        assertArrayEquals(new long[]{3_600_000_000_000L, 0, 1}, (long[]) batch.getColumn(8));
+        assertArrayEquals(new long[]{-1, 0, 1_700_000_000_000_000L}, (long[]) batch.getColumn(9));
+        byte[][] wkb = (byte[][]) batch.getColumn(10);
+        assertArrayEquals(new byte[]{1, 2, 3}, wkb[0]);
+        assertNull(wkb[1]);
+        assertEquals(0, wkb[2].length);
+    }
+
+    private static byte[] write(boolean file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ArrowWriter writer = new ArrowWriter(out, FIELDS, file)) {
+            writer.write(batch(0));
+            writer.write(batch(10));
+        }
+        return out.toByteArray();
+    }
+
+    private static void read(byte[] bytes) throws IOException {
+        try (ArrowReader reader = new ArrowReader(new ByteArrayInputStream(bytes))) {
+            List<ArrowField> fields = reader.getFields();
+            assertEquals(FIELDS.size(), fields.size());
+            for (int i = 0; i < FIELDS.size(); i++) {
+                assertEquals(FIELDS.get(i).getName(), fields.get(i).getName());
+                assertEquals(FIELDS.get(i).getType(), fields.get(i).getType());
+            }
+            assertEquals(10, fields.get(5).getPrecision());
+            assertEquals(2, fields.get(5).getScale());
+            assertTrue(fields.get(10).isGeometry());
+            assertEquals(4326, fields.get(10).getSrid());
+            assertFalse(fields.get(6).isGeometry());
+            checkBatch(reader.next(), 0);
+            checkBatch(reader.next(), 10);
+            assertNull(reader.next());
+        }
+    }
+
+    /**
+     * Test the stream format.
+     */
+    @Test
+    void streamTest() throws IOException {
+        byte[] bytes = write(false);
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(bytes), allocator)) {
+            assertEquals(FIELDS.size(), reader.getVectorSchemaRoot().getSchema().getFields().size());
+            assertEquals(ArrowField.GEOARROW_WKB, reader.getVectorSchemaRoot().getSchema().getFields().get(10)
+                    .getMetadata().get(ArrowField.EXTENSION_NAME));
+            assertTrue(reader.loadNextBatch());
+            assertEquals(3, reader.getVectorSchemaRoot().getRowCount());
+        }
+        read(bytes);
+    }
+
+    /**
+     * Test the file format and its footer.
+     */
+    @Test
+    void fileTest() throws IOException {
+        byte[] bytes = write(true);
+        assertEquals("ARROW1", new String(bytes, 0, 6));
+        assertEquals("ARROW1", new String(bytes, bytes.length - 6, 6));
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(new ByteArrayReadableSeekableByteChannel(bytes), allocator)) {
+            assertEquals(2, reader.getRecordBlocks().size());
+            assertTrue(reader.loadRecordBatch(reader.getRecordBlocks().get(1)));
+            assertEquals(12, ((IntVector) reader.getVectorSchemaRoot().getVector("ID")).get(2));
+        }
+        read(bytes);
+    }
+
+    /**
+     * Test the reading of the ZSTD compressed stream and file formats written by DuckDB.
+     */
+    @Test
+    void fixtureTest() throws IOException {
+        for (String fixture : new String[]{"duckdb_zstd.arrow", "duckdb_zstd.arrows"}) {
+            InputStream in = ArrowTest.class.getResourceAsStream(fixture);
+            try (ArrowReader reader = new ArrowReader(in)) {
+                List<ArrowField> fields = reader.getFields();
+                for (int i = 0; i < FIELDS.size() - 1; i++) {
+                    assertEquals(FIELDS.get(i).getName(), fields.get(i).getName());
+                    assertEquals(FIELDS.get(i).getType(), fields.get(i).getType());
+                }
+                assertEquals(ArrowField.Type.BINARY, fields.get(10).getType());
+                assertEquals(10, fields.get(5).getPrecision());
+                assertEquals(2, fields.get(5).getScale());
+                ArrowBatch first = reader.next();
+                assertEquals(2, first.getRowCount());
+                assertArrayEquals(new int[]{0, 1}, (int[]) first.getColumn(0));
+                assertArrayEquals(new long[]{Long.MAX_VALUE, -1}, (long[]) first.getColumn(1));
+                assertArrayEquals(new float[]{1.5f, 0}, (float[]) first.getColumn(2));
+                assertEquals(Math.PI, ((double[]) first.getColumn(3))[0]);
+                assertTrue(first.isNull(3, 1));
+                assertArrayEquals(new boolean[]{true, false}, (boolean[]) first.getColumn(4));
+                assertArrayEquals(new BigDecimal[]{new BigDecimal("12.34"), null}, (BigDecimal[]) first.getColumn(5));
+                assertArrayEquals(new String[]{"été", null}, (String[]) first.getColumn(6));
+                assertEquals(0, ((int[]) first.getColumn(7))[0]);
+                assertTrue(first.isNull(7, 1));
+                assertArrayEquals(new long[]{3_600_000_000_000L, 0}, (long[]) first.getColumn(8));
+                assertArrayEquals(new long[]{-1, 0}, (long[]) first.getColumn(9));
+                assertArrayEquals(new byte[]{1, 2, 3}, ((byte[][]) first.getColumn(10))[0]);
+                assertTrue(first.isNull(10, 1));
+                ArrowBatch second = reader.next();
+                assertEquals(1, second.getRowCount());
+                assertEquals(-1e300, ((double[]) second.getColumn(3))[0]);
+                assertEquals(new BigDecimal("-99999999.99"), ((BigDecimal[]) second.getColumn(5))[0]);
+                assertEquals(2, ((int[]) second.getColumn(7))[0]);
+                assertEquals(1000, ((long[]) second.getColumn(8))[0]);
+                assertEquals(1_700_000_000_000_000L, ((long[]) second.getColumn(9))[0]);
+                assertEquals(0, ((byte[][]) second.getColumn(10))[0].length);
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    /**
+     * Test the reading of an empty stream.
+     */
+    @Test
+    void emptyTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowWriter(out, FIELDS, false).close();
+        try (ArrowReader reader = new ArrowReader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(FIELDS.size(), reader.getFields().size());
+            assertNull(reader.next());
+        }
+        assertThrows(IOException.class, () -> new ArrowReader(new ByteArrayInputStream(new byte[0])));
+    }
+}
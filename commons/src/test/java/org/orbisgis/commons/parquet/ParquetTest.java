@@ -0,0 +1,292 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.parquet;
+
+import org.junit.jupiter.api.Test;
+import org.orbisgis.commons.arrow.ArrowBatch;
+import org.orbisgis.commons.arrow.ArrowField;
+
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.LocalInputFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class dedicated to {@link ParquetWriter} and {@link ParquetReader} classes.
+ */
+public class ParquetTest {
+
+    private static final List<ArrowField> FIELDS = Arrays.asList(
+            new ArrowField("ID", ArrowField.Type.INT),
+            new ArrowField("BIG", ArrowField.Type.LONG),
+            new ArrowField("REAL", ArrowField.Type.FLOAT),
+            new ArrowField("VALUE", ArrowField.Type.DOUBLE),
+            new ArrowField("FLAG", ArrowField.Type.BOOLEAN),
+            new ArrowField("AMOUNT", 10, 2),
+            new ArrowField("NAME", ArrowField.Type.STRING),
+            new ArrowField("DAY", ArrowField.Type.DATE),
+            new ArrowField("HOUR", ArrowField.Type.TIME),
+            new ArrowField("STAMP", ArrowField.Type.TIMESTAMP),
+            ArrowField.geometry("THE_GEOM", 2154));
+
+    private static ArrowBatch batch(int offset) {
+        BitSet nulls = new BitSet();
+        nulls.set(1);
+        return new ArrowBatch(3, new Object[]{
+                new int[]{offset, offset + 1, offset + 2},
+                new long[]{Long.MAX_VALUE, -1, 0},
+                new float[]{1.5f, 0, -2.5f},
+                new double[]{Math.PI, 0, -1e300},
+                new boolean[]{true, false, true},
+                new BigDecimal[]{new BigDecimal("12.34"), null, new BigDecimal("-99999999.99")},
+                new String[]{"été", null, ""},
+                new int[]{offset, 0, offset + 2},
+                new long[]{3_600_000_000_000L, 0, 1000},
+                new long[]{-1, 0, 1_700_000_000_000_000L},
+                new byte[][]{{1, 2, 3}, null, {}}},
+                new BitSet[]{null, null, null, nulls, null, null, null, nulls, null, null, null});
+    }
+
+    private static void checkBatch(ArrowBatch batch, int offset) {
+        assertEquals(3, batch.getRowCount());
+        assertArrayEquals(new int[]{offset, offset + 1, offset + 2}, (int[]) batch.getColumn(0));
+        assertArrayEquals(new long[]{Long.MAX_VALUE, -1, 0}, (long[]) batch.getColumn(1));
+        assertArrayEquals(new float[]{1.5f, 0, -2.5f}, (float[]) batch.getColumn(2));
+        assertEquals(Math.PI, ((double[]) batch.getColumn(3))[0]);
+        assertEquals(-1e300, ((double[]) batch.getColumn(3))[2]);
+        assertTrue(batch.isNull(3, 1));
+        assertFalse(batch.isNull(3, 0));
+        assertArrayEquals(new boolean[]{true, false, true}, (boolean[]) batch.getColumn(4));
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("12.34"), null, new BigDecimal("-99999999.99")},
+                (BigDecimal[]) batch.getColumn(5));
+        assertArrayEquals(new String[]{"été", null, ""}, (String[]) batch.getColumn(6));
+        assertTrue(batch.isNull(6, 1));
+        assertTrue(batch.isNull(7, 1));
+        assertEquals(offset + 2, ((int[]) batch.getColumn(7))[2]);
+        assertArrayEquals(new long[]{3_600_000_000_000L, 0, 1000}, (long[]) batch.getColumn(8));
+        assertArrayEquals(new long[]{-1, 0, 1_700_000_000_000_000L}, (long[]) batch.getColumn(9));
+        byte[][] wkb = (byte[][]) batch.getColumn(10);
+        assertArrayEquals(new byte[]{1, 2, 3}, wkb[0]);
+        assertNull(wkb[1]);
+        assertEquals(0, wkb[2].length);
+    }
+
+    private static File write(String name, ParquetWriter.Codec codec) throws IOException {
+        File file = new File("target/" + name + ".parquet");
+        try (ParquetWriter writer = new ParquetWriter(new FileOutputStream(file), FIELDS, codec)) {
+            writer.write(batch(0));
+            writer.write(batch(10));
+        }
+        return file;
+    }
+
+    private static ParquetMetadata footer(File file) throws IOException {
+        try (ParquetFileReader reader = new ParquetFileReader(new LocalInputFile(file.toPath()),
+                ParquetReadOptions.builder(new PlainParquetConfiguration()).build())) {
+            return reader.getFooter();
+        }
+    }
+
+    private static File fixture(String name) throws URISyntaxException {
+        return new File(ParquetTest.class.getResource(name).toURI());
+    }
+
+    /**
+     * Test the writing and the reading of all the types with the different codecs.
+     */
+    @Test
+    void roundTripTest() throws IOException {
+        for (ParquetWriter.Codec codec : ParquetWriter.Codec.values()) {
+            File file = write("round_trip_" + codec, codec);
+            try (ParquetReader reader = new ParquetReader(file)) {
+                assertEquals(6, reader.getRowCount());
+                assertEquals(2, reader.getRowGroupCount());
+                List<ArrowField> fields = reader.getFields();
+                assertEquals(FIELDS.size(), fields.size());
+                for (int i = 0; i < FIELDS.size(); i++) {
+                    assertEquals(FIELDS.get(i).getName(), fields.get(i).getName());
+                    assertEquals(FIELDS.get(i).getType(), fields.get(i).getType());
+                }
+                assertEquals(10, fields.get(5).getPrecision());
+                assertEquals(2, fields.get(5).getScale());
+                assertTrue(fields.get(10).isGeometry());
+                assertEquals(2154, fields.get(10).getSrid());
+                checkBatch(reader.next(), 0);
+                checkBatch(reader.next(), 10);
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    /**
+     * Test the footer metadata : codec, statistics and GeoParquet metadata.
+     */
+    @Test
+    void metadataTest() throws IOException {
+        ParquetMetadata footer = footer(write("metadata", ParquetWriter.Codec.ZSTD));
+        assertEquals(2, footer.getBlocks().size());
+        Map<String, String> keyValues = footer.getFileMetaData().getKeyValueMetaData();
+        String geo = keyValues.get("geo");
+        assertTrue(geo.contains("\"primary_column\":\"THE_GEOM\""));
+        assertTrue(geo.contains("\"code\":2154"));
+        ColumnChunkMetaData idChunk = footer.getBlocks().get(1).getColumns().get(0);
+        assertEquals(CompressionCodecName.ZSTD, idChunk.getCodec());
+        Statistics<?> statistics = idChunk.getStatistics();
+        assertEquals(0, statistics.getNumNulls());
+        assertEquals(10, statistics.genericGetMin());
+        assertEquals(12, statistics.genericGetMax());
+    }
+
+    /**
+     * Test the column projection and the skipping of the row groups.
+     */
+    @Test
+    void selectFilterTest() throws IOException {
+        File file = write("select_filter", ParquetWriter.Codec.GZIP);
+        try (ParquetReader reader = new ParquetReader(file).select("the_geom", "ID").filter("ID", 5, null)) {
+            assertEquals(2, reader.getFields().size());
+            assertEquals("THE_GEOM", reader.getFields().get(0).getName());
+            ArrowBatch batch = reader.next();
+            assertEquals(2, batch.getColumnCount());
+            assertArrayEquals(new int[]{10, 11, 12}, (int[]) batch.getColumn(1));
+            assertNull(reader.next());
+        }
+        try (ParquetReader reader = new ParquetReader(file).filter("DAY", null, LocalDate.ofEpochDay(5))
+                .filter("NAME", "a", null)) {
+            checkBatch(reader.next(), 0);
+            assertNull(reader.next());
+        }
+        try (ParquetReader reader = new ParquetReader(file).filter("VALUE", 4, 5)) {
+            assertNull(reader.next());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ParquetReader(file).select("UNKNOWN"));
+    }
+
+    /**
+     * Test the dictionary encoding of the repeated strings and the run length encoding of the indexes.
+     */
+    @Test
+    void dictionaryTest() throws IOException {
+        int rows = 100_000;
+        String[] names = new String[rows];
+        int[] ids = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            names[i] = i % 7 == 0 ? null : i < rows / 2 ? "constant" : "value" + i % 13;
+            ids[i] = i;
+        }
+        List<ArrowField> fields = Arrays.asList(new ArrowField("ID", ArrowField.Type.INT),
+                new ArrowField("NAME", ArrowField.Type.STRING));
+        File file = new File("target/dictionary.parquet");
+        try (ParquetWriter writer = new ParquetWriter(new FileOutputStream(file), fields)) {
+            writer.write(new ArrowBatch(rows, new Object[]{ids, names}, new BitSet[2]));
+        }
+        ColumnChunkMetaData chunk = footer(file).getBlocks().get(0).getColumns().get(1);
+        assertTrue(chunk.hasDictionaryPage());
+        assertTrue(chunk.getEncodings().contains(Encoding.PLAIN_DICTIONARY) ||
+                chunk.getEncodings().contains(Encoding.RLE_DICTIONARY));
+        try (ParquetReader reader = new ParquetReader(file)) {
+            ArrowBatch batch = reader.next();
+            assertArrayEquals(ids, (int[]) batch.getColumn(0));
+            assertArrayEquals(names, (String[]) batch.getColumn(1));
+            assertTrue(batch.isNull(1, 7));
+        }
+    }
+
+    /**
+     * Test the reading of the files written by DuckDB, compressed with ZSTD and SNAPPY.
+     */
+    @Test
+    void fixtureTest() throws Exception {
+        for (String fixture : new String[]{"duckdb_zstd.parquet", "duckdb_snappy.parquet"}) {
+            try (ParquetReader reader = new ParquetReader(fixture(fixture))) {
+                assertEquals(3, reader.getRowCount());
+                List<ArrowField> fields = reader.getFields();
+                for (int i = 0; i < FIELDS.size(); i++) {
+                    assertEquals(FIELDS.get(i).getName(), fields.get(i).getName());
+                    assertEquals(FIELDS.get(i).getType(), fields.get(i).getType());
+                }
+                assertEquals(10, fields.get(5).getPrecision());
+                assertEquals(2, fields.get(5).getScale());
+                assertTrue(fields.get(10).isGeometry());
+                assertEquals(2154, fields.get(10).getSrid());
+                checkBatch(reader.next(), 0);
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    /**
+     * Test that the files compressed with an unsupported codec are rejected with an explicit message.
+     */
+    @Test
+    void unsupportedCodecTest() throws Exception {
+        File file = fixture("duckdb_brotli.parquet");
+        IOException e = assertThrows(IOException.class, () -> new ParquetReader(file));
+        assertTrue(e.getMessage().contains("BROTLI compression"), e.getMessage());
+        assertTrue(e.getMessage().contains("ZSTD"), e.getMessage());
+    }
+
+    /**
+     * Test the reading of files which are not Parquet files.
+     */
+    @Test
+    void invalidFileTest() throws IOException {
+        File file = new File("target/invalid.parquet");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a parquet file".getBytes());
+        }
+        assertThrows(IOException.class, () -> new ParquetReader(file));
+    }
+}
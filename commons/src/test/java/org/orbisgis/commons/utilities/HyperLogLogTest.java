@@ -0,0 +1,91 @@
+/*
+ * Bundle Commons is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * Commons is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018-2020 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * Commons is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Commons is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Commons. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.commons.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class dedicated to {@link HyperLogLog} class.
+ */
+public class HyperLogLogTest {
+
+    /**
+     * Test the {@link HyperLogLog#estimate()} method on small and large cardinalities.
+     */
+    @Test
+    void estimateTest() {
+        HyperLogLog hll = new HyperLogLog();
+        assertEquals(0, hll.estimate());
+        for (int i = 0; i < 10; i++) {
+            hll.add("value" + (i % 5));
+        }
+        assertEquals(5, hll.estimate());
+
+        hll = new HyperLogLog();
+        for (long i = 0; i < 1_000_000; i++) {
+            hll.add(i);
+            hll.add(i);
+        }
+        assertEquals(1_000_000, hll.estimate(), 1_000_000 * 0.03);
+
+        hll = new HyperLogLog();
+        hll.add(1);
+        hll.add(1L);
+        hll.add((Object) 1);
+        hll.add((Object) 1L);
+        hll.add(null);
+        assertEquals(1, hll.estimate());
+    }
+
+    /**
+     * Test the {@link HyperLogLog#merge(HyperLogLog)} method.
+     */
+    @Test
+    void mergeTest() {
+        HyperLogLog hll1 = new HyperLogLog(12);
+        HyperLogLog hll2 = new HyperLogLog(12);
+        for (int i = 0; i < 50_000; i++) {
+            hll1.add("a" + i);
+            hll2.add("a" + (i + 25_000));
+        }
+        assertEquals(75_000, hll1.merge(hll2).estimate(), 75_000 * 0.06);
+        assertThrows(IllegalArgumentException.class, () -> hll1.merge(new HyperLogLog(10)));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(2));
+    }
+}
@@ -36,7 +36,12 @@
  */
 package org.orbisgis.data.api.dataset;
 
+import groovy.lang.Closure;
+import org.locationtech.jts.geom.Envelope;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Extension of the {@link IJdbcTable} and {@link ISpatialTable} interfaces.
@@ -45,4 +50,146 @@ package org.orbisgis.data.api.dataset;
  * @author Sylvain PALOMINOS (Lab-STICC UBS 2019)
  */
 public interface IJdbcSpatialTable<T> extends IJdbcTable<T>, ISpatialTable<T> {
+
+    /**
+     * Enable or disable the decoding of the geometries of the current row into geometries backed by
+     * <code>PackedCoordinateSequence.Double</code> instead of arrays of coordinates. The geometries are then read as
+     * WKB and decoded with one reader reused for all the rows of the table.
+     *
+     * @param packed True to decode packed geometries, false to use the geometries of the driver.
+     */
+    void setPackedGeometries(boolean packed);
+
+    /**
+     * Returns true if the geometries are decoded into packed geometries.
+     *
+     * @return True if the geometries are decoded into packed geometries.
+     */
+    boolean isPackedGeometries();
+
+    /**
+     * Returns the envelope of the geometry of the given column at the current row, read from its WKB without decoding
+     * the geometry.
+     *
+     * @param columnIndex Index of the geometric column.
+     * @return The {@link Envelope} of the geometry, null if the geometry is null.
+     */
+    Envelope getGeometryEnvelope(int columnIndex) throws Exception;
+
+    /**
+     * Returns the envelope of the geometry of the given column at the current row, read from its WKB without decoding
+     * the geometry.
+     *
+     * @param columnLabel Label of the geometric column.
+     * @return The {@link Envelope} of the geometry, null if the geometry is null.
+     */
+    Envelope getGeometryEnvelope(String columnLabel) throws Exception;
+
+    /**
+     * Returns the raw WKB, or EWKB when the database stores the SRID, of the geometry of the given column at the
+     * current row.
+     *
+     * @param columnIndex Index of the geometric column.
+     * @return The WKB of the geometry, null if the geometry is null.
+     */
+    byte[] getGeometryBytes(int columnIndex) throws Exception;
+
+    /**
+     * Returns the raw WKB, or EWKB when the database stores the SRID, of the geometry of the given column at the
+     * current row.
+     *
+     * @param columnLabel Label of the geometric column.
+     * @return The WKB of the geometry, null if the geometry is null.
+     */
+    byte[] getGeometryBytes(String columnLabel) throws Exception;
+
+    /**
+     * Split the extent of the first geometry column into a regular grid of tiles. The estimated extent is used when
+     * it is available.
+     *
+     * @param columnCount Number of tiles along the X axis.
+     * @param rowCount    Number of tiles along the Y axis.
+     * @return The tiles, row by row from the lower left corner.
+     */
+    List<Envelope> getTiles(int columnCount, int rowCount) throws Exception;
+
+    /**
+     * Split the extent of the first geometry column into a quadtree grid balanced by feature count : a tile is split
+     * into four tiles while it contains more than the given number of features. The features are counted in one
+     * query on a fine grid, so the count of a tile is approximate when the fine grid cannot be split anymore. The
+     * empty tiles are not returned.
+     *
+     * @param maxFeatures Maximal number of features by tile.
+     * @return The non empty tiles.
+     */
+    List<Envelope> getTiles(int maxFeatures) throws Exception;
+
+    /**
+     * Run a SQL query on each tile concurrently and merge the results into a new table.
+     *
+     * The query contains the <code>{tile_filter}</code> placeholder, replaced by the condition selecting the
+     * features of the tile. Each feature belongs to one tile only, the one containing the lower left corner of its
+     * envelope, so the features crossing the tile borders are not duplicated. As a feature is only seen by its own
+     * tile, the geometries must not be clipped by the tile : the parts lying on the other tiles would be lost. The
+     * <code>{tile_envelope}</code> placeholder is replaced by the envelope geometry of the tile and the
+     * <code>{tile_id}</code> placeholder by the index of the tile. If a tile fails, the output table is dropped.
+     *
+     * @param tiles       Tiles, from {@link #getTiles(int)} or {@link #getTiles(int, int)}.
+     * @param query       SELECT query with the tile placeholders.
+     * @param outputTable Name of the table receiving the results, replaced if it already exists.
+     * @param threadCount Maximal number of tiles processed concurrently, each one with its own connection.
+     * @return The name of the output table.
+     */
+    String processTiles(List<Envelope> tiles, String query, String outputTable, int threadCount) throws Exception;
+
+    /**
+     * Call a {@link Closure} on each tile concurrently. The {@link Closure} receives a <code>groovy.sql.Sql</code>
+     * object on the connection of its thread, the {@link Envelope} of the tile and the SQL condition selecting the
+     * features of the tile, as described in {@link #processTiles(List, String, String, int)}.
+     *
+     * @param tiles       Tiles, from {@link #getTiles(int)} or {@link #getTiles(int, int)}.
+     * @param threadCount Maximal number of tiles processed concurrently, each one with its own connection.
+     * @param closure     {@link Closure} to call on each tile.
+     * @return The values returned by the {@link Closure}, in the order of the tiles.
+     */
+    List<Object> eachTile(List<Envelope> tiles, int threadCount, Closure<Object> closure) throws Exception;
+
+    /**
+     * Reproject the geometries on the client side into a new table. The rows are read as a stream and the coordinates
+     * of each batch of rows are transformed in parallel, the coordinate operations being cached by source and target
+     * SRID. The SRID of the source geometries is read from the geometries or from the geometry columns.
+     *
+     * @param srid        SRID of the target coordinate reference system.
+     * @param outputTable Name of the table receiving the reprojected rows, replaced if it already exists.
+     * @return The name of the output table.
+     */
+    String reproject(int srid, String outputTable) throws Exception;
+
+    /**
+     * Reproject the geometries on the client side as a stream of rows, each row being a map of the column labels and
+     * the values. The rows are read and reprojected by batches as described in {@link #reproject(int, String)}. The
+     * stream should be closed to release the underlying statement.
+     *
+     * @param srid SRID of the target coordinate reference system.
+     * @return A {@link Stream} of the reprojected rows.
+     */
+    Stream<Map<String, Object>> reprojectStream(int srid) throws Exception;
+
+    /**
+     * Join this table with another spatial table of the same data source, the rows being joined if the given spatial
+     * predicate is true for their first geometry columns : <code>predicate(geometry, otherGeometry)</code>. The columns
+     * of the other table having the same name as a column of this table are suffixed with <code>_2</code>.
+     *
+     * If both tables are tables of the database, the join is done by the database : if none of them has a spatial
+     * index, one is created on the smaller table, and the query contains the bounding box filter needed to use it.
+     * Otherwise the smaller table is indexed in memory with an STRtree, the other one is read by batches which are
+     * joined in parallel, and the result is stored in a new temporary table named <code>SPATIAL_JOIN_</code>
+     * followed by a unique identifier, dropped when the connection of the data source is closed.
+     *
+     * @param other     Table to join.
+     * @param predicate Name of the spatial predicate : ST_Intersects, ST_Contains, ST_Within, ST_Covers,
+     *                  ST_CoveredBy, ST_Overlaps, ST_Touches, ST_Crosses or ST_Equals.
+     * @return The joined table.
+     */
+    IJdbcSpatialTable<T> spatialJoin(IJdbcSpatialTable<?> other, String predicate) throws Exception;
 }
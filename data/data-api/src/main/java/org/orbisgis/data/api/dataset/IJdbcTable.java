@@ -44,7 +44,10 @@ import org.orbisgis.data.api.dsl.IResultSetProperties;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Extension of the {@link ITable} specially dedicated to the JDBC databases thanks to the extension of the
@@ -124,6 +127,73 @@ public interface IJdbcTable<T> extends ITable<T, T>, ResultSet {
     @Override
     IJdbcTableSummary getSummary() throws Exception;
 
+    /**
+     * Returns the {@link IJdbcTableSummary} of the table. If <code>columnStatistics</code> is true, the summary also
+     * contains the statistics of each column (min, max, mean, standard deviation, null and distinct counts, extent and
+     * geometry types) computed by the database in a single query.
+     *
+     * @param columnStatistics True to compute the statistics of each column, false otherwise.
+     * @return The {@link IJdbcTableSummary} of the table.
+     */
+    IJdbcTableSummary getSummary(boolean columnStatistics) throws Exception;
+
+    /**
+     * Returns the count of the distinct non-null values of the given column. If <code>approximate</code> is true, the
+     * values are streamed into a HyperLogLog sketch, so the count is estimated with a fixed memory footprint,
+     * otherwise the exact count is computed by the database.
+     *
+     * @param column      Name of the column.
+     * @param approximate True to estimate the count, false to compute the exact count.
+     * @return The count of the distinct non-null values.
+     */
+    long getDistinctCount(String column, boolean approximate) throws Exception;
+
+    /**
+     * Returns the <code>k</code> most frequent non-null values of the given column with their count of occurrences,
+     * sorted by decreasing count. The values are grouped, sorted and limited by the database.
+     *
+     * @param column Name of the column.
+     * @param k      Maximum number of values to return.
+     * @return The most frequent values with their count of occurrences.
+     */
+    Map<Object, Long> getTopValues(String column, int k) throws Exception;
+
+    /**
+     * Returns a {@link Stream} on the distinct non-null values of the given column. The values are read lazily
+     * from the database, so the {@link Stream} holds an open statement until it is closed : use it in a
+     * try-with-resources block.
+     *
+     * @param column Name of the column.
+     * @return A {@link Stream} on the distinct values.
+     */
+    default Stream<Object> uniqueValues(String column) throws Exception {
+        return uniqueValues(column, -1);
+    }
+
+    /**
+     * Returns a {@link Stream} on at most <code>limit</code> distinct non-null values of the given column. The
+     * values are read lazily from the database, so the {@link Stream} holds an open statement until it is closed :
+     * use it in a try-with-resources block.
+     *
+     * @param column Name of the column.
+     * @param limit  Maximum number of values to return, no limit if negative.
+     * @return A {@link Stream} on the distinct values.
+     */
+    Stream<Object> uniqueValues(String column, int limit) throws Exception;
+
+    /**
+     * Return an {@link Iterator} on the pages of the table as described in {@link ITable#pages(String, int)}. The
+     * pages are read with <code>WHERE key &gt; lastKey AND key &lt;= pageLastKey ORDER BY key</code> queries. The keys
+     * bounding a page are read when moving to it, so a page can then be read on any thread or after the next ones.
+     * Each page has its own statement, released by closing the page.
+     *
+     * @param keyColumn Name of the column ordering the rows, preferably unique and indexed.
+     * @param pageSize  Number of rows of each page.
+     * @return An {@link Iterator} on the pages.
+     */
+    @Override
+    Iterator<? extends IJdbcTable<?>> pages(String keyColumn, int pageSize) throws Exception;
+
     /**
      * Returns the parameters of the parametrized query.
      *
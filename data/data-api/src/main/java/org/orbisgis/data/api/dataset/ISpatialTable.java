@@ -36,11 +36,6 @@
  */
 package org.orbisgis.data.api.dataset;
 
-import org.locationtech.jts.geom.Geometry;
-
-import java.util.List;
-import java.util.Map;
-
 /**
  * Extension of {@link ITable}. A {@link ISpatialTable} is a specialisation with at least one Geometry column.
  *
@@ -49,134 +44,7 @@ import java.util.Map;
  * @author Erwan Bocher (CNRS)
  * @author Sylvain PALOMINOS (Lab-STICC UBS 2018-2019)
  */
-public interface ISpatialTable<T> extends ITable<T, T> {
-
-    /**
-     * Returns the {@link Geometry} value of the given column at the current row.
-     *
-     * @param columnIndex Index of the geometric column.
-     * @return The {@link Geometry} value of the given column at the current row.
-     */
-    Geometry getGeometry(int columnIndex) throws Exception;
-
-    /**
-     * Returns the {@link Geometry} value of the given column at the current row.
-     *
-     * @param columnLabel Label of the geometric column.
-     * @return The {@link Geometry} value of the given column at the current row.
-     */
-    Geometry getGeometry(String columnLabel) throws Exception;
-
-    /**
-     * Returns the {@link Geometry} value of the first geometric column at the current row.
-     *
-     * @return The {@link Geometry} value of the first geometric column at the current row.
-     */
-    Geometry getGeometry() throws Exception;
-
-    /**
-     * Returns the {@link IRaster} value of the given column at the current row.
-     *
-     * @param columnIndex Index of the raster column.
-     * @return The {@link IRaster} value of the given column at the current row.
-     */
-    IRaster getRaster(int columnIndex) throws Exception;
-
-    /**
-     * Returns the {@link IRaster} value of the given column at the current row.
-     *
-     * @param columnLabel Label of the raster column.
-     * @return The {@link IRaster} value of the given column at the current row.
-     */
-    IRaster getRaster(String columnLabel) throws Exception;
-
-    /**
-     * Returns the {@link IRaster} value of the first raster column at the current row.
-     *
-     * @return The {@link IRaster} value of the first raster column at the current row.
-     */
-    IRaster getRaster() throws Exception;
-
-    /**
-     * Return the list of the table spatial columns.
-     *
-     * @return The list of the table spatial columns.
-     */
-    List<String> getSpatialColumns() throws Exception;
-
-    /**
-     * Return the list of the table raster columns.
-     *
-     * @return The list of the table raster columns.
-     */
-    List<String> getRasterColumns() throws Exception;
-
-    /**
-     * Return the list of the table geometric columns.
-     *
-     * @return The list of the table geometric columns.
-     */
-    List<String> getGeometricColumns() throws Exception;
-
-    /**
-     * Return the full extent {@link Geometry} of a list of geometry columns.
-     *
-     * Note that a geometry column can be a geometry function
-     * e.g. ST_Buffer(the_geom, 20)
-     *
-     * @return The full extent {@link Geometry}.
-     */
-    Geometry getExtent(String... geometryColumns) throws Exception;
-
-    /**
-     * Return the full extent {@link Geometry} of a list of geometry columns
-     * and a filter
-     *
-     * The filter depends to the input datasource
-     * e.g. {@code WHERE ID>12} for a SQL database
-     *
-     * Note that a geometry column can be a geometry function
-     * e.g. {@code ST_Buffer(the_geom, 20)}
-     *
-     *
-     * @return The full extent {@link Geometry}.
-     */
-    Geometry getExtent(String[] geometryColumns, String filter) throws Exception;
-
-    /**
-     * Return the full extent {@link Geometry} of the first geometry column of the table.
-     *
-     * @return The full extent {@link Geometry} of the first geometry column of the table.
-     */
-    Geometry getExtent() throws Exception;
-
-    /**
-     * Return the estimated extent {@link Geometry} of the first geometry column of the table.
-     *
-     * @return The estimated extent {@link Geometry} of the first geometry column of the table.
-     */
-    Geometry getEstimatedExtent() throws Exception;
-
-    /**
-     * Return the SRID code of the first geometry column of the {@link ISpatialTable}.
-     *
-     * @return The SRID code of the first geometry column of the {@link ISpatialTable}.
-     */
-    int getSrid() throws Exception;
-
-    /**
-     * Sets the SRID code of the first geometric column of the {@link ISpatialTable}.
-     *
-     * @param srid The SRID code of the first geometric column of the {@link ISpatialTable}.
-     */
-    void setSrid(int srid) throws Exception;
-
-    /**
-     * Returns a {@link Map} containing the field names as key and the SFS geometry type (well known name) as value.
-     *
-     * @return The field names as key and geometry types as value.
-     */
-    Map<String, String> getGeometryTypes() throws Exception;
+public interface ISpatialTable<T> extends IGeoTable<T, T> {
 
     /**
      * Reproject the current {@link ISpatialTable} to another referenced coordinate system .The reprojection is
@@ -185,5 +53,17 @@ public interface ISpatialTable<T> extends ITable<T, T> {
      * @param srid EPSG code as specified by the EPSG spatial reference system database.
      * @return A reproject {@link ISpatialTable}.
      */
+    @Override
     ISpatialTable<T> reproject(int srid) throws Exception;
+
+    /**
+     * Simplify the geometries of the current {@link ISpatialTable} to a lower level of detail, for previews or map
+     * rendering. The simplification preserves the topology of the geometries and is applied on all the geometry
+     * columns.
+     *
+     * @param tolerance Distance tolerance of the simplification, in the unit of the coordinates.
+     * @return A simplified {@link ISpatialTable}.
+     */
+    @Override
+    ISpatialTable<T> simplified(double tolerance) throws Exception;
 }
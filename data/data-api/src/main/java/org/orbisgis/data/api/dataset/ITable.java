@@ -45,6 +45,7 @@ import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -179,7 +180,9 @@ public interface ITable<T, U> extends IMatrix<T>, IQueryBuilder {
     }
 
     /**
-     * Save the {@link ITable} into a file.
+     * Save the {@link ITable} into a file. The <code>arrow</code>, <code>feather</code> and <code>arrows</code>
+     * extensions write the Apache Arrow IPC file and stream formats, the <code>parquet</code> extension writes the
+     * Apache Parquet format.
      *
      * @param filePath Path of the file to be saved.
      * @param delete True to delete the file if exists.
@@ -538,6 +541,18 @@ public interface ITable<T, U> extends IMatrix<T>, IQueryBuilder {
      */
     Stream<? extends U> stream() throws Exception;
 
+    /**
+     * Return an {@link Iterator} on the pages of the table ordered by the given key column. Each page is an
+     * independent table containing the rows following the last key of the previous page, so the cost of reading a
+     * page does not depend on its position. The rows with a null key are not paged. If the key is not unique, the
+     * rows sharing the last key of a page are all put in that page, which can then be bigger than the page size.
+     *
+     * @param keyColumn Name of the column ordering the rows, preferably unique and indexed.
+     * @param pageSize  Number of rows of each page.
+     * @return An {@link Iterator} on the pages.
+     */
+    Iterator<? extends ITable<?, ?>> pages(String keyColumn, int pageSize) throws Exception;
+
     Map<String, Object> firstRow() throws Exception;
 
     /**
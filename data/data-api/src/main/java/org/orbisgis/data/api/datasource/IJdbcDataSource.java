@@ -69,6 +69,13 @@ public interface IJdbcDataSource extends IDataSource<ResultSet>, GroovyObject, D
         }
     }
 
+    /**
+     * Kind of index built by {@link #createIndexes(Map, int)}.
+     */
+    enum IndexType{
+        INDEX, SPATIAL
+    }
+
     /**
      * Close the underlying database.
      */
@@ -319,6 +326,18 @@ public interface IJdbcDataSource extends IDataSource<ResultSet>, GroovyObject, D
      */
     boolean createIndex(String tableName, String columnName) throws Exception;
 
+    /**
+     * Create in parallel the indexes of several columns of several tables. Each index is built on its own
+     * connection, using at most threadCount connections. The columns already indexed are skipped.
+     *
+     * @param indexes Map of the table names to the map of their column names to the kind of index to create.
+     * @param threadCount Maximum number of indexes built concurrently.
+     * @return A map of the 'table.column' names to the time in milliseconds spent to build their index, -1 if the
+     * column was already indexed. The indexes which cannot be created are logged and are not in the map.
+     * @throws Exception Exception thrown in case of error while creating the indexes.
+     */
+    Map<String, Long> createIndexes(Map<String, Map<String, IndexType>> indexes, int threadCount) throws Exception;
+
 
     /**
      * Return true if the table has a geometry column.
@@ -412,6 +431,24 @@ public interface IJdbcDataSource extends IDataSource<ResultSet>, GroovyObject, D
      */
     void dropColumn(String tableName, List<String>  columnNames) throws Exception;
 
+    /**
+     * Cache the extents of the spatial tables during the given duration, the cache being disabled by default. The
+     * queries executed with the methods of the data source update the cache, but the modifications done directly
+     * with a {@link java.sql.Connection}, by triggers or by other sessions are only seen once the extent expired.
+     *
+     * @param duration Duration in milliseconds during which an extent is reused, 0 to disable the cache.
+     */
+    void setExtentCacheDuration(long duration);
+
+    /**
+     * Forget the cached extents of the given table. The queries executed with the methods of the data source update
+     * the cache, this method should be called after a modification of the table done directly with a
+     * {@link java.sql.Connection}.
+     *
+     * @param tableName Name of the table, null to forget the extents of all the tables.
+     */
+    void clearExtentCache(String tableName);
+
     /**
      * Sets a new SRID code to the column of the table.
      *
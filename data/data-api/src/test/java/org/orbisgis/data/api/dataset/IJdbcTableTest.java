@@ -258,6 +258,31 @@ public class IJdbcTableTest {
             return null;
         }
 
+        @Override
+        public IJdbcTableSummary getSummary(boolean columnStatistics) {
+            return null;
+        }
+
+        @Override
+        public long getDistinctCount(String column, boolean approximate) {
+            return 0;
+        }
+
+        @Override
+        public Map<Object, Long> getTopValues(String column, int k) {
+            return null;
+        }
+
+        @Override
+        public Stream<Object> uniqueValues(String column, int limit) {
+            return null;
+        }
+
+        @Override
+        public Iterator<IJdbcTable<?>> pages(String keyColumn, int pageSize) {
+            return null;
+        }
+
         
         @Override
         public List<Object> getParams() {
@@ -450,6 +450,11 @@ public class ITableTest {
             return null;
         }
 
+        @Override
+        public Iterator<ITable<?, ?>> pages(String keyColumn, int pageSize) {
+            return null;
+        }
+
 
         @Override
         public Map<String, Object> firstRow() {
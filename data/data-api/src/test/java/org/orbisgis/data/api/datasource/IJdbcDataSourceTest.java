@@ -671,6 +671,11 @@ public class IJdbcDataSourceTest {
             return false;
         }
 
+        @Override
+        public Map<String, Long> createIndexes(Map<String, Map<String, IndexType>> indexes, int threadCount) {
+            return null;
+        }
+
         @Override
         public void dropIndex(String tableName, String columnName) {
 
@@ -696,6 +701,16 @@ public class IJdbcDataSourceTest {
 
         }
 
+        @Override
+        public void setExtentCacheDuration(long duration) {
+
+        }
+
+        @Override
+        public void clearExtentCache(String tableName) {
+
+        }
+
         @Override
         public boolean setSrid(String tableName, String columnName, int srid) {
             return false;
@@ -0,0 +1,189 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+/**
+ * Aggregation computed on each group of a {@link GroupBy}.
+ */
+public final class Aggregation {
+
+    /**
+     * Aggregation functions.
+     */
+    public enum Function {
+        /** Count of rows or of non null values. */
+        COUNT,
+        /** Sum of the numeric values. */
+        SUM,
+        /** Mean of the numeric values. */
+        MEAN,
+        /** Minimum of the numeric values. */
+        MIN,
+        /** Maximum of the numeric values. */
+        MAX,
+        /** Count of distinct non null values. */
+        DISTINCT
+    }
+
+    private final Function function;
+    private final String column;
+    private final String name;
+
+    private Aggregation(Function function, String column, String name) {
+        this.function = function;
+        this.column = column;
+        this.name = name;
+    }
+
+    private static Aggregation of(Function function, String column) {
+        if (column == null) {
+            throw new IllegalArgumentException("The column of the aggregation " + function + " cannot be null.");
+        }
+        return new Aggregation(function, column, function.name() + "_" + column);
+    }
+
+    /**
+     * Count of rows of each group.
+     *
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation count() {
+        return new Aggregation(Function.COUNT, null, Function.COUNT.name());
+    }
+
+    /**
+     * Count of non null values of the column in each group.
+     *
+     * @param column Name of the column.
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation count(String column) {
+        return of(Function.COUNT, column);
+    }
+
+    /**
+     * Sum of the values of the numeric column in each group.
+     *
+     * @param column Name of the column.
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation sum(String column) {
+        return of(Function.SUM, column);
+    }
+
+    /**
+     * Mean of the values of the numeric column in each group.
+     *
+     * @param column Name of the column.
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation mean(String column) {
+        return of(Function.MEAN, column);
+    }
+
+    /**
+     * Minimum of the values of the numeric column in each group.
+     *
+     * @param column Name of the column.
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation min(String column) {
+        return of(Function.MIN, column);
+    }
+
+    /**
+     * Maximum of the values of the numeric column in each group.
+     *
+     * @param column Name of the column.
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation max(String column) {
+        return of(Function.MAX, column);
+    }
+
+    /**
+     * Count of distinct non null values of the column in each group.
+     *
+     * @param column Name of the column.
+     * @return A new {@link Aggregation}.
+     */
+    public static Aggregation distinct(String column) {
+        return of(Function.DISTINCT, column);
+    }
+
+    /**
+     * Return a copy of this aggregation with the given result column name.
+     *
+     * @param name Name of the result column.
+     * @return A new {@link Aggregation}.
+     */
+    public Aggregation as(String name) {
+        return new Aggregation(function, column, name);
+    }
+
+    /**
+     * Return the aggregation function.
+     *
+     * @return The aggregation function.
+     */
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * Return the name of the aggregated column, null for the count of rows.
+     *
+     * @return The name of the aggregated column.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Return the name of the result column.
+     *
+     * @return The name of the result column.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return function + "(" + (column == null ? "*" : column) + ") AS " + name;
+    }
+}
@@ -0,0 +1,526 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import org.orbisgis.commons.arrow.ArrowBatch;
+import org.orbisgis.commons.arrow.ArrowField;
+import org.orbisgis.commons.arrow.ArrowReader;
+import org.orbisgis.commons.arrow.ArrowWriter;
+import org.orbisgis.commons.arrow.IBatchReader;
+import org.orbisgis.commons.arrow.IBatchWriter;
+import org.orbisgis.commons.parquet.ParquetReader;
+import org.orbisgis.commons.parquet.ParquetWriter;
+import smile.data.type.DataType;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Conversion of a {@link DataFrame} from and to the Apache Arrow IPC formats and the Apache Parquet format. The columns
+ * are written by batches of {@link #BATCH_SIZE} rows, the primitive columns being copied as a whole without boxing
+ * their values. The geometry columns of a {@link SpatialDataFrame} are written as WKB binary columns flagged with the
+ * GeoArrow extension type or described in the GeoParquet metadata, and read back as geometry columns.
+ */
+final class ArrowConverter {
+
+    /**
+     * Number of rows of the written record batches.
+     */
+    static final int BATCH_SIZE = 1 << 16;
+
+    private ArrowConverter() {
+    }
+
+    /**
+     * Return true if the name of the file has an Arrow extension : <code>arrow</code> or <code>feather</code> for the
+     * file format, <code>arrows</code> for the stream format.
+     *
+     * @param name Name of the file.
+     * @return True for an Arrow file.
+     */
+    static boolean isArrow(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".arrow") || lower.endsWith(".feather") || lower.endsWith(".arrows");
+    }
+
+    /**
+     * Return true if the name of the file has the extension of the Arrow stream format.
+     *
+     * @param name Name of the file.
+     * @return True for an Arrow stream file.
+     */
+    static boolean isStream(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".arrows");
+    }
+
+    /**
+     * Return true if the name of the file has the <code>parquet</code> extension.
+     *
+     * @param name Name of the file.
+     * @return True for a Parquet file.
+     */
+    static boolean isParquet(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".parquet");
+    }
+
+    /**
+     * Write a Smile {@link smile.data.DataFrame} in the Arrow IPC format.
+     *
+     * @param dataFrame       Smile {@link smile.data.DataFrame} to write.
+     * @param geometryColumns Names of the WKB geometry columns.
+     * @param srid            SRID of the geometries.
+     * @param out             Output stream, closed at the end.
+     * @param file            True for the file format, false for the stream format.
+     * @throws IOException Exception thrown in case of error while writing.
+     */
+    static void write(smile.data.DataFrame dataFrame, List<String> geometryColumns, int srid, OutputStream out,
+                      boolean file) throws IOException {
+        List<ArrowField> fields = fields(dataFrame, geometryColumns, srid);
+        write(dataFrame, new ArrowWriter(out, fields, file));
+    }
+
+    /**
+     * Write a Smile {@link smile.data.DataFrame} in the Parquet format, each batch being written as a row group.
+     *
+     * @param dataFrame       Smile {@link smile.data.DataFrame} to write.
+     * @param geometryColumns Names of the WKB geometry columns.
+     * @param srid            SRID of the geometries.
+     * @param out             Output stream, closed at the end.
+     * @throws IOException Exception thrown in case of error while writing.
+     */
+    static void writeParquet(smile.data.DataFrame dataFrame, List<String> geometryColumns, int srid,
+                             OutputStream out) throws IOException {
+        List<ArrowField> fields = fields(dataFrame, geometryColumns, srid);
+        write(dataFrame, new ParquetWriter(out, fields));
+    }
+
+    private static List<ArrowField> fields(smile.data.DataFrame dataFrame, List<String> geometryColumns, int srid) {
+        List<ArrowField> fields = new ArrayList<>(dataFrame.ncols());
+        for (int i = 0; i < dataFrame.ncols(); i++) {
+            BaseVector<?, ?, ?> vector = dataFrame.column(i);
+            fields.add(field(vector, geometryColumns.contains(vector.name()), srid));
+        }
+        return fields;
+    }
+
+    /**
+     * Write the rows of a Smile {@link smile.data.DataFrame} by batches then close the writer.
+     */
+    private static void write(smile.data.DataFrame dataFrame, IBatchWriter batchWriter) throws IOException {
+        int columnCount = dataFrame.ncols();
+        List<ArrowField> fields = batchWriter.getFields();
+        try (IBatchWriter writer = batchWriter) {
+            int rowCount = dataFrame.nrows();
+            for (int start = 0; start < rowCount; start += BATCH_SIZE) {
+                int end = Math.min(rowCount, start + BATCH_SIZE);
+                Object[] columns = new Object[columnCount];
+                BitSet[] nulls = new BitSet[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    BaseVector<?, ?, ?> vector = dataFrame.column(i);
+                    columns[i] = values(vector, fields.get(i), start, end);
+                    if (!vector.type().isPrimitive() && !(columns[i] instanceof Object[])) {
+                        BitSet bits = new BitSet();
+                        for (int row = start; row < end; row++) {
+                            if (vector.get(row) == null) {
+                                bits.set(row - start);
+                            }
+                        }
+                        nulls[i] = bits;
+                    }
+                }
+                writer.write(new ArrowBatch(end - start, columns, nulls));
+            }
+        }
+    }
+
+    /**
+     * Read a {@link DataFrame} from the Arrow IPC stream or file format. If the schema contains GeoArrow WKB columns,
+     * a {@link SpatialDataFrame} is returned.
+     *
+     * @param in Input stream, closed at the end.
+     * @return The {@link DataFrame}.
+     * @throws IOException Exception thrown in case of error while reading.
+     */
+    static DataFrame read(InputStream in) throws IOException {
+        return read(new ArrowReader(in));
+    }
+
+    /**
+     * Read a {@link DataFrame} from a Parquet file. If the file contains GeoParquet WKB columns, a
+     * {@link SpatialDataFrame} is returned.
+     *
+     * @param file    Parquet file.
+     * @param columns Names of the columns to read, all the columns if empty.
+     * @return The {@link DataFrame}.
+     * @throws IOException Exception thrown in case of error while reading.
+     */
+    static DataFrame readParquet(File file, String... columns) throws IOException {
+        ParquetReader reader = new ParquetReader(file);
+        if (columns.length > 0) {
+            try {
+                reader.select(columns);
+            } catch (IllegalArgumentException e) {
+                reader.close();
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return read(reader);
+    }
+
+    /**
+     * Read all the batches of a reader into a {@link DataFrame} then close the reader.
+     */
+    private static DataFrame read(IBatchReader batchReader) throws IOException {
+        try (IBatchReader reader = batchReader) {
+            List<ArrowField> fields = reader.getFields();
+            List<ArrowBatch> batches = new ArrayList<>();
+            int rowCount = 0;
+            for (ArrowBatch batch = reader.next(); batch != null; batch = reader.next()) {
+                if ((long) rowCount + batch.getRowCount() > Integer.MAX_VALUE) {
+                    throw new IOException("The data is too large to be loaded into a DataFrame");
+                }
+                batches.add(batch);
+                rowCount += batch.getRowCount();
+            }
+            BaseVector<?, ?, ?>[] vectors = new BaseVector[fields.size()];
+            List<String> geometryColumns = new ArrayList<>();
+            int srid = 0;
+            for (int i = 0; i < vectors.length; i++) {
+                ArrowField field = fields.get(i);
+                vectors[i] = vector(field, i, batches, rowCount);
+                if (field.isGeometry()) {
+                    geometryColumns.add(field.getName());
+                    srid = srid == 0 ? field.getSrid() : srid;
+                }
+            }
+            smile.data.DataFrame dataFrame = smile.data.DataFrame.of(vectors);
+            return geometryColumns.isEmpty() ? DataFrame.of(dataFrame) :
+                    new SpatialDataFrame(dataFrame, srid, geometryColumns);
+        }
+    }
+
+    private static ArrowField field(BaseVector<?, ?, ?> vector, boolean geometry, int srid) {
+        String name = vector.name();
+        DataType type = vector.type();
+        if (geometry) {
+            return ArrowField.geometry(name, srid);
+        }
+        if (type.isChar()) {
+            return new ArrowField(name, ArrowField.Type.STRING);
+        }
+        switch (ColumnStore.Codec.of(type)) {
+            case BOOLEAN:
+                return new ArrowField(name, ArrowField.Type.BOOLEAN);
+            case BYTE:
+            case SHORT:
+            case INT:
+                return new ArrowField(name, ArrowField.Type.INT);
+            case LONG:
+                return new ArrowField(name, ArrowField.Type.LONG);
+            case FLOAT:
+                return new ArrowField(name, ArrowField.Type.FLOAT);
+            case DOUBLE:
+                return new ArrowField(name, ArrowField.Type.DOUBLE);
+            case DATE:
+                return new ArrowField(name, ArrowField.Type.DATE);
+            case TIME:
+                return new ArrowField(name, ArrowField.Type.TIME);
+            case DATETIME:
+                return new ArrowField(name, ArrowField.Type.TIMESTAMP);
+            case DECIMAL:
+                int scale = 0;
+                for (int row = 0; row < vector.size(); row++) {
+                    Object value = vector.get(row);
+                    if (value != null) {
+                        scale = Math.max(scale, ((BigDecimal) value).scale());
+                    }
+                }
+                return new ArrowField(name, 38, Math.min(scale, 38));
+            case BYTES:
+                return new ArrowField(name, ArrowField.Type.BINARY);
+            default:
+                return new ArrowField(name, ArrowField.Type.STRING);
+        }
+    }
+
+    /**
+     * Return the values of the rows between start (inclusive) and end (exclusive) of a column.
+     */
+    private static Object values(BaseVector<?, ?, ?> vector, ArrowField field, int start, int end) {
+        int length = end - start;
+        // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+        boolean heap = !(vector instanceof MappedColumn);
+        switch (field.getType()) {
+            case BOOLEAN: {
+                if (heap && vector instanceof BooleanVector) {
+                    return Arrays.copyOfRange(((BooleanVector) vector).array(), start, end);
+                }
+                boolean[] values = new boolean[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value != null && (Boolean) value;
+                }
+                return values;
+            }
+            case INT: {
+                if (heap && vector instanceof IntVector) {
+                    return Arrays.copyOfRange(((IntVector) vector).array(), start, end);
+                }
+                int[] values = new int[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? 0 : ((Number) value).intValue();
+                }
+                return values;
+            }
+            case LONG: {
+                if (heap && vector instanceof LongVector) {
+                    return Arrays.copyOfRange(((LongVector) vector).array(), start, end);
+                }
+                long[] values = new long[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? 0 : ((Number) value).longValue();
+                }
+                return values;
+            }
+            case FLOAT: {
+                if (heap && vector instanceof FloatVector) {
+                    return Arrays.copyOfRange(((FloatVector) vector).array(), start, end);
+                }
+                float[] values = new float[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? 0 : ((Number) value).floatValue();
+                }
+                return values;
+            }
+            case DOUBLE: {
+                if (heap && vector instanceof DoubleVector) {
+                    return Arrays.copyOfRange(((DoubleVector) vector).array(), start, end);
+                }
+                double[] values = new double[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? 0 : ((Number) value).doubleValue();
+                }
+                return values;
+            }
+            case DATE: {
+                int[] values = new int[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? 0 : (int) ((LocalDate) value).toEpochDay();
+                }
+                return values;
+            }
+            case TIME: {
+                long[] values = new long[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? 0 : ((LocalTime) value).toNanoOfDay();
+                }
+                return values;
+            }
+            case TIMESTAMP: {
+                long[] values = new long[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    if (value != null) {
+                        LocalDateTime dateTime = (LocalDateTime) value;
+                        values[row - start] = dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L +
+                                dateTime.getNano() / 1_000;
+                    }
+                }
+                return values;
+            }
+            case DECIMAL: {
+                BigDecimal[] values = new BigDecimal[length];
+                for (int row = start; row < end; row++) {
+                    values[row - start] = (BigDecimal) vector.get(row);
+                }
+                return values;
+            }
+            case BINARY: {
+                byte[][] values = new byte[length][];
+                for (int row = start; row < end; row++) {
+                    values[row - start] = (byte[]) vector.get(row);
+                }
+                return values;
+            }
+            default: {
+                String[] values = new String[length];
+                for (int row = start; row < end; row++) {
+                    Object value = vector.get(row);
+                    values[row - start] = value == null ? null : value.toString();
+                }
+                return values;
+            }
+        }
+    }
+
+    /**
+     * Concatenate the values of a column from all the batches into a Smile vector. The columns containing null values
+     * are stored into boxed vectors.
+     */
+    private static BaseVector<?, ?, ?> vector(ArrowField field, int column, List<ArrowBatch> batches, int rowCount) {
+        String name = field.getName();
+        BitSet nulls = new BitSet();
+        Object values = null;
+        int offset = 0;
+        for (ArrowBatch batch : batches) {
+            Object batchValues = batch.getColumn(column);
+            if (values == null) {
+                values = java.lang.reflect.Array.newInstance(batchValues.getClass().getComponentType(), rowCount);
+            }
+            System.arraycopy(batchValues, 0, values, offset, batch.getRowCount());
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                if (batch.isNull(column, row)) {
+                    nulls.set(offset + row);
+                }
+            }
+            offset += batch.getRowCount();
+        }
+        boolean nullable = !nulls.isEmpty();
+        switch (field.getType()) {
+            case BOOLEAN: {
+                boolean[] booleans = values == null ? new boolean[0] : (boolean[]) values;
+                if (!nullable) {
+                    return BooleanVector.of(name, booleans);
+                }
+                Boolean[] boxed = new Boolean[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    boxed[row] = nulls.get(row) ? null : booleans[row];
+                }
+                return Vector.of(new StructField(name, DataTypes.BooleanObjectType), boxed);
+            }
+            case INT: {
+                int[] ints = values == null ? new int[0] : (int[]) values;
+                if (!nullable) {
+                    return IntVector.of(name, ints);
+                }
+                Integer[] boxed = new Integer[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    boxed[row] = nulls.get(row) ? null : ints[row];
+                }
+                return Vector.of(new StructField(name, DataTypes.IntegerObjectType), boxed);
+            }
+            case LONG: {
+                long[] longs = values == null ? new long[0] : (long[]) values;
+                if (!nullable) {
+                    return LongVector.of(name, longs);
+                }
+                Long[] boxed = new Long[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    boxed[row] = nulls.get(row) ? null : longs[row];
+                }
+                return Vector.of(new StructField(name, DataTypes.LongObjectType), boxed);
+            }
+            case FLOAT: {
+                float[] floats = values == null ? new float[0] : (float[]) values;
+                if (!nullable) {
+                    return FloatVector.of(name, floats);
+                }
+                Float[] boxed = new Float[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    boxed[row] = nulls.get(row) ? null : floats[row];
+                }
+                return Vector.of(new StructField(name, DataTypes.FloatObjectType), boxed);
+            }
+            case DOUBLE: {
+                double[] doubles = values == null ? new double[0] : (double[]) values;
+                if (!nullable) {
+                    return DoubleVector.of(name, doubles);
+                }
+                Double[] boxed = new Double[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    boxed[row] = nulls.get(row) ? null : doubles[row];
+                }
+                return Vector.of(new StructField(name, DataTypes.DoubleObjectType), boxed);
+            }
+            case DATE: {
+                int[] days = values == null ? new int[0] : (int[]) values;
+                LocalDate[] dates = new LocalDate[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    dates[row] = nulls.get(row) ? null : LocalDate.ofEpochDay(days[row]);
+                }
+                return Vector.of(new StructField(name, DataTypes.DateType), dates);
+            }
+            case TIME: {
+                long[] nanos = values == null ? new long[0] : (long[]) values;
+                LocalTime[] times = new LocalTime[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    times[row] = nulls.get(row) ? null : LocalTime.ofNanoOfDay(nanos[row]);
+                }
+                return Vector.of(new StructField(name, DataTypes.TimeType), times);
+            }
+            case TIMESTAMP: {
+                long[] micros = values == null ? new long[0] : (long[]) values;
+                LocalDateTime[] dateTimes = new LocalDateTime[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    dateTimes[row] = nulls.get(row) ? null : LocalDateTime.ofEpochSecond(
+                            Math.floorDiv(micros[row], 1_000_000L),
+                            (int) Math.floorMod(micros[row], 1_000_000L) * 1_000, ZoneOffset.UTC);
+                }
+                return Vector.of(new StructField(name, DataTypes.DateTimeType), dateTimes);
+            }
+            case DECIMAL:
+                return Vector.of(new StructField(name, DataTypes.DecimalType),
+                        values == null ? new BigDecimal[0] : (BigDecimal[]) values);
+            case BINARY:
+                return Vector.of(new StructField(name, DataTypes.ByteArrayType),
+                        values == null ? new byte[0][] : (byte[][]) values);
+            default:
+                return StringVector.of(name, values == null ? new String[0] : (String[]) values);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.type.DataType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.BooleanVector;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.IntVector;
+import smile.data.vector.LongVector;
+import smile.data.vector.StringVector;
+
+import java.util.BitSet;
+
+/**
+ * Typed accessor on a column of a {@link DataFrame}, resolved once and bound to the cursor row of the
+ * {@link DataFrame}. The values are read from a primitive array, so iterating a {@link DataFrame} with
+ * {@link DataFrame#forEachRow(java.util.function.IntConsumer)} does not resolve the column name nor box the values
+ * for each cell. The accessor is bound to the columns of the {@link DataFrame} at its creation.
+ */
+public abstract class ColumnAccessor {
+
+    /**
+     * {@link DataFrame} giving the cursor row.
+     */
+    private final DataFrame dataFrame;
+    /**
+     * Name of the column.
+     */
+    private final String name;
+    /**
+     * Null values of the column, null if the column has no null value.
+     */
+    private final BitSet nulls;
+
+    private ColumnAccessor(DataFrame dataFrame, BaseVector vector) {
+        this.dataFrame = dataFrame;
+        this.name = vector.name();
+        this.nulls = nulls(vector);
+    }
+
+    /**
+     * Return the null values of the vector : the primitive vectors have none, the mapped columns read their null
+     * bitmap and the other vectors scan their array of values.
+     *
+     * @param vector Vector to read.
+     * @return The null values, null if the vector has no null value.
+     */
+    private static BitSet nulls(BaseVector vector) {
+        if (vector.type().isPrimitive()) {
+            return null;
+        }
+        BitSet bitSet = null;
+        if (vector instanceof MappedColumn) {
+            MappedColumn<?, ?, ?> column = (MappedColumn<?, ?, ?>) vector;
+            for (int i = 0; i < column.size(); i++) {
+                if (column.isNullAt(i)) {
+                    if (bitSet == null) {
+                        bitSet = new BitSet(column.size());
+                    }
+                    bitSet.set(i);
+                }
+            }
+        } else {
+            Object[] array = (Object[]) vector.array();
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] == null) {
+                    if (bitSet == null) {
+                        bitSet = new BitSet(array.length);
+                    }
+                    bitSet.set(i);
+                }
+            }
+        }
+        return bitSet;
+    }
+
+    /**
+     * Return the index of the cursor row.
+     *
+     * @return The index of the cursor row.
+     */
+    protected final int row() {
+        return dataFrame.getRow();
+    }
+
+    /**
+     * Return the name of the column.
+     *
+     * @return The name of the column.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return true if the value of the cursor row is null.
+     *
+     * @return True if the value is null.
+     */
+    public boolean isNull() {
+        return isNull(row());
+    }
+
+    /**
+     * Return true if the value of the given row is null.
+     *
+     * @param row Index of the row.
+     * @return True if the value is null.
+     */
+    public boolean isNull(int row) {
+        return nulls != null && nulls.get(row);
+    }
+
+    private static void checkNumeric(BaseVector vector) {
+        DataType type = vector.type();
+        if (!type.isNumeric() && type.id() != DataType.ID.Decimal) {
+            throw new IllegalArgumentException("The column " + vector.name() + " of type " + type.name() +
+                    " is not numeric.");
+        }
+    }
+
+    private static void checkIntegral(BaseVector vector) {
+        DataType type = vector.type();
+        if (!type.isIntegral()) {
+            throw new IllegalArgumentException("The column " + vector.name() + " of type " + type.name() +
+                    " is not integral.");
+        }
+    }
+
+    /**
+     * Return the value of a row of a numeric column as a {@link Number}.
+     *
+     * @param vector Numeric vector.
+     * @param row    Index of the row.
+     * @return The value of the row.
+     */
+    private static Number number(BaseVector vector, int row) {
+        DataType type = vector.type();
+        if (type.isPrimitive()) {
+            return type.isFloating() ? (Number) vector.getDouble(row) : (Number) vector.getLong(row);
+        }
+        return (Number) vector.get(row);
+    }
+
+    /**
+     * Accessor on the values of a numeric column as doubles, the null values being read as NaN.
+     */
+    public static final class OfDouble extends ColumnAccessor {
+
+        private final double[] values;
+
+        OfDouble(DataFrame dataFrame, BaseVector vector) {
+            super(dataFrame, vector);
+            checkNumeric(vector);
+            if (vector instanceof DoubleVector) {
+                values = ((DoubleVector) vector).array();
+            } else {
+                values = new double[vector.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = isNull(i) ? Double.NaN : number(vector, i).doubleValue();
+                }
+            }
+        }
+
+        /**
+         * Return the value of the cursor row.
+         *
+         * @return The value of the cursor row.
+         */
+        public double get() {
+            return values[row()];
+        }
+
+        /**
+         * Return the value of the given row.
+         *
+         * @param row Index of the row.
+         * @return The value of the row.
+         */
+        public double get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Accessor on the values of an integral column as ints, the null values being read as 0.
+     */
+    public static final class OfInt extends ColumnAccessor {
+
+        private final int[] values;
+
+        OfInt(DataFrame dataFrame, BaseVector vector) {
+            super(dataFrame, vector);
+            checkIntegral(vector);
+            if (vector instanceof IntVector) {
+                values = ((IntVector) vector).array();
+            } else {
+                values = new int[vector.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = isNull(i) ? 0 : Math.toIntExact(number(vector, i).longValue());
+                }
+            }
+        }
+
+        /**
+         * Return the value of the cursor row.
+         *
+         * @return The value of the cursor row.
+         */
+        public int get() {
+            return values[row()];
+        }
+
+        /**
+         * Return the value of the given row.
+         *
+         * @param row Index of the row.
+         * @return The value of the row.
+         */
+        public int get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Accessor on the values of an integral column as longs, the null values being read as 0.
+     */
+    public static final class OfLong extends ColumnAccessor {
+
+        private final long[] values;
+
+        OfLong(DataFrame dataFrame, BaseVector vector) {
+            super(dataFrame, vector);
+            checkIntegral(vector);
+            if (vector instanceof LongVector) {
+                values = ((LongVector) vector).array();
+            } else {
+                values = new long[vector.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = isNull(i) ? 0 : number(vector, i).longValue();
+                }
+            }
+        }
+
+        /**
+         * Return the value of the cursor row.
+         *
+         * @return The value of the cursor row.
+         */
+        public long get() {
+            return values[row()];
+        }
+
+        /**
+         * Return the value of the given row.
+         *
+         * @param row Index of the row.
+         * @return The value of the row.
+         */
+        public long get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Accessor on the values of a boolean column, the null values being read as false.
+     */
+    public static final class OfBoolean extends ColumnAccessor {
+
+        private final boolean[] values;
+
+        OfBoolean(DataFrame dataFrame, BaseVector vector) {
+            super(dataFrame, vector);
+            if (!vector.type().isBoolean()) {
+                throw new IllegalArgumentException("The column " + vector.name() + " of type " +
+                        vector.type().name() + " is not boolean.");
+            }
+            if (vector instanceof BooleanVector) {
+                values = ((BooleanVector) vector).array();
+            } else {
+                values = new boolean[vector.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = !isNull(i) && (Boolean) vector.get(i);
+                }
+            }
+        }
+
+        /**
+         * Return the value of the cursor row.
+         *
+         * @return The value of the cursor row.
+         */
+        public boolean get() {
+            return values[row()];
+        }
+
+        /**
+         * Return the value of the given row.
+         *
+         * @param row Index of the row.
+         * @return The value of the row.
+         */
+        public boolean get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Accessor on the values of a column as strings.
+     */
+    public static final class OfString extends ColumnAccessor {
+
+        private final String[] values;
+
+        OfString(DataFrame dataFrame, BaseVector vector) {
+            super(dataFrame, vector);
+            if (vector instanceof StringVector) {
+                values = (String[]) vector.array();
+            } else {
+                values = new String[vector.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = isNull(i) ? null : vector.type().toString(vector.get(i));
+                }
+            }
+        }
+
+        /**
+         * Return the value of the cursor row.
+         *
+         * @return The value of the cursor row.
+         */
+        public String get() {
+            return values[row()];
+        }
+
+        /**
+         * Return the value of the given row.
+         *
+         * @param row Index of the row.
+         * @return The value of the row.
+         */
+        public String get(int row) {
+            return values[row];
+        }
+    }
+}
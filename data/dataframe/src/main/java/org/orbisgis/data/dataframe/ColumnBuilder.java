@@ -0,0 +1,868 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import smile.data.type.DataType;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+import smile.data.vector.Vector;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Column oriented accumulator used to load a {@link ResultSet} or a CSV file into a {@link DataFrame} without
+ * building intermediate rows. The values are read with the typed accessors of the {@link ResultSet}, or parsed from
+ * the bytes of the CSV field, and stored into primitive arrays growing by chunks, the null values being tracked into
+ * a {@link BitSet}. The Smile vector is only created once all the rows are read.
+ */
+abstract class ColumnBuilder {
+
+    /**
+     * Initial capacity of the column arrays.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Exact powers of ten used to parse the decimal values.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Field of the column to build.
+     */
+    protected final StructField field;
+    /**
+     * Index of the rows containing a null value.
+     */
+    protected final BitSet nulls = new BitSet();
+    /**
+     * Count of values read.
+     */
+    protected int size = 0;
+    /**
+     * Current capacity of the column arrays.
+     */
+    protected int capacity = INITIAL_CAPACITY;
+
+    /**
+     * Main constructor.
+     *
+     * @param field Field of the column to build.
+     */
+    protected ColumnBuilder(StructField field) {
+        this.field = field;
+    }
+
+    /**
+     * Read the value of the current row of the given {@link ResultSet}.
+     *
+     * @param rs    {@link ResultSet} to read.
+     * @param index Index of the column in the {@link ResultSet}, starting at 1.
+     * @throws SQLException Exception thrown on reading the value.
+     */
+    final void read(ResultSet rs, int index) throws SQLException {
+        ensureCapacity(size + 1);
+        if (!readValue(rs, index)) {
+            nulls.set(size);
+        }
+        size++;
+    }
+
+    /**
+     * Parse the given bytes of a CSV field and add the value.
+     *
+     * @param bytes   Bytes of the field, quotes removed.
+     * @param length  Count of bytes of the field.
+     * @param charset {@link Charset} of the bytes.
+     * @throws NumberFormatException Exception thrown if the field can not be parsed into the column type.
+     */
+    final void parse(byte[] bytes, int length, Charset charset) {
+        ensureCapacity(size + 1);
+        parseValue(bytes, length, charset);
+        size++;
+    }
+
+    /**
+     * Add a null value.
+     */
+    final void appendNull() {
+        ensureCapacity(size + 1);
+        nulls.set(size);
+        size++;
+    }
+
+    /**
+     * Add all the values of the given {@link ColumnBuilder} of the same type.
+     *
+     * @param other {@link ColumnBuilder} to append.
+     */
+    final void append(ColumnBuilder other) {
+        ensureCapacity(size + other.size);
+        for (int i = other.nulls.nextSetBit(0); i >= 0; i = other.nulls.nextSetBit(i + 1)) {
+            nulls.set(size + i);
+        }
+        appendValues(other);
+        size += other.size;
+    }
+
+    /**
+     * Create a {@link ColumnBuilder} of a wider numeric type containing the values of this one, i.e. a long or double
+     * column from an int column or a double column from a long column.
+     *
+     * @param field Field of the wider column.
+     * @return The widened {@link ColumnBuilder}.
+     */
+    final ColumnBuilder widen(StructField field) {
+        ColumnBuilder widened = of(field, false);
+        widened.ensureCapacity(size);
+        widened.nulls.or(nulls);
+        widened.widenValues(this);
+        widened.size = size;
+        return widened;
+    }
+
+    /**
+     * Return true if at least one of the values is null.
+     *
+     * @return True if at least one of the values is null.
+     */
+    final boolean hasNull() {
+        return !nulls.isEmpty();
+    }
+
+    /**
+     * Grow the arrays by chunks until the given capacity is reached.
+     *
+     * @param required Required capacity.
+     */
+    private void ensureCapacity(int required) {
+        if (required > capacity) {
+            while (capacity < required) {
+                capacity = capacity + (capacity >> 1);
+            }
+            grow(capacity);
+        }
+    }
+
+    /**
+     * Read the value and store it at the index {@link #size}.
+     *
+     * @param rs    {@link ResultSet} to read.
+     * @param index Index of the column in the {@link ResultSet}, starting at 1.
+     * @return False if the value is null, true otherwise.
+     * @throws SQLException Exception thrown on reading the value.
+     */
+    protected abstract boolean readValue(ResultSet rs, int index) throws SQLException;
+
+    /**
+     * Parse the CSV field and store the value at the index {@link #size}.
+     *
+     * @param bytes   Bytes of the field, quotes removed.
+     * @param length  Count of bytes of the field.
+     * @param charset {@link Charset} of the bytes.
+     * @throws NumberFormatException Exception thrown if the field can not be parsed into the column type.
+     */
+    protected void parseValue(byte[] bytes, int length, Charset charset) {
+        throw new UnsupportedOperationException("Unsupported CSV type : " + field.type);
+    }
+
+    /**
+     * Copy the values of the given {@link ColumnBuilder} after the index {@link #size}.
+     *
+     * @param other {@link ColumnBuilder} to copy.
+     */
+    protected abstract void appendValues(ColumnBuilder other);
+
+    /**
+     * Copy with a widening conversion the values of the given narrower numeric {@link ColumnBuilder}.
+     *
+     * @param other {@link ColumnBuilder} to copy.
+     */
+    protected void widenValues(ColumnBuilder other) {
+        throw new UnsupportedOperationException("Unable to widen " + other.field.type + " to " + field.type);
+    }
+
+    /**
+     * Grow the column arrays to the given capacity.
+     *
+     * @param capacity New capacity of the arrays.
+     */
+    protected abstract void grow(int capacity);
+
+    /**
+     * Create the Smile vector containing the read values.
+     *
+     * @return The Smile vector.
+     */
+    abstract BaseVector<?, ?, ?> build();
+
+    /**
+     * Create the {@link ColumnBuilder} storing the geometries of a column as WKB bytes.
+     *
+     * @param name Name of the column.
+     * @return The {@link ColumnBuilder} for the geometries.
+     */
+    static ColumnBuilder wkb(String name) {
+        return new WkbColumn(new StructField(name, DataTypes.ByteArrayType));
+    }
+
+    /**
+     * Create the {@link ColumnBuilder} matching the type of the given field.
+     *
+     * @param field    Field of the column to build.
+     * @param geometry True if the column contains geometries stored as WKT strings.
+     * @return The {@link ColumnBuilder} for the field.
+     */
+    static ColumnBuilder of(StructField field, boolean geometry) {
+        if (geometry) {
+            return new StringColumn(field, true);
+        }
+        DataType type = field.type;
+        //The boxed types have the Object id, so the primitive ones are checked first
+        if (type.isBoolean()) {
+            return new BooleanColumn(field);
+        } else if (type.isInt()) {
+            return new IntColumn(field);
+        } else if (type.isLong()) {
+            return new LongColumn(field);
+        } else if (type.isFloat()) {
+            return new FloatColumn(field);
+        } else if (type.isDouble()) {
+            return new DoubleColumn(field);
+        } else if (type.isString()) {
+            return new StringColumn(field, false);
+        }
+        switch (type.id()) {
+            case Date:
+                return new ObjectColumn(field, LocalDate.class);
+            case Time:
+                return new ObjectColumn(field, LocalTime.class);
+            case DateTime:
+                return new ObjectColumn(field, LocalDateTime.class);
+            case Decimal:
+                return new ObjectColumn(field, BigDecimal.class);
+            default:
+                return new ObjectColumn(field, Object.class);
+        }
+    }
+
+    /**
+     * Parse a boolean from the given bytes.
+     *
+     * @param bytes  Bytes to parse.
+     * @param length Count of bytes to parse.
+     * @return The parsed boolean.
+     * @throws NumberFormatException Exception thrown if the bytes are not a boolean.
+     */
+    static boolean parseBoolean(byte[] bytes, int length) {
+        if (length == 4 && (bytes[0] | 0x20) == 't' && (bytes[1] | 0x20) == 'r' && (bytes[2] | 0x20) == 'u' &&
+                (bytes[3] | 0x20) == 'e') {
+            return true;
+        }
+        if (length == 5 && (bytes[0] | 0x20) == 'f' && (bytes[1] | 0x20) == 'a' && (bytes[2] | 0x20) == 'l' &&
+                (bytes[3] | 0x20) == 's' && (bytes[4] | 0x20) == 'e') {
+            return false;
+        }
+        throw new NumberFormatException("Not a boolean");
+    }
+
+    /**
+     * Parse a long from the given bytes without creating a {@link String}.
+     *
+     * @param bytes  Bytes to parse.
+     * @param length Count of bytes to parse.
+     * @return The parsed long.
+     * @throws NumberFormatException Exception thrown if the bytes are not a long.
+     */
+    static long parseLong(byte[] bytes, int length) {
+        if (length == 0) {
+            throw new NumberFormatException("Empty value");
+        }
+        int i = 0;
+        boolean negative = bytes[0] == '-';
+        if (negative || bytes[0] == '+') {
+            i++;
+        }
+        if (i == length || length - i > 19) {
+            throw new NumberFormatException("Not a long");
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a long");
+            }
+            //Accumulate negatively to support Long.MIN_VALUE
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Long overflow");
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException("Long overflow");
+            }
+            return -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parse a double from the given bytes. The simple decimal values are parsed without creating a {@link String},
+     * the other ones are delegated to {@link Double#parseDouble(String)}.
+     *
+     * @param bytes  Bytes to parse.
+     * @param length Count of bytes to parse.
+     * @return The parsed double.
+     * @throws NumberFormatException Exception thrown if the bytes are not a double.
+     */
+    static double parseDouble(byte[] bytes, int length) {
+        if (length == 0) {
+            throw new NumberFormatException("Empty value");
+        }
+        int i = 0;
+        boolean negative = bytes[0] == '-';
+        if (negative || bytes[0] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < length; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        //Both the mantissa and the power of ten are exact doubles, so the division is correctly rounded
+        if (i == length && digits > 0 && digits <= 15 && decimals < POWERS_OF_TEN.length) {
+            double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+            return negative ? -value : value;
+        }
+        for (int j = 0; j < length; j++) {
+            byte b = bytes[j];
+            if ((b < '0' || b > '9') && b != '.' && b != '-' && b != '+' && b != 'e' && b != 'E') {
+                throw new NumberFormatException("Not a double");
+            }
+        }
+        return Double.parseDouble(new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Create a boxed array of the given component type with the read values, the null values being restored from
+     * the null bitmap.
+     *
+     * @param clazz  Class of the values.
+     * @param getter Function returning the boxed value at the given index.
+     * @return The boxed array.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T[] boxed(Class<T> clazz, IntFunction<T> getter) {
+        T[] array = (T[]) Array.newInstance(clazz, size);
+        for (int i = 0; i < size; i++) {
+            array[i] = nulls.get(i) ? null : getter.apply(i);
+        }
+        return array;
+    }
+
+    /**
+     * {@link ColumnBuilder} for the boolean values.
+     */
+    private static class BooleanColumn extends ColumnBuilder {
+        private boolean[] values = new boolean[capacity];
+
+        BooleanColumn(StructField field) {
+            super(field);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            values[size] = rs.getBoolean(index);
+            return !rs.wasNull();
+        }
+
+        @Override
+        protected void parseValue(byte[] bytes, int length, Charset charset) {
+            values[size] = parseBoolean(bytes, length);
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((BooleanColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            if (field.type.isPrimitive()) {
+                return BooleanVector.of(field, Arrays.copyOf(values, size));
+            }
+            return Vector.of(field, boxed(Boolean.class, i -> values[i]));
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the int values.
+     */
+    private static class IntColumn extends ColumnBuilder {
+        private int[] values = new int[capacity];
+
+        IntColumn(StructField field) {
+            super(field);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            values[size] = rs.getInt(index);
+            return !rs.wasNull();
+        }
+
+        @Override
+        protected void parseValue(byte[] bytes, int length, Charset charset) {
+            values[size] = Math.toIntExact(parseLong(bytes, length));
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((IntColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            if (field.type.isPrimitive()) {
+                return IntVector.of(field, Arrays.copyOf(values, size));
+            }
+            return Vector.of(field, boxed(Integer.class, i -> values[i]));
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the long values.
+     */
+    private static class LongColumn extends ColumnBuilder {
+        private long[] values = new long[capacity];
+
+        LongColumn(StructField field) {
+            super(field);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            values[size] = rs.getLong(index);
+            return !rs.wasNull();
+        }
+
+        @Override
+        protected void parseValue(byte[] bytes, int length, Charset charset) {
+            values[size] = parseLong(bytes, length);
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((LongColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void widenValues(ColumnBuilder other) {
+            int[] ints = ((IntColumn) other).values;
+            for (int i = 0; i < other.size; i++) {
+                values[i] = ints[i];
+            }
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            if (field.type.isPrimitive()) {
+                return LongVector.of(field, Arrays.copyOf(values, size));
+            }
+            return Vector.of(field, boxed(Long.class, i -> values[i]));
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the float values.
+     */
+    private static class FloatColumn extends ColumnBuilder {
+        private float[] values = new float[capacity];
+
+        FloatColumn(StructField field) {
+            super(field);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            values[size] = rs.getFloat(index);
+            return !rs.wasNull();
+        }
+
+        @Override
+        protected void parseValue(byte[] bytes, int length, Charset charset) {
+            values[size] = (float) parseDouble(bytes, length);
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((FloatColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            if (field.type.isPrimitive()) {
+                return FloatVector.of(field, Arrays.copyOf(values, size));
+            }
+            return Vector.of(field, boxed(Float.class, i -> values[i]));
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the double values.
+     */
+    private static class DoubleColumn extends ColumnBuilder {
+        private double[] values = new double[capacity];
+
+        DoubleColumn(StructField field) {
+            super(field);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            values[size] = rs.getDouble(index);
+            return !rs.wasNull();
+        }
+
+        @Override
+        protected void parseValue(byte[] bytes, int length, Charset charset) {
+            values[size] = parseDouble(bytes, length);
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((DoubleColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void widenValues(ColumnBuilder other) {
+            if (other instanceof IntColumn) {
+                int[] ints = ((IntColumn) other).values;
+                for (int i = 0; i < other.size; i++) {
+                    values[i] = ints[i];
+                }
+            } else {
+                long[] longs = ((LongColumn) other).values;
+                for (int i = 0; i < other.size; i++) {
+                    values[i] = longs[i];
+                }
+            }
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            if (field.type.isPrimitive()) {
+                return DoubleVector.of(field, Arrays.copyOf(values, size));
+            }
+            return Vector.of(field, boxed(Double.class, i -> values[i]));
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the string values. The values are dictionary encoded, so repeated values share the
+     * same instance, until the dictionary reaches {@link #MAX_DICTIONARY_SIZE} entries. Geometries are stored as WKT.
+     */
+    private static class StringColumn extends ColumnBuilder {
+        /**
+         * Maximum count of entries in the dictionary before storing the values as is.
+         */
+        private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+        private final boolean geometry;
+        private Map<String, Integer> dictionary = new HashMap<>();
+        private List<String> entries = new ArrayList<>();
+        private int[] codes = new int[capacity];
+        private String[] values = null;
+
+        StringColumn(StructField field, boolean geometry) {
+            super(field);
+            this.geometry = geometry;
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            String value;
+            if (geometry) {
+                Object obj = rs.getObject(index);
+                value = obj == null ? null : obj.toString();
+            } else {
+                value = rs.getString(index);
+            }
+            if (value == null) {
+                return false;
+            }
+            add(value);
+            return true;
+        }
+
+        /**
+         * Store the given non-null value at the index {@link #size}.
+         *
+         * @param value Value to store.
+         */
+        private void add(String value) {
+            if (values != null) {
+                values[size] = value;
+                return;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                if (entries.size() == MAX_DICTIONARY_SIZE) {
+                    values = decode(capacity);
+                    values[size] = value;
+                    return;
+                }
+                code = entries.size();
+                dictionary.put(value, code);
+                entries.add(value);
+            }
+            codes[size] = code;
+        }
+
+        /**
+         * Decode the dictionary codes into an array of the given length and release the dictionary.
+         *
+         * @param length Length of the array.
+         * @return The decoded values.
+         */
+        private String[] decode(int length) {
+            String[] array = new String[length];
+            for (int i = 0; i < size; i++) {
+                array[i] = nulls.get(i) ? null : entries.get(codes[i]);
+            }
+            dictionary = null;
+            entries = null;
+            codes = null;
+            return array;
+        }
+
+        @Override
+        protected void parseValue(byte[] bytes, int length, Charset charset) {
+            add(new String(bytes, 0, length, charset));
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            StringColumn column = (StringColumn) other;
+            if (values == null && column.values == null && entries.size() + column.entries.size() <= MAX_DICTIONARY_SIZE) {
+                int[] remap = new int[column.entries.size()];
+                for (int i = 0; i < remap.length; i++) {
+                    String entry = column.entries.get(i);
+                    Integer code = dictionary.get(entry);
+                    if (code == null) {
+                        code = entries.size();
+                        dictionary.put(entry, code);
+                        entries.add(entry);
+                    }
+                    remap[i] = code;
+                }
+                for (int i = 0; i < column.size; i++) {
+                    codes[size + i] = column.nulls.get(i) ? 0 : remap[column.codes[i]];
+                }
+                return;
+            }
+            if (values == null) {
+                values = decode(capacity);
+            }
+            for (int i = 0; i < column.size; i++) {
+                if (!column.nulls.get(i)) {
+                    values[size + i] = column.values != null ? column.values[i] : column.entries.get(column.codes[i]);
+                }
+            }
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            } else {
+                codes = Arrays.copyOf(codes, capacity);
+            }
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            String[] array = values != null ? Arrays.copyOf(values, size) : decode(size);
+            return StringVector.of(field, array);
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the other values, the SQL temporal values being converted into their java.time
+     * equivalent.
+     */
+    private static class ObjectColumn extends ColumnBuilder {
+        private final Class<?> clazz;
+        private Object[] values = new Object[capacity];
+
+        ObjectColumn(StructField field, Class<?> clazz) {
+            super(field);
+            this.clazz = clazz;
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            Object value = rs.getObject(index);
+            if (value instanceof Date) {
+                value = ((Date) value).toLocalDate();
+            } else if (value instanceof Time) {
+                value = ((Time) value).toLocalTime();
+            } else if (value instanceof Timestamp) {
+                value = ((Timestamp) value).toLocalDateTime();
+            } else if (value instanceof Geometry) {
+                value = value.toString();
+            }
+            values[size] = value;
+            return value != null;
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((ObjectColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            Object[] array = (Object[]) Array.newInstance(clazz, size);
+            try {
+                System.arraycopy(values, 0, array, 0, size);
+            } catch (ArrayStoreException e) {
+                array = Arrays.copyOf(values, size);
+            }
+            return Vector.of(field, array);
+        }
+    }
+
+    /**
+     * {@link ColumnBuilder} for the geometries, stored as WKB bytes which are decoded on demand.
+     */
+    private static class WkbColumn extends ColumnBuilder {
+        private final WKBWriter writer = new WKBWriter(3);
+        private byte[][] values = new byte[capacity][];
+
+        WkbColumn(StructField field) {
+            super(field);
+        }
+
+        @Override
+        protected boolean readValue(ResultSet rs, int index) throws SQLException {
+            Object value = rs.getObject(index);
+            if (value instanceof Geometry) {
+                values[size] = writer.write((Geometry) value);
+            } else if (value instanceof byte[]) {
+                values[size] = (byte[]) value;
+            } else if (value != null) {
+                throw new SQLException("Unsupported geometry value of type " + value.getClass().getName() + ".");
+            }
+            return value != null;
+        }
+
+        @Override
+        protected void appendValues(ColumnBuilder other) {
+            System.arraycopy(((WkbColumn) other).values, 0, values, size, other.size);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        BaseVector<?, ?, ?> build() {
+            return Vector.of(field, Arrays.copyOf(values, size));
+        }
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import org.locationtech.jts.geom.Geometry;
+import smile.data.type.DataType;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+
+/**
+ * Storage of the columns of a {@link DataFrame} into files of a directory, read back through memory mapping so the
+ * values stay outside of the Java heap. Each column is written into its own files :
+ * <ul>
+ *     <li><code>i.data</code> : the fixed width values, or the bytes of the variable width values</li>
+ *     <li><code>i.offsets</code> : the start offset of each variable width value, followed by the end offset</li>
+ *     <li><code>i.nulls</code> : the null bitmap of the nullable columns</li>
+ * </ul>
+ * The names, types and row count are written into the <code>columns.properties</code> file, so a stored
+ * {@link DataFrame} is reopened without reading its values.
+ */
+final class ColumnStore {
+
+    /**
+     * Name of the file describing the columns.
+     */
+    static final String PROPERTIES = "columns.properties";
+    /**
+     * Size of the write buffers.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Encoding of the values in the files.
+     */
+    enum Codec {
+        BOOLEAN(1, Boolean.class),
+        BYTE(Byte.BYTES, Byte.class),
+        SHORT(Short.BYTES, Short.class),
+        INT(Integer.BYTES, Integer.class),
+        LONG(Long.BYTES, Long.class),
+        FLOAT(Float.BYTES, Float.class),
+        DOUBLE(Double.BYTES, Double.class),
+        /** Epoch day. */
+        DATE(Long.BYTES, LocalDate.class),
+        /** Nano of day. */
+        TIME(Long.BYTES, LocalTime.class),
+        /** Epoch second and nano of second. */
+        DATETIME(Long.BYTES + Integer.BYTES, LocalDateTime.class),
+        /** UTF-8 bytes. */
+        STRING(-1, String.class),
+        /** Bytes of the plain string representation. */
+        DECIMAL(-1, BigDecimal.class),
+        BYTES(-1, byte[].class);
+
+        /**
+         * Width of the values in bytes, -1 for the variable width values.
+         */
+        final int width;
+        /**
+         * Class of the boxed values.
+         */
+        final Class<?> clazz;
+
+        Codec(int width, Class<?> clazz) {
+            this.width = width;
+            this.clazz = clazz;
+        }
+
+        /**
+         * Return the {@link Codec} of the given type.
+         *
+         * @param type Type of the column.
+         * @return The {@link Codec} of the type.
+         * @throws IllegalArgumentException Exception thrown if the type cannot be stored.
+         */
+        static Codec of(DataType type) {
+            if (type.isBoolean()) {
+                return BOOLEAN;
+            } else if (type.isByte()) {
+                return BYTE;
+            } else if (type.isShort()) {
+                return SHORT;
+            } else if (type.isInt()) {
+                return INT;
+            } else if (type.isLong()) {
+                return LONG;
+            } else if (type.isFloat()) {
+                return FLOAT;
+            } else if (type.isDouble()) {
+                return DOUBLE;
+            } else if (type.isString()) {
+                return STRING;
+            } else if (DataTypes.ByteArrayType.equals(type)) {
+                return BYTES;
+            }
+            switch (type.id()) {
+                case Date:
+                    return DATE;
+                case Time:
+                    return TIME;
+                case DateTime:
+                    return DATETIME;
+                case Decimal:
+                    return DECIMAL;
+                default:
+                    throw new IllegalArgumentException("Unsupported column type : " + type.name());
+            }
+        }
+
+        /**
+         * Return the type of the stored column.
+         *
+         * @param nullable True if the column contains null values.
+         * @return The type of the column.
+         */
+        DataType type(boolean nullable) {
+            switch (this) {
+                case BOOLEAN:
+                    return nullable ? DataTypes.BooleanObjectType : DataTypes.BooleanType;
+                case BYTE:
+                    return nullable ? DataTypes.ByteObjectType : DataTypes.ByteType;
+                case SHORT:
+                    return nullable ? DataTypes.ShortObjectType : DataTypes.ShortType;
+                case INT:
+                    return nullable ? DataTypes.IntegerObjectType : DataTypes.IntegerType;
+                case LONG:
+                    return nullable ? DataTypes.LongObjectType : DataTypes.LongType;
+                case FLOAT:
+                    return nullable ? DataTypes.FloatObjectType : DataTypes.FloatType;
+                case DOUBLE:
+                    return nullable ? DataTypes.DoubleObjectType : DataTypes.DoubleType;
+                case DATE:
+                    return DataTypes.DateType;
+                case TIME:
+                    return DataTypes.TimeType;
+                case DATETIME:
+                    return DataTypes.DateTimeType;
+                case STRING:
+                    return DataTypes.StringType;
+                case DECIMAL:
+                    return DataTypes.DecimalType;
+                default:
+                    return DataTypes.ByteArrayType;
+            }
+        }
+    }
+
+    private ColumnStore() {
+    }
+
+    /**
+     * Check that the directory is empty, creating it if needed.
+     *
+     * @param directory Directory of the store.
+     * @throws IOException Exception thrown if the directory cannot be created or is not empty.
+     */
+    private static void prepare(File directory) throws IOException {
+        if (directory.exists()) {
+            String[] files = directory.list();
+            if (files == null || files.length > 0) {
+                throw new IOException("The directory '" + directory.getAbsolutePath() + "' is not an empty directory.");
+            }
+        } else if (!directory.mkdirs()) {
+            throw new IOException("Unable to create the directory '" + directory.getAbsolutePath() + "'.");
+        }
+    }
+
+    /**
+     * Write all the rows of the {@link ResultSet} into the directory, column by column, and open the stored columns.
+     * Only one row is kept in memory at a time.
+     *
+     * @param rs         {@link ResultSet} to read.
+     * @param schema     Structure of the {@link ResultSet}.
+     * @param geometries True for the geometry columns, stored as WKT strings.
+     * @param directory  Empty directory of the store.
+     * @return The memory mapped Smile {@link smile.data.DataFrame}.
+     * @throws SQLException Exception thrown while reading the {@link ResultSet}.
+     * @throws IOException  Exception thrown while writing the files.
+     */
+    static smile.data.DataFrame write(ResultSet rs, StructType schema, boolean[] geometries, File directory)
+            throws SQLException, IOException {
+        prepare(directory);
+        ColumnWriter[] writers = new ColumnWriter[schema.length()];
+        try {
+            for (int i = 0; i < writers.length; i++) {
+                StructField field = schema.field(i);
+                Codec codec = geometries[i] ? Codec.STRING : Codec.of(field.type);
+                writers[i] = new ColumnWriter(directory, i, field.name, codec, !field.type.isPrimitive());
+            }
+            int rowCount = 0;
+            while (rs.next()) {
+                for (int i = 0; i < writers.length; i++) {
+                    writers[i].read(rs, i + 1, geometries[i]);
+                }
+                rowCount++;
+            }
+            return close(writers, directory, rowCount);
+        } finally {
+            for (ColumnWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the columns of the Smile {@link smile.data.DataFrame} into the directory and open the stored columns.
+     *
+     * @param dataFrame Smile {@link smile.data.DataFrame} to store.
+     * @param directory Empty directory of the store.
+     * @return The memory mapped Smile {@link smile.data.DataFrame}.
+     * @throws IOException Exception thrown while writing the files.
+     */
+    static smile.data.DataFrame write(smile.data.DataFrame dataFrame, File directory) throws IOException {
+        prepare(directory);
+        ColumnWriter[] writers = new ColumnWriter[dataFrame.ncols()];
+        try {
+            for (int i = 0; i < writers.length; i++) {
+                BaseVector<?, ?, ?> vector = dataFrame.column(i);
+                writers[i] = new ColumnWriter(directory, i, vector.name(), Codec.of(vector.type()),
+                        !vector.type().isPrimitive());
+                for (int row = 0; row < vector.size(); row++) {
+                    writers[i].write(vector, row);
+                }
+                writers[i].close();
+            }
+            return close(writers, directory, dataFrame.nrows());
+        } finally {
+            for (ColumnWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+    }
+
+    private static smile.data.DataFrame close(ColumnWriter[] writers, File directory, int rowCount)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("rows", Integer.toString(rowCount));
+        properties.setProperty("columns", Integer.toString(writers.length));
+        for (int i = 0; i < writers.length; i++) {
+            writers[i].close();
+            properties.setProperty(i + ".name", writers[i].name);
+            properties.setProperty(i + ".codec", writers[i].codec.name());
+            properties.setProperty(i + ".nullable", Boolean.toString(writers[i].nullable));
+        }
+        try (OutputStream out = new FileOutputStream(new File(directory, PROPERTIES))) {
+            properties.store(out, "DataFrame column store");
+        }
+        return open(directory);
+    }
+
+    /**
+     * Open the columns stored in the directory.
+     *
+     * @param directory Directory of the store.
+     * @return The memory mapped Smile {@link smile.data.DataFrame}.
+     * @throws IOException Exception thrown if the directory does not contain a column store.
+     */
+    static smile.data.DataFrame open(File directory) throws IOException {
+        File file = new File(directory, PROPERTIES);
+        if (!file.isFile()) {
+            throw new IOException("The directory '" + directory.getAbsolutePath() + "' is not a column store.");
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        int rowCount = Integer.parseInt(properties.getProperty("rows"));
+        int columnCount = Integer.parseInt(properties.getProperty("columns"));
+        Path path = directory.toPath();
+        BaseVector<?, ?, ?>[] vectors = new BaseVector[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            Codec codec = Codec.valueOf(properties.getProperty(i + ".codec"));
+            boolean nullable = Boolean.parseBoolean(properties.getProperty(i + ".nullable"));
+            StructField field = new StructField(properties.getProperty(i + ".name"), codec.type(nullable));
+            vectors[i] = MappedColumn.of(field, codec, rowCount, path.resolve(i + ".data"),
+                    codec.width < 0 ? path.resolve(i + ".offsets") : null,
+                    nullable ? path.resolve(i + ".nulls") : null);
+        }
+        return smile.data.DataFrame.of(vectors);
+    }
+
+    /**
+     * Buffered writer of the files of a column.
+     */
+    private static final class ColumnWriter implements Closeable {
+
+        private final String name;
+        private final Codec codec;
+        private final boolean nullable;
+        private final DataOutputStream data;
+        private final DataOutputStream offsets;
+        private final DataOutputStream nulls;
+        private long offset = 0;
+        private int count = 0;
+        private int nullByte = 0;
+        private boolean closed = false;
+
+        private ColumnWriter(File directory, int index, String name, Codec codec, boolean nullable)
+                throws IOException {
+            this.name = name;
+            this.codec = codec;
+            this.nullable = nullable;
+            this.data = stream(new File(directory, index + ".data"));
+            this.offsets = codec.width < 0 ? stream(new File(directory, index + ".offsets")) : null;
+            this.nulls = nullable ? stream(new File(directory, index + ".nulls")) : null;
+            if (offsets != null) {
+                offsets.writeLong(0);
+            }
+        }
+
+        private static DataOutputStream stream(File file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE));
+        }
+
+        /**
+         * Read the value of the current row of the {@link ResultSet} and write it.
+         *
+         * @param rs       {@link ResultSet} to read.
+         * @param index    Index of the column, starting at 1.
+         * @param geometry True if the column contains geometries.
+         */
+        private void read(ResultSet rs, int index, boolean geometry) throws SQLException, IOException {
+            switch (codec) {
+                case BOOLEAN: {
+                    boolean value = rs.getBoolean(index);
+                    data.writeByte(value ? 1 : 0);
+                    next(rs.wasNull());
+                    break;
+                }
+                case BYTE: {
+                    byte value = rs.getByte(index);
+                    data.writeByte(value);
+                    next(rs.wasNull());
+                    break;
+                }
+                case SHORT: {
+                    short value = rs.getShort(index);
+                    data.writeShort(value);
+                    next(rs.wasNull());
+                    break;
+                }
+                case INT: {
+                    int value = rs.getInt(index);
+                    data.writeInt(value);
+                    next(rs.wasNull());
+                    break;
+                }
+                case LONG: {
+                    long value = rs.getLong(index);
+                    data.writeLong(value);
+                    next(rs.wasNull());
+                    break;
+                }
+                case FLOAT: {
+                    float value = rs.getFloat(index);
+                    data.writeFloat(value);
+                    next(rs.wasNull());
+                    break;
+                }
+                case DOUBLE: {
+                    double value = rs.getDouble(index);
+                    data.writeDouble(value);
+                    next(rs.wasNull());
+                    break;
+                }
+                case DATE: {
+                    Date value = rs.getDate(index);
+                    writeValue(value == null ? null : value.toLocalDate());
+                    break;
+                }
+                case TIME: {
+                    Time value = rs.getTime(index);
+                    writeValue(value == null ? null : value.toLocalTime());
+                    break;
+                }
+                case DATETIME: {
+                    Timestamp value = rs.getTimestamp(index);
+                    writeValue(value == null ? null : value.toLocalDateTime());
+                    break;
+                }
+                case STRING: {
+                    Object value = geometry ? rs.getObject(index) : rs.getString(index);
+                    writeValue(value instanceof Geometry ? value.toString() : value);
+                    break;
+                }
+                case DECIMAL:
+                    writeValue(rs.getBigDecimal(index));
+                    break;
+                default:
+                    writeValue(rs.getBytes(index));
+            }
+        }
+
+        /**
+         * Write the value of a row of the vector.
+         *
+         * @param vector Vector to write.
+         * @param row    Index of the row.
+         */
+        private void write(BaseVector<?, ?, ?> vector, int row) throws IOException {
+            if (vector.type().isPrimitive()) {
+                switch (codec) {
+                    case BYTE:
+                        data.writeByte(vector.getByte(row));
+                        break;
+                    case SHORT:
+                        data.writeShort(vector.getShort(row));
+                        break;
+                    case INT:
+                        data.writeInt(vector.getInt(row));
+                        break;
+                    case LONG:
+                        data.writeLong(vector.getLong(row));
+                        break;
+                    case FLOAT:
+                        data.writeFloat(vector.getFloat(row));
+                        break;
+                    case DOUBLE:
+                        data.writeDouble(vector.getDouble(row));
+                        break;
+                    default:
+                        writeValue(vector.get(row));
+                        return;
+                }
+                next(false);
+            } else {
+                writeValue(vector.get(row));
+            }
+        }
+
+        /**
+         * Write a boxed value.
+         *
+         * @param value Value to write, can be null.
+         */
+        private void writeValue(Object value) throws IOException {
+            if (codec.width < 0) {
+                if (value != null) {
+                    byte[] bytes;
+                    if (value instanceof byte[]) {
+                        bytes = (byte[]) value;
+                    } else if (value instanceof BigDecimal) {
+                        bytes = ((BigDecimal) value).toPlainString().getBytes(StandardCharsets.US_ASCII);
+                    } else {
+                        bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                    }
+                    data.write(bytes);
+                    offset += bytes.length;
+                }
+                offsets.writeLong(offset);
+            } else if (value == null) {
+                for (int i = 0; i < codec.width; i++) {
+                    data.writeByte(0);
+                }
+            } else {
+                switch (codec) {
+                    case BOOLEAN:
+                        data.writeByte((Boolean) value ? 1 : 0);
+                        break;
+                    case BYTE:
+                        data.writeByte(((Number) value).byteValue());
+                        break;
+                    case SHORT:
+                        data.writeShort(((Number) value).shortValue());
+                        break;
+                    case INT:
+                        data.writeInt(((Number) value).intValue());
+                        break;
+                    case LONG:
+                        data.writeLong(((Number) value).longValue());
+                        break;
+                    case FLOAT:
+                        data.writeFloat(((Number) value).floatValue());
+                        break;
+                    case DOUBLE:
+                        data.writeDouble(((Number) value).doubleValue());
+                        break;
+                    case DATE:
+                        data.writeLong(((LocalDate) value).toEpochDay());
+                        break;
+                    case TIME:
+                        data.writeLong(((LocalTime) value).toNanoOfDay());
+                        break;
+                    default:
+                        LocalDateTime dateTime = (LocalDateTime) value;
+                        data.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+                        data.writeInt(dateTime.getNano());
+                }
+            }
+            next(value == null);
+        }
+
+        /**
+         * Record the null flag of the written value.
+         *
+         * @param isNull True if the value is null.
+         */
+        private void next(boolean isNull) throws IOException {
+            if (isNull) {
+                if (!nullable) {
+                    throw new IOException("Unexpected null value in the column " + name + ".");
+                }
+                nullByte |= 1 << (count & 7);
+            }
+            count++;
+            if (nulls != null && (count & 7) == 0) {
+                nulls.writeByte(nullByte);
+                nullByte = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (nulls != null) {
+                if ((count & 7) != 0) {
+                    nulls.writeByte(nullByte);
+                }
+                nulls.close();
+            }
+            if (offsets != null) {
+                offsets.close();
+            }
+            data.close();
+        }
+    }
+}
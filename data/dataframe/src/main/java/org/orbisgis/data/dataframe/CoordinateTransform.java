@@ -0,0 +1,179 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import org.cts.CRSFactory;
+import org.cts.IllegalCoordinateException;
+import org.cts.crs.CRSException;
+import org.cts.crs.CoordinateReferenceSystem;
+import org.cts.crs.GeodeticCRS;
+import org.cts.op.CoordinateOperation;
+import org.cts.op.CoordinateOperationException;
+import org.cts.op.CoordinateOperationFactory;
+import org.cts.registry.EPSGRegistry;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In process transformation of the geometries of a {@link SpatialDataFrame} between two coordinate reference systems.
+ * The CTS coordinate operations are built from the EPSG registry once by source and target SRID and shared by all
+ * the threads.
+ */
+final class CoordinateTransform {
+
+    private static final CRSFactory CRS_FACTORY = new CRSFactory();
+
+    static {
+        CRS_FACTORY.getRegistryManager().addRegistry(new EPSGRegistry());
+    }
+
+    /**
+     * Coordinate operations by source and target SRID.
+     */
+    private static final Map<Long, CoordinateOperation> OPERATIONS = new ConcurrentHashMap<>();
+
+    private CoordinateTransform() {
+    }
+
+    /**
+     * Return the cached operation transforming the coordinates from the source to the target SRID.
+     *
+     * @param source SRID of the source coordinate reference system.
+     * @param target SRID of the target coordinate reference system.
+     * @return The most precise {@link CoordinateOperation}.
+     */
+    private static CoordinateOperation operation(int source, int target) {
+        long key = ((long) source << 32) | (target & 0xFFFFFFFFL);
+        CoordinateOperation operation = OPERATIONS.get(key);
+        if (operation == null) {
+            //The CRS factory is not thread safe
+            synchronized (CRS_FACTORY) {
+                operation = OPERATIONS.get(key);
+                if (operation == null) {
+                    operation = createOperation(source, target);
+                    OPERATIONS.put(key, operation);
+                }
+            }
+        }
+        return operation;
+    }
+
+    private static CoordinateOperation createOperation(int source, int target) {
+        try {
+            CoordinateReferenceSystem sourceCRS = CRS_FACTORY.getCRS("EPSG:" + source);
+            CoordinateReferenceSystem targetCRS = CRS_FACTORY.getCRS("EPSG:" + target);
+            if (!(sourceCRS instanceof GeodeticCRS) || !(targetCRS instanceof GeodeticCRS)) {
+                throw new IllegalArgumentException("Only geodetic coordinate reference systems are supported.");
+            }
+            Set<CoordinateOperation> operations = CoordinateOperationFactory.createCoordinateOperations(
+                    (GeodeticCRS) sourceCRS, (GeodeticCRS) targetCRS);
+            if (operations.isEmpty()) {
+                throw new IllegalArgumentException("No coordinate operation from the SRID '" + source +
+                        "' to the SRID '" + target + "'.");
+            }
+            return CoordinateOperationFactory.getMostPrecise(operations);
+        } catch (CRSException | CoordinateOperationException e) {
+            throw new IllegalArgumentException("Cannot transform the coordinates from the SRID '" + source +
+                    "' to the SRID '" + target + "'.", e);
+        }
+    }
+
+    /**
+     * Return a copy of the given {@link Geometry} transformed into the given SRID.
+     *
+     * @param geometry {@link Geometry} to transform.
+     * @param source   SRID of the geometry, used if the geometry has no SRID.
+     * @param target   SRID of the target coordinate reference system.
+     * @return The transformed {@link Geometry}.
+     */
+    static Geometry transform(Geometry geometry, int source, int target) {
+        int srid = geometry.getSRID() > 0 ? geometry.getSRID() : source;
+        if (srid <= 0) {
+            throw new IllegalArgumentException("The SRID of the geometry is unknown.");
+        }
+        Geometry result = geometry.copy();
+        if (srid != target) {
+            result.apply(new TransformFilter(operation(srid, target)));
+        }
+        result.setSRID(target);
+        return result;
+    }
+
+    /**
+     * Filter transforming the coordinates of the geometries.
+     */
+    private static final class TransformFilter implements CoordinateSequenceFilter {
+        private final CoordinateOperation operation;
+
+        private TransformFilter(CoordinateOperation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void filter(CoordinateSequence seq, int i) {
+            boolean hasZ = seq.hasZ();
+            double z = hasZ ? seq.getZ(i) : Double.NaN;
+            double[] xyz;
+            try {
+                xyz = operation.transform(new double[]{seq.getX(i), seq.getY(i), Double.isNaN(z) ? 0 : z});
+            } catch (IllegalCoordinateException | CoordinateOperationException e) {
+                throw new IllegalArgumentException("Cannot transform the coordinate (" + seq.getX(i) + ", " +
+                        seq.getY(i) + ").", e);
+            }
+            seq.setOrdinate(i, CoordinateSequence.X, xyz[0]);
+            seq.setOrdinate(i, CoordinateSequence.Y, xyz[1]);
+            if (hasZ && !Double.isNaN(z) && xyz.length > 2) {
+                seq.setOrdinate(i, CoordinateSequence.Z, xyz[2]);
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean isGeometryChanged() {
+            return true;
+        }
+    }
+}
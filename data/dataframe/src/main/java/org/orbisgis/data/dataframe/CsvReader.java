@@ -0,0 +1,640 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.type.DataType;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.vector.BaseVector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel CSV reader. The file is memory mapped and split into chunks aligned on the record boundaries which are
+ * parsed concurrently. The column types are inferred from a sample of the first records and each chunk is parsed
+ * directly into primitive {@link ColumnBuilder}s, then the chunks are concatenated.
+ * <p>
+ * When a value does not match the type of its column, only the column of the current chunk is promoted: the already
+ * parsed numbers are widened in memory, or the column is read again from the chunk when it becomes a string one.
+ * The chunks whose columns end with a narrower type than in the other chunks are converted the same way on merge.
+ * <p>
+ * The fields can be quoted with double quotes, a double quote inside a quoted field being escaped by another double
+ * quote. Unquoted empty fields and unquoted <code>null</code> are read as null values. The first record contains the
+ * column names.
+ */
+final class CsvReader {
+
+    /**
+     * Count of records used to infer the column types.
+     */
+    private static final int SAMPLE_SIZE = 1000;
+    /**
+     * Minimal size in bytes of a chunk parsed by one thread.
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * Maximal size in bytes of a mapped region, half of the maximal size of a {@link java.nio.MappedByteBuffer}, so
+     * a chunk ending on the next record boundary can always be mapped.
+     */
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    /**
+     * Column types which can be inferred, ordered from the most to the least specific.
+     */
+    enum ColumnType {
+        NULL, BOOLEAN, INT, LONG, DOUBLE, STRING;
+
+        /**
+         * Return the type able to store the values of this type and of the given one.
+         *
+         * @param other Other type.
+         * @return The common type.
+         */
+        ColumnType merge(ColumnType other) {
+            if (this == NULL || this == other) {
+                return other;
+            }
+            if (other == NULL) {
+                return this;
+            }
+            if (this == BOOLEAN || other == BOOLEAN) {
+                return STRING;
+            }
+            return this.compareTo(other) > 0 ? this : other;
+        }
+
+        /**
+         * Return the less specific type to use when a value can not be parsed into this type.
+         *
+         * @return The promoted type.
+         */
+        ColumnType promote() {
+            switch (this) {
+                case INT:
+                    return LONG;
+                case LONG:
+                    return DOUBLE;
+                default:
+                    return STRING;
+            }
+        }
+
+        /**
+         * Return the Smile {@link DataType} of this type.
+         *
+         * @param nullable True if the column contains null values.
+         * @return The Smile {@link DataType}.
+         */
+        DataType toDataType(boolean nullable) {
+            switch (this) {
+                case BOOLEAN:
+                    return nullable ? DataTypes.BooleanObjectType : DataTypes.BooleanType;
+                case INT:
+                    return nullable ? DataTypes.IntegerObjectType : DataTypes.IntegerType;
+                case LONG:
+                    return nullable ? DataTypes.LongObjectType : DataTypes.LongType;
+                case DOUBLE:
+                    return nullable ? DataTypes.DoubleObjectType : DataTypes.DoubleType;
+                default:
+                    return DataTypes.StringType;
+            }
+        }
+    }
+
+    /**
+     * Consumer of the parsed fields.
+     */
+    private interface FieldConsumer {
+        /**
+         * Consume a field.
+         *
+         * @param column Index of the column of the field.
+         * @param bytes  Bytes of the field, quotes removed.
+         * @param length Count of bytes of the field.
+         * @param quoted True if the field was quoted.
+         */
+        void field(int column, byte[] bytes, int length, boolean quoted);
+
+        /**
+         * Called at the end of a record.
+         *
+         * @param columnCount Count of fields of the record.
+         * @return True to continue the parsing, false to stop.
+         */
+        boolean endRecord(int columnCount);
+    }
+
+    /**
+     * Parsed chunk of the file.
+     */
+    private static final class Chunk {
+        /**
+         * Mapped bytes of the chunk.
+         */
+        private final ByteBuffer buffer;
+        /**
+         * Types of the columns of the chunk.
+         */
+        private final ColumnType[] types;
+        /**
+         * {@link ColumnBuilder}s of the columns of the chunk.
+         */
+        private final ColumnBuilder[] builders;
+
+        Chunk(ByteBuffer buffer, ColumnType[] types, ColumnBuilder[] builders) {
+            this.buffer = buffer;
+            this.types = types;
+            this.builders = builders;
+        }
+    }
+
+    private final byte delimiter;
+    private final Charset charset;
+    private final int parallelism;
+
+    /**
+     * Main constructor.
+     *
+     * @param delimiter   Field delimiter.
+     * @param charset     {@link Charset} of the file. It should be ASCII compatible, like UTF-8 or ISO-8859-1.
+     * @param parallelism Maximal count of chunks parsed concurrently.
+     */
+    CsvReader(char delimiter, Charset charset, int parallelism) {
+        if (delimiter > 127 || delimiter == QUOTE || delimiter == LF || delimiter == CR) {
+            throw new IllegalArgumentException("The delimiter should be an ASCII character other than quote or new line.");
+        }
+        if (!isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("The encoding '" + charset + "' is not ASCII compatible.");
+        }
+        this.delimiter = (byte) delimiter;
+        this.charset = charset;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Return true if the ASCII characters are encoded on one byte with their ASCII value by the given
+     * {@link Charset}, which allows to split the fields on the bytes.
+     *
+     * @param charset {@link Charset} to check.
+     * @return True if the {@link Charset} is ASCII compatible.
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        if (!charset.canEncode()) {
+            return false;
+        }
+        String ascii = "\n\r\",;\t|azAZ09";
+        return Arrays.equals(ascii.getBytes(StandardCharsets.US_ASCII), ascii.getBytes(charset));
+    }
+
+    /**
+     * Read the given CSV file.
+     *
+     * @param file CSV {@link File} to read.
+     * @return A Smile {@link smile.data.DataFrame} with the content of the file.
+     * @throws IOException Exception thrown if the file can not be read.
+     */
+    smile.data.DataFrame read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, MAX_CHUNK_SIZE));
+            skipBom(head);
+            List<String> names = new ArrayList<>();
+            parse(head, new FieldConsumer() {
+                @Override
+                public void field(int column, byte[] bytes, int length, boolean quoted) {
+                    names.add(new String(bytes, 0, length, charset).trim());
+                }
+
+                @Override
+                public boolean endRecord(int columnCount) {
+                    return false;
+                }
+            });
+            if (names.isEmpty()) {
+                throw new IOException("The CSV file '" + file.getAbsolutePath() + "' has no header.");
+            }
+            long dataStart = head.position();
+            ColumnType[] types = inferTypes(head, names.size());
+            long[] bounds = split(channel, dataStart, fileSize);
+
+            try {
+                List<Chunk> chunks = IntStream.range(0, bounds.length - 1)
+                        .parallel()
+                        .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], types))
+                        .collect(Collectors.toList());
+                return merge(names, chunks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Skip the UTF-8 byte order mark if any.
+     *
+     * @param buffer {@link ByteBuffer} to read.
+     */
+    private static void skipBom(ByteBuffer buffer) {
+        if (buffer.remaining() >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB &&
+                (buffer.get(2) & 0xFF) == 0xBF) {
+            buffer.position(3);
+        }
+    }
+
+    /**
+     * Infer the column types from the first records of the buffer, without moving its position.
+     *
+     * @param buffer      {@link ByteBuffer} positioned on the first record.
+     * @param columnCount Count of columns.
+     * @return The inferred column types.
+     */
+    private ColumnType[] inferTypes(ByteBuffer buffer, int columnCount) {
+        ColumnType[] types = new ColumnType[columnCount];
+        Arrays.fill(types, ColumnType.NULL);
+        int[] records = {0};
+        parse(buffer.duplicate(), new FieldConsumer() {
+            @Override
+            public void field(int column, byte[] bytes, int length, boolean quoted) {
+                if (column < columnCount && !isNull(bytes, length, quoted)) {
+                    types[column] = types[column].merge(quoted && length == 0 ? ColumnType.STRING : typeOf(bytes, length));
+                }
+            }
+
+            @Override
+            public boolean endRecord(int count) {
+                return ++records[0] < SAMPLE_SIZE;
+            }
+        });
+        for (int i = 0; i < columnCount; i++) {
+            if (types[i] == ColumnType.NULL) {
+                types[i] = ColumnType.STRING;
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Return the most specific type of the given value.
+     *
+     * @param bytes  Bytes of the value.
+     * @param length Count of bytes of the value.
+     * @return The type of the value.
+     */
+    private static ColumnType typeOf(byte[] bytes, int length) {
+        try {
+            ColumnBuilder.parseBoolean(bytes, length);
+            return ColumnType.BOOLEAN;
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            long value = ColumnBuilder.parseLong(bytes, length);
+            return value == (int) value ? ColumnType.INT : ColumnType.LONG;
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            ColumnBuilder.parseDouble(bytes, length);
+            return ColumnType.DOUBLE;
+        } catch (NumberFormatException ignored) {
+        }
+        return ColumnType.STRING;
+    }
+
+    /**
+     * Return true if the field is an unquoted empty value or an unquoted <code>null</code>.
+     *
+     * @param bytes  Bytes of the field.
+     * @param length Count of bytes of the field.
+     * @param quoted True if the field was quoted.
+     * @return True if the field is null.
+     */
+    private static boolean isNull(byte[] bytes, int length, boolean quoted) {
+        return !quoted && (length == 0 || (length == 4 && bytes[0] == 'n' && bytes[1] == 'u' && bytes[2] == 'l' &&
+                bytes[3] == 'l'));
+    }
+
+    /**
+     * Split the data of the file into chunks ending on a record boundary. Splitting requires a sequential scan of
+     * the file to track the quoted sections, so it is only done if several chunks are needed.
+     *
+     * @param channel   {@link FileChannel} of the file.
+     * @param dataStart Position of the first record.
+     * @param fileSize  Size of the file.
+     * @return The positions of the chunk bounds.
+     * @throws IOException Exception thrown if the file can not be mapped.
+     */
+    private long[] split(FileChannel channel, long dataStart, long fileSize) throws IOException {
+        long dataSize = fileSize - dataStart;
+        long chunkCount = Math.max(Math.min(parallelism, dataSize / MIN_CHUNK_SIZE),
+                (dataSize + MAX_CHUNK_SIZE / 2 - 1) / (MAX_CHUNK_SIZE / 2));
+        if (chunkCount <= 1) {
+            return new long[]{dataStart, fileSize};
+        }
+        long chunkSize = dataSize / chunkCount;
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        long target = dataStart + chunkSize;
+        boolean inQuotes = false;
+        for (long regionStart = dataStart; regionStart < fileSize && target < fileSize; regionStart += MAX_CHUNK_SIZE) {
+            long regionSize = Math.min(MAX_CHUNK_SIZE, fileSize - regionStart);
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+            for (int i = 0; i < regionSize; i++) {
+                byte b = region.get(i);
+                if (b == QUOTE) {
+                    inQuotes = !inQuotes;
+                } else if (b == LF && !inQuotes && regionStart + i >= target) {
+                    bounds.add(regionStart + i + 1);
+                    target = regionStart + i + 1 + chunkSize;
+                    if (target >= fileSize) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (bounds.get(bounds.size() - 1) < fileSize) {
+            bounds.add(fileSize);
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Parse a chunk of the file into {@link ColumnBuilder}s, promoting the type of a column of the chunk when one of
+     * its values can not be parsed.
+     *
+     * @param channel {@link FileChannel} of the file.
+     * @param start   Start position of the chunk.
+     * @param end     End position of the chunk.
+     * @param types   Inferred types of the columns.
+     * @return The parsed {@link Chunk}.
+     */
+    private Chunk parseChunk(FileChannel channel, long start, long end, ColumnType[] types) {
+        ColumnType[] chunkTypes = types.clone();
+        ColumnBuilder[] builders = new ColumnBuilder[chunkTypes.length];
+        for (int i = 0; i < chunkTypes.length; i++) {
+            builders[i] = ColumnBuilder.of(new StructField("", chunkTypes[i].toDataType(true)), false);
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        parse(buffer.duplicate(), new FieldConsumer() {
+            @Override
+            public void field(int column, byte[] bytes, int length, boolean quoted) {
+                if (column >= builders.length) {
+                    return;
+                }
+                while (true) {
+                    try {
+                        append(builders[column], chunkTypes[column], bytes, length, quoted);
+                        return;
+                    } catch (NumberFormatException | ArithmeticException e) {
+                        chunkTypes[column] = chunkTypes[column].promote();
+                        if (chunkTypes[column] == ColumnType.STRING) {
+                            boolean[] columns = new boolean[builders.length];
+                            columns[column] = true;
+                            builders[column] = readStrings(buffer, columns, builders[column].size)[column];
+                        } else {
+                            builders[column] = builders[column].widen(
+                                    new StructField("", chunkTypes[column].toDataType(true)));
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public boolean endRecord(int columnCount) {
+                for (int i = columnCount; i < builders.length; i++) {
+                    builders[i].appendNull();
+                }
+                return true;
+            }
+        });
+        return new Chunk(buffer, chunkTypes, builders);
+    }
+
+    /**
+     * Add the value of a field to the {@link ColumnBuilder} of its column.
+     *
+     * @param builder {@link ColumnBuilder} of the column.
+     * @param type    Type of the column.
+     * @param bytes   Bytes of the field, quotes removed.
+     * @param length  Count of bytes of the field.
+     * @param quoted  True if the field was quoted.
+     * @throws NumberFormatException Exception thrown if the field can not be parsed into the column type.
+     */
+    private void append(ColumnBuilder builder, ColumnType type, byte[] bytes, int length, boolean quoted) {
+        if (isNull(bytes, length, quoted) || (length == 0 && type != ColumnType.STRING)) {
+            builder.appendNull();
+        } else {
+            builder.parse(bytes, length, charset);
+        }
+    }
+
+    /**
+     * Read again the given columns of the first records of a chunk as strings.
+     *
+     * @param buffer  Mapped bytes of the chunk.
+     * @param columns Flags of the columns to read.
+     * @param records Count of records to read.
+     * @return The string {@link ColumnBuilder}s of the read columns, null for the other columns.
+     */
+    private ColumnBuilder[] readStrings(ByteBuffer buffer, boolean[] columns, int records) {
+        ColumnBuilder[] builders = new ColumnBuilder[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i]) {
+                builders[i] = ColumnBuilder.of(new StructField("", DataTypes.StringType), false);
+            }
+        }
+        if (records == 0) {
+            return builders;
+        }
+        int[] read = {0};
+        parse(buffer.duplicate(), new FieldConsumer() {
+            @Override
+            public void field(int column, byte[] bytes, int length, boolean quoted) {
+                if (column < builders.length && builders[column] != null) {
+                    append(builders[column], ColumnType.STRING, bytes, length, quoted);
+                }
+            }
+
+            @Override
+            public boolean endRecord(int columnCount) {
+                for (int i = columnCount; i < builders.length; i++) {
+                    if (builders[i] != null) {
+                        builders[i].appendNull();
+                    }
+                }
+                return ++read[0] < records;
+            }
+        });
+        return builders;
+    }
+
+    /**
+     * Convert the columns of the chunks to their common type, then concatenate the chunks and build the Smile
+     * {@link smile.data.DataFrame}.
+     *
+     * @param names  Names of the columns.
+     * @param chunks Parsed {@link Chunk}s.
+     * @return The Smile {@link smile.data.DataFrame}.
+     */
+    private smile.data.DataFrame merge(List<String> names, List<Chunk> chunks) {
+        ColumnType[] types = chunks.get(0).types.clone();
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < types.length; i++) {
+                types[i] = types[i].merge(chunk.types[i]);
+            }
+        }
+        chunks.parallelStream().forEach(chunk -> {
+            boolean[] strings = new boolean[types.length];
+            boolean reread = false;
+            for (int i = 0; i < types.length; i++) {
+                if (chunk.types[i] != types[i]) {
+                    if (types[i] == ColumnType.STRING) {
+                        strings[i] = true;
+                        reread = true;
+                    } else {
+                        chunk.builders[i] = chunk.builders[i].widen(new StructField("", types[i].toDataType(true)));
+                    }
+                }
+            }
+            if (reread) {
+                ColumnBuilder[] read = readStrings(chunk.buffer, strings, chunk.builders[0].size);
+                for (int i = 0; i < types.length; i++) {
+                    if (strings[i]) {
+                        chunk.builders[i] = read[i];
+                    }
+                }
+            }
+        });
+        BaseVector<?, ?, ?>[] vectors = new BaseVector[types.length];
+        for (int i = 0; i < types.length; i++) {
+            final int column = i;
+            boolean nullable = chunks.stream().anyMatch(chunk -> chunk.builders[column].hasNull());
+            StructField field = new StructField(names.get(i), types[i].toDataType(nullable));
+            ColumnBuilder builder = ColumnBuilder.of(field, false);
+            for (Chunk chunk : chunks) {
+                builder.append(chunk.builders[i]);
+            }
+            vectors[i] = builder.build();
+        }
+        return smile.data.DataFrame.of(vectors);
+    }
+
+    /**
+     * Parse the records of the buffer from its position and give the fields to the consumer. The buffer position is
+     * left after the last parsed record.
+     *
+     * @param buffer   {@link ByteBuffer} to parse.
+     * @param consumer {@link FieldConsumer} of the fields.
+     */
+    private void parse(ByteBuffer buffer, FieldConsumer consumer) {
+        byte[] field = new byte[256];
+        int length = 0;
+        int column = 0;
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (inQuotes) {
+                if (b != QUOTE) {
+                    if (length == field.length) {
+                        field = Arrays.copyOf(field, length * 2);
+                    }
+                    field[length++] = b;
+                } else if (buffer.hasRemaining() && buffer.get(buffer.position()) == QUOTE) {
+                    buffer.get();
+                    if (length == field.length) {
+                        field = Arrays.copyOf(field, length * 2);
+                    }
+                    field[length++] = QUOTE;
+                } else {
+                    inQuotes = false;
+                }
+            } else if (b == QUOTE) {
+                inQuotes = true;
+                quoted = true;
+            } else if (b == delimiter) {
+                consumer.field(column++, field, length, quoted);
+                length = 0;
+                quoted = false;
+            } else if (b == LF) {
+                if (length > 0 && field[length - 1] == CR) {
+                    length--;
+                }
+                //Skip the empty lines
+                if (column > 0 || length > 0 || quoted) {
+                    consumer.field(column++, field, length, quoted);
+                    length = 0;
+                    quoted = false;
+                    if (!consumer.endRecord(column)) {
+                        return;
+                    }
+                }
+                column = 0;
+            } else {
+                if (length == field.length) {
+                    field = Arrays.copyOf(field, length * 2);
+                }
+                field[length++] = b;
+            }
+        }
+        if (length > 0 && field[length - 1] == CR) {
+            length--;
+        }
+        if (column > 0 || length > 0 || quoted) {
+            consumer.field(column++, field, length, quoted);
+            consumer.endRecord(column);
+        }
+    }
+}
@@ -37,8 +37,8 @@
 package org.orbisgis.data.dataframe;
 
 import groovy.lang.GString;
+import groovy.sql.Sql;
 import org.h2gis.utilities.TableLocation;
-import org.locationtech.jts.geom.Geometry;
 import org.orbisgis.commons.printer.Ascii;
 import org.orbisgis.commons.printer.Html;
 import org.orbisgis.commons.printer.ICustomPrinter;
@@ -46,7 +46,6 @@ import org.orbisgis.data.api.dataset.IJdbcTable;
 import org.orbisgis.data.api.dataset.ISpatialTable;
 import org.orbisgis.data.api.dataset.ITable;
 import org.orbisgis.data.api.datasource.IJdbcDataSource;
-import org.orbisgis.data.api.dsl.IBuilderResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import smile.data.Tuple;
@@ -59,6 +58,8 @@ import smile.math.matrix.Matrix;
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.Date;
 import java.sql.*;
@@ -66,7 +67,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.orbisgis.commons.printer.ICustomPrinter.CellPosition.CENTER;
@@ -100,7 +106,7 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
      *
      * @return The internal {@link DataFrame}.
      */
-    private smile.data.DataFrame getInternalDataFrame() {
+    smile.data.DataFrame getInternalDataFrame() {
         return internalDataFrame;
     }
 
@@ -263,7 +269,7 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public Summary summary() {
-        return new Summary(getInternalDataFrame().summary());
+        return Summary.builder(this).build();
     }
 
     @Override
@@ -356,53 +362,53 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public String getString(String column) {
-        return getInternalDataFrame().getString(getRow(), column);
+        return getInternalDataFrame().getString(getRow(), columnName(column));
     }
 
     @Override
     public boolean getBoolean(String column) {
-        return getInternalDataFrame().getBoolean(getRow(), column);
+        return getInternalDataFrame().getBoolean(getRow(), columnName(column));
     }
 
     @Override
     public byte getByte(String column) {
-        return getInternalDataFrame().getByte(getRow(), column);
+        return getInternalDataFrame().getByte(getRow(), columnName(column));
     }
 
     @Override
     public short getShort(String column) {
-        return getInternalDataFrame().getShort(getRow(), column);
+        return getInternalDataFrame().getShort(getRow(), columnName(column));
     }
 
     @Override
     public int getInt(String column) {
-        return getInternalDataFrame().getInt(getRow(), column);
+        return getInternalDataFrame().getInt(getRow(), columnName(column));
     }
 
     @Override
     public long getLong(String column) {
-        return getInternalDataFrame().getLong(getRow(), column);
+        return getInternalDataFrame().getLong(getRow(), columnName(column));
     }
 
     @Override
     public float getFloat(String column) {
-        return getInternalDataFrame().getFloat(getRow(), column);
+        return getInternalDataFrame().getFloat(getRow(), columnName(column));
     }
 
     @Override
     public double getDouble(String column) {
-        return getInternalDataFrame().getDouble(getRow(), column);
+        return getInternalDataFrame().getDouble(getRow(), columnName(column));
     }
 
     @Override
     public byte[] getBytes(String column) {
-        String str = getString(column);
+        String str = getString(columnName(column));
         return str != null ? str.getBytes() : new byte[]{};
     }
 
     @Override
     public Date getDate(String column) {
-        LocalDate date = getInternalDataFrame().getDate(getRow(), column);
+        LocalDate date = getInternalDataFrame().getDate(getRow(), columnName(column));
         if (date == null) {
             return null;
         }
@@ -411,7 +417,7 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public Time getTime(String column) {
-        LocalTime time = getInternalDataFrame().getTime(getRow(), column);
+        LocalTime time = getInternalDataFrame().getTime(getRow(), columnName(column));
         if (time == null) {
             return null;
         }
@@ -420,7 +426,7 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public Timestamp getTimestamp(String column) {
-        Object obj = getObject(column);
+        Object obj = getObject(columnName(column));
         if (obj instanceof LocalDateTime) {
             return Timestamp.valueOf((LocalDateTime) obj);
         }
@@ -429,12 +435,12 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public Object getObject(String column) {
-        return getInternalDataFrame().get(getRow(), column);
+        return getInternalDataFrame().get(getRow(), columnName(column));
     }
 
     @Override
     public BigDecimal getBigDecimal(String column) {
-        return getInternalDataFrame().getDecimal(getRow(), column);
+        return getInternalDataFrame().getDecimal(getRow(), columnName(column));
     }
 
     @Override
@@ -526,6 +532,143 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
         return getInternalDataFrame().stream();
     }
 
+    @Override
+    public Iterator<DataFrame> pages(String keyColumn, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size should be greater than 0.");
+        }
+        BaseVector<?, ?, ?> keys = column(keyColumn);
+        RowComparator comparator = rowComparator(keys);
+        int[] rows = new int[size()];
+        int count = 0;
+        boolean primitive = keys.type().isPrimitive();
+        for (int i = 0; i < rows.length; i++) {
+            if (primitive ? !(keys instanceof MappedColumn) || !((MappedColumn<?, ?, ?>) keys).isNullAt(i) :
+                    keys.get(i) != null) {
+                rows[count++] = i;
+            }
+        }
+        int[] sorted = Arrays.copyOf(rows, count);
+        sort(sorted, rows, 0, count, comparator);
+        return new Iterator<DataFrame>() {
+            private int start = 0;
+
+            @Override
+            public boolean hasNext() {
+                return start < sorted.length;
+            }
+
+            @Override
+            public DataFrame next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int end = Math.min(start + pageSize, sorted.length);
+                //Rows sharing the last key of the page stay in the page
+                while (end < sorted.length && comparator.compare(sorted[end - 1], sorted[end]) == 0) {
+                    end++;
+                }
+                DataFrame page = of(Arrays.copyOfRange(sorted, start, end));
+                start = end;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Compares the keys of two rows.
+     */
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int row, int otherRow);
+    }
+
+    /**
+     * Return the {@link RowComparator} ordering the rows by the values of the given key column. The primitive keys are
+     * compared without being boxed and the other keys are read once.
+     *
+     * @param keys Key column.
+     * @return The {@link RowComparator} of the column.
+     * @throws IllegalArgumentException If the values of the column cannot be ordered.
+     */
+    private static RowComparator rowComparator(BaseVector<?, ?, ?> keys) {
+        DataType type = keys.type();
+        // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+        boolean heap = !(keys instanceof MappedColumn);
+        if (type.isPrimitive()) {
+            if (heap && keys instanceof IntVector) {
+                int[] values = ((IntVector) keys).array();
+                return (i, j) -> Integer.compare(values[i], values[j]);
+            } else if (heap && keys instanceof LongVector) {
+                long[] values = ((LongVector) keys).array();
+                return (i, j) -> Long.compare(values[i], values[j]);
+            } else if (heap && keys instanceof DoubleVector) {
+                double[] values = ((DoubleVector) keys).array();
+                return (i, j) -> Double.compare(values[i], values[j]);
+            } else if (heap && keys instanceof FloatVector) {
+                float[] values = ((FloatVector) keys).array();
+                return (i, j) -> Float.compare(values[i], values[j]);
+            } else if (type.isBoolean()) {
+                BooleanVector booleans = (BooleanVector) keys;
+                return (i, j) -> Boolean.compare(booleans.getBoolean(i), booleans.getBoolean(j));
+            } else if (type.isChar()) {
+                CharVector chars = (CharVector) keys;
+                return (i, j) -> Character.compare(chars.getChar(i), chars.getChar(j));
+            } else if (type.isFloating()) {
+                return (i, j) -> Double.compare(keys.getDouble(i), keys.getDouble(j));
+            }
+            return (i, j) -> Long.compare(keys.getLong(i), keys.getLong(j));
+        }
+        DataType.ID id = type.id();
+        boolean comparable = id == DataType.ID.String || id == DataType.ID.Decimal || id == DataType.ID.Date ||
+                id == DataType.ID.Time || id == DataType.ID.DateTime || id == DataType.ID.Object &&
+                Comparable.class.isAssignableFrom(((ObjectType) type).getObjectClass());
+        if (!comparable) {
+            throw new IllegalArgumentException("The values of the column " + keys.name() + " of type " + type +
+                    " cannot be ordered.");
+        }
+        Comparable<Object>[] values = new Comparable[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (Comparable<Object>) keys.get(i);
+        }
+        return (i, j) -> values[i].compareTo(values[j]);
+    }
+
+    /**
+     * Stable merge sort of the rows from <code>from</code> inclusive to <code>to</code> exclusive.
+     *
+     * @param rows       Rows to sort.
+     * @param buffer     Buffer holding a copy of the rows to sort.
+     * @param from       Index of the first row, inclusive.
+     * @param to         Index of the last row, exclusive.
+     * @param comparator {@link RowComparator} ordering the rows.
+     */
+    private static void sort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i;
+                while (j > from && comparator.compare(rows[j - 1], row) > 0) {
+                    rows[j] = rows[j - 1];
+                    j--;
+                }
+                rows[j] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        //The halves are sorted into the buffer, then merged back into the rows
+        sort(buffer, rows, from, middle, comparator);
+        sort(buffer, rows, middle, to, comparator);
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || left < middle && comparator.compare(buffer[left], buffer[right]) <= 0) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
     @Override
     public List<String> getColumnNames() {
         return Arrays.asList(names());
@@ -590,6 +733,80 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
         return false;
     }
 
+    /**
+     * Visit all the rows of the {@link DataFrame}. The cursor is moved to each row before calling the visitor, so the
+     * {@link ColumnAccessor} of this {@link DataFrame} read the values of the visited row, and is restored at the
+     * end.
+     *
+     * @param visitor Visitor called with the index of each row.
+     */
+    public void forEachRow(IntConsumer visitor) {
+        int current = row;
+        try {
+            int rowCount = nrows();
+            for (row = 0; row < rowCount; row++) {
+                visitor.accept(row);
+            }
+        } finally {
+            row = current;
+        }
+    }
+
+    /**
+     * Return an accessor on the values of the numeric column as doubles, bound to the cursor row.
+     *
+     * @param column Name of the column.
+     * @return A {@link ColumnAccessor.OfDouble}.
+     * @throws IllegalArgumentException Exception thrown if the column is not numeric.
+     */
+    public ColumnAccessor.OfDouble doubleColumn(String column) {
+        return new ColumnAccessor.OfDouble(this, column(column));
+    }
+
+    /**
+     * Return an accessor on the values of the integral column as ints, bound to the cursor row.
+     *
+     * @param column Name of the column.
+     * @return A {@link ColumnAccessor.OfInt}.
+     * @throws IllegalArgumentException Exception thrown if the column is not integral.
+     * @throws ArithmeticException      Exception thrown if a long value overflows an int.
+     */
+    public ColumnAccessor.OfInt intColumn(String column) {
+        return new ColumnAccessor.OfInt(this, column(column));
+    }
+
+    /**
+     * Return an accessor on the values of the integral column as longs, bound to the cursor row.
+     *
+     * @param column Name of the column.
+     * @return A {@link ColumnAccessor.OfLong}.
+     * @throws IllegalArgumentException Exception thrown if the column is not integral.
+     */
+    public ColumnAccessor.OfLong longColumn(String column) {
+        return new ColumnAccessor.OfLong(this, column(column));
+    }
+
+    /**
+     * Return an accessor on the values of the boolean column, bound to the cursor row.
+     *
+     * @param column Name of the column.
+     * @return A {@link ColumnAccessor.OfBoolean}.
+     * @throws IllegalArgumentException Exception thrown if the column is not boolean.
+     */
+    public ColumnAccessor.OfBoolean booleanColumn(String column) {
+        return new ColumnAccessor.OfBoolean(this, column(column));
+    }
+
+    /**
+     * Return an accessor on the values of the column as strings, bound to the cursor row.
+     *
+     * @param column Name of the column.
+     * @return A {@link ColumnAccessor.OfString}.
+     */
+    public ColumnAccessor.OfString stringColumn(String column) {
+        return new ColumnAccessor.OfString(this, column(column));
+    }
+
     @Override
     public boolean previous() {
         if (row > 0) {
@@ -623,13 +840,25 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public Collection<String> getUniqueValues(String column) {
-        int colIndex = columnIndex(column);
-        List<String> values = new ArrayList<>();
-
-        for (int i = 0; i < nrows(); i++) {
-            values.add(get(i, colIndex).toString());
+        List<Object> values = getUniqueValues(column, 0);
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object value : values) {
+            strings.add(value.toString());
         }
-        return values.stream().distinct().collect(Collectors.toList());
+        return strings;
+    }
+
+    /**
+     * Return the distinct non null values of a column in the order of their first occurrence, typed as the values of
+     * the column. The primitive values are deduplicated without boxing and the large columns are processed by
+     * blocks of rows concurrently.
+     *
+     * @param column Name of the column.
+     * @param limit  Maximal count of returned values, no limit if lower or equal to 0.
+     * @return The distinct values of the column.
+     */
+    public List<Object> getUniqueValues(String column, int limit) {
+        return DistinctValues.of(column(column), limit);
     }
 
     @Override
@@ -644,6 +873,14 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
         if (!f.createNewFile()) {
             throw new IllegalArgumentException("Unable to create the file '" + f.getAbsolutePath() + "'.");
         }
+        if (ArrowConverter.isArrow(f.getName())) {
+            toArrow(new BufferedOutputStream(new FileOutputStream(f)), !ArrowConverter.isStream(f.getName()));
+            return filePath;
+        }
+        if (ArrowConverter.isParquet(f.getName())) {
+            toParquet(new BufferedOutputStream(new FileOutputStream(f)));
+            return filePath;
+        }
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(f))) {
             writer.write(String.join(",", names()) + "\n");
             writer.flush();
@@ -669,6 +906,14 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
         if (!f.createNewFile()) {
             throw new IllegalArgumentException("Unable to create the file '" + f.getAbsolutePath() + "'.");
         }
+        if (ArrowConverter.isArrow(f.getName())) {
+            toArrow(new BufferedOutputStream(new FileOutputStream(f)), !ArrowConverter.isStream(f.getName()));
+            return filePath;
+        }
+        if (ArrowConverter.isParquet(f.getName())) {
+            toParquet(new BufferedOutputStream(new FileOutputStream(f)));
+            return filePath;
+        }
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(f))) {
             writer.write(String.join(",", names()) + "\n");
             writer.flush();
@@ -708,79 +953,253 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public String save(IJdbcDataSource dataSource, String outputTableName, boolean deleteTable, int batchSize) throws Exception {
+        return save(dataSource, outputTableName, deleteTable, batchSize, 1);
+    }
+
+    /**
+     * Save the {@link DataFrame} into a new table of the given {@link IJdbcDataSource}. The values are bound with the
+     * typed setters matching the column types and inserted by batches of <code>batchSize</code> rows. If
+     * <code>writerCount</code> is greater than 1, the rows are split between several writers, each one using its own
+     * connection obtained from the {@link javax.sql.DataSource} wrapped by the {@link IJdbcDataSource}. If no other
+     * connection can be opened, for example when the {@link IJdbcDataSource} wraps a single {@link Connection}, only
+     * one writer is used.
+     * <p>
+     * Each writer commits its rows batch after batch, so if one of them fails the table is dropped once all the
+     * writers are done, and a failed save does not leave a partly filled table.
+     *
+     * @param dataSource      {@link IJdbcDataSource} where the table is created.
+     * @param outputTableName Name of the table to create.
+     * @param deleteTable     True to drop the table if it already exists.
+     * @param batchSize       Count of rows inserted per batch.
+     * @param writerCount     Count of concurrent writers.
+     * @return The name of the created table.
+     * @throws Exception Exception thrown if the table can not be created or filled.
+     */
+    public String save(IJdbcDataSource dataSource, String outputTableName, boolean deleteTable, int batchSize,
+                       int writerCount) throws Exception {
         if (isEmpty()) {
             return null;
         }
+        long start = System.currentTimeMillis();
         String tableName = TableLocation.parse(outputTableName, dataSource.getDataBaseType()).toString();
+        DataType[] dataTypes = types();
+        String[] names = names();
+        StringBuilder createTable = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
+        StringBuilder insertTable = new StringBuilder("INSERT INTO ").append(tableName).append(" VALUES(");
+        for (int i = 0; i < dataTypes.length; i++) {
+            if (i > 0) {
+                createTable.append(",");
+                insertTable.append(",");
+            }
+            createTable.append(names[i]).append(" ").append(getSQLType(dataTypes[i]));
+            insertTable.append("?");
+        }
+        createTable.append(")");
+        insertTable.append(")");
+        Connection connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (deleteTable) {
+                statement.execute("DROP TABLE IF EXISTS " + tableName);
+            }
+            statement.execute(createTable.toString());
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Cannot save the dataframe.\n", e);
+        }
+        dataSource.clearExtentCache(tableName);
+
+        ColumnBinder[] binders = new ColumnBinder[dataTypes.length];
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = getBinder(i);
+        }
+        int rowCount = nrows();
+        int batch = Math.max(1, batchSize);
+        List<Connection> connections = new ArrayList<>();
+        connections.add(connection);
         try {
-            PreparedStatement preparedStatement = null;
-            Connection outputconnection = dataSource.getConnection();
-            try {
-                Statement outputconnectionStatement = outputconnection.createStatement();
-                if (deleteTable) {
-                    outputconnectionStatement.execute("DROP TABLE IF EXISTS " + outputTableName);
-                }
-                StringBuilder create_table_ = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
-                StringBuilder insertTable = new StringBuilder("INSERT INTO ");
-                insertTable.append(outputTableName).append(" VALUES(");
-                int k = 0;
-                DataType[] dataTypes = types();
-                String[] names = names();
-                Map<String, String> map = new HashMap<>();
-                for (int i = 0; i < dataTypes.length; i++) {
-                    String columnName = names[i];
-                    DataType dataType = dataTypes[i];
-                    if (k == 0) {
-                        insertTable.append("?");
-                        create_table_.append(columnName).append(" ").append(getSQLType(dataType));
-                    } else {
-                        insertTable.append(",?");
-                        create_table_.append(",").append(columnName).append(" ").append(getSQLType(dataType));
+            //The data sources opened from a Connection have no DataSource, and log an error when unwrapped
+            javax.sql.DataSource wrapped;
+            if (dataSource instanceof Sql) {
+                wrapped = ((Sql) dataSource).getDataSource();
+            } else {
+                wrapped = dataSource.isWrapperFor(javax.sql.DataSource.class) ?
+                        dataSource.unwrap(javax.sql.DataSource.class) : null;
+            }
+            for (int i = 1; i < Math.min(writerCount, rowCount / batch + 1) && wrapped != null; i++) {
+                connections.add(wrapped.getConnection());
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to open more connections, the dataframe is saved with " + connections.size() + " writer(s).");
+        }
+        try {
+            if (connections.size() == 1) {
+                insertRows(connection, insertTable.toString(), binders, 0, rowCount, batch);
+            } else {
+                ExecutorService executor = Executors.newFixedThreadPool(connections.size());
+                try {
+                    List<Future<?>> futures = new ArrayList<>();
+                    int step = (rowCount + connections.size() - 1) / connections.size();
+                    for (int i = 0; i < connections.size(); i++) {
+                        Connection con = connections.get(i);
+                        int from = i * step;
+                        int to = Math.min(rowCount, from + step);
+                        futures.add(executor.submit(() -> insertRows(con, insertTable.toString(), binders, from, to, batch)));
                     }
-                    k++;
-                }
-                create_table_.append(")");
-                insertTable.append(")");
-                outputconnection.setAutoCommit(false);
-                outputconnectionStatement.execute(create_table_.toString());
-                preparedStatement = outputconnection.prepareStatement(insertTable.toString());
-                //Check the first row in order to limit the batch size if the query doesn't work
-                this.next();
-                for (int i = 0; i < getColumnCount(); i++) {
-                    preparedStatement.setObject(i + 1, getObject(i));
-                }
-                preparedStatement.execute();
-                outputconnection.commit();
-                long batch_size = 0;
-                while (this.next()) {
-                    for (int i = 0; i < getColumnCount(); i++) {
-                        preparedStatement.setObject(i + 1, getObject(i));
+                    //Wait for all the writers, so the table is only dropped once none of them is using it
+                    SQLException failure = null;
+                    for (Future<?> future : futures) {
+                        try {
+                            future.get();
+                        } catch (ExecutionException e) {
+                            SQLException cause = e.getCause() instanceof SQLException ? (SQLException) e.getCause() :
+                                    new SQLException("Cannot save the dataframe.\n", e.getCause());
+                            if (failure == null) {
+                                failure = cause;
+                            } else {
+                                failure.addSuppressed(cause);
+                            }
+                        }
                     }
-                    preparedStatement.addBatch();
-                    batch_size++;
-                    if (batch_size >= batchSize) {
-                        preparedStatement.executeBatch();
-                        outputconnection.commit();
-                        preparedStatement.clearBatch();
-                        batchSize = 0;
+                    if (failure != null) {
+                        throw failure;
                     }
+                } finally {
+                    executor.shutdown();
                 }
-                if (batch_size > 0) {
-                    preparedStatement.executeBatch();
-                    outputconnection.commit();
+            }
+        } catch (Exception e) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + tableName);
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
                 }
-            } catch (SQLException e) {
-                throw new SQLException("Cannot save the dataframe.\n", e);
-            } finally {
-                outputconnection.setAutoCommit(true);
-                if (preparedStatement != null) {
-                    preparedStatement.close();
+            } catch (SQLException e1) {
+                e.addSuppressed(e1);
+            }
+            dataSource.clearExtentCache(tableName);
+            throw e;
+        } finally {
+            for (Connection con : connections.subList(1, connections.size())) {
+                con.close();
+            }
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        LOGGER.info(String.format("%d rows saved into %s in %d ms (%.0f rows/s).", rowCount, tableName, time,
+                rowCount * 1000.0 / time));
+        return tableName;
+    }
+
+    /**
+     * Insert the rows of the given range with the given {@link Connection}.
+     *
+     * @param connection {@link Connection} to use.
+     * @param insert     Insert query.
+     * @param binders    {@link ColumnBinder}s of the columns.
+     * @param from       Index of the first row to insert.
+     * @param to         Index of the last row to insert, exclusive.
+     * @param batchSize  Count of rows inserted per batch.
+     * @return The count of inserted rows.
+     * @throws SQLException Exception thrown if the rows can not be inserted.
+     */
+    private static int insertRows(Connection connection, String insert, ColumnBinder[] binders, int from, int to,
+                                  int batchSize) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(insert)) {
+            connection.setAutoCommit(false);
+            int batchCount = 0;
+            for (int row = from; row < to; row++) {
+                for (int i = 0; i < binders.length; i++) {
+                    binders[i].bind(preparedStatement, i + 1, row);
+                }
+                preparedStatement.addBatch();
+                batchCount++;
+                if (batchCount >= batchSize) {
+                    preparedStatement.executeBatch();
+                    connection.commit();
+                    batchCount = 0;
                 }
             }
+            if (batchCount > 0) {
+                preparedStatement.executeBatch();
+                connection.commit();
+            }
         } catch (SQLException e) {
+            connection.rollback();
             throw new SQLException("Cannot save the dataframe.\n", e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
         }
-        return tableName;
+        return to - from;
+    }
+
+    /**
+     * Binds the value of a row of a column to a {@link PreparedStatement} parameter.
+     */
+    @FunctionalInterface
+    private interface ColumnBinder {
+        void bind(PreparedStatement ps, int parameterIndex, int row) throws SQLException;
+    }
+
+    /**
+     * Return the {@link ColumnBinder} using the typed setter matching the type of the given column.
+     *
+     * @param column Index of the column.
+     * @return The {@link ColumnBinder} of the column.
+     */
+    private ColumnBinder getBinder(int column) {
+        BaseVector<?, ?, ?> vector = column(column);
+        DataType type = vector.type();
+        if (type.isPrimitive()) {
+            switch (type.id()) {
+                case Boolean:
+                    BooleanVector booleans = (BooleanVector) vector;
+                    return (ps, index, row) -> ps.setBoolean(index, booleans.getBoolean(row));
+                case Byte:
+                    return (ps, index, row) -> ps.setByte(index, vector.getByte(row));
+                case Short:
+                    return (ps, index, row) -> ps.setShort(index, vector.getShort(row));
+                case Integer:
+                    return (ps, index, row) -> ps.setInt(index, vector.getInt(row));
+                case Long:
+                    return (ps, index, row) -> ps.setLong(index, vector.getLong(row));
+                case Float:
+                    return (ps, index, row) -> ps.setFloat(index, vector.getFloat(row));
+                case Double:
+                    return (ps, index, row) -> ps.setDouble(index, vector.getDouble(row));
+            }
+        }
+        int sqlType;
+        if (type.isBoolean()) {
+            sqlType = Types.BOOLEAN;
+        } else if (type.isByte()) {
+            sqlType = Types.TINYINT;
+        } else if (type.isShort()) {
+            sqlType = Types.SMALLINT;
+        } else if (type.isInt()) {
+            sqlType = Types.INTEGER;
+        } else if (type.isLong()) {
+            sqlType = Types.BIGINT;
+        } else if (type.isFloat()) {
+            sqlType = Types.REAL;
+        } else if (type.isDouble()) {
+            sqlType = Types.DOUBLE;
+        } else if (type.isString()) {
+            return (ps, index, row) -> ps.setString(index, (String) vector.get(row));
+        } else if (DataTypes.DecimalType.equals(type)) {
+            return (ps, index, row) -> ps.setBigDecimal(index, (BigDecimal) vector.get(row));
+        } else {
+            return (ps, index, row) -> ps.setObject(index, vector.get(row));
+        }
+        return (ps, index, row) -> {
+            Object value = vector.get(row);
+            if (value == null) {
+                ps.setNull(index, sqlType);
+            } else {
+                ps.setObject(index, value, sqlType);
+            }
+        };
     }
 
     @Override
@@ -799,19 +1218,86 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
         return of(drop(col.toArray(new String[0])));
     }
 
+    /**
+     * Return a new {@link DataFrame} with the rows matching the given SQL like filter, for example
+     * <code>"TYPE IN ('corn', 'grass') AND TEMPERATURE BETWEEN 10 AND 20"</code>. The filter is evaluated in process
+     * without any database.
+     *
+     * @param filter Filter to apply.
+     * @return A {@link DataFrame} with the matching rows.
+     */
     @Override
     public DataFrame filter(String filter) {
-        throw new UnsupportedOperationException();
+        return filter(filter, null, true);
     }
 
     @Override
-    public IBuilderResult filter(GString filter) {
-        throw new UnsupportedOperationException();
+    public DataFrame filter(GString filter) {
+        return filter(String.join("?", filter.getStrings()), Arrays.asList(filter.getValues()), true);
     }
 
     @Override
-    public IBuilderResult filter(String filter, List<Object> params) {
-        throw new UnsupportedOperationException();
+    public DataFrame filter(String filter, List<Object> params) {
+        return filter(filter, params, true);
+    }
+
+    /**
+     * Return a new {@link DataFrame} with the rows matching the given SQL like filter. The filter supports the
+     * comparisons, <code>[NOT] IN</code>, <code>[NOT] BETWEEN</code>, <code>IS [NOT] NULL</code>, <code>AND</code>,
+     * <code>OR</code>, <code>NOT</code> and the <code>?</code> parameters. It is parsed once and evaluated column at
+     * a time into a selection array.
+     *
+     * @param filter   Filter to apply.
+     * @param params   Values of the <code>?</code> parameters, can be null.
+     * @param parallel True to evaluate the filter on blocks of rows concurrently.
+     * @return A {@link DataFrame} with the matching rows.
+     * @throws IllegalArgumentException Exception thrown if the filter is not valid.
+     */
+    public DataFrame filter(String filter, List<Object> params, boolean parallel) {
+        return of(RowFilter.parse(filter, params).evaluate(getInternalDataFrame(), parallel));
+    }
+
+    /**
+     * Group the rows on the given key columns. The aggregations of the groups are computed in process with
+     * {@link GroupBy#agg(Aggregation...)}, for example
+     * <code>groupBy("TYPE").agg(Aggregation.count(), Aggregation.mean("TEMPERATURE"))</code>.
+     *
+     * @param columns Names of the key columns.
+     * @return A {@link GroupBy} on the given columns.
+     * @throws IllegalArgumentException Exception thrown if a column does not exist.
+     */
+    public GroupBy groupBy(String... columns) {
+        return new GroupBy(getInternalDataFrame(), columns, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Join this {@link DataFrame} with another one on a key column present in both.
+     *
+     * @param other {@link DataFrame} to join.
+     * @param key   Name of the key column.
+     * @param type  Type of the join.
+     * @return The joined {@link DataFrame}.
+     * @throws IllegalArgumentException Exception thrown if the key column does not exist in both {@link DataFrame}.
+     */
+    public DataFrame join(DataFrame other, String key, JoinType type) {
+        return join(other, new String[]{key}, type);
+    }
+
+    /**
+     * Join this {@link DataFrame} with another one on key columns present in both. The join is computed in process
+     * with a hash index built on the keys of the other {@link DataFrame} and probed concurrently with the rows of
+     * this one. The result contains the columns of this {@link DataFrame} followed by the non key columns of the other
+     * one, suffixed with <code>_RIGHT</code> when their name is already used. The null keys never match.
+     *
+     * @param other {@link DataFrame} to join.
+     * @param keys  Names of the key columns.
+     * @param type  Type of the join.
+     * @return The joined {@link DataFrame}.
+     * @throws IllegalArgumentException Exception thrown if a key column does not exist in both {@link DataFrame}.
+     */
+    public DataFrame join(DataFrame other, String[] keys, JoinType type) {
+        return of(new HashJoin(getInternalDataFrame(), other.getInternalDataFrame(), keys, type,
+                Runtime.getRuntime().availableProcessors()).join());
     }
 
     @Override
@@ -829,7 +1315,30 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
 
     @Override
     public Object get(String column) throws Exception {
-        return getInternalDataFrame().get(getRow(), column);
+        return getObject(column);
+    }
+
+    /**
+     * Return the index of the given column, resolved as in {@link RowFilter}: the exact name is preferred to a case
+     * insensitive match.
+     *
+     * @param column Name of the column.
+     * @return The index of the column.
+     * @throws IllegalArgumentException Exception thrown if the column does not exist.
+     */
+    int columnIndexIgnoreCase(String column) {
+        return RowFilter.columnIndex(getInternalDataFrame(), column);
+    }
+
+    /**
+     * Return the name of the given column, resolved as in {@link #columnIndexIgnoreCase(String)}.
+     *
+     * @param column Name of the column.
+     * @return The name of the column in the {@link DataFrame}.
+     * @throws IllegalArgumentException Exception thrown if the column does not exist.
+     */
+    private String columnName(String column) {
+        return names()[columnIndexIgnoreCase(column)];
     }
 
     @Override
@@ -915,7 +1424,9 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
     }
 
     /**
-     * Convert a {@link ResultSet} into an OrbisData {@link DataFrame}.
+     * Convert a {@link ResultSet} into an OrbisData {@link DataFrame}. If the {@link ResultSet} is an
+     * {@link IJdbcTable}, the values are read column by column into primitive arrays, without creating intermediate
+     * rows.
      *
      * @param rs {@link ResultSet}.
      * @return OrbisData {@link DataFrame}.
@@ -923,21 +1434,172 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
      */
     public static DataFrame of(ResultSet rs) throws SQLException {
         if (rs instanceof IJdbcTable) {
-            IJdbcTable jdbcTable = (IJdbcTable) rs;
-            StructType schema = getStructure(jdbcTable);
+            smile.data.DataFrame dataFrame = read((IJdbcTable<?>) rs, null);
+            return dataFrame == null ? null : of(dataFrame);
+        } else {
+            return of(smile.data.DataFrame.of(rs));
+        }
+    }
+
+    /**
+     * Read all the rows of the {@link IJdbcTable} column by column into a Smile {@link smile.data.DataFrame}.
+     *
+     * @param jdbcTable       {@link IJdbcTable} to read.
+     * @param geometryColumns List receiving the names of the geometry columns, which are then stored as WKB bytes.
+     *                        If null, the geometries are stored as WKT strings.
+     * @return The Smile {@link smile.data.DataFrame}, null if the structure of the table cannot be read.
+     * @throws SQLException Exception thrown in case or error while reading the {@link IJdbcTable}.
+     */
+    static smile.data.DataFrame read(IJdbcTable<?> jdbcTable, List<String> geometryColumns) throws SQLException {
+        StructType schema = getStructure(jdbcTable);
+        if (schema == null) {
+            return null;
+        }
+        ResultSetMetaData metadata = jdbcTable.getMetaData();
+        ColumnBuilder[] builders = new ColumnBuilder[schema.length()];
+        for (int i = 0; i < builders.length; i++) {
+            boolean geometry = metadata.getColumnTypeName(i + 1).toLowerCase().startsWith("geometry");
+            if (geometry && geometryColumns != null) {
+                builders[i] = ColumnBuilder.wkb(schema.field(i).name);
+                geometryColumns.add(schema.field(i).name);
+            } else {
+                builders[i] = ColumnBuilder.of(schema.field(i), geometry);
+            }
+        }
+        while (jdbcTable.next()) {
+            for (int i = 0; i < builders.length; i++) {
+                builders[i].read(jdbcTable, i + 1);
+            }
+        }
+        BaseVector<?, ?, ?>[] vectors = new BaseVector[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            vectors[i] = builders[i].build();
+        }
+        return smile.data.DataFrame.of(vectors);
+    }
+
+    /**
+     * Load a {@link ResultSet} into a {@link DataFrame} whose columns are stored into files of the given directory and
+     * read through memory mapping, so the values stay outside of the Java heap. The rows are written one by one, so
+     * the {@link DataFrame} can be larger than the heap. The stored {@link DataFrame} can be reopened with
+     * {@link #open(File)}.
+     *
+     * @param rs        {@link ResultSet} to load.
+     * @param directory Empty or non existing directory receiving the column files.
+     * @return OrbisData {@link DataFrame} backed by the column files, null if the structure cannot be read.
+     * @throws SQLException Exception thrown in case or error while reading the {@link ResultSet} or writing the files.
+     */
+    public static DataFrame of(ResultSet rs, File directory) throws SQLException {
+        StructType schema;
+        boolean[] geometries;
+        if (rs instanceof IJdbcTable) {
+            schema = getStructure((IJdbcTable<?>) rs);
             if (schema == null) {
                 return null;
             }
-            ArrayList<Tuple> rows = new ArrayList<>();
-            while (jdbcTable.next()) {
-                rows.add(toTuple(jdbcTable, schema));
-            }
-            return of(smile.data.DataFrame.of(rows));
         } else {
-            return of(smile.data.DataFrame.of(rs));
+            schema = DataTypes.struct(rs);
+        }
+        ResultSetMetaData metadata = rs.getMetaData();
+        geometries = new boolean[schema.length()];
+        for (int i = 0; i < geometries.length; i++) {
+            geometries[i] = metadata.getColumnTypeName(i + 1).toLowerCase().startsWith("geometry");
+        }
+        try {
+            return of(ColumnStore.write(rs, schema, geometries, directory));
+        } catch (IOException e) {
+            throw new SQLException("Cannot store the columns into '" + directory.getAbsolutePath() + "'.", e);
+        }
+    }
+
+    /**
+     * Open a {@link DataFrame} stored into a directory by {@link #of(ResultSet, File)} or {@link #store(File)}. The
+     * column files are memory mapped without reading their values.
+     *
+     * @param directory Directory of the stored {@link DataFrame}.
+     * @return OrbisData {@link DataFrame} backed by the column files.
+     * @throws IOException Exception thrown if the directory does not contain a stored {@link DataFrame}.
+     */
+    public static DataFrame open(File directory) throws IOException {
+        return of(ColumnStore.open(directory));
+    }
+
+    /**
+     * Store the columns of this {@link DataFrame} into files of the given directory and return the {@link DataFrame}
+     * reading them through memory mapping.
+     *
+     * @param directory Empty or non existing directory receiving the column files.
+     * @return OrbisData {@link DataFrame} backed by the column files.
+     * @throws IOException Exception thrown in case of error while writing the files.
+     */
+    public DataFrame store(File directory) throws IOException {
+        return of(ColumnStore.write(getInternalDataFrame(), directory));
+    }
+
+    /**
+     * Release the memory mappings of the columns of a {@link DataFrame} stored with {@link #store(File)},
+     * {@link #of(ResultSet, File)} or opened with {@link #open(File)}. The stored columns cannot be read anymore, and
+     * the {@link DataFrame}s selecting rows of this one are not affected as their values are copied into the heap.
+     * Nothing is done for the columns in the heap.
+     */
+    public void close() {
+        smile.data.DataFrame dataFrame = getInternalDataFrame();
+        for (int i = 0; i < dataFrame.ncols(); i++) {
+            BaseVector vector = dataFrame.column(i);
+            if (vector instanceof MappedColumn) {
+                ((MappedColumn<?, ?, ?>) vector).close();
+            }
         }
     }
 
+    /**
+     * Write this {@link DataFrame} in the Apache Arrow IPC format, by batches of columns, so it can be read without
+     * conversion by the Arrow based tools.
+     *
+     * @param out  Output stream, closed at the end.
+     * @param file True to write the random access file format, false to write the stream format.
+     * @throws IOException Exception thrown in case of error while writing.
+     */
+    public void toArrow(OutputStream out, boolean file) throws IOException {
+        ArrowConverter.write(getInternalDataFrame(), Collections.emptyList(), 0, out, file);
+    }
+
+    /**
+     * Create a {@link DataFrame} from the Apache Arrow IPC stream or file format. If the data contains GeoArrow WKB
+     * columns, a {@link SpatialDataFrame} is returned.
+     *
+     * @param in Input stream, closed at the end.
+     * @return OrbisData {@link DataFrame}.
+     * @throws IOException Exception thrown in case of error while reading.
+     */
+    public static DataFrame ofArrow(InputStream in) throws IOException {
+        return ArrowConverter.read(in);
+    }
+
+    /**
+     * Write this {@link DataFrame} in the Apache Parquet format, by row groups of compressed columns with their
+     * statistics.
+     *
+     * @param out Output stream, closed at the end.
+     * @throws IOException Exception thrown in case of error while writing.
+     */
+    public void toParquet(OutputStream out) throws IOException {
+        ArrowConverter.writeParquet(getInternalDataFrame(), Collections.emptyList(), 0, out);
+    }
+
+    /**
+     * Create a {@link DataFrame} from an Apache Parquet file, only reading the column chunks of the given columns. If
+     * the file contains GeoParquet WKB columns, a {@link SpatialDataFrame} is returned.
+     *
+     * @param file    Parquet file.
+     * @param columns Names of the columns to read, all the columns if none is given.
+     * @return OrbisData {@link DataFrame}.
+     * @throws IOException Exception thrown in case of error while reading.
+     */
+    public static DataFrame ofParquet(File file, String... columns) throws IOException {
+        return ArrowConverter.readParquet(file, columns);
+    }
+
     private static StructType getStructure(IJdbcTable<?> table) throws SQLException {
         ResultSetMetaData metadata = table.getMetaData();
         try {
@@ -981,12 +1643,33 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
     }
 
     /**
-     * Create a {@link DataFrame} from a file.
+     * Create a {@link DataFrame} from a CSV file encoded in UTF-8 with a comma as delimiter, from an Apache Arrow
+     * file with the <code>arrow</code>, <code>feather</code> or <code>arrows</code> extension or from an Apache
+     * Parquet file with the <code>parquet</code> extension.
      *
      * @param file {@link File} to load into the {@link DataFrame}.
      * @return OrbisData {@link DataFrame}.
      */
     public static DataFrame of(File file) throws IOException {
+        if (file.exists() && ArrowConverter.isArrow(file.getName())) {
+            return ofArrow(new BufferedInputStream(new FileInputStream(file)));
+        }
+        if (file.exists() && ArrowConverter.isParquet(file.getName())) {
+            return ofParquet(file);
+        }
+        return of(file, ',', StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create a {@link DataFrame} from a CSV file. The file is split into chunks parsed in parallel and the column
+     * types are inferred from its first records.
+     *
+     * @param file      {@link File} to load into the {@link DataFrame}.
+     * @param delimiter Field delimiter.
+     * @param encoding  Encoding of the file. It should be ASCII compatible, like UTF-8 or ISO-8859-1.
+     * @return OrbisData {@link DataFrame}.
+     */
+    public static DataFrame of(File file, char delimiter, Charset encoding) throws IOException {
         if (!file.exists()) {
             LOGGER.error("The file '" + file.getAbsolutePath() + "' does not exists.");
             return null;
@@ -996,49 +1679,8 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
             LOGGER.error("Only CSV file are supported.");
             return null;
         }
-
-        BufferedReader reader = new BufferedReader(new FileReader(file));
-        List<Tuple> tuples = new ArrayList<>();
-        String line = reader.readLine();
-        String[] split = line.split(",");
-
-        List<StructField> fields = new ArrayList<>();
-        for (String s : split) {
-            fields.add(new StructField(s, DataType.of(String.class)));
-        }
-        StructType schema = new StructType(fields);
-        while ((line = reader.readLine()) != null) {
-            String[] sp = line.split(",");
-            tuples.add(Tuple.of(sp, schema));
-        }
-        return of(smile.data.DataFrame.of(tuples, schema));
-    }
-
-    /**
-     * Creates a {@link Tuple} from a {@link ResultSet} which can contains spatial daa like {@link Geometry}.
-     *
-     * @param rs     {@link ResultSet} to read.
-     * @param schema Smile {@link smile.data.DataFrame} schema.
-     * @return {@link Tuple} containing the data from the {@link ResultSet}.
-     * @throws SQLException Exception get on fetching data from the given {@link ResultSet}.
-     */
-    private static Tuple toTuple(ResultSet rs, StructType schema) throws SQLException {
-        Object[] row = new Object[schema.length()];
-        for (int i = 0; i < row.length; ++i) {
-            Object value = rs.getObject(i + 1);
-            if (value instanceof Date) {
-                row[i] = ((Date) value).toLocalDate();
-            } else if (value instanceof Time) {
-                row[i] = ((Time) value).toLocalTime();
-            } else if (value instanceof Timestamp) {
-                row[i] = ((Timestamp) value).toLocalDateTime();
-            } else if (value instanceof Geometry) {
-                row[i] = value.toString();
-            } else {
-                row[i] = value;
-            }
-        }
-        return Tuple.of(row, schema);
+        CsvReader reader = new CsvReader(delimiter, encoding, Runtime.getRuntime().availableProcessors());
+        return of(reader.read(file));
     }
 
     @Override
@@ -1187,7 +1829,7 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
     public String getSQLType(DataType dataType) {
         if (DataTypes.BooleanObjectType.equals(dataType) || DataTypes.BooleanType.equals(dataType)) {
             return "BOOLEAN";
-        } else if (DataTypes.BooleanObjectType.equals(dataType) || DataTypes.BooleanType.equals(dataType)) {
+        } else if (DataTypes.ByteObjectType.equals(dataType) || DataTypes.ByteType.equals(dataType)) {
             return "TINYINT";
         } else if (DataTypes.ShortObjectType.equals(dataType) || DataTypes.ShortType.equals(dataType)) {
             return "SMALLINT";
@@ -1199,8 +1841,8 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
             return "DOUBLE PRECISION";
         } else if (DataTypes.DecimalType.equals(dataType)) {
             return "DECIMAL";
-        } else if (DataTypes.FloatObjectType.equals(dataType) || DataTypes.FloatObjectType.equals(dataType)) {
-            return "FLOAT";
+        } else if (DataTypes.FloatObjectType.equals(dataType) || DataTypes.FloatType.equals(dataType)) {
+            return "REAL";
         } else if (DataTypes.StringType.equals(dataType)) {
             return "VARCHAR";
         } else if (DataTypes.DateType.equals(dataType)) {
@@ -1209,7 +1851,7 @@ public class DataFrame implements smile.data.DataFrame, ITable<BaseVector, Tuple
             return "TIME";
         } else if (DataTypes.DateTimeType.equals(dataType)) {
             return "TIMESTAMP";
-        } else if (DataTypes.ByteObjectType.equals(dataType)) {
+        } else if (DataTypes.ByteArrayType.equals(dataType)) {
             return "BINARY";
         }
         throw new UnsupportedOperationException(String.format("Unsupported dataframe type: %s", dataType));
@@ -0,0 +1,538 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import groovy.lang.GString;
+import org.locationtech.jts.geom.Geometry;
+import org.orbisgis.data.api.dataset.IRaster;
+import org.orbisgis.data.api.dataset.ISpatialTable;
+import org.orbisgis.data.api.dataset.ISummary;
+import org.orbisgis.data.api.dataset.ITable;
+import org.orbisgis.data.api.datasource.IJdbcDataSource;
+import org.orbisgis.data.api.dsl.IBuilderResult;
+import org.orbisgis.data.api.dsl.IFilterBuilder;
+import smile.data.Tuple;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * {@link ISpatialTable} view of a {@link SpatialDataFrame}. The view iterates and streams the rows of the
+ * {@link SpatialDataFrame} as {@link Tuple}s, the other methods, including the cursor ones, being those of the
+ * {@link SpatialDataFrame}.
+ */
+final class DataFrameSpatialTable implements ISpatialTable<Tuple> {
+
+    /**
+     * Viewed {@link SpatialDataFrame}.
+     */
+    private final SpatialDataFrame dataFrame;
+
+    /**
+     * Main constructor.
+     *
+     * @param dataFrame Viewed {@link SpatialDataFrame}.
+     */
+    DataFrameSpatialTable(SpatialDataFrame dataFrame) {
+        this.dataFrame = dataFrame;
+    }
+
+    @Override
+    public Iterator<Tuple> iterator() {
+        return dataFrame.stream().iterator();
+    }
+
+    @Override
+    public Stream<Tuple> stream() {
+        return dataFrame.stream();
+    }
+
+    @Override
+    public Geometry getGeometry(int columnIndex) {
+        return dataFrame.getGeometry(columnIndex);
+    }
+
+    @Override
+    public Geometry getGeometry(String columnLabel) {
+        return dataFrame.getGeometry(columnLabel);
+    }
+
+    @Override
+    public Geometry getGeometry() {
+        return dataFrame.getGeometry();
+    }
+
+    @Override
+    public IRaster getRaster(int columnIndex) {
+        return dataFrame.getRaster(columnIndex);
+    }
+
+    @Override
+    public IRaster getRaster(String columnLabel) {
+        return dataFrame.getRaster(columnLabel);
+    }
+
+    @Override
+    public IRaster getRaster() {
+        return dataFrame.getRaster();
+    }
+
+    @Override
+    public List<String> getSpatialColumns() {
+        return dataFrame.getSpatialColumns();
+    }
+
+    @Override
+    public List<String> getRasterColumns() {
+        return dataFrame.getRasterColumns();
+    }
+
+    @Override
+    public List<String> getGeometricColumns() {
+        return dataFrame.getGeometricColumns();
+    }
+
+    @Override
+    public Geometry getExtent(String... geometryColumns) {
+        return dataFrame.getExtent(geometryColumns);
+    }
+
+    @Override
+    public Geometry getExtent(String[] geometryColumns, String filter) {
+        return dataFrame.getExtent(geometryColumns, filter);
+    }
+
+    @Override
+    public Geometry getExtent() {
+        return dataFrame.getExtent();
+    }
+
+    @Override
+    public Geometry getEstimatedExtent() {
+        return dataFrame.getEstimatedExtent();
+    }
+
+    @Override
+    public int getSrid() {
+        return dataFrame.getSrid();
+    }
+
+    @Override
+    public void setSrid(int srid) {
+        dataFrame.setSrid(srid);
+    }
+
+    @Override
+    public Map<String, String> getGeometryTypes() {
+        return dataFrame.getGeometryTypes();
+    }
+
+    @Override
+    public ISpatialTable<Tuple> reproject(int srid) {
+        return dataFrame.reproject(srid).getSpatialTable();
+    }
+
+    @Override
+    public ISpatialTable<Tuple> simplified(double tolerance) {
+        return dataFrame.simplified(tolerance).getSpatialTable();
+    }
+
+    @Override
+    public Collection<String> getColumnNames() {
+        return dataFrame.getColumnNames();
+    }
+
+    @Override
+    public Map<String, String> getColumnNamesTypes() throws Exception {
+        return dataFrame.getColumnNamesTypes();
+    }
+
+    @Override
+    public String getColumnType(String columnName) throws Exception {
+        return dataFrame.getColumnType(columnName);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return dataFrame.getColumnCount();
+    }
+
+    @Override
+    public int getRowCount() {
+        return dataFrame.getRowCount();
+    }
+
+    @Override
+    public int getRow() {
+        return dataFrame.getRow();
+    }
+
+    @Override
+    public boolean next() {
+        return dataFrame.next();
+    }
+
+    @Override
+    public boolean previous() {
+        return dataFrame.previous();
+    }
+
+    @Override
+    public boolean first() {
+        return dataFrame.first();
+    }
+
+    @Override
+    public boolean last() {
+        return dataFrame.last();
+    }
+
+    @Override
+    public boolean isFirst() {
+        return dataFrame.isFirst();
+    }
+
+    @Override
+    public boolean isLast() {
+        return dataFrame.isLast();
+    }
+
+    @Override
+    public Collection<String> getUniqueValues(String column) {
+        return dataFrame.getUniqueValues(column);
+    }
+
+    @Override
+    public String save(String filePath, boolean delete) throws Exception {
+        return dataFrame.save(filePath, delete);
+    }
+
+    @Override
+    public String save(String filePath, String encoding) throws Exception {
+        return dataFrame.save(filePath, encoding);
+    }
+
+    @Override
+    public String save(IJdbcDataSource dataSource, int batchSize) throws Exception {
+        return dataFrame.save(dataSource, batchSize);
+    }
+
+    @Override
+    public String save(IJdbcDataSource dataSource, boolean deleteTable) throws Exception {
+        return dataFrame.save(dataSource, deleteTable);
+    }
+
+    @Override
+    public String save(IJdbcDataSource dataSource, boolean deleteTable, int batchSize) throws Exception {
+        return dataFrame.save(dataSource, deleteTable, batchSize);
+    }
+
+    @Override
+    public String save(IJdbcDataSource dataSource, String outputTableName, boolean deleteTable) throws Exception {
+        return dataFrame.save(dataSource, outputTableName, deleteTable);
+    }
+
+    @Override
+    public String save(IJdbcDataSource dataSource, String outputTableName, boolean deleteTable, int batchSize)
+            throws Exception {
+        return dataFrame.save(dataSource, outputTableName, deleteTable, batchSize);
+    }
+
+    @Override
+    public List<Object> getFirstRow() {
+        return dataFrame.getFirstRow();
+    }
+
+    @Override
+    public boolean isSpatial() {
+        return true;
+    }
+
+    @Override
+    public String getString(int column) {
+        return dataFrame.getString(column);
+    }
+
+    @Override
+    public boolean getBoolean(int column) {
+        return dataFrame.getBoolean(column);
+    }
+
+    @Override
+    public byte getByte(int column) {
+        return dataFrame.getByte(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return dataFrame.getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return dataFrame.getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return dataFrame.getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return dataFrame.getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return dataFrame.getDouble(column);
+    }
+
+    @Override
+    public byte[] getBytes(int column) {
+        return dataFrame.getBytes(column);
+    }
+
+    @Override
+    public Date getDate(int column) {
+        return dataFrame.getDate(column);
+    }
+
+    @Override
+    public Time getTime(int column) {
+        return dataFrame.getTime(column);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int column) {
+        return dataFrame.getTimestamp(column);
+    }
+
+    @Override
+    public Object getObject(int column) {
+        return dataFrame.getObject(column);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int column) {
+        return dataFrame.getBigDecimal(column);
+    }
+
+    @Override
+    public String getString(String column) {
+        return dataFrame.getString(column);
+    }
+
+    @Override
+    public boolean getBoolean(String column) {
+        return dataFrame.getBoolean(column);
+    }
+
+    @Override
+    public byte getByte(String column) {
+        return dataFrame.getByte(column);
+    }
+
+    @Override
+    public short getShort(String column) {
+        return dataFrame.getShort(column);
+    }
+
+    @Override
+    public int getInt(String column) {
+        return dataFrame.getInt(column);
+    }
+
+    @Override
+    public long getLong(String column) {
+        return dataFrame.getLong(column);
+    }
+
+    @Override
+    public float getFloat(String column) {
+        return dataFrame.getFloat(column);
+    }
+
+    @Override
+    public double getDouble(String column) {
+        return dataFrame.getDouble(column);
+    }
+
+    @Override
+    public byte[] getBytes(String column) {
+        return dataFrame.getBytes(column);
+    }
+
+    @Override
+    public Date getDate(String column) {
+        return dataFrame.getDate(column);
+    }
+
+    @Override
+    public Time getTime(String column) {
+        return dataFrame.getTime(column);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String column) {
+        return dataFrame.getTimestamp(column);
+    }
+
+    @Override
+    public Object getObject(String column) {
+        return dataFrame.getObject(column);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String column) {
+        return dataFrame.getBigDecimal(column);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getObject(int column, Class<V> clazz) {
+        return (V) dataFrame.getObject(column, clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getObject(String column, Class<V> clazz) {
+        return (V) dataFrame.getObject(column, clazz);
+    }
+
+    @Override
+    public Iterator<? extends ITable<?, ?>> pages(String keyColumn, int pageSize) {
+        return dataFrame.pages(keyColumn, pageSize);
+    }
+
+    @Override
+    public Map<String, Object> firstRow() {
+        return dataFrame.firstRow();
+    }
+
+    @Override
+    public Object get(String column) throws Exception {
+        return dataFrame.get(column);
+    }
+
+    @Override
+    public Object get(int column) {
+        return dataFrame.getObject(column);
+    }
+
+    @Override
+    public String getLocation() {
+        return dataFrame.getLocation();
+    }
+
+    @Override
+    public String getName() {
+        return dataFrame.getName();
+    }
+
+    @Override
+    public Object getMetaData() {
+        return dataFrame.getMetaData();
+    }
+
+    @Override
+    public Object asType(Class<?> clazz) {
+        return clazz.isInstance(this) ? this : dataFrame.asType(clazz);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return dataFrame.isEmpty();
+    }
+
+    @Override
+    public ISummary getSummary() {
+        return dataFrame.getSummary();
+    }
+
+    @Override
+    public boolean reload() {
+        return dataFrame.reload();
+    }
+
+    @Override
+    public IFilterBuilder columns(String... columns) {
+        return dataFrame.columns(columns);
+    }
+
+    @Override
+    public IBuilderResult filter(String filter) {
+        return dataFrame.filter(filter);
+    }
+
+    @Override
+    public IBuilderResult filter(GString filter) {
+        return dataFrame.filter(filter);
+    }
+
+    @Override
+    public IBuilderResult filter(String filter, List<Object> params) {
+        return dataFrame.filter(filter, params);
+    }
+
+    @Override
+    public ITable<?, ?> getTable() {
+        return this;
+    }
+
+    @Override
+    public ISpatialTable<Tuple> getSpatialTable() {
+        return this;
+    }
+
+    @Override
+    public List<Object> getParams() {
+        return dataFrame.getParams();
+    }
+
+    @Override
+    public String toString() {
+        return dataFrame.toString();
+    }
+}
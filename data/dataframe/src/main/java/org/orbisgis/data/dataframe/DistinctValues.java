@@ -0,0 +1,147 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.vector.BaseVector;
+import smile.data.vector.IntVector;
+import smile.data.vector.LongVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Computation of the distinct values of a column in the order of their first occurrence. The primitive values are
+ * deduplicated as long keys in a {@link LongHashSet} and only the distinct values are boxed, the other values are
+ * deduplicated in a {@link HashSet} so each distinct string is kept once. The large columns are split into blocks
+ * processed concurrently then merged in the order of the blocks.
+ */
+final class DistinctValues {
+
+    /**
+     * Minimal count of rows of a block processed by one thread.
+     */
+    private static final int PARALLEL_BLOCK_SIZE = 1 << 16;
+
+    private DistinctValues() {
+    }
+
+    /**
+     * Return the distinct non null values of a vector in the order of their first occurrence.
+     *
+     * @param vector Vector to read.
+     * @param limit  Maximal count of returned values, no limit if lower or equal to 0.
+     * @return The distinct values.
+     */
+    static List<Object> of(BaseVector<?, ?, ?> vector, int limit) {
+        int size = vector.size();
+        int max = limit <= 0 ? Integer.MAX_VALUE : limit;
+        int blockCount = Math.max(1, (size + PARALLEL_BLOCK_SIZE - 1) / PARALLEL_BLOCK_SIZE);
+        Block[] blocks = new Block[blockCount];
+        IntStream indexes = IntStream.range(0, blockCount);
+        (blockCount > 1 ? indexes.parallel() : indexes).forEach(block -> {
+            int from = block * PARALLEL_BLOCK_SIZE;
+            blocks[block] = new Block(vector, from, Math.min(size, from + PARALLEL_BLOCK_SIZE), max);
+        });
+        if (blockCount == 1) {
+            return blocks[0].values;
+        }
+        List<Object> values = new ArrayList<>();
+        if (GroupBy.isPrimitiveKey(vector)) {
+            LongHashSet keys = new LongHashSet(blocks[0].values.size());
+            for (Block block : blocks) {
+                for (int i = 0; i < block.values.size() && values.size() < max; i++) {
+                    if (keys.add(block.keys[i])) {
+                        values.add(block.values.get(i));
+                    }
+                }
+            }
+        } else {
+            Set<Object> set = new HashSet<>();
+            for (Block block : blocks) {
+                for (int i = 0; i < block.values.size() && values.size() < max; i++) {
+                    Object value = block.values.get(i);
+                    if (set.add(value)) {
+                        values.add(value);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Distinct values of a block of rows, with their long keys for the primitive vectors.
+     */
+    private static final class Block {
+        private final List<Object> values = new ArrayList<>();
+        private long[] keys;
+
+        private Block(BaseVector<?, ?, ?> vector, int from, int to, int limit) {
+            if (GroupBy.isPrimitiveKey(vector)) {
+                LongHashSet set = new LongHashSet(1024);
+                keys = new long[64];
+                // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+                boolean heap = !(vector instanceof MappedColumn);
+                int[] ints = heap && vector instanceof IntVector ? ((IntVector) vector).array() : null;
+                long[] longs = heap && vector instanceof LongVector ? ((LongVector) vector).array() : null;
+                for (int row = from; row < to && values.size() < limit; row++) {
+                    long key = ints != null ? ints[row] : longs != null ? longs[row] :
+                            GroupBy.longValue(vector, row);
+                    if (set.add(key)) {
+                        if (values.size() == keys.length) {
+                            keys = Arrays.copyOf(keys, keys.length * 2);
+                        }
+                        keys[values.size()] = key;
+                        values.add(vector.get(row));
+                    }
+                }
+            } else {
+                Set<Object> set = new HashSet<>();
+                for (int row = from; row < to && values.size() < limit; row++) {
+                    Object value = vector.get(row);
+                    if (value != null && set.add(value)) {
+                        values.add(value);
+                    }
+                }
+            }
+        }
+    }
+}
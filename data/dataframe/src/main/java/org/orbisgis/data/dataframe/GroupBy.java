@@ -0,0 +1,503 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.type.DataType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.BooleanVector;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.FloatVector;
+import smile.data.vector.IntVector;
+import smile.data.vector.LongVector;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Grouping of the rows of a {@link DataFrame} on one or more key columns, computed in process with
+ * {@link #agg(Aggregation...)}.
+ * <p>
+ * Each key column is encoded into dense group codes by a {@link KeyEncoder}, partition by partition concurrently :
+ * the integer columns are hashed on their values, the floating columns on their bits and the string or object columns
+ * on their values in a dictionary. The codes of several key columns are combined pairwise into a long key encoded the
+ * same way, so no key tuple is ever materialized. The groups keep the order of their first row. The column names are
+ * resolved as in {@link RowFilter}, the exact name being preferred to a case insensitive match.
+ * <p>
+ * The rows are then split into partitions aggregated concurrently, each into its own accumulators indexed by group,
+ * and the accumulators are merged at the end. The count aggregations return long columns, the distinct aggregations
+ * the count of distinct non null values as long columns and the numeric aggregations double columns which are NaN
+ * when the group has no non null value.
+ */
+public final class GroupBy {
+
+    /**
+     * Minimal count of rows of a partition aggregated by one thread.
+     */
+    private static final int MIN_PARTITION_SIZE = 1 << 16;
+
+    /**
+     * Data to group.
+     */
+    private final smile.data.DataFrame dataFrame;
+    /**
+     * Indexes of the key columns.
+     */
+    private final int[] columns;
+    /**
+     * Maximal count of partitions aggregated concurrently.
+     */
+    private final int partitionCount;
+
+    /**
+     * Main constructor.
+     *
+     * @param dataFrame      Data to group.
+     * @param columns        Names of the key columns.
+     * @param partitionCount Maximal count of partitions aggregated concurrently.
+     */
+    GroupBy(smile.data.DataFrame dataFrame, String[] columns, int partitionCount) {
+        if (columns == null || columns.length == 0) {
+            throw new IllegalArgumentException("At least one column is required to group the rows.");
+        }
+        this.columns = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = RowFilter.columnIndex(dataFrame, columns[i]);
+        }
+        this.dataFrame = dataFrame;
+        this.partitionCount = Math.max(1, partitionCount);
+    }
+
+    /**
+     * Return the count of rows of each group.
+     *
+     * @return A {@link DataFrame} with the key columns and a <code>COUNT</code> column.
+     */
+    public DataFrame count() {
+        return agg(Aggregation.count());
+    }
+
+    /**
+     * Compute the given aggregations on each group.
+     *
+     * @param aggregations Aggregations to compute.
+     * @return A {@link DataFrame} with one row per group, the key columns and one column per aggregation.
+     * @throws IllegalArgumentException Exception thrown if a column does not exist or is not numeric.
+     */
+    public DataFrame agg(Aggregation... aggregations) {
+        int rowCount = dataFrame.nrows();
+        int[] groups = null;
+        int groupCount = 0;
+        for (int column : columns) {
+            KeyEncoder encoder = KeyEncoder.of(dataFrame.column(column), partitionCount);
+            int[] codes = encoder.codes();
+            int cardinality = encoder.size();
+            if (groups == null) {
+                groups = codes;
+                groupCount = cardinality;
+            } else {
+                KeyEncoder combiner = KeyEncoder.combine(groups, codes, cardinality, partitionCount);
+                groups = combiner.codes();
+                groupCount = combiner.size();
+            }
+        }
+        int[] firstRows = new int[groupCount];
+        Arrays.fill(firstRows, -1);
+        for (int i = 0; i < rowCount; i++) {
+            if (firstRows[groups[i]] < 0) {
+                firstRows[groups[i]] = i;
+            }
+        }
+
+        Accumulator[] accumulators = aggregate(aggregations, groups, groupCount);
+
+        List<BaseVector> vectors = new ArrayList<>();
+        for (int column : columns) {
+            vectors.add(dataFrame.column(column).get(firstRows));
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            vectors.add(accumulators[i].result(aggregations[i].getName()));
+        }
+        return DataFrame.of(smile.data.DataFrame.of(vectors.toArray(new BaseVector[0])));
+    }
+
+    /**
+     * Aggregate the rows partition by partition and merge the partial results.
+     *
+     * @param aggregations Aggregations to compute.
+     * @param groups       Group of each row.
+     * @param groupCount   Count of groups.
+     * @return The merged accumulators, one per aggregation.
+     */
+    private Accumulator[] aggregate(Aggregation[] aggregations, int[] groups, int groupCount) {
+        BaseVector[] vectors = new BaseVector[aggregations.length];
+        for (int i = 0; i < aggregations.length; i++) {
+            Aggregation aggregation = aggregations[i];
+            if (aggregation.getColumn() != null) {
+                BaseVector vector = dataFrame.column(RowFilter.columnIndex(dataFrame, aggregation.getColumn()));
+                vectors[i] = vector;
+                Aggregation.Function function = aggregation.getFunction();
+                if (function != Aggregation.Function.COUNT && function != Aggregation.Function.DISTINCT &&
+                        !isNumeric(vector.type())) {
+                    throw new IllegalArgumentException("Cannot compute " + function + " on the column " +
+                            aggregation.getColumn() + " of type " + vector.type().name() + ".");
+                }
+            }
+        }
+        int rowCount = groups.length;
+        int partitions = Math.max(1, Math.min(partitionCount, (rowCount + MIN_PARTITION_SIZE - 1) / MIN_PARTITION_SIZE));
+        IntStream stream = IntStream.range(0, partitions);
+        if (partitions > 1) {
+            stream = stream.parallel();
+        }
+        Accumulator[][] partials = stream.mapToObj(partition -> {
+            int from = (int) ((long) rowCount * partition / partitions);
+            int to = (int) ((long) rowCount * (partition + 1) / partitions);
+            Accumulator[] accumulators = new Accumulator[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++) {
+                accumulators[i] = accumulator(aggregations[i], vectors[i], groupCount);
+                accumulators[i].accumulate(groups, from, to);
+            }
+            return accumulators;
+        }).toArray(Accumulator[][]::new);
+        Accumulator[] result = partials[0];
+        for (int partition = 1; partition < partials.length; partition++) {
+            for (int i = 0; i < result.length; i++) {
+                result[i].merge(partials[partition][i]);
+            }
+        }
+        return result;
+    }
+
+    private static Accumulator accumulator(Aggregation aggregation, BaseVector vector, int groupCount) {
+        if (vector == null) {
+            return new CountAccumulator(null, groupCount);
+        }
+        switch (aggregation.getFunction()) {
+            case COUNT:
+                return new CountAccumulator(vector, groupCount);
+            case DISTINCT:
+                return new DistinctAccumulator(vector, groupCount);
+            default:
+                return new NumericAccumulator(aggregation.getFunction(), vector, groupCount);
+        }
+    }
+
+    private static boolean isNumeric(DataType type) {
+        return type.isNumeric() || type.id() == DataType.ID.Decimal;
+    }
+
+    /**
+     * Return true if the values of the vector are read as primitive longs by {@link #longValue(BaseVector, int)}.
+     *
+     * @param vector Vector to check.
+     * @return True if the values are read as primitive longs.
+     */
+    static boolean isPrimitiveKey(BaseVector vector) {
+        DataType type = vector.type();
+        return type.isPrimitive() && !type.isChar();
+    }
+
+    /**
+     * Return the primitive value of a row as a long key, the floating values are read as their bits.
+     *
+     * @param vector Primitive vector.
+     * @param row    Index of the row.
+     * @return The long key of the value.
+     */
+    static long longValue(BaseVector vector, int row) {
+        DataType type = vector.type();
+        if (type.isFloating()) {
+            double value = vector.getDouble(row);
+            return value == 0 ? 0 : Double.doubleToLongBits(value);
+        } else if (type.isBoolean()) {
+            return ((BooleanVector) vector).getBoolean(row) ? 1 : 0;
+        }
+        return vector.getLong(row);
+    }
+
+    /**
+     * Partial result of an aggregation, indexed by group.
+     */
+    private abstract static class Accumulator {
+
+        /**
+         * Aggregate the given rows.
+         *
+         * @param groups Group of each row.
+         * @param from   Index of the first row, inclusive.
+         * @param to     Index of the last row, exclusive.
+         */
+        abstract void accumulate(int[] groups, int from, int to);
+
+        /**
+         * Merge the partial result of another partition.
+         *
+         * @param other Accumulator of the same aggregation.
+         */
+        abstract void merge(Accumulator other);
+
+        /**
+         * Return the result of the aggregation.
+         *
+         * @param name Name of the result column.
+         * @return The result vector, one value per group.
+         */
+        abstract BaseVector result(String name);
+    }
+
+    /**
+     * Count of rows or of non null values.
+     */
+    private static final class CountAccumulator extends Accumulator {
+
+        private final BaseVector vector;
+        private final long[] counts;
+
+        private CountAccumulator(BaseVector vector, int groupCount) {
+            this.vector = vector == null || vector.type().isPrimitive() ? null : vector;
+            this.counts = new long[groupCount];
+        }
+
+        @Override
+        void accumulate(int[] groups, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (vector == null || vector.get(i) != null) {
+                    counts[groups[i]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            long[] otherCounts = ((CountAccumulator) other).counts;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += otherCounts[i];
+            }
+        }
+
+        @Override
+        BaseVector result(String name) {
+            return LongVector.of(name, counts);
+        }
+    }
+
+    /**
+     * Sum, mean, minimum or maximum of numeric values.
+     */
+    private static final class NumericAccumulator extends Accumulator {
+
+        private final Aggregation.Function function;
+        private final BaseVector vector;
+        private final long[] counts;
+        private final double[] values;
+
+        private NumericAccumulator(Aggregation.Function function, BaseVector vector, int groupCount) {
+            this.function = function;
+            this.vector = vector;
+            this.counts = new long[groupCount];
+            this.values = new double[groupCount];
+            if (function == Aggregation.Function.MIN) {
+                Arrays.fill(values, Double.POSITIVE_INFINITY);
+            } else if (function == Aggregation.Function.MAX) {
+                Arrays.fill(values, Double.NEGATIVE_INFINITY);
+            }
+        }
+
+        @Override
+        void accumulate(int[] groups, int from, int to) {
+            if (vector instanceof MappedColumn && vector.type().isPrimitive()) {
+                // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+                for (int i = from; i < to; i++) {
+                    add(groups[i], vector.getDouble(i));
+                }
+            } else if (vector instanceof DoubleVector) {
+                double[] array = ((DoubleVector) vector).array();
+                for (int i = from; i < to; i++) {
+                    add(groups[i], array[i]);
+                }
+            } else if (vector instanceof IntVector) {
+                int[] array = ((IntVector) vector).array();
+                for (int i = from; i < to; i++) {
+                    add(groups[i], array[i]);
+                }
+            } else if (vector instanceof LongVector) {
+                long[] array = ((LongVector) vector).array();
+                for (int i = from; i < to; i++) {
+                    add(groups[i], array[i]);
+                }
+            } else if (vector instanceof FloatVector) {
+                float[] array = ((FloatVector) vector).array();
+                for (int i = from; i < to; i++) {
+                    add(groups[i], array[i]);
+                }
+            } else if (vector.type().isPrimitive()) {
+                for (int i = from; i < to; i++) {
+                    add(groups[i], vector.getDouble(i));
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    Object value = vector.get(i);
+                    if (value != null) {
+                        add(groups[i], ((Number) value).doubleValue());
+                    }
+                }
+            }
+        }
+
+        private void add(int group, double value) {
+            counts[group]++;
+            switch (function) {
+                case MIN:
+                    values[group] = Math.min(values[group], value);
+                    break;
+                case MAX:
+                    values[group] = Math.max(values[group], value);
+                    break;
+                default:
+                    values[group] += value;
+            }
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            NumericAccumulator accumulator = (NumericAccumulator) other;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += accumulator.counts[i];
+                switch (function) {
+                    case MIN:
+                        values[i] = Math.min(values[i], accumulator.values[i]);
+                        break;
+                    case MAX:
+                        values[i] = Math.max(values[i], accumulator.values[i]);
+                        break;
+                    default:
+                        values[i] += accumulator.values[i];
+                }
+            }
+        }
+
+        @Override
+        BaseVector result(String name) {
+            double[] result = new double[counts.length];
+            for (int i = 0; i < result.length; i++) {
+                if (counts[i] == 0) {
+                    result[i] = Double.NaN;
+                } else if (function == Aggregation.Function.MEAN) {
+                    result[i] = values[i] / counts[i];
+                } else {
+                    result[i] = values[i];
+                }
+            }
+            return DoubleVector.of(name, result);
+        }
+    }
+
+    /**
+     * Count of distinct non null values, the primitive values are kept in {@link LongHashSet}.
+     */
+    private static final class DistinctAccumulator extends Accumulator {
+
+        private final BaseVector vector;
+        private final boolean primitive;
+        private final LongHashSet[] primitiveSets;
+        private final Set<Object>[] objectSets;
+
+        @SuppressWarnings("unchecked")
+        private DistinctAccumulator(BaseVector vector, int groupCount) {
+            this.vector = vector;
+            this.primitive = isPrimitiveKey(vector);
+            this.primitiveSets = primitive ? new LongHashSet[groupCount] : null;
+            this.objectSets = primitive ? null : new Set[groupCount];
+        }
+
+        @Override
+        void accumulate(int[] groups, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int group = groups[i];
+                if (primitive) {
+                    if (primitiveSets[group] == null) {
+                        primitiveSets[group] = new LongHashSet(8);
+                    }
+                    primitiveSets[group].add(longValue(vector, i));
+                } else {
+                    Object value = vector.get(i);
+                    if (value != null) {
+                        if (objectSets[group] == null) {
+                            objectSets[group] = new HashSet<>();
+                        }
+                        objectSets[group].add(value);
+                    }
+                }
+            }
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            DistinctAccumulator accumulator = (DistinctAccumulator) other;
+            int groupCount = primitive ? primitiveSets.length : objectSets.length;
+            for (int i = 0; i < groupCount; i++) {
+                if (primitive && accumulator.primitiveSets[i] != null) {
+                    if (primitiveSets[i] == null) {
+                        primitiveSets[i] = accumulator.primitiveSets[i];
+                    } else {
+                        primitiveSets[i].addAll(accumulator.primitiveSets[i]);
+                    }
+                } else if (!primitive && accumulator.objectSets[i] != null) {
+                    if (objectSets[i] == null) {
+                        objectSets[i] = accumulator.objectSets[i];
+                    } else {
+                        objectSets[i].addAll(accumulator.objectSets[i]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        BaseVector result(String name) {
+            int groupCount = primitive ? primitiveSets.length : objectSets.length;
+            long[] counts = new long[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                if (primitive) {
+                    counts[i] = primitiveSets[i] == null ? 0 : primitiveSets[i].size();
+                } else {
+                    counts[i] = objectSets[i] == null ? 0 : objectSets[i].size();
+                }
+            }
+            return LongVector.of(name, counts);
+        }
+    }
+}
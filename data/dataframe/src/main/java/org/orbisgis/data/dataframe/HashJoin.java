@@ -0,0 +1,409 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.type.DataType;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+import smile.data.vector.Vector;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Hash join between two Smile {@link smile.data.DataFrame} computed in process.
+ * <p>
+ * The right {@link smile.data.DataFrame} is the build side : each key column is encoded into dense codes by a
+ * {@link KeyEncoder}, partition by partition concurrently, with a primitive hash table for the primitive keys or a
+ * dictionary for the string and object keys, and the rows are indexed by key in a compact array. The numbers are
+ * compared on their values whatever their types, the decimals without their trailing zeros. The left rows are then probed concurrently by partitions
+ * against this read only index, and the result columns are gathered from the matching row indexes, so no row is ever
+ * materialized as a {@link smile.data.Tuple}. As in SQL, the null keys never match.
+ */
+final class HashJoin {
+
+    /**
+     * Minimal count of rows of a partition probed by one thread.
+     */
+    private static final int MIN_PARTITION_SIZE = 1 << 16;
+    /**
+     * Suffix added to the right columns having the same name as a left column.
+     */
+    static final String RIGHT_SUFFIX = "_RIGHT";
+
+    private final smile.data.DataFrame left;
+    private final smile.data.DataFrame right;
+    private final String[] keys;
+    private final JoinType type;
+    private final int partitionCount;
+
+    /**
+     * Main constructor.
+     *
+     * @param left           Left {@link smile.data.DataFrame}, the probe side.
+     * @param right          Right {@link smile.data.DataFrame}, the build side.
+     * @param keys           Names of the key columns, present in both {@link smile.data.DataFrame}.
+     * @param type           Type of the join.
+     * @param partitionCount Maximal count of partitions probed concurrently.
+     */
+    HashJoin(smile.data.DataFrame left, smile.data.DataFrame right, String[] keys, JoinType type, int partitionCount) {
+        if (keys == null || keys.length == 0) {
+            throw new IllegalArgumentException("At least one key column is required to join.");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("The join type cannot be null.");
+        }
+        List<String> leftNames = Arrays.asList(left.names());
+        List<String> rightNames = Arrays.asList(right.names());
+        for (String key : keys) {
+            if (!leftNames.contains(key) || !rightNames.contains(key)) {
+                throw new IllegalArgumentException("The key column " + key + " does not exist in both DataFrame.");
+            }
+        }
+        this.left = left;
+        this.right = right;
+        this.keys = keys;
+        this.type = type;
+        this.partitionCount = Math.max(1, partitionCount);
+    }
+
+    /**
+     * Compute the join.
+     *
+     * @return A {@link smile.data.DataFrame} with the left columns followed by the right non key columns.
+     */
+    smile.data.DataFrame join() {
+        //Build side
+        int rightCount = right.nrows();
+        KeyIndex[] indexes = new KeyIndex[keys.length];
+        KeyEncoder[] combiners = new KeyEncoder[keys.length];
+        int[] codes = null;
+        int codeCount = 0;
+        for (int k = 0; k < keys.length; k++) {
+            indexes[k] = new KeyIndex(left.column(keys[k]), right.column(keys[k]));
+            int[] keyCodes = indexes[k].build(partitionCount);
+            if (codes == null) {
+                codes = keyCodes;
+                codeCount = indexes[k].size();
+            } else {
+                combiners[k] = KeyEncoder.combine(codes, keyCodes, indexes[k].size(), partitionCount);
+                codes = combiners[k].codes();
+                codeCount = combiners[k].size();
+            }
+        }
+        int[] offsets = new int[codeCount + 1];
+        for (int code : codes) {
+            if (code >= 0) {
+                offsets[code + 1]++;
+            }
+        }
+        for (int i = 0; i < codeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] rows = new int[offsets[codeCount]];
+        int[] positions = Arrays.copyOf(offsets, codeCount);
+        for (int i = 0; i < rightCount; i++) {
+            if (codes[i] >= 0) {
+                rows[positions[codes[i]]++] = i;
+            }
+        }
+
+        //Probe side
+        int leftCount = left.nrows();
+        int partitions = Math.max(1, Math.min(partitionCount, (leftCount + MIN_PARTITION_SIZE - 1) / MIN_PARTITION_SIZE));
+        int[] bounds = new int[partitions + 1];
+        for (int p = 0; p <= partitions; p++) {
+            bounds[p] = (int) ((long) leftCount * p / partitions);
+        }
+        int[] probeCodes = new int[leftCount];
+        long[] matchCounts = stream(partitions).mapToLong(p -> {
+            long count = 0;
+            for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                int code = probe(indexes, combiners, i);
+                probeCodes[i] = code;
+                int matches = code < 0 ? 0 : offsets[code + 1] - offsets[code];
+                count += matches == 0 && type == JoinType.LEFT ? 1 : matches;
+            }
+            return count;
+        }).toArray();
+        long[] starts = new long[partitions + 1];
+        for (int p = 0; p < partitions; p++) {
+            starts[p + 1] = starts[p] + matchCounts[p];
+        }
+        if (starts[partitions] > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The join result has too many rows : " + starts[partitions] + ".");
+        }
+        int resultCount = (int) starts[partitions];
+        int[] leftRows = new int[resultCount];
+        int[] rightRows = new int[resultCount];
+        boolean[] unmatched = new boolean[partitions];
+        stream(partitions).forEach(p -> {
+            int index = (int) starts[p];
+            for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                int code = probeCodes[i];
+                if (code < 0 || offsets[code] == offsets[code + 1]) {
+                    if (type == JoinType.LEFT) {
+                        leftRows[index] = i;
+                        rightRows[index++] = -1;
+                        unmatched[p] = true;
+                    }
+                } else {
+                    for (int j = offsets[code]; j < offsets[code + 1]; j++) {
+                        leftRows[index] = i;
+                        rightRows[index++] = rows[j];
+                    }
+                }
+            }
+        });
+        boolean nullable = false;
+        for (boolean b : unmatched) {
+            nullable |= b;
+        }
+
+        //Result
+        List<BaseVector> vectors = new ArrayList<>();
+        List<String> leftNames = Arrays.asList(left.names());
+        List<String> keyNames = Arrays.asList(keys);
+        for (int i = 0; i < left.ncols(); i++) {
+            vectors.add(left.column(i).get(leftRows));
+        }
+        for (int i = 0; i < right.ncols(); i++) {
+            BaseVector vector = right.column(i);
+            if (keyNames.contains(vector.name())) {
+                continue;
+            }
+            String name = leftNames.contains(vector.name()) ? vector.name() + RIGHT_SUFFIX : vector.name();
+            if (nullable) {
+                vectors.add(gatherNullable(vector, rightRows, name));
+            } else {
+                BaseVector gathered = vector.get(rightRows);
+                vectors.add(name.equals(vector.name()) ? gathered : rename(gathered, name));
+            }
+        }
+        return smile.data.DataFrame.of(vectors.toArray(new BaseVector[0]));
+    }
+
+    private static IntStream stream(int partitions) {
+        IntStream stream = IntStream.range(0, partitions);
+        return partitions > 1 ? stream.parallel() : stream;
+    }
+
+    /**
+     * Return the code of the key of a left row, -1 if the key is not in the right {@link smile.data.DataFrame}.
+     *
+     * @param indexes   Index of each key column.
+     * @param combiners Tables combining the codes of the key columns.
+     * @param row       Index of the left row.
+     * @return The code of the key or -1.
+     */
+    private static int probe(KeyIndex[] indexes, KeyEncoder[] combiners, int row) {
+        int code = indexes[0].probe(row);
+        for (int k = 1; k < indexes.length && code >= 0; k++) {
+            int keyCode = indexes[k].probe(row);
+            code = keyCode < 0 ? -1 : combiners[k].code((long) code * indexes[k].size() + keyCode);
+        }
+        return code;
+    }
+
+    /**
+     * Gather the values of the vector at the given rows, a negative row giving a null value.
+     *
+     * @param vector Vector to gather.
+     * @param rows   Indexes of the rows.
+     * @param name   Name of the result vector.
+     * @return A boxed vector.
+     */
+    private static BaseVector gatherNullable(BaseVector vector, int[] rows, String name) {
+        DataType type = vector.type();
+        Object[] values = (Object[]) Array.newInstance(boxedClass(vector), rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            values[i] = rows[i] < 0 ? null : vector.get(rows[i]);
+        }
+        StructField field = new StructField(name, type.boxed());
+        if (type.isString()) {
+            return StringVector.of(field, (String[]) values);
+        }
+        return Vector.of(field, values);
+    }
+
+    private static Class<?> boxedClass(BaseVector vector) {
+        DataType type = vector.type();
+        if (vector instanceof MappedColumn) {
+            return ((MappedColumn<?, ?, ?>) vector).codec.clazz;
+        } else if (!type.isPrimitive()) {
+            return vector.array().getClass().getComponentType();
+        } else if (type.isBoolean()) {
+            return Boolean.class;
+        } else if (type.isChar()) {
+            return Character.class;
+        } else if (type.isByte()) {
+            return Byte.class;
+        } else if (type.isShort()) {
+            return Short.class;
+        } else if (type.isInt()) {
+            return Integer.class;
+        } else if (type.isLong()) {
+            return Long.class;
+        } else if (type.isFloat()) {
+            return Float.class;
+        }
+        return Double.class;
+    }
+
+    /**
+     * Return a vector with the same values and a new name.
+     *
+     * @param vector Vector to rename.
+     * @param name   New name.
+     * @return The renamed vector.
+     */
+    private static BaseVector rename(BaseVector vector, String name) {
+        StructField field = new StructField(name, vector.type(), vector.measure());
+        if (vector instanceof BooleanVector) {
+            return BooleanVector.of(field, ((BooleanVector) vector).array());
+        } else if (vector instanceof CharVector) {
+            return CharVector.of(field, ((CharVector) vector).array());
+        } else if (vector instanceof ByteVector) {
+            return ByteVector.of(field, ((ByteVector) vector).array());
+        } else if (vector instanceof ShortVector) {
+            return ShortVector.of(field, ((ShortVector) vector).array());
+        } else if (vector instanceof IntVector) {
+            return IntVector.of(field, ((IntVector) vector).array());
+        } else if (vector instanceof LongVector) {
+            return LongVector.of(field, ((LongVector) vector).array());
+        } else if (vector instanceof FloatVector) {
+            return FloatVector.of(field, ((FloatVector) vector).array());
+        } else if (vector instanceof DoubleVector) {
+            return DoubleVector.of(field, ((DoubleVector) vector).array());
+        } else if (vector instanceof StringVector) {
+            return StringVector.of(field, (String[]) vector.array());
+        }
+        return Vector.of(field, (Object[]) vector.array());
+    }
+
+    /**
+     * Dictionary of the values of a key column of the right {@link smile.data.DataFrame}, probed with the values of
+     * the same key column of the left one.
+     */
+    private static final class KeyIndex {
+
+        private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+        private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+        private final BaseVector leftVector;
+        private final BaseVector rightVector;
+        /**
+         * True if both columns are read as primitive longs.
+         */
+        private final boolean primitive;
+        private KeyEncoder encoder;
+
+        private KeyIndex(BaseVector leftVector, BaseVector rightVector) {
+            this.leftVector = leftVector;
+            this.rightVector = rightVector;
+            DataType leftType = leftVector.type();
+            DataType rightType = rightVector.type();
+            this.primitive = GroupBy.isPrimitiveKey(leftVector) && GroupBy.isPrimitiveKey(rightVector) &&
+                    leftType.isFloating() == rightType.isFloating() && leftType.isBoolean() == rightType.isBoolean();
+        }
+
+        /**
+         * Encode the right values into dense codes.
+         *
+         * @param partitionCount Maximal count of partitions encoded concurrently.
+         * @return The code of each right row, -1 for the null values.
+         */
+        private int[] build(int partitionCount) {
+            int rowCount = rightVector.size();
+            if (primitive) {
+                encoder = KeyEncoder.ofLongs(rowCount, row -> GroupBy.longValue(rightVector, row), partitionCount);
+            } else {
+                encoder = KeyEncoder.ofObjects(rowCount, row -> normalize(rightVector.get(row)), false, partitionCount);
+            }
+            return encoder.codes();
+        }
+
+        /**
+         * Return the code of the value of a left row.
+         *
+         * @param row Index of the left row.
+         * @return The code of the value, -1 if the value is null or not in the right column.
+         */
+        private int probe(int row) {
+            if (primitive) {
+                return encoder.code(GroupBy.longValue(leftVector, row));
+            }
+            Object value = normalize(leftVector.get(row));
+            return value == null ? -1 : encoder.code(value);
+        }
+
+        private int size() {
+            return encoder.size();
+        }
+
+        /**
+         * Normalize the numbers, so the keys of different numeric types are equal when their values are equal : the
+         * integral values are read as longs and the other ones as decimals without trailing zeros, so distinct
+         * decimals never collapse on the same double.
+         *
+         * @param value Value to normalize.
+         * @return The normalized value.
+         */
+        private static Object normalize(Object value) {
+            if (value instanceof BigDecimal) {
+                BigDecimal decimal = ((BigDecimal) value).stripTrailingZeros();
+                if (decimal.scale() <= 0 && decimal.compareTo(LONG_MIN) >= 0 && decimal.compareTo(LONG_MAX) <= 0) {
+                    return decimal.longValue();
+                }
+                return decimal;
+            } else if (value instanceof Double || value instanceof Float) {
+                double d = ((Number) value).doubleValue();
+                if (d == Math.rint(d) && Math.abs(d) < 1L << 53) {
+                    return (long) d;
+                } else if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    return d;
+                }
+                return new BigDecimal(Double.toString(d)).stripTrailingZeros();
+            } else if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.vector.BaseVector;
+import smile.data.vector.IntVector;
+import smile.data.vector.LongVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Encoding of the keys of the rows of a {@link DataFrame} into dense codes, in the order of their first occurrence.
+ * <p>
+ * The rows are split into partitions encoded concurrently, each with its own hash table, a {@link LongIntHashMap}
+ * for the primitive keys or an {@link ObjectIntHashMap} dictionary for the string and object keys. The distinct keys
+ * of the partitions are then merged in the order of the partitions into the global table, and the codes of all the
+ * partitions but the first one are remapped concurrently to the global codes. The global table is kept to look up
+ * the code of other keys.
+ */
+final class KeyEncoder {
+
+    /**
+     * Minimal count of rows of a partition encoded by one thread.
+     */
+    private static final int MIN_PARTITION_SIZE = 1 << 16;
+
+    /**
+     * Key of a row read as a primitive long.
+     */
+    @FunctionalInterface
+    interface LongKeys {
+        long key(int row);
+    }
+
+    /**
+     * Key of a row read as an object, null for the null keys.
+     */
+    @FunctionalInterface
+    interface ObjectKeys {
+        Object key(int row);
+    }
+
+    private final int[] codes;
+    private int size = 0;
+    private LongIntHashMap longCodes;
+    private ObjectIntHashMap objectCodes;
+    private int nullCode = -1;
+
+    private KeyEncoder(int rowCount) {
+        this.codes = new int[rowCount];
+    }
+
+    /**
+     * Encode the values of a vector, the null values being encoded as a key.
+     *
+     * @param vector         Vector to encode.
+     * @param partitionCount Maximal count of partitions encoded concurrently.
+     * @return The encoder.
+     */
+    static KeyEncoder of(BaseVector vector, int partitionCount) {
+        int rowCount = vector.size();
+        if (!GroupBy.isPrimitiveKey(vector)) {
+            return ofObjects(rowCount, vector::get, true, partitionCount);
+        }
+        // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+        boolean heap = !(vector instanceof MappedColumn);
+        if (heap && vector instanceof IntVector) {
+            int[] values = ((IntVector) vector).array();
+            return ofLongs(rowCount, row -> values[row], partitionCount);
+        } else if (heap && vector instanceof LongVector) {
+            long[] values = ((LongVector) vector).array();
+            return ofLongs(rowCount, row -> values[row], partitionCount);
+        }
+        return ofLongs(rowCount, row -> GroupBy.longValue(vector, row), partitionCount);
+    }
+
+    /**
+     * Encode primitive keys.
+     *
+     * @param rowCount       Count of rows.
+     * @param keys           Key of each row.
+     * @param partitionCount Maximal count of partitions encoded concurrently.
+     * @return The encoder.
+     */
+    static KeyEncoder ofLongs(int rowCount, LongKeys keys, int partitionCount) {
+        return ofLongs(rowCount, keys, false, partitionCount);
+    }
+
+    /**
+     * Encode the pairs of codes of two encoded columns, the rows having a negative code in one of the columns being
+     * given the code -1.
+     *
+     * @param codes          Codes of the first column.
+     * @param otherCodes     Codes of the second column.
+     * @param cardinality    Count of distinct codes of the second column.
+     * @param partitionCount Maximal count of partitions encoded concurrently.
+     * @return The encoder, looked up with the keys <code>code * cardinality + otherCode</code>.
+     */
+    static KeyEncoder combine(int[] codes, int[] otherCodes, int cardinality, int partitionCount) {
+        return ofLongs(codes.length, row -> codes[row] < 0 || otherCodes[row] < 0 ? -1 :
+                (long) codes[row] * cardinality + otherCodes[row], true, partitionCount);
+    }
+
+    private static KeyEncoder ofLongs(int rowCount, LongKeys keys, boolean skipNegative, int partitionCount) {
+        KeyEncoder encoder = new KeyEncoder(rowCount);
+        int[] codes = encoder.codes;
+        int[] bounds = bounds(rowCount, partitionCount);
+        int partitions = bounds.length - 1;
+        LongIntHashMap[] maps = new LongIntHashMap[partitions];
+        long[][] distinctKeys = stream(partitions).mapToObj(p -> {
+            LongIntHashMap map = new LongIntHashMap(1024);
+            long[] distinct = new long[1024];
+            int count = 0;
+            for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                long key = keys.key(i);
+                if (skipNegative && key < 0) {
+                    codes[i] = -1;
+                    continue;
+                }
+                int code = map.putIfAbsent(key, count);
+                if (code < 0) {
+                    if (count == distinct.length) {
+                        distinct = Arrays.copyOf(distinct, count * 2);
+                    }
+                    distinct[count] = key;
+                    code = count++;
+                }
+                codes[i] = code;
+            }
+            maps[p] = map;
+            return Arrays.copyOf(distinct, count);
+        }).toArray(long[][]::new);
+
+        //The codes of the first partition are already the global ones
+        encoder.longCodes = maps[0];
+        encoder.size = distinctKeys[0].length;
+        int[][] remaps = new int[partitions][];
+        for (int p = 1; p < partitions; p++) {
+            long[] distinct = distinctKeys[p];
+            remaps[p] = new int[distinct.length];
+            for (int j = 0; j < distinct.length; j++) {
+                int code = encoder.longCodes.putIfAbsent(distinct[j], encoder.size);
+                remaps[p][j] = code < 0 ? encoder.size++ : code;
+            }
+        }
+        encoder.remap(bounds, remaps);
+        return encoder;
+    }
+
+    /**
+     * Encode string or object keys.
+     *
+     * @param rowCount       Count of rows.
+     * @param keys           Key of each row.
+     * @param nullKey        True to encode the null keys as a key, false to give them the code -1.
+     * @param partitionCount Maximal count of partitions encoded concurrently.
+     * @return The encoder.
+     */
+    static KeyEncoder ofObjects(int rowCount, ObjectKeys keys, boolean nullKey, int partitionCount) {
+        KeyEncoder encoder = new KeyEncoder(rowCount);
+        int[] codes = encoder.codes;
+        int[] bounds = bounds(rowCount, partitionCount);
+        int partitions = bounds.length - 1;
+        ObjectIntHashMap[] maps = new ObjectIntHashMap[partitions];
+        int[] nullCodes = new int[partitions];
+        List<?>[] distinctKeys = stream(partitions).mapToObj(p -> {
+            ObjectIntHashMap map = new ObjectIntHashMap(1024);
+            List<Object> distinct = new ArrayList<>();
+            int localNullCode = -1;
+            for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                Object key = keys.key(i);
+                int code;
+                if (key == null) {
+                    if (nullKey && localNullCode < 0) {
+                        localNullCode = distinct.size();
+                        distinct.add(null);
+                    }
+                    code = localNullCode;
+                } else {
+                    code = map.putIfAbsent(key, distinct.size());
+                    if (code < 0) {
+                        code = distinct.size();
+                        distinct.add(key);
+                    }
+                }
+                codes[i] = code;
+            }
+            maps[p] = map;
+            nullCodes[p] = localNullCode;
+            return distinct;
+        }).toArray(List<?>[]::new);
+
+        //The codes of the first partition are already the global ones
+        encoder.objectCodes = maps[0];
+        encoder.nullCode = nullCodes[0];
+        encoder.size = distinctKeys[0].size();
+        int[][] remaps = new int[partitions][];
+        for (int p = 1; p < partitions; p++) {
+            List<?> distinct = distinctKeys[p];
+            remaps[p] = new int[distinct.size()];
+            for (int j = 0; j < remaps[p].length; j++) {
+                Object key = distinct.get(j);
+                if (key == null) {
+                    if (encoder.nullCode < 0) {
+                        encoder.nullCode = encoder.size++;
+                    }
+                    remaps[p][j] = encoder.nullCode;
+                } else {
+                    int code = encoder.objectCodes.putIfAbsent(key, encoder.size);
+                    remaps[p][j] = code < 0 ? encoder.size++ : code;
+                }
+            }
+        }
+        encoder.remap(bounds, remaps);
+        return encoder;
+    }
+
+    /**
+     * Replace concurrently the codes local to each partition by the global codes.
+     *
+     * @param bounds Bounds of the partitions.
+     * @param remaps Global code of each local code, per partition.
+     */
+    private void remap(int[] bounds, int[][] remaps) {
+        stream(remaps.length - 1).forEach(partition -> {
+            int p = partition + 1;
+            int[] remap = remaps[p];
+            for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                if (codes[i] >= 0) {
+                    codes[i] = remap[codes[i]];
+                }
+            }
+        });
+    }
+
+    private static int[] bounds(int rowCount, int partitionCount) {
+        int partitions = Math.max(1, Math.min(partitionCount, (rowCount + MIN_PARTITION_SIZE - 1) / MIN_PARTITION_SIZE));
+        int[] bounds = new int[partitions + 1];
+        for (int p = 0; p <= partitions; p++) {
+            bounds[p] = (int) ((long) rowCount * p / partitions);
+        }
+        return bounds;
+    }
+
+    private static IntStream stream(int partitions) {
+        IntStream stream = IntStream.range(0, partitions);
+        return partitions > 1 ? stream.parallel() : stream;
+    }
+
+    /**
+     * Return the code of each row.
+     *
+     * @return The code of each row, -1 for the null keys not encoded.
+     */
+    int[] codes() {
+        return codes;
+    }
+
+    /**
+     * Return the count of distinct keys.
+     *
+     * @return The count of distinct keys.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the code of a primitive key.
+     *
+     * @param key Key to look for.
+     * @return The code of the key, -1 if the key has not been encoded.
+     */
+    int code(long key) {
+        return longCodes.get(key);
+    }
+
+    /**
+     * Return the code of a string or object key.
+     *
+     * @param key Key to look for.
+     * @return The code of the key, -1 if the key has not been encoded.
+     */
+    int code(Object key) {
+        return key == null ? nullCode : objectCodes.get(key);
+    }
+}
@@ -0,0 +1,799 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.measure.CategoricalMeasure;
+import smile.data.measure.NominalScale;
+import smile.data.type.DataType;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+import smile.data.vector.Vector;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.BaseStream;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Column of a {@link ColumnStore} read from memory mapped files. The values stay outside of the Java heap and are
+ * decoded on each access. The columns without null value of a primitive type implement the matching Smile typed
+ * vector ({@link DoubleVector}, {@link IntVector} ...), the other ones {@link Vector} or {@link StringVector}, so the
+ * typed accessors of the Smile {@link smile.data.DataFrame} work on them. Their <code>array()</code> method copies
+ * the whole column into the heap, so the generic accessors <code>getDouble(int)</code>, <code>get(int)</code> ...
+ * should be preferred, as the filters, groupings, joins and summaries of {@link DataFrame} do. Selecting rows with {@link #get(int...)} creates a regular Smile vector in the heap.
+ * <p>
+ * The mappings are released by {@link #close()}, after which the column cannot be read anymore.
+ *
+ * @param <T>  Type of the boxed values.
+ * @param <TS> Type of the streamed values.
+ * @param <S>  Type of the stream.
+ */
+abstract class MappedColumn<T, TS, S extends BaseStream<TS, S>> implements BaseVector<T, TS, S>, AutoCloseable {
+
+    final StructField field;
+    final ColumnStore.Codec codec;
+    private final int size;
+    /**
+     * Values of the fixed width columns, bytes of the variable width ones.
+     */
+    private final Mapping data;
+    /**
+     * Start offset of each value of the variable width columns, null otherwise.
+     */
+    private final Mapping offsets;
+    /**
+     * Null bitmap of the nullable columns, null otherwise.
+     */
+    private final Mapping nulls;
+
+    private MappedColumn(StructField field, ColumnStore.Codec codec, int size, Path data, Path offsets, Path nulls)
+            throws IOException {
+        this.field = field;
+        this.codec = codec;
+        this.size = size;
+        this.data = new Mapping(data);
+        this.offsets = offsets == null ? null : new Mapping(offsets);
+        this.nulls = nulls == null ? null : new Mapping(nulls);
+    }
+
+    /**
+     * Open a stored column.
+     *
+     * @param field   Field of the column.
+     * @param codec   Encoding of the values.
+     * @param size    Count of values.
+     * @param data    Path of the data file.
+     * @param offsets Path of the offsets file of the variable width columns, null otherwise.
+     * @param nulls   Path of the null bitmap file of the nullable columns, null otherwise.
+     * @return The typed vector of the column.
+     * @throws IOException Exception thrown if a file cannot be mapped.
+     */
+    static MappedColumn<?, ?, ?> of(StructField field, ColumnStore.Codec codec, int size, Path data, Path offsets,
+                                    Path nulls) throws IOException {
+        if (nulls == null && field.type.isPrimitive()) {
+            switch (codec) {
+                case BOOLEAN:
+                    return new OfBoolean(field, codec, size, data);
+                case BYTE:
+                    return new OfByte(field, codec, size, data);
+                case SHORT:
+                    return new OfShort(field, codec, size, data);
+                case INT:
+                    return new OfInt(field, codec, size, data);
+                case LONG:
+                    return new OfLong(field, codec, size, data);
+                case FLOAT:
+                    return new OfFloat(field, codec, size, data);
+                case DOUBLE:
+                    return new OfDouble(field, codec, size, data);
+                default:
+                    break;
+            }
+        }
+        if (codec == ColumnStore.Codec.STRING) {
+            return new OfString(field, codec, size, data, offsets, nulls);
+        }
+        return new OfObject<>(field, codec, size, data, offsets, nulls);
+    }
+
+    @Override
+    public String name() {
+        return field.name;
+    }
+
+    @Override
+    public DataType type() {
+        return field.type;
+    }
+
+    @Override
+    public StructField field() {
+        return field;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return true if the value of the given row is null.
+     *
+     * @param i Index of the row.
+     * @return True if the value is null.
+     */
+    public boolean isNullAt(int i) {
+        return nulls != null && (nulls.getByte(i >>> 3) & (1 << (i & 7))) != 0;
+    }
+
+    private long position(int i) {
+        return (long) i * codec.width;
+    }
+
+    private byte[] bytes(int i) {
+        long start = offsets.getLong((long) i * Long.BYTES);
+        long end = offsets.getLong((long) (i + 1) * Long.BYTES);
+        byte[] bytes = new byte[(int) (end - start)];
+        data.get(start, bytes);
+        return bytes;
+    }
+
+    /**
+     * Decode the value of the given row.
+     *
+     * @param i Index of the row.
+     * @return The boxed value, null for a null value.
+     */
+    private Object value(int i) {
+        if (isNullAt(i)) {
+            return null;
+        }
+        switch (codec) {
+            case BOOLEAN:
+                return data.getByte(i) != 0;
+            case BYTE:
+                return data.getByte(i);
+            case SHORT:
+                return data.getShort(position(i));
+            case INT:
+                return data.getInt(position(i));
+            case LONG:
+                return data.getLong(position(i));
+            case FLOAT:
+                return Float.intBitsToFloat(data.getInt(position(i)));
+            case DOUBLE:
+                return Double.longBitsToDouble(data.getLong(position(i)));
+            case DATE:
+                return LocalDate.ofEpochDay(data.getLong(position(i)));
+            case TIME:
+                return LocalTime.ofNanoOfDay(data.getLong(position(i)));
+            case DATETIME:
+                return LocalDateTime.ofEpochSecond(data.getLong(position(i)), data.getInt(position(i) + Long.BYTES),
+                        ZoneOffset.UTC);
+            case STRING:
+                return new String(bytes(i), StandardCharsets.UTF_8);
+            case DECIMAL:
+                return new BigDecimal(new String(bytes(i), StandardCharsets.US_ASCII));
+            default:
+                return bytes(i);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        return (T) value(i);
+    }
+
+    /**
+     * Check that the value of the row is not null before reading it as a primitive.
+     *
+     * @param i Index of the row.
+     * @throws NullPointerException Exception thrown if the value is null.
+     */
+    private void checkNotNull(int i) {
+        if (isNullAt(i)) {
+            throw new NullPointerException("The value of the row " + i + " of the column " + field.name +
+                    " is null.");
+        }
+    }
+
+    @Override
+    public byte getByte(int i) {
+        return (byte) getLong(i);
+    }
+
+    @Override
+    public short getShort(int i) {
+        return (short) getLong(i);
+    }
+
+    @Override
+    public int getInt(int i) {
+        if (codec == ColumnStore.Codec.INT) {
+            checkNotNull(i);
+            return data.getInt(position(i));
+        }
+        return (int) getLong(i);
+    }
+
+    /**
+     * Return the value of the row as a long, the booleans being read as 0 or 1.
+     *
+     * @throws NullPointerException Exception thrown if the value is null.
+     */
+    @Override
+    public long getLong(int i) {
+        checkNotNull(i);
+        switch (codec) {
+            case BOOLEAN:
+            case BYTE:
+                return data.getByte(i);
+            case SHORT:
+                return data.getShort(position(i));
+            case INT:
+                return data.getInt(position(i));
+            case LONG:
+                return data.getLong(position(i));
+            case FLOAT:
+            case DOUBLE:
+                return (long) getDouble(i);
+            default:
+                return ((Number) value(i)).longValue();
+        }
+    }
+
+    @Override
+    public float getFloat(int i) {
+        if (codec == ColumnStore.Codec.FLOAT) {
+            return isNullAt(i) ? Float.NaN : Float.intBitsToFloat(data.getInt(position(i)));
+        }
+        return (float) getDouble(i);
+    }
+
+    /**
+     * Return the value of the row as a double, the booleans being read as 0 or 1 and the null values as NaN.
+     */
+    @Override
+    public double getDouble(int i) {
+        if (isNullAt(i)) {
+            return Double.NaN;
+        }
+        switch (codec) {
+            case DOUBLE:
+                return Double.longBitsToDouble(data.getLong(position(i)));
+            case FLOAT:
+                return Float.intBitsToFloat(data.getInt(position(i)));
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return getLong(i);
+            default:
+                return ((Number) value(i)).doubleValue();
+        }
+    }
+
+    /**
+     * Copy the values of the given rows into the heap.
+     *
+     * @param rows Indexes of the rows.
+     * @return A primitive array for the columns without null value of a primitive type, a typed boxed array
+     * otherwise.
+     */
+    Object values(int[] rows) {
+        if (nulls == null && field.type.isPrimitive()) {
+            switch (codec) {
+                case BOOLEAN: {
+                    boolean[] values = new boolean[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        values[i] = data.getByte(rows[i]) != 0;
+                    }
+                    return values;
+                }
+                case BYTE: {
+                    byte[] values = new byte[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        values[i] = data.getByte(rows[i]);
+                    }
+                    return values;
+                }
+                case SHORT: {
+                    short[] values = new short[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        values[i] = data.getShort(position(rows[i]));
+                    }
+                    return values;
+                }
+                case INT:
+                    return IntStream.of(rows).map(this::getInt).toArray();
+                case LONG:
+                    return IntStream.of(rows).mapToLong(this::getLong).toArray();
+                case FLOAT: {
+                    float[] values = new float[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        values[i] = getFloat(rows[i]);
+                    }
+                    return values;
+                }
+                default:
+                    return IntStream.of(rows).mapToDouble(this::getDouble).toArray();
+            }
+        }
+        Object[] values = (Object[]) Array.newInstance(codec.clazz, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            values[i] = value(rows[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Copy the values of the column into the heap.
+     *
+     * @return A primitive array for the columns without null value of a primitive type, a typed boxed array
+     * otherwise.
+     */
+    Object values() {
+        return values(IntStream.range(0, size).toArray());
+    }
+
+    /**
+     * Release the memory mappings of the column. The column cannot be read anymore, and must not be read
+     * concurrently with this method.
+     */
+    @Override
+    public void close() {
+        data.close();
+        if (offsets != null) {
+            offsets.close();
+        }
+        if (nulls != null) {
+            nulls.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return field + " (memory mapped, " + size + " rows)";
+    }
+
+    /**
+     * Mapped column of booleans without null value.
+     */
+    private static final class OfBoolean extends MappedColumn<Boolean, Integer, IntStream> implements BooleanVector {
+
+        private OfBoolean(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public boolean getBoolean(int i) {
+            return getLong(i) != 0;
+        }
+
+        @Override
+        public boolean[] array() {
+            return (boolean[]) values();
+        }
+
+        @Override
+        public BooleanVector get(int... index) {
+            return BooleanVector.of(field, (boolean[]) values(index));
+        }
+
+        @Override
+        public IntStream stream() {
+            return IntStream.range(0, size()).map(this::getInt);
+        }
+    }
+
+    /**
+     * Mapped column of bytes without null value.
+     */
+    private static final class OfByte extends MappedColumn<Byte, Integer, IntStream> implements ByteVector {
+
+        private OfByte(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public byte[] array() {
+            return (byte[]) values();
+        }
+
+        @Override
+        public ByteVector get(int... index) {
+            return ByteVector.of(field, (byte[]) values(index));
+        }
+
+        @Override
+        public IntStream stream() {
+            return IntStream.range(0, size()).map(this::getInt);
+        }
+    }
+
+    /**
+     * Mapped column of shorts without null value.
+     */
+    private static final class OfShort extends MappedColumn<Short, Integer, IntStream> implements ShortVector {
+
+        private OfShort(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public short[] array() {
+            return (short[]) values();
+        }
+
+        @Override
+        public ShortVector get(int... index) {
+            return ShortVector.of(field, (short[]) values(index));
+        }
+
+        @Override
+        public IntStream stream() {
+            return IntStream.range(0, size()).map(this::getInt);
+        }
+    }
+
+    /**
+     * Mapped column of ints without null value.
+     */
+    private static final class OfInt extends MappedColumn<Integer, Integer, IntStream> implements IntVector {
+
+        private OfInt(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public int[] array() {
+            return (int[]) values();
+        }
+
+        @Override
+        public IntVector get(int... index) {
+            return IntVector.of(field, (int[]) values(index));
+        }
+
+        @Override
+        public IntStream stream() {
+            return IntStream.range(0, size()).map(this::getInt);
+        }
+    }
+
+    /**
+     * Mapped column of longs without null value.
+     */
+    private static final class OfLong extends MappedColumn<Long, Long, LongStream> implements LongVector {
+
+        private OfLong(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public long[] array() {
+            return (long[]) values();
+        }
+
+        @Override
+        public LongVector get(int... index) {
+            return LongVector.of(field, (long[]) values(index));
+        }
+
+        @Override
+        public LongStream stream() {
+            return IntStream.range(0, size()).mapToLong(this::getLong);
+        }
+    }
+
+    /**
+     * Mapped column of floats without null value.
+     */
+    private static final class OfFloat extends MappedColumn<Float, Double, DoubleStream> implements FloatVector {
+
+        private OfFloat(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public float[] array() {
+            return (float[]) values();
+        }
+
+        @Override
+        public FloatVector get(int... index) {
+            return FloatVector.of(field, (float[]) values(index));
+        }
+
+        @Override
+        public DoubleStream stream() {
+            return IntStream.range(0, size()).mapToDouble(this::getFloat);
+        }
+    }
+
+    /**
+     * Mapped column of doubles without null value.
+     */
+    private static final class OfDouble extends MappedColumn<Double, Double, DoubleStream> implements DoubleVector {
+
+        private OfDouble(StructField field, ColumnStore.Codec codec, int size, Path data) throws IOException {
+            super(field, codec, size, data, null, null);
+        }
+
+        @Override
+        public double[] array() {
+            return (double[]) values();
+        }
+
+        @Override
+        public DoubleVector get(int... index) {
+            return DoubleVector.of(field, (double[]) values(index));
+        }
+
+        @Override
+        public DoubleStream stream() {
+            return IntStream.range(0, size()).mapToDouble(this::getDouble);
+        }
+    }
+
+    /**
+     * Mapped column of objects or of nullable primitives.
+     *
+     * @param <T> Type of the values.
+     */
+    private static class OfObject<T> extends MappedColumn<T, T, Stream<T>> implements Vector<T> {
+
+        private OfObject(StructField field, ColumnStore.Codec codec, int size, Path data, Path offsets, Path nulls)
+                throws IOException {
+            super(field, codec, size, data, offsets, nulls);
+        }
+
+        @Override
+        public Object array() {
+            return values();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T[] toArray() {
+            return (T[]) values();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Vector<T> get(int... index) {
+            return Vector.of(field, (T[]) values(index));
+        }
+
+        @Override
+        public Stream<T> stream() {
+            return IntStream.range(0, size()).mapToObj(this::get);
+        }
+
+        @Override
+        public Vector<LocalDate> toDate() {
+            return Vector.of(field, toArray()).toDate();
+        }
+
+        @Override
+        public Vector<LocalTime> toTime() {
+            return Vector.of(field, toArray()).toTime();
+        }
+
+        @Override
+        public Vector<LocalDateTime> toDateTime() {
+            return Vector.of(field, toArray()).toDateTime();
+        }
+    }
+
+    /**
+     * Mapped column of strings. The conversions are computed on a copy of the column in the heap.
+     */
+    private static final class OfString extends OfObject<String> implements StringVector {
+
+        private OfString(StructField field, ColumnStore.Codec codec, int size, Path data, Path offsets, Path nulls)
+                throws IOException {
+            super(field, codec, size, data, offsets, nulls);
+        }
+
+        private StringVector copy() {
+            return StringVector.of(field, toArray());
+        }
+
+        @Override
+        public StringVector get(int... index) {
+            return StringVector.of(field, (String[]) values(index));
+        }
+
+        @Override
+        public Vector<LocalDate> toDate(DateTimeFormatter format) {
+            return copy().toDate(format);
+        }
+
+        @Override
+        public Vector<LocalTime> toTime(DateTimeFormatter format) {
+            return copy().toTime(format);
+        }
+
+        @Override
+        public Vector<LocalDateTime> toDateTime(DateTimeFormatter format) {
+            return copy().toDateTime(format);
+        }
+
+        @Override
+        public NominalScale nominal() {
+            return copy().nominal();
+        }
+
+        @Override
+        public BaseVector factorize(CategoricalMeasure scale) {
+            return copy().factorize(scale);
+        }
+
+        @Override
+        public String toString(int i) {
+            return get(i);
+        }
+    }
+
+    /**
+     * Read only memory mapping of a file, split into segments as a {@link java.nio.MappedByteBuffer} is limited to
+     * 2 GB. The values crossing the boundary of two segments are read byte by byte.
+     */
+    private static final class Mapping {
+
+        private static final int SEGMENT_BITS = 30;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+        private ByteBuffer[] segments;
+
+        private Mapping(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long length = channel.size();
+                int count = (int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS);
+                segments = new ByteBuffer[count];
+                for (int i = 0; i < count; i++) {
+                    long start = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(SEGMENT_MASK + 1, length - start));
+                }
+            }
+        }
+
+        private ByteBuffer segment(long position) {
+            ByteBuffer[] mapped = segments;
+            if (mapped == null) {
+                throw new IllegalStateException("The memory mapped column is closed.");
+            }
+            return mapped[(int) (position >>> SEGMENT_BITS)];
+        }
+
+        private byte getByte(long position) {
+            return segment(position).get((int) (position & SEGMENT_MASK));
+        }
+
+        private short getShort(long position) {
+            ByteBuffer segment = segment(position);
+            int offset = (int) (position & SEGMENT_MASK);
+            if (offset + Short.BYTES <= segment.limit()) {
+                return segment.getShort(offset);
+            }
+            return (short) getSplit(position, Short.BYTES);
+        }
+
+        private int getInt(long position) {
+            ByteBuffer segment = segment(position);
+            int offset = (int) (position & SEGMENT_MASK);
+            if (offset + Integer.BYTES <= segment.limit()) {
+                return segment.getInt(offset);
+            }
+            return (int) getSplit(position, Integer.BYTES);
+        }
+
+        private long getLong(long position) {
+            ByteBuffer segment = segment(position);
+            int offset = (int) (position & SEGMENT_MASK);
+            if (offset + Long.BYTES <= segment.limit()) {
+                return segment.getLong(offset);
+            }
+            return getSplit(position, Long.BYTES);
+        }
+
+        private long getSplit(long position, int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = value << 8 | (getByte(position + i) & 0xff);
+            }
+            return value;
+        }
+
+        private void get(long position, byte[] bytes) {
+            int copied = 0;
+            while (copied < bytes.length) {
+                ByteBuffer segment = segment(position + copied).duplicate();
+                int offset = (int) ((position + copied) & SEGMENT_MASK);
+                int length = Math.min(bytes.length - copied, segment.limit() - offset);
+                segment.position(offset);
+                segment.get(bytes, copied, length);
+                copied += length;
+            }
+        }
+
+        /**
+         * Unmap the segments. The JDK has no public API to unmap a buffer, so the cleaner of the buffers is invoked
+         * through <code>sun.misc.Unsafe</code> when it is available, otherwise the mappings are released by the
+         * garbage collector.
+         */
+        private void close() {
+            ByteBuffer[] mapped = segments;
+            segments = null;
+            if (mapped == null) {
+                return;
+            }
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Object unsafe = field.get(null);
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                for (ByteBuffer segment : mapped) {
+                    invokeCleaner.invoke(unsafe, segment);
+                }
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                //The mappings are released when the buffers are garbage collected
+            }
+        }
+    }
+}
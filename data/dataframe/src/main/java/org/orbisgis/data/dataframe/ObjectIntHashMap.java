@@ -0,0 +1,138 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with object keys and positive int values, used as the dictionary of the string and object
+ * keys of a {@link DataFrame} without boxing the values.
+ */
+final class ObjectIntHashMap {
+
+    /**
+     * Value of the empty slots.
+     */
+    private static final int EMPTY = -1;
+
+    private Object[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Main constructor.
+     *
+     * @param expectedSize Expected count of keys.
+     */
+    ObjectIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Return the value of the given key.
+     *
+     * @param key Non null key to look for.
+     * @return The value of the key, -1 if the key is not in the map.
+     */
+    int get(Object key) {
+        int slot = LongIntHashMap.hash(key.hashCode()) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot].equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Associate the value to the key if the key is not already in the map.
+     *
+     * @param key   Non null key to add.
+     * @param value Positive value of the key.
+     * @return The value already associated to the key, or -1 if the key has been added.
+     */
+    int putIfAbsent(Object key, int value) {
+        int slot = LongIntHashMap.hash(key.hashCode()) & mask;
+        while (values[slot] != EMPTY) {
+            if (keys[slot].equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Return the count of keys.
+     *
+     * @return The count of keys.
+     */
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int slot = LongIntHashMap.hash(oldKeys[i].hashCode()) & mask;
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
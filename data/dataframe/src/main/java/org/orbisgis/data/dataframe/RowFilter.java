@@ -0,0 +1,768 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import smile.data.type.DataType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.BooleanVector;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.FloatVector;
+import smile.data.vector.IntVector;
+import smile.data.vector.LongVector;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Row filter evaluated in process on a Smile {@link smile.data.DataFrame}. The filter is a SQL like predicate parsed
+ * once into a tree of conditions which supports :
+ * <ul>
+ *     <li>comparisons : <code>=, !=, &lt;&gt;, &lt;, &lt;=, &gt;, &gt;=</code></li>
+ *     <li><code>[NOT] IN (value, ...)</code></li>
+ *     <li><code>[NOT] BETWEEN value AND value</code></li>
+ *     <li><code>IS [NOT] NULL</code></li>
+ *     <li><code>AND</code>, <code>OR</code>, <code>NOT</code> and parenthesis</li>
+ * </ul>
+ * The values are numbers, single quoted strings, <code>TRUE</code>, <code>FALSE</code> or <code>?</code> parameters.
+ * The conditions are evaluated column at a time into a selection array. As in SQL, a condition on a null value is
+ * never true, so the negations are pushed down to the conditions while parsing.
+ */
+final class RowFilter {
+
+    /**
+     * Minimal count of rows of a block evaluated by one thread.
+     */
+    private static final int PARALLEL_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Root condition.
+     */
+    private final Condition root;
+
+    private RowFilter(Condition root) {
+        this.root = root;
+    }
+
+    /**
+     * Parse the given filter.
+     *
+     * @param filter Filter to parse, optionally starting with <code>WHERE</code>.
+     * @param params Values of the <code>?</code> parameters, can be null.
+     * @return The parsed {@link RowFilter}.
+     * @throws IllegalArgumentException Exception thrown if the filter is not valid.
+     */
+    static RowFilter parse(String filter, List<Object> params) {
+        Parser parser = new Parser(filter, params == null ? Collections.emptyList() : params);
+        return new RowFilter(parser.parse());
+    }
+
+    /**
+     * Evaluate the filter on all the rows of the given {@link smile.data.DataFrame}.
+     *
+     * @param df       {@link smile.data.DataFrame} to filter.
+     * @param parallel True to evaluate blocks of rows concurrently.
+     * @return The selection array, true for the rows matching the filter.
+     */
+    boolean[] evaluate(smile.data.DataFrame df, boolean parallel) {
+        int size = df.nrows();
+        boolean[] selection = new boolean[size];
+        int blockCount = parallel ? (size + PARALLEL_BLOCK_SIZE - 1) / PARALLEL_BLOCK_SIZE : 1;
+        if (blockCount <= 1) {
+            root.evaluate(df, 0, size, selection, 0);
+        } else {
+            IntStream.range(0, blockCount).parallel().forEach(block -> {
+                int from = block * PARALLEL_BLOCK_SIZE;
+                root.evaluate(df, from, Math.min(size, from + PARALLEL_BLOCK_SIZE), selection, from);
+            });
+        }
+        return selection;
+    }
+
+    /**
+     * Node of the condition tree.
+     */
+    private interface Condition {
+        /**
+         * Evaluate the condition on the rows [from, to[ and write the result into out from the given offset.
+         *
+         * @param df     {@link smile.data.DataFrame} to filter.
+         * @param from   First row.
+         * @param to     Last row, exclusive.
+         * @param out    Result array.
+         * @param offset Index in the result array of the first row.
+         */
+        void evaluate(smile.data.DataFrame df, int from, int to, boolean[] out, int offset);
+
+        /**
+         * Return the negation of this condition.
+         *
+         * @return The negated condition.
+         */
+        Condition negate();
+    }
+
+    /**
+     * <code>AND</code> or <code>OR</code> of conditions.
+     */
+    private static class Logical implements Condition {
+        private final boolean and;
+        private final List<Condition> children;
+
+        Logical(boolean and, List<Condition> children) {
+            this.and = and;
+            this.children = children;
+        }
+
+        @Override
+        public void evaluate(smile.data.DataFrame df, int from, int to, boolean[] out, int offset) {
+            children.get(0).evaluate(df, from, to, out, offset);
+            boolean[] tmp = new boolean[to - from];
+            for (int c = 1; c < children.size(); c++) {
+                children.get(c).evaluate(df, from, to, tmp, 0);
+                if (and) {
+                    for (int i = 0; i < tmp.length; i++) {
+                        out[offset + i] &= tmp[i];
+                    }
+                } else {
+                    for (int i = 0; i < tmp.length; i++) {
+                        out[offset + i] |= tmp[i];
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Condition negate() {
+            List<Condition> negated = new ArrayList<>();
+            for (Condition child : children) {
+                negated.add(child.negate());
+            }
+            return new Logical(!and, negated);
+        }
+    }
+
+    /**
+     * Comparison operators.
+     */
+    private enum Operator {
+        EQ, NE, LT, LE, GT, GE;
+
+        /**
+         * Test the result of a comparison.
+         *
+         * @param cmp Result of a comparison, as returned by {@link Comparator#compare(Object, Object)}.
+         * @return True if the comparison matches the operator.
+         */
+        boolean test(int cmp) {
+            switch (this) {
+                case EQ:
+                    return cmp == 0;
+                case NE:
+                    return cmp != 0;
+                case LT:
+                    return cmp < 0;
+                case LE:
+                    return cmp <= 0;
+                case GT:
+                    return cmp > 0;
+                default:
+                    return cmp >= 0;
+            }
+        }
+
+        Operator negate() {
+            switch (this) {
+                case EQ:
+                    return NE;
+                case NE:
+                    return EQ;
+                case LT:
+                    return GE;
+                case LE:
+                    return GT;
+                case GT:
+                    return LE;
+                default:
+                    return LT;
+            }
+        }
+    }
+
+    /**
+     * Condition on the values of one column.
+     */
+    private abstract static class ColumnCondition implements Condition {
+        protected final String column;
+
+        ColumnCondition(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Return the vector of the column, the name being resolved case insensitively.
+         *
+         * @param df {@link smile.data.DataFrame} to filter.
+         * @return The vector of the column.
+         */
+        protected BaseVector<?, ?, ?> vector(smile.data.DataFrame df) {
+            return df.column(columnIndex(df, column));
+        }
+    }
+
+    /**
+     * Return the index of a column, the exact name being preferred to a case insensitive match.
+     *
+     * @param df     {@link smile.data.DataFrame} containing the column.
+     * @param column Name of the column.
+     * @return The index of the column.
+     * @throws IllegalArgumentException Exception thrown if the column does not exist.
+     */
+    static int columnIndex(smile.data.DataFrame df, String column) {
+        String[] names = df.names();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(column)) {
+                return i;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column '" + column + "'.");
+    }
+
+    /**
+     * Comparison of a column with a value, <code>BETWEEN</code> being the intersection of two comparisons.
+     */
+    private static class Comparison extends ColumnCondition {
+        private final Operator operator;
+        private final Object value;
+
+        Comparison(String column, Operator operator, Object value) {
+            super(column);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public void evaluate(smile.data.DataFrame df, int from, int to, boolean[] out, int offset) {
+            BaseVector<?, ?, ?> vector = vector(df);
+            DataType type = vector.type();
+            // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+            boolean heap = !(vector instanceof MappedColumn);
+            if (value == null) {
+                Arrays.fill(out, offset, offset + to - from, false);
+            } else if (type.isPrimitive() && value instanceof Number && !type.isBoolean() && !type.isChar()) {
+                Number number = (Number) value;
+                if ((type.isInt() || type.isLong() || type.isShort() || type.isByte()) && isIntegral(number)) {
+                    long literal = number.longValue();
+                    if (heap && vector instanceof IntVector) {
+                        int[] values = ((IntVector) vector).array();
+                        for (int i = from; i < to; i++) {
+                            out[offset + i - from] = operator.test(Long.compare(values[i], literal));
+                        }
+                    } else if (heap && vector instanceof LongVector) {
+                        long[] values = ((LongVector) vector).array();
+                        for (int i = from; i < to; i++) {
+                            out[offset + i - from] = operator.test(Long.compare(values[i], literal));
+                        }
+                    } else {
+                        for (int i = from; i < to; i++) {
+                            out[offset + i - from] = operator.test(Long.compare(vector.getLong(i), literal));
+                        }
+                    }
+                } else {
+                    double literal = number.doubleValue();
+                    if (heap && vector instanceof DoubleVector) {
+                        double[] values = ((DoubleVector) vector).array();
+                        for (int i = from; i < to; i++) {
+                            out[offset + i - from] = operator.test(Double.compare(values[i], literal));
+                        }
+                    } else if (heap && vector instanceof FloatVector) {
+                        float[] values = ((FloatVector) vector).array();
+                        for (int i = from; i < to; i++) {
+                            out[offset + i - from] = operator.test(Double.compare(values[i], literal));
+                        }
+                    } else {
+                        for (int i = from; i < to; i++) {
+                            out[offset + i - from] = operator.test(Double.compare(vector.getDouble(i), literal));
+                        }
+                    }
+                }
+            } else if (vector instanceof BooleanVector && value instanceof Boolean) {
+                BooleanVector booleans = (BooleanVector) vector;
+                boolean literal = (Boolean) value;
+                if (heap) {
+                    boolean[] values = booleans.array();
+                    for (int i = from; i < to; i++) {
+                        out[offset + i - from] = operator.test(Boolean.compare(values[i], literal));
+                    }
+                } else {
+                    for (int i = from; i < to; i++) {
+                        out[offset + i - from] = operator.test(Boolean.compare(booleans.getBoolean(i), literal));
+                    }
+                }
+            } else {
+                Object literal = null;
+                for (int i = from; i < to; i++) {
+                    Object obj = vector.get(i);
+                    if (obj == null) {
+                        out[offset + i - from] = false;
+                        continue;
+                    }
+                    if (literal == null) {
+                        literal = coerce(type, obj, value);
+                    }
+                    out[offset + i - from] = operator.test(compare(obj, literal));
+                }
+            }
+        }
+
+        @Override
+        public Condition negate() {
+            return new Comparison(column, operator.negate(), value);
+        }
+    }
+
+    /**
+     * <code>IN</code> condition.
+     */
+    private static class In extends ColumnCondition {
+        private final List<Object> values;
+        private final boolean negated;
+
+        In(String column, List<Object> values, boolean negated) {
+            super(column);
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        public void evaluate(smile.data.DataFrame df, int from, int to, boolean[] out, int offset) {
+            BaseVector<?, ?, ?> vector = vector(df);
+            DataType type = vector.type();
+            boolean integral = type.isInt() || type.isLong() || type.isShort() || type.isByte();
+            if (type.isPrimitive() && integral && values.stream().allMatch(v -> v instanceof Number)) {
+                Set<Long> set = new HashSet<>();
+                values.forEach(v -> {
+                    if (isIntegral((Number) v)) {
+                        set.add(((Number) v).longValue());
+                    }
+                });
+                long[] literals = set.stream().mapToLong(Long::longValue).sorted().toArray();
+                for (int i = from; i < to; i++) {
+                    out[offset + i - from] = (Arrays.binarySearch(literals, vector.getLong(i)) >= 0) != negated;
+                }
+                return;
+            }
+            Set<Object> set = null;
+            for (int i = from; i < to; i++) {
+                Object obj = vector.get(i);
+                if (obj == null) {
+                    out[offset + i - from] = false;
+                    continue;
+                }
+                if (set == null) {
+                    set = new HashSet<>();
+                    for (Object v : values) {
+                        set.add(normalize(coerce(type, obj, v)));
+                    }
+                }
+                out[offset + i - from] = set.contains(normalize(obj)) != negated;
+            }
+        }
+
+        @Override
+        public Condition negate() {
+            return new In(column, values, !negated);
+        }
+    }
+
+    /**
+     * <code>IS NULL</code> condition.
+     */
+    private static class IsNull extends ColumnCondition {
+        private final boolean negated;
+
+        IsNull(String column, boolean negated) {
+            super(column);
+            this.negated = negated;
+        }
+
+        @Override
+        public void evaluate(smile.data.DataFrame df, int from, int to, boolean[] out, int offset) {
+            BaseVector<?, ?, ?> vector = vector(df);
+            if (vector.type().isPrimitive()) {
+                Arrays.fill(out, offset, offset + to - from, negated);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[offset + i - from] = (vector.get(i) == null) != negated;
+            }
+        }
+
+        @Override
+        public Condition negate() {
+            return new IsNull(column, !negated);
+        }
+    }
+
+    /**
+     * Return true if the given number has no fractional part.
+     */
+    private static boolean isIntegral(Number number) {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return true;
+        }
+        double d = number.doubleValue();
+        return d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 0x1p53;
+    }
+
+    /**
+     * Convert the literal into a value comparable with the values of the column.
+     *
+     * @param type   Type of the column.
+     * @param sample Non-null value of the column.
+     * @param value  Literal value.
+     * @return The literal converted.
+     */
+    private static Object coerce(DataType type, Object sample, Object value) {
+        if (value == null || sample.getClass().isInstance(value) || sample instanceof Number && value instanceof Number) {
+            return value;
+        }
+        if (sample instanceof String) {
+            return value.toString();
+        }
+        try {
+            Object converted = type.valueOf(value.toString());
+            if (converted != null) {
+                return converted;
+            }
+        } catch (Exception ignored) {
+        }
+        throw new IllegalArgumentException("Unable to compare the value '" + value + "' with the column type " + type + ".");
+    }
+
+    /**
+     * Normalize the numbers as {@link BigDecimal} so that values of different classes can be compared.
+     */
+    private static Object normalize(Object obj) {
+        if (obj instanceof Number) {
+            return new BigDecimal(obj.toString()).stripTrailingZeros();
+        }
+        return obj;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object obj, Object literal) {
+        if (obj instanceof Number && literal instanceof Number) {
+            if (obj instanceof BigDecimal || literal instanceof BigDecimal) {
+                return ((BigDecimal) normalize(obj)).compareTo((BigDecimal) normalize(literal));
+            }
+            return Double.compare(((Number) obj).doubleValue(), ((Number) literal).doubleValue());
+        }
+        if (obj instanceof Comparable) {
+            return ((Comparable<Object>) obj).compareTo(literal);
+        }
+        throw new IllegalArgumentException("The values of type " + obj.getClass().getSimpleName() + " can not be compared.");
+    }
+
+    /**
+     * Recursive descent parser of the filter.
+     */
+    private static class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Object> params;
+        private final String filter;
+        private int position = 0;
+        private int paramIndex = 0;
+
+        Parser(String filter, List<Object> params) {
+            this.filter = filter;
+            this.params = params;
+            tokenize(filter);
+        }
+
+        private void tokenize(String str) {
+            int i = 0;
+            while (i < str.length()) {
+                char c = str.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'') {
+                    StringBuilder sb = new StringBuilder("'");
+                    i++;
+                    while (true) {
+                        if (i >= str.length()) {
+                            throw error("unterminated string");
+                        }
+                        char ch = str.charAt(i++);
+                        if (ch == '\'') {
+                            if (i < str.length() && str.charAt(i) == '\'') {
+                                sb.append('\'');
+                                i++;
+                            } else {
+                                break;
+                            }
+                        } else {
+                            sb.append(ch);
+                        }
+                    }
+                    tokens.add(sb.toString());
+                } else if (c == '"') {
+                    int end = str.indexOf('"', i + 1);
+                    if (end < 0) {
+                        throw error("unterminated identifier");
+                    }
+                    tokens.add(str.substring(i, end + 1));
+                    i = end + 1;
+                } else if (c == '<' || c == '>' || c == '!') {
+                    if (i + 1 < str.length() && (str.charAt(i + 1) == '=' || (c == '<' && str.charAt(i + 1) == '>'))) {
+                        tokens.add(str.substring(i, i + 2));
+                        i += 2;
+                    } else if (c == '!') {
+                        throw error("unexpected '!'");
+                    } else {
+                        tokens.add(String.valueOf(c));
+                        i++;
+                    }
+                } else if (c == '=' || c == '(' || c == ')' || c == ',' || c == '?') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (Character.isDigit(c) || c == '.' || ((c == '-' || c == '+') && i + 1 < str.length() &&
+                        (Character.isDigit(str.charAt(i + 1)) || str.charAt(i + 1) == '.'))) {
+                    int start = i++;
+                    while (i < str.length() && (Character.isLetterOrDigit(str.charAt(i)) || str.charAt(i) == '.' ||
+                            ((str.charAt(i) == '-' || str.charAt(i) == '+') &&
+                                    (str.charAt(i - 1) == 'e' || str.charAt(i - 1) == 'E')))) {
+                        i++;
+                    }
+                    tokens.add("#" + str.substring(start, i));
+                } else if (Character.isLetter(c) || c == '_') {
+                    int start = i;
+                    while (i < str.length() && (Character.isLetterOrDigit(str.charAt(i)) || str.charAt(i) == '_')) {
+                        i++;
+                    }
+                    tokens.add(str.substring(start, i));
+                } else {
+                    throw error("unexpected character '" + c + "'");
+                }
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid filter '" + filter + "' : " + message + ".");
+        }
+
+        private String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private boolean accept(String keyword) {
+            String token = peek();
+            if (token != null && token.equalsIgnoreCase(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String keyword) {
+            if (!accept(keyword)) {
+                throw error("'" + keyword + "' expected" + (peek() == null ? "" : " instead of '" + peek() + "'"));
+            }
+        }
+
+        Condition parse() {
+            accept("WHERE");
+            if (peek() == null) {
+                throw error("empty filter");
+            }
+            Condition condition = parseOr();
+            if (peek() != null) {
+                throw error("unexpected '" + peek() + "'");
+            }
+            if (paramIndex != params.size()) {
+                throw error(params.size() + " parameters given for " + paramIndex + " placeholders");
+            }
+            return condition;
+        }
+
+        private Condition parseOr() {
+            List<Condition> children = new ArrayList<>();
+            children.add(parseAnd());
+            while (accept("OR")) {
+                children.add(parseAnd());
+            }
+            return children.size() == 1 ? children.get(0) : new Logical(false, children);
+        }
+
+        private Condition parseAnd() {
+            List<Condition> children = new ArrayList<>();
+            children.add(parseNot());
+            while (accept("AND")) {
+                children.add(parseNot());
+            }
+            return children.size() == 1 ? children.get(0) : new Logical(true, children);
+        }
+
+        private Condition parseNot() {
+            if (accept("NOT")) {
+                return parseNot().negate();
+            }
+            if (accept("(")) {
+                Condition condition = parseOr();
+                expect(")");
+                return condition;
+            }
+            return parsePredicate();
+        }
+
+        private Condition parsePredicate() {
+            String column = parseColumn();
+            if (accept("IS")) {
+                boolean not = accept("NOT");
+                expect("NULL");
+                return new IsNull(column, not);
+            }
+            boolean not = accept("NOT");
+            if (accept("IN")) {
+                expect("(");
+                List<Object> values = new ArrayList<>();
+                do {
+                    values.add(parseValue());
+                } while (accept(","));
+                expect(")");
+                return new In(column, values, not);
+            }
+            if (accept("BETWEEN")) {
+                Object low = parseValue();
+                expect("AND");
+                Object high = parseValue();
+                Condition between = new Logical(true, Arrays.asList(new Comparison(column, Operator.GE, low),
+                        new Comparison(column, Operator.LE, high)));
+                return not ? between.negate() : between;
+            }
+            if (not) {
+                throw error("'IN' or 'BETWEEN' expected after 'NOT'");
+            }
+            Operator operator = parseOperator();
+            return new Comparison(column, operator, parseValue());
+        }
+
+        private String parseColumn() {
+            String token = peek();
+            if (token == null) {
+                throw error("column name expected");
+            }
+            position++;
+            if (token.startsWith("\"")) {
+                return token.substring(1, token.length() - 1);
+            }
+            if (!Character.isLetter(token.charAt(0)) && token.charAt(0) != '_') {
+                throw error("column name expected instead of '" + token + "'");
+            }
+            return token;
+        }
+
+        private Operator parseOperator() {
+            String token = peek();
+            if (token == null) {
+                throw error("comparison operator expected");
+            }
+            position++;
+            switch (token) {
+                case "=":
+                    return Operator.EQ;
+                case "!=":
+                case "<>":
+                    return Operator.NE;
+                case "<":
+                    return Operator.LT;
+                case "<=":
+                    return Operator.LE;
+                case ">":
+                    return Operator.GT;
+                case ">=":
+                    return Operator.GE;
+                default:
+                    throw error("comparison operator expected instead of '" + token + "'");
+            }
+        }
+
+        private Object parseValue() {
+            String token = peek();
+            if (token == null) {
+                throw error("value expected");
+            }
+            position++;
+            if (token.equals("?")) {
+                if (paramIndex >= params.size()) {
+                    throw error("missing parameter " + (paramIndex + 1));
+                }
+                return params.get(paramIndex++);
+            }
+            if (token.startsWith("'")) {
+                return token.substring(1);
+            }
+            if (token.startsWith("#")) {
+                String number = token.substring(1);
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    try {
+                        return Double.parseDouble(number);
+                    } catch (NumberFormatException e2) {
+                        throw error("invalid number '" + number + "'");
+                    }
+                }
+            }
+            if (token.equalsIgnoreCase("TRUE")) {
+                return true;
+            }
+            if (token.equalsIgnoreCase("FALSE")) {
+                return false;
+            }
+            if (token.equalsIgnoreCase("NULL")) {
+                return null;
+            }
+            throw error("value expected instead of '" + token + "'");
+        }
+    }
+}
@@ -0,0 +1,655 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.orbisgis.data.api.dataset.IJdbcSpatialTable;
+import org.orbisgis.data.api.dataset.IRaster;
+import org.orbisgis.data.api.dataset.IGeoTable;
+import org.orbisgis.data.api.dataset.ISpatialTable;
+import org.orbisgis.data.api.dataset.ITable;
+import smile.data.Tuple;
+import smile.data.type.DataTypes;
+import smile.data.vector.BaseVector;
+import smile.data.vector.Vector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * {@link DataFrame} with geometry columns. The geometries are stored as WKB bytes, which are much more compact than
+ * the JTS {@link Geometry} objects or their WKT, and are only decoded when they are read. The envelopes of a geometry
+ * column can be indexed into a JTS {@link STRtree} to select the rows intersecting a geometry or the row nearest to
+ * a geometry. Only the envelopes used by the extents and the index are decoded once by column and cached, the
+ * geometries selected by the index being decoded on each spatial query.
+ * <p>
+ * A {@link SpatialDataFrame} is an {@link IGeoTable} iterating its columns and streaming its rows, so it cannot be an
+ * {@link ISpatialTable}, whose streamed and iterated elements are the same. {@link #getSpatialTable()} returns an
+ * {@link ISpatialTable} view iterating its rows.
+ */
+public class SpatialDataFrame extends DataFrame implements IGeoTable<BaseVector, Tuple> {
+
+    /**
+     * Names of the geometry types by WKB type code.
+     */
+    private static final String[] WKB_TYPES = {"GEOMETRY", "POINT", "LINESTRING", "POLYGON", "MULTIPOINT",
+            "MULTILINESTRING", "MULTIPOLYGON", "GEOMETRYCOLLECTION"};
+
+    /**
+     * Names of the geometry columns.
+     */
+    private final List<String> geometryColumns;
+    /**
+     * SRID of the geometries.
+     */
+    private int srid;
+    /**
+     * Factory of the decoded geometries.
+     */
+    private GeometryFactory geometryFactory;
+    /**
+     * Reader of the geometries of the cursor row.
+     */
+    private WKBReader reader;
+    /**
+     * {@link STRtree} of the rows by geometry column, built on demand.
+     */
+    private final Map<String, STRtree> indexes = new HashMap<>();
+    /**
+     * Envelopes of the rows by geometry column, decoded on demand.
+     */
+    private final Map<String, Envelope[]> envelopes = new HashMap<>();
+
+    /**
+     * Main constructor.
+     *
+     * @param dataFrame       Smile {@link smile.data.DataFrame} with the geometry columns stored as WKB bytes.
+     * @param srid            SRID of the geometries.
+     * @param geometryColumns Names of the geometry columns.
+     */
+    SpatialDataFrame(smile.data.DataFrame dataFrame, int srid, List<String> geometryColumns) {
+        setInternalDataFrame(dataFrame);
+        this.geometryColumns = Collections.unmodifiableList(new ArrayList<>(geometryColumns));
+        setSrid(srid);
+    }
+
+    /**
+     * Create a {@link SpatialDataFrame} from a Smile {@link smile.data.DataFrame} containing geometry columns stored
+     * as WKB bytes.
+     *
+     * @param dataFrame       Smile {@link smile.data.DataFrame}.
+     * @param srid            SRID of the geometries.
+     * @param geometryColumns Names of the geometry columns.
+     * @return A {@link SpatialDataFrame}.
+     * @throws IllegalArgumentException Exception thrown if a geometry column is not a byte array column.
+     */
+    public static SpatialDataFrame of(smile.data.DataFrame dataFrame, int srid, String... geometryColumns) {
+        List<String> names = Arrays.asList(dataFrame.names());
+        for (String column : geometryColumns) {
+            if (!names.contains(column) || !DataTypes.ByteArrayType.equals(dataFrame.column(column).type())) {
+                throw new IllegalArgumentException("The column " + column + " is not a WKB column.");
+            }
+        }
+        return new SpatialDataFrame(dataFrame, srid, Arrays.asList(geometryColumns));
+    }
+
+    /**
+     * Load an {@link IJdbcSpatialTable} into a {@link SpatialDataFrame}, the geometries being read as WKB bytes.
+     *
+     * @param table {@link IJdbcSpatialTable} to load.
+     * @return A {@link SpatialDataFrame}, null if the structure of the table cannot be read.
+     * @throws SQLException Exception thrown in case or error while reading the table.
+     */
+    public static SpatialDataFrame of(IJdbcSpatialTable<?> table) throws SQLException {
+        int srid;
+        try {
+            srid = table.getSrid();
+        } catch (Exception e) {
+            throw new SQLException("Cannot read the SRID of the table.", e);
+        }
+        List<String> geometryColumns = new ArrayList<>();
+        smile.data.DataFrame dataFrame = read(table, geometryColumns);
+        return dataFrame == null ? null : new SpatialDataFrame(dataFrame, srid, geometryColumns);
+    }
+
+    /**
+     * Decode the WKB geometry of the given row.
+     *
+     * @param column Index of the geometry column.
+     * @param row    Index of the row.
+     * @param reader {@link WKBReader} to use.
+     * @return The decoded {@link Geometry}, null for a null value.
+     */
+    private Geometry decode(int column, int row, WKBReader reader) {
+        byte[] wkb = (byte[]) getInternalDataFrame().get(row, column);
+        if (wkb == null) {
+            return null;
+        }
+        try {
+            Geometry geometry = reader.read(wkb);
+            geometry.setSRID(srid);
+            return geometry;
+        } catch (ParseException e) {
+            throw new IllegalStateException("Cannot decode the geometry of the row " + row + ".", e);
+        }
+    }
+
+    /**
+     * Return the index of the given geometry column.
+     *
+     * @param column Name of the geometry column.
+     * @return The index of the column.
+     * @throws IllegalArgumentException Exception thrown if the column is not a geometry column.
+     */
+    private int geometryIndex(String column) {
+        int index = columnIndexIgnoreCase(column);
+        if (!isGeometry(index)) {
+            throw new IllegalArgumentException("The column " + column + " is not a geometry column.");
+        }
+        return index;
+    }
+
+    private boolean isGeometry(int column) {
+        return geometryColumns.contains(names()[column]);
+    }
+
+    private String firstGeometryColumn() {
+        if (geometryColumns.isEmpty()) {
+            throw new IllegalStateException("The SpatialDataFrame has no geometry column.");
+        }
+        return geometryColumns.get(0);
+    }
+
+    @Override
+    public Geometry getGeometry(int columnIndex) {
+        if (!isGeometry(columnIndex)) {
+            throw new IllegalArgumentException("The column " + columnIndex + " is not a geometry column.");
+        }
+        return decode(columnIndex, getRow(), reader);
+    }
+
+    @Override
+    public Geometry getGeometry(String columnLabel) {
+        return decode(geometryIndex(columnLabel), getRow(), reader);
+    }
+
+    @Override
+    public Geometry getGeometry() {
+        return getGeometry(firstGeometryColumn());
+    }
+
+    @Override
+    public Object getObject(int column) {
+        return isGeometry(column) ? getGeometry(column) : super.getObject(column);
+    }
+
+    @Override
+    public Object getObject(String column) {
+        return getObject(columnIndexIgnoreCase(column));
+    }
+
+    @Override
+    public String getString(int column) {
+        if (isGeometry(column)) {
+            Geometry geometry = getGeometry(column);
+            return geometry == null ? null : geometry.toText();
+        }
+        return super.getString(column);
+    }
+
+    @Override
+    public String getString(String column) {
+        return getString(columnIndexIgnoreCase(column));
+    }
+
+    @Override
+    public Map<String, String> getColumnNamesTypes() throws Exception {
+        Map<String, String> map = super.getColumnNamesTypes();
+        for (String column : geometryColumns) {
+            map.put(column, "GEOMETRY");
+        }
+        return map;
+    }
+
+    @Override
+    public String getColumnType(String columnName) throws Exception {
+        for (String column : geometryColumns) {
+            if (column.equalsIgnoreCase(columnName)) {
+                return "GEOMETRY";
+            }
+        }
+        return super.getColumnType(columnName);
+    }
+
+    /**
+     * A {@link SpatialDataFrame} has no raster column.
+     *
+     * @return Null.
+     */
+    @Override
+    public IRaster getRaster(int columnIndex) {
+        return null;
+    }
+
+    /**
+     * A {@link SpatialDataFrame} has no raster column.
+     *
+     * @return Null.
+     */
+    @Override
+    public IRaster getRaster(String columnLabel) {
+        return null;
+    }
+
+    /**
+     * A {@link SpatialDataFrame} has no raster column.
+     *
+     * @return Null.
+     */
+    @Override
+    public IRaster getRaster() {
+        return null;
+    }
+
+    @Override
+    public List<String> getSpatialColumns() {
+        return geometryColumns;
+    }
+
+    @Override
+    public List<String> getRasterColumns() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<String> getGeometricColumns() {
+        return geometryColumns;
+    }
+
+    /**
+     * Return the envelopes of the geometries of a column, null for the null or empty geometries. The envelopes are
+     * decoded in parallel on the first call and cached.
+     *
+     * @param column Name of the geometry column.
+     * @return The envelope of each row.
+     */
+    private synchronized Envelope[] envelopes(String column) {
+        int index = geometryIndex(column);
+        String name = names()[index];
+        Envelope[] cached = envelopes.get(name);
+        if (cached == null) {
+            Envelope[] result = new Envelope[nrows()];
+            ThreadLocal<WKBReader> readers = ThreadLocal.withInitial(() -> new WKBReader(geometryFactory));
+            IntStream.range(0, result.length).parallel().forEach(row -> {
+                Geometry geometry = decode(index, row, readers.get());
+                result[row] = geometry == null || geometry.isEmpty() ? null : geometry.getEnvelopeInternal();
+            });
+            cached = result;
+            envelopes.put(name, cached);
+        }
+        return cached;
+    }
+
+    private Geometry toGeometry(Envelope envelope) {
+        if (envelope.isNull()) {
+            return null;
+        }
+        Geometry geometry = geometryFactory.toGeometry(envelope);
+        geometry.setSRID(srid);
+        return geometry;
+    }
+
+    @Override
+    public Geometry getExtent(String... geometryColumns) {
+        String[] columns = geometryColumns.length == 0 ? new String[]{firstGeometryColumn()} : geometryColumns;
+        Envelope extent = new Envelope();
+        for (String column : columns) {
+            for (Envelope envelope : envelopes(column)) {
+                if (envelope != null) {
+                    extent.expandToInclude(envelope);
+                }
+            }
+        }
+        return toGeometry(extent);
+    }
+
+    @Override
+    public Geometry getExtent(String[] geometryColumns, String filter) {
+        if (filter == null || filter.trim().isEmpty()) {
+            return getExtent(geometryColumns);
+        }
+        boolean[] selection = RowFilter.parse(filter, null).evaluate(getInternalDataFrame(), true);
+        String[] columns = geometryColumns.length == 0 ? new String[]{firstGeometryColumn()} : geometryColumns;
+        Envelope extent = new Envelope();
+        for (String column : columns) {
+            Envelope[] envelopes = envelopes(column);
+            for (int i = 0; i < envelopes.length; i++) {
+                if (selection[i] && envelopes[i] != null) {
+                    extent.expandToInclude(envelopes[i]);
+                }
+            }
+        }
+        return toGeometry(extent);
+    }
+
+    @Override
+    public Geometry getExtent() {
+        return getExtent(new String[0]);
+    }
+
+    @Override
+    public Geometry getEstimatedExtent() {
+        return getExtent();
+    }
+
+    @Override
+    public int getSrid() {
+        return srid;
+    }
+
+    @Override
+    public synchronized void setSrid(int srid) {
+        this.srid = srid;
+        this.geometryFactory = new GeometryFactory(new PrecisionModel(), srid);
+        this.reader = new WKBReader(geometryFactory);
+    }
+
+    /**
+     * Return the geometry type of each geometry column, read from the header of the WKB values. A column mixing
+     * several types or without value has the <code>GEOMETRY</code> type.
+     *
+     * @return The geometry type of each geometry column.
+     */
+    @Override
+    public Map<String, String> getGeometryTypes() {
+        Map<String, String> map = new HashMap<>();
+        for (String column : geometryColumns) {
+            BaseVector<?, ?, ?> vector = column(geometryIndex(column));
+            int type = -1;
+            for (int i = 0; i < vector.size() && type != 0; i++) {
+                byte[] wkb = (byte[]) vector.get(i);
+                if (wkb != null && wkb.length >= 5) {
+                    int wkbType = wkbType(wkb);
+                    type = type < 0 || type == wkbType ? wkbType : 0;
+                }
+            }
+            map.put(column, type > 0 && type < WKB_TYPES.length ? WKB_TYPES[type] : "GEOMETRY");
+        }
+        return map;
+    }
+
+    /**
+     * Read the 2D geometry type code from the header of a WKB or EWKB value.
+     *
+     * @param wkb WKB value.
+     * @return The geometry type code.
+     */
+    private static int wkbType(byte[] wkb) {
+        int type;
+        if (wkb[0] == 1) {
+            type = (wkb[1] & 0xff) | (wkb[2] & 0xff) << 8 | (wkb[3] & 0xff) << 16 | (wkb[4] & 0xff) << 24;
+        } else {
+            type = (wkb[1] & 0xff) << 24 | (wkb[2] & 0xff) << 16 | (wkb[3] & 0xff) << 8 | (wkb[4] & 0xff);
+        }
+        return (type & 0xffff) % 1000;
+    }
+
+    /**
+     * Reproject the geometries of all the geometry columns with the CTS coordinate operations of the EPSG registry,
+     * the rows being reprojected in parallel.
+     *
+     * @throws IllegalArgumentException Exception thrown if the SRID of the geometries is unknown or if no coordinate
+     *                                  operation transforms it into the given SRID.
+     */
+    @Override
+    public SpatialDataFrame reproject(int srid) {
+        smile.data.DataFrame dataFrame = getInternalDataFrame();
+        BaseVector<?, ?, ?>[] vectors = new BaseVector[dataFrame.ncols()];
+        for (int column = 0; column < vectors.length; column++) {
+            if (!isGeometry(column)) {
+                vectors[column] = dataFrame.column(column);
+                continue;
+            }
+            int index = column;
+            ThreadLocal<WKBReader> readers = ThreadLocal.withInitial(() -> new WKBReader(geometryFactory));
+            ThreadLocal<WKBWriter> writers = ThreadLocal.withInitial(() -> new WKBWriter(3));
+            byte[][] wkbs = new byte[nrows()][];
+            IntStream.range(0, wkbs.length).parallel().forEach(row -> {
+                Geometry geometry = decode(index, row, readers.get());
+                if (geometry != null) {
+                    wkbs[row] = writers.get().write(CoordinateTransform.transform(geometry, this.srid, srid));
+                }
+            });
+            vectors[column] = Vector.of(dataFrame.schema().field(column), wkbs);
+        }
+        return new SpatialDataFrame(smile.data.DataFrame.of(vectors), srid, geometryColumns);
+    }
+
+    /**
+     * Simplify the geometries of all the geometry columns with the {@link TopologyPreservingSimplifier} of JTS, the
+     * rows being simplified in parallel.
+     */
+    @Override
+    public SpatialDataFrame simplified(double tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("The tolerance of the simplification cannot be negative.");
+        }
+        smile.data.DataFrame dataFrame = getInternalDataFrame();
+        BaseVector<?, ?, ?>[] vectors = new BaseVector[dataFrame.ncols()];
+        for (int column = 0; column < vectors.length; column++) {
+            if (!isGeometry(column)) {
+                vectors[column] = dataFrame.column(column);
+                continue;
+            }
+            int index = column;
+            ThreadLocal<WKBReader> readers = ThreadLocal.withInitial(() -> new WKBReader(geometryFactory));
+            ThreadLocal<WKBWriter> writers = ThreadLocal.withInitial(() -> new WKBWriter(3));
+            byte[][] wkbs = new byte[nrows()][];
+            IntStream.range(0, wkbs.length).parallel().forEach(row -> {
+                Geometry geometry = decode(index, row, readers.get());
+                if (geometry != null) {
+                    wkbs[row] = writers.get().write(TopologyPreservingSimplifier.simplify(geometry, tolerance));
+                }
+            });
+            vectors[column] = Vector.of(dataFrame.schema().field(column), wkbs);
+        }
+        return new SpatialDataFrame(smile.data.DataFrame.of(vectors), srid, geometryColumns);
+    }
+
+    /**
+     * Build the {@link STRtree} of the envelopes of the given geometry column. The index is built on the first query
+     * if this method is not called.
+     *
+     * @param column Name of the geometry column.
+     * @return The {@link STRtree} containing the row indexes.
+     */
+    public synchronized STRtree buildIndex(String column) {
+        String name = names()[geometryIndex(column)];
+        STRtree tree = indexes.get(name);
+        if (tree == null) {
+            Envelope[] envelopes = envelopes(name);
+            tree = new STRtree();
+            for (int i = 0; i < envelopes.length; i++) {
+                if (envelopes[i] != null) {
+                    tree.insert(envelopes[i], i);
+                }
+            }
+            tree.build();
+            indexes.put(name, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Return the indexes of the rows whose geometry intersects the given one, in ascending order.
+     *
+     * @param column   Name of the geometry column.
+     * @param geometry {@link Geometry} to intersect.
+     * @return The indexes of the rows.
+     */
+    public int[] intersects(String column, Geometry geometry) {
+        STRtree tree = buildIndex(column);
+        int index = geometryIndex(column);
+        WKBReader wkbReader = new WKBReader(geometryFactory);
+        PreparedGeometry prepared = PreparedGeometryFactory.prepare(geometry);
+        List<?> candidates = tree.query(geometry.getEnvelopeInternal());
+        return candidates.stream()
+                .mapToInt(row -> (Integer) row)
+                .filter(row -> prepared.intersects(decode(index, row, wkbReader)))
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Return the rows whose geometry of the first geometry column intersects the given one.
+     *
+     * @param geometry {@link Geometry} to intersect.
+     * @return A {@link SpatialDataFrame} with the intersecting rows.
+     */
+    public SpatialDataFrame intersects(Geometry geometry) {
+        return of(intersects(firstGeometryColumn(), geometry));
+    }
+
+    /**
+     * Return the index of the row whose geometry is the nearest to the given one.
+     *
+     * @param column   Name of the geometry column.
+     * @param geometry Reference {@link Geometry}.
+     * @return The index of the nearest row, -1 if the column has no geometry.
+     */
+    public int nearest(String column, Geometry geometry) {
+        STRtree tree = buildIndex(column);
+        if (tree.isEmpty()) {
+            return -1;
+        }
+        int index = geometryIndex(column);
+        WKBReader wkbReader = new WKBReader(geometryFactory);
+        //The candidates compared several times by the search are only decoded once
+        Map<Integer, Geometry> decoded = new HashMap<>();
+        ItemDistance distance = (item1, item2) -> toGeometry(item1.getItem(), index, wkbReader, decoded)
+                .distance(toGeometry(item2.getItem(), index, wkbReader, decoded));
+        return (Integer) tree.nearestNeighbour(geometry.getEnvelopeInternal(), geometry, distance);
+    }
+
+    private Geometry toGeometry(Object item, int column, WKBReader reader, Map<Integer, Geometry> decoded) {
+        return item instanceof Geometry ? (Geometry) item :
+                decoded.computeIfAbsent((Integer) item, row -> decode(column, row, reader));
+    }
+
+    @Override
+    public SpatialDataFrame of(int... index) {
+        return new SpatialDataFrame(getInternalDataFrame().of(index), srid, geometryColumns);
+    }
+
+    @Override
+    public SpatialDataFrame of(boolean... index) {
+        return new SpatialDataFrame(getInternalDataFrame().of(index), srid, geometryColumns);
+    }
+
+    @Override
+    public SpatialDataFrame slice(int from, int to) {
+        return new SpatialDataFrame(getInternalDataFrame().slice(from, to), srid, geometryColumns);
+    }
+
+    /**
+     * Write this {@link SpatialDataFrame} in the Apache Arrow IPC format, the geometry columns being written as WKB
+     * binary columns flagged with the GeoArrow <code>geoarrow.wkb</code> extension type.
+     *
+     * @param out  Output stream, closed at the end.
+     * @param file True to write the random access file format, false to write the stream format.
+     * @throws IOException Exception thrown in case of error while writing.
+     */
+    @Override
+    public void toArrow(OutputStream out, boolean file) throws IOException {
+        ArrowConverter.write(getInternalDataFrame(), geometryColumns, srid, out, file);
+    }
+
+    /**
+     * Write this {@link SpatialDataFrame} in the Apache Parquet format, the geometry columns being written as WKB
+     * binary columns described in the GeoParquet <code>geo</code> metadata.
+     *
+     * @param out Output stream, closed at the end.
+     * @throws IOException Exception thrown in case of error while writing.
+     */
+    @Override
+    public void toParquet(OutputStream out) throws IOException {
+        ArrowConverter.writeParquet(getInternalDataFrame(), geometryColumns, srid, out);
+    }
+
+    @Override
+    public boolean isSpatial() {
+        return true;
+    }
+
+    @Override
+    public ITable<?, ?> getTable() {
+        return this;
+    }
+
+    /**
+     * Return an {@link ISpatialTable} view of this {@link SpatialDataFrame}, iterating and streaming its rows as
+     * {@link Tuple}s and sharing its cursor.
+     *
+     * @return An {@link ISpatialTable} view.
+     */
+    @Override
+    public ISpatialTable<Tuple> getSpatialTable() {
+        return new DataFrameSpatialTable(this);
+    }
+
+    @Override
+    public Object asType(Class<?> clazz) {
+        if (ISpatialTable.class.equals(clazz)) {
+            return getSpatialTable();
+        }
+        return super.asType(clazz);
+    }
+}
@@ -40,6 +40,15 @@ import org.orbisgis.commons.printer.Ascii;
 import org.orbisgis.commons.printer.Html;
 import org.orbisgis.commons.printer.ICustomPrinter;
 import org.orbisgis.data.api.dataset.ISummary;
+import smile.data.measure.CategoricalMeasure;
+import smile.data.type.DataType;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.orbisgis.commons.printer.ICustomPrinter.CellPosition.CENTER;
 import static org.orbisgis.commons.printer.ICustomPrinter.CellPosition.RIGHT;
@@ -47,6 +56,10 @@ import static org.orbisgis.commons.printer.ICustomPrinter.CellPosition.RIGHT;
 /**
  * {@link ISummary} implementation for the {@link DataFrame} object.
  *
+ * The summary is computed by a {@link Builder} : the numeric columns are split into chunks of rows whose statistics
+ * are accumulated concurrently then merged, the mean and the variance with the Welford algorithm and the quantiles
+ * with a t-digest.
+ *
  * @author Sylvain PALOMINOS (Lab-STICC UBS 2019)
  */
 public class Summary extends DataFrame implements ISummary {
@@ -94,4 +107,264 @@ public class Summary extends DataFrame implements ISummary {
         }
         return null;
     }
+
+    /**
+     * Create a {@link Builder} computing the summary of the numeric columns of a {@link DataFrame}.
+     *
+     * @param dataFrame {@link DataFrame} to summarize.
+     * @return A new {@link Builder}.
+     */
+    public static Builder builder(DataFrame dataFrame) {
+        return new Builder(dataFrame.getInternalDataFrame());
+    }
+
+    /**
+     * Builder of a {@link Summary} containing one row by numeric column with its count of values, minimum, mean and
+     * maximum, and optionally its variance, standard deviation and quantiles. The null and NaN values are ignored.
+     */
+    public static final class Builder {
+
+        /**
+         * Number of rows of the chunks accumulated concurrently.
+         */
+        static final int CHUNK_SIZE = 1 << 16;
+        /**
+         * Default compression of the t-digest estimating the quantiles.
+         */
+        static final double DEFAULT_COMPRESSION = 200;
+
+        private final smile.data.DataFrame dataFrame;
+        private boolean variance = false;
+        private double[] quantiles = new double[0];
+        private double compression = DEFAULT_COMPRESSION;
+        private boolean parallel = true;
+
+        private Builder(smile.data.DataFrame dataFrame) {
+            this.dataFrame = dataFrame;
+        }
+
+        /**
+         * Add the sample variance and standard deviation columns <code>var</code> and <code>std</code>.
+         *
+         * @return This {@link Builder}.
+         */
+        public Builder variance() {
+            this.variance = true;
+            return this;
+        }
+
+        /**
+         * Add one column by quantile, named with the letter <code>q</code> followed by its probability, like
+         * <code>q0.5</code> for the median.
+         *
+         * @param probabilities Probabilities of the quantiles, between 0 and 1.
+         * @return This {@link Builder}.
+         */
+        public Builder quantiles(double... probabilities) {
+            for (double probability : probabilities) {
+                if (!(probability >= 0 && probability <= 1)) {
+                    throw new IllegalArgumentException("The probability of a quantile must be between 0 and 1.");
+                }
+            }
+            this.quantiles = probabilities.clone();
+            return this;
+        }
+
+        /**
+         * Set the compression of the t-digest estimating the quantiles. A higher compression gives more accurate
+         * quantiles using more memory.
+         *
+         * @param compression Compression of the t-digest, greater than 10.
+         * @return This {@link Builder}.
+         */
+        public Builder compression(double compression) {
+            if (!(compression >= 10)) {
+                throw new IllegalArgumentException("The compression of the t-digest must be greater than 10.");
+            }
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Enable or disable the concurrent computation of the statistics. It is enabled by default.
+         *
+         * @param parallel True to accumulate the chunks of rows concurrently.
+         * @return This {@link Builder}.
+         */
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        /**
+         * Compute the {@link Summary}.
+         *
+         * @return The {@link Summary}.
+         */
+        public Summary build() {
+            List<BaseVector<?, ?, ?>> vectors = new ArrayList<>();
+            for (int i = 0; i < dataFrame.ncols(); i++) {
+                StructField field = dataFrame.schema().field(i);
+                DataType type = field.type;
+                if (!(field.measure instanceof CategoricalMeasure) && (type.isInt() || type.isLong() ||
+                        type.isFloat() || type.isDouble() || type.isShort() || type.isByte())) {
+                    vectors.add(dataFrame.column(i));
+                }
+            }
+            int rowCount = dataFrame.nrows();
+            int chunkCount = Math.max(1, (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            Accumulator[] accumulators = new Accumulator[vectors.size() * chunkCount];
+            IntStream tasks = IntStream.range(0, accumulators.length);
+            (parallel ? tasks.parallel() : tasks).forEach(task -> {
+                int from = task % chunkCount * CHUNK_SIZE;
+                Accumulator accumulator = new Accumulator(quantiles.length > 0 ? new TDigest(compression) : null);
+                accumulator.add(vectors.get(task / chunkCount), from, Math.min(rowCount, from + CHUNK_SIZE));
+                accumulators[task] = accumulator;
+            });
+
+            int size = vectors.size();
+            String[] names = new String[size];
+            long[] count = new long[size];
+            double[] min = new double[size];
+            double[] avg = new double[size];
+            double[] max = new double[size];
+            double[] var = new double[size];
+            double[] std = new double[size];
+            double[][] quantileValues = new double[quantiles.length][size];
+            for (int i = 0; i < size; i++) {
+                Accumulator accumulator = accumulators[i * chunkCount];
+                for (int chunk = 1; chunk < chunkCount; chunk++) {
+                    accumulator.merge(accumulators[i * chunkCount + chunk]);
+                }
+                names[i] = vectors.get(i).name();
+                count[i] = accumulator.count;
+                boolean empty = accumulator.count == 0;
+                min[i] = empty ? Double.NaN : accumulator.min;
+                avg[i] = empty ? Double.NaN : accumulator.mean;
+                max[i] = empty ? Double.NaN : accumulator.max;
+                var[i] = accumulator.count < 2 ? Double.NaN : accumulator.m2 / (accumulator.count - 1);
+                std[i] = Math.sqrt(var[i]);
+                for (int q = 0; q < quantiles.length; q++) {
+                    quantileValues[q][i] = accumulator.digest.quantile(quantiles[q]);
+                }
+            }
+            List<BaseVector<?, ?, ?>> columns = new ArrayList<>();
+            columns.add(StringVector.of("column", names));
+            columns.add(LongVector.of("count", count));
+            columns.add(DoubleVector.of("min", min));
+            columns.add(DoubleVector.of("avg", avg));
+            columns.add(DoubleVector.of("max", max));
+            if (variance) {
+                columns.add(DoubleVector.of("var", var));
+                columns.add(DoubleVector.of("std", std));
+            }
+            for (int q = 0; q < quantiles.length; q++) {
+                columns.add(DoubleVector.of("q" + BigDecimal.valueOf(quantiles[q]).stripTrailingZeros()
+                        .toPlainString(), quantileValues[q]));
+            }
+            return new Summary(smile.data.DataFrame.of(columns.toArray(new BaseVector[0])));
+        }
+    }
+
+    /**
+     * Mergeable accumulator of the statistics of a chunk of values.
+     */
+    private static final class Accumulator {
+        private final TDigest digest;
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double mean;
+        private double m2;
+
+        private Accumulator(TDigest digest) {
+            this.digest = digest;
+        }
+
+        /**
+         * Accumulate the values of the rows [from, to[ of a numeric vector, reading the primitive arrays directly.
+         */
+        private void add(BaseVector<?, ?, ?> vector, int from, int to) {
+            if (vector instanceof MappedColumn && vector.type().isPrimitive()) {
+                // The array of a mapped column is a copy of the whole file, so its rows are read one by one
+                for (int row = from; row < to; row++) {
+                    add(vector.getDouble(row));
+                }
+            } else if (vector instanceof DoubleVector) {
+                double[] values = ((DoubleVector) vector).array();
+                for (int row = from; row < to; row++) {
+                    add(values[row]);
+                }
+            } else if (vector instanceof IntVector) {
+                int[] values = ((IntVector) vector).array();
+                for (int row = from; row < to; row++) {
+                    add(values[row]);
+                }
+            } else if (vector instanceof LongVector) {
+                long[] values = ((LongVector) vector).array();
+                for (int row = from; row < to; row++) {
+                    add(values[row]);
+                }
+            } else if (vector instanceof FloatVector) {
+                float[] values = ((FloatVector) vector).array();
+                for (int row = from; row < to; row++) {
+                    add(values[row]);
+                }
+            } else if (vector instanceof ShortVector) {
+                short[] values = ((ShortVector) vector).array();
+                for (int row = from; row < to; row++) {
+                    add(values[row]);
+                }
+            } else if (vector instanceof ByteVector) {
+                byte[] values = ((ByteVector) vector).array();
+                for (int row = from; row < to; row++) {
+                    add(values[row]);
+                }
+            } else {
+                for (int row = from; row < to; row++) {
+                    Object value = vector.get(row);
+                    if (value != null) {
+                        add(((Number) value).doubleValue());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Accumulate a value with the Welford algorithm.
+         */
+        private void add(double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (digest != null) {
+                digest.add(value);
+            }
+        }
+
+        /**
+         * Merge the statistics of another chunk with the parallel variant of the Welford algorithm.
+         */
+        private void merge(Accumulator other) {
+            if (other.count == 0) {
+                return;
+            }
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * count * other.count / total;
+            count = total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            if (digest != null) {
+                digest.merge(other.digest);
+            }
+        }
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest estimating the quantiles of a stream of values with a bounded memory. The values are buffered then
+ * merged into centroids whose size is bounded by the arcsine scale function, so the centroids are small at the tails
+ * and the extreme quantiles stay accurate. Two digests computed on different chunks of values can be merged.
+ */
+final class TDigest {
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int size;
+    private final double[] buffer;
+    private int bufferSize;
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Main constructor.
+     *
+     * @param compression Compression factor, the count of centroids being about twice this value.
+     */
+    TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("The compression of the t-digest must be greater than 10.");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 10;
+        means = new double[capacity];
+        weights = new double[capacity];
+        buffer = new double[5 * capacity];
+    }
+
+    /**
+     * Add a value to the digest.
+     *
+     * @param value Value to add, not NaN.
+     */
+    void add(double value) {
+        if (bufferSize == buffer.length) {
+            compress(null);
+        }
+        buffer[bufferSize++] = value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Merge the values of another digest into this one.
+     *
+     * @param other Digest to merge.
+     */
+    void merge(TDigest other) {
+        other.compress(null);
+        if (other.size > 0) {
+            compress(other);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * Return the estimated value of the given quantile.
+     *
+     * @param probability Probability of the quantile, between 0 and 1.
+     * @return The estimated quantile, NaN if the digest is empty.
+     */
+    double quantile(double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("The probability of a quantile must be between 0 and 1.");
+        }
+        compress(null);
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size == 1) {
+            return means[0];
+        }
+        double index = probability * totalWeight;
+        if (index <= weights[0] / 2) {
+            return weights[0] <= 1 ? min : min + index / (weights[0] / 2) * (means[0] - min);
+        }
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < size - 1; i++) {
+            double delta = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + delta > index) {
+                return means[i] + (index - weightSoFar) / delta * (means[i + 1] - means[i]);
+            }
+            weightSoFar += delta;
+        }
+        double last = weights[size - 1] / 2;
+        return last <= 0.5 ? max : Math.min(max, means[size - 1] + (index - weightSoFar) / last *
+                (max - means[size - 1]));
+    }
+
+    /**
+     * Merge the buffered values, the centroids and the centroids of another digest into a new set of centroids. All
+     * these values are sorted, so they are merged in a single pass.
+     */
+    private void compress(TDigest other) {
+        int otherSize = other == null ? 0 : other.size;
+        if (bufferSize == 0 && otherSize == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, bufferSize);
+        double[] bufferWeights = new double[bufferSize];
+        Arrays.fill(bufferWeights, 1);
+        int count = size + bufferSize;
+        double[] sortedMeans = new double[count];
+        double[] sortedWeights = new double[count];
+        mergeSorted(means, weights, size, buffer, bufferWeights, bufferSize, sortedMeans, sortedWeights);
+        totalWeight += bufferSize;
+        bufferSize = 0;
+        if (otherSize > 0) {
+            double[] otherMeans = sortedMeans;
+            double[] otherWeights = sortedWeights;
+            sortedMeans = new double[count + otherSize];
+            sortedWeights = new double[count + otherSize];
+            mergeSorted(otherMeans, otherWeights, count, other.means, other.weights, otherSize, sortedMeans,
+                    sortedWeights);
+            count += otherSize;
+            totalWeight += other.totalWeight;
+        }
+
+        size = 0;
+        double mean = sortedMeans[0];
+        double weight = sortedWeights[0];
+        double weightSoFar = 0;
+        double limit = totalWeight * q(k(0) + 1);
+        for (int i = 1; i < count; i++) {
+            if (weightSoFar + weight + sortedWeights[i] <= limit) {
+                weight += sortedWeights[i];
+                mean += (sortedMeans[i] - mean) * sortedWeights[i] / weight;
+            } else {
+                append(mean, weight);
+                weightSoFar += weight;
+                limit = totalWeight * q(k(weightSoFar / totalWeight) + 1);
+                mean = sortedMeans[i];
+                weight = sortedWeights[i];
+            }
+        }
+        append(mean, weight);
+    }
+
+    private static void mergeSorted(double[] means1, double[] weights1, int size1, double[] means2,
+                                    double[] weights2, int size2, double[] means, double[] weights) {
+        int i = 0;
+        int j = 0;
+        for (int n = 0; n < size1 + size2; n++) {
+            if (j == size2 || i < size1 && means1[i] <= means2[j]) {
+                means[n] = means1[i];
+                weights[n] = weights1[i++];
+            } else {
+                means[n] = means2[j];
+                weights[n] = weights2[j++];
+            }
+        }
+    }
+
+    private void append(double mean, double weight) {
+        if (size == means.length) {
+            means = Arrays.copyOf(means, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        means[size] = mean;
+        weights[size++] = weight;
+    }
+
+    /**
+     * Arcsine scale function giving the centroid index of a quantile.
+     */
+    private double k(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    /**
+     * Inverse of the scale function.
+     */
+    private double q(double k) {
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+}
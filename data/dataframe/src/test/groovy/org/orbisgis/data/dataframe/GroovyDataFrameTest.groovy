@@ -142,6 +142,23 @@ class GroovyDataFrameTest {
     }
 
 
+    @Test
+    void testFilterGString() {
+        def h2GIS = RANDOM_DS()
+        h2GIS.execute("""
+                DROP TABLE IF EXISTS geotable;
+                CREATE TABLE geotable (id int,  type varchar,temperature int);
+                INSERT INTO geotable VALUES (1,  'grass', -12), (2,  'corn', 22), (3,  'corn', 18);
+        """)
+        DataFrame df = DataFrame.of(h2GIS.getTable("geotable"))
+        def type = "corn"
+        def min = 20
+        DataFrame filtered = df.filter("type = $type and temperature >= $min")
+        assertEquals(1, filtered.nrows())
+        assertEquals(2, filtered.get(0, 0))
+    }
+
+
     @Test
     void testFactoryDF() {
         def h2GIS = RANDOM_DS()
@@ -270,4 +287,24 @@ class GroovyDataFrameTest {
         int[] prediction = model.predict(dfFactorized)
         assertTrue(IntStream.of(prediction).filter(it -> it >100).toArray().length>0)
     }
+
+    @Test
+    void testForEachRow() {
+        def h2GIS = RANDOM_DS()
+        h2GIS.execute("""
+                DROP TABLE IF EXISTS geotable;
+                CREATE TABLE geotable (id int,  type varchar,temperature int);
+                INSERT INTO geotable VALUES (1,  'grass', -12), (2,  'corn', 22), (3,  'corn', 18);
+        """)
+        DataFrame df = DataFrame.of(h2GIS.getTable("geotable"))
+        def temperature = df.doubleColumn("TEMPERATURE")
+        def type = df.stringColumn("TYPE")
+        def sum = 0
+        df.forEachRow { row ->
+            if (type.get() == "corn") {
+                sum += temperature.get()
+            }
+        }
+        assertEquals(40, sum)
+    }
 }
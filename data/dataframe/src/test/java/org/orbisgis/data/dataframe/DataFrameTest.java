@@ -42,31 +42,52 @@ import org.junit.jupiter.api.Test;
 import org.orbisgis.commons.printer.Ascii;
 import org.orbisgis.commons.printer.Html;
 import org.orbisgis.data.api.dataset.IJdbcTable;
+import org.orbisgis.data.api.datasource.IJdbcDataSource;
 import org.orbisgis.data.H2GIS;
 import smile.base.cart.SplitRule;
 import smile.classification.RandomForest;
 import smile.data.Tuple;
 import smile.data.formula.Formula;
 import smile.data.type.DataType;
+import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
 import smile.data.vector.BaseVector;
+import smile.data.vector.BooleanVector;
+import smile.data.vector.ByteVector;
+import smile.data.vector.DoubleVector;
 import smile.data.vector.IntVector;
+import smile.data.vector.LongVector;
+import smile.data.vector.ShortVector;
 import smile.data.vector.StringVector;
+import smile.data.vector.Vector;
 import smile.math.matrix.Matrix;
 import smile.validation.Validation;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -105,6 +126,95 @@ public class DataFrameTest {
         }
     }
 
+    /**
+     * Tests the {@link DataFrame#of(java.sql.ResultSet)} method with null values, not null columns, geometries and
+     * more rows than the initial capacity of the column builders.
+     */
+    @Test
+    void ofResultSetTest() throws Exception {
+        h2gis.execute("DROP TABLE IF EXISTS columnar");
+        h2gis.execute("CREATE TABLE columnar(id int NOT NULL, val double, name varchar, the_geom geometry)");
+        h2gis.execute("INSERT INTO columnar SELECT X, CASE WHEN MOD(X, 2) = 0 THEN null ELSE X / 2.0 END, " +
+                "CASE WHEN MOD(X, 3) = 0 THEN null ELSE CONCAT('name', MOD(X, 5)) END, 'POINT(' || X || ' 1)' FROM SYSTEM_RANGE(1, 3000)");
+        DataFrame df = DataFrame.of(h2gis.getTable("columnar"));
+        assertNotNull(df);
+        assertEquals(3000, df.nrows());
+        assertTrue(df.column("ID") instanceof IntVector);
+        assertEquals("int", df.getColumnType("ID"));
+        assertEquals("double", df.getColumnType("VAL"));
+        assertEquals(2999, df.intVector(0).getInt(2998));
+        assertEquals(0.5, df.get(0, 1));
+        assertNull(df.get(1, 1));
+        assertEquals(1499.5, df.get(2998, 1));
+        assertEquals("name1", df.get(0, 2));
+        assertNull(df.get(2, 2));
+        assertSame(df.get(0, 2), df.get(10, 2));
+        assertEquals("POINT (3000 1)", df.get(2999, 3));
+    }
+
+    /**
+     * Tests the {@link DataFrame#pages(String, int)} method.
+     */
+    @Test
+    void pagesTest() throws Exception {
+        h2gis.execute("DROP TABLE IF EXISTS paged");
+        h2gis.execute("CREATE TABLE paged(id int NOT NULL, name varchar)");
+        h2gis.execute("INSERT INTO paged SELECT 11 - X, CASE WHEN X = 10 THEN null ELSE CONCAT('n', MOD(X, 3)) END " +
+                "FROM SYSTEM_RANGE(1, 10)");
+        DataFrame df = DataFrame.of(h2gis.getTable("paged"));
+        assertThrows(IllegalArgumentException.class, () -> df.pages("ID", 0));
+
+        List<Object> ids = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        Iterator<DataFrame> it = df.pages("ID", 4);
+        while (it.hasNext()) {
+            DataFrame page = it.next();
+            sizes.add(page.nrows());
+            for (int i = 0; i < page.nrows(); i++) {
+                ids.add(page.get(i, 0));
+            }
+        }
+        assertEquals(Arrays.asList(4, 4, 2), sizes);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids);
+
+        sizes.clear();
+        it = df.pages("NAME", 2);
+        while (it.hasNext()) {
+            DataFrame page = it.next();
+            sizes.add(page.nrows());
+            assertEquals(page.get(0, 1), page.get(page.nrows() - 1, 1));
+        }
+        assertEquals(Arrays.asList(3, 3, 3), sizes);
+        assertThrows(NoSuchElementException.class, it::next);
+
+        //The primitive keys are ordered by value and the keys which cannot be ordered are rejected
+        DataFrame doubles = DataFrame.of(DoubleVector.of("D", new double[]{3, -1, 2, -1, 0.5, -7.5}));
+        List<Object> values = new ArrayList<>();
+        sizes.clear();
+        it = doubles.pages("D", 2);
+        while (it.hasNext()) {
+            DataFrame page = it.next();
+            sizes.add(page.nrows());
+            for (int i = 0; i < page.nrows(); i++) {
+                values.add(page.get(i, 0));
+            }
+        }
+        assertEquals(Arrays.asList(3, 2, 1), sizes);
+        assertEquals(Arrays.asList(-7.5, -1.0, -1.0, 0.5, 2.0, 3.0), values);
+        DataFrame ints = DataFrame.of(IntVector.of("I", IntStream.range(0, 1000).map(i -> (i * 7919) % 1000).toArray()));
+        values.clear();
+        it = ints.pages("I", 300);
+        while (it.hasNext()) {
+            DataFrame page = it.next();
+            for (int i = 0; i < page.nrows(); i++) {
+                values.add(page.get(i, 0));
+            }
+        }
+        assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), values);
+        DataFrame mixed = DataFrame.of(Vector.of("O", Object.class, new Object[]{1, "a", 2.0}));
+        assertThrows(IllegalArgumentException.class, () -> mixed.pages("O", 2));
+    }
+
     /**
      * Tests the {@link DataFrame#apply(Formula)} method.
      */
@@ -421,6 +531,30 @@ public class DataFrameTest {
         assertEquals(13, dataFrame.getFirstRow().size());
     }
 
+    /**
+     * Tests the typed {@link DataFrame#getUniqueValues(String, int)} method on small and large columns.
+     */
+    @Test
+    void uniqueValuesTest() {
+        assertEquals(Arrays.asList(true, false), dataFrame.getUniqueValues("COL3", 0));
+        assertEquals(Arrays.asList("val0", "val1", "val3", "val4"), dataFrame.getUniqueValues("COL2", 0));
+        assertEquals(Arrays.asList("val0", "val1"), dataFrame.getUniqueValues("COL2", 2));
+        assertEquals(Arrays.asList("true", "false"), new ArrayList<>(dataFrame.getUniqueValues("COL3")));
+        assertEquals(1, dataFrame.getUniqueValues("COL11", 0).size());
+
+        int rows = 200_000;
+        DataFrame df = DataFrame.of(IntVector.of("ID", IntStream.range(0, rows).map(i -> (rows - i) % 1000).toArray()),
+                DoubleVector.of("VAL", IntStream.range(0, rows).mapToDouble(i -> i % 7 / 2.0).toArray()),
+                StringVector.of("NAME", IntStream.range(0, rows).mapToObj(i -> "name" + i % 3).toArray(String[]::new)));
+        List<Object> ids = df.getUniqueValues("ID", 0);
+        assertEquals(1000, ids.size());
+        assertEquals(0, ids.get(0));
+        assertEquals(999, ids.get(1));
+        assertEquals(Arrays.asList(0, 999, 998), df.getUniqueValues("ID", 3));
+        assertEquals(Arrays.asList(0.0, 0.5, 1.0, 1.5, 2.0, 2.5, 3.0), df.getUniqueValues("VAL", 0));
+        assertEquals(Arrays.asList("name0", "name1", "name2"), df.getUniqueValues("NAME", 0));
+    }
+
     /**
      * Tests the {@link DataFrame#asType(Class)} method.
      */
@@ -461,6 +595,255 @@ public class DataFrameTest {
         assertThrows(Exception.class, ()->dataFrame.save("/"));
     }
 
+    /**
+     * Tests the {@link DataFrame#of(File, char, java.nio.charset.Charset)} method with quoted values, null values,
+     * type inference, columns promoted after the inference sample and a file large enough to be parsed in several
+     * chunks.
+     */
+    @Test
+    void csvReaderTest() throws Exception {
+        File file = new File("./target/" + UUID.randomUUID().toString().replaceAll("-", "_") + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("id;value;name;flag;big;code;ratio\r\n");
+            writer.write("1;1.5;\"quoted; \"\"value\"\"\";true;1;0001;1\r\n");
+            writer.write("2;;\"multi\nline\";false;2;0002;2\r\n");
+            writer.write("\r\n");
+            writer.write("3;null;éèà;;3;0003;3\r\n");
+            for (int i = 4; i <= 200000; i++) {
+                writer.write(i + ";" + (i / 4.0) + ";name" + (i % 10) + ";" + (i % 2 == 0) + ";" +
+                        (i == 150000 ? "12345678901" : String.valueOf(i)) + ";" +
+                        (i == 180000 ? "X" : String.format("%04d", i)) + ";" +
+                        (i == 120000 ? "0.5" : String.valueOf(i)) + "\n");
+            }
+        }
+        DataFrame df = DataFrame.of(file, ';', StandardCharsets.UTF_8);
+        assertNotNull(df);
+        assertEquals(200000, df.nrows());
+        assertEquals(Arrays.asList("id", "value", "name", "flag", "big", "code", "ratio"), df.getColumnNames());
+        assertEquals("int", df.getColumnType("id"));
+        assertTrue(df.column("id") instanceof IntVector);
+        assertEquals("double", df.getColumnType("value"));
+        assertEquals("String", df.getColumnType("name"));
+        assertEquals("boolean", df.getColumnType("flag"));
+        assertEquals("long", df.getColumnType("big"));
+        assertEquals("String", df.getColumnType("code"));
+        assertEquals("double", df.getColumnType("ratio"));
+        assertEquals("quoted; \"value\"", df.get(0, 2));
+        assertEquals("multi\nline", df.get(1, 2));
+        assertEquals("éèà", df.get(2, 2));
+        assertEquals(1.5, df.get(0, 1));
+        assertNull(df.get(1, 1));
+        assertNull(df.get(2, 1));
+        assertNull(df.get(2, 3));
+        assertEquals(true, df.get(0, 3));
+        for (int i = 3; i < 200000; i++) {
+            assertEquals(i + 1, df.getInt(i, 0));
+        }
+        assertEquals(50000.0, df.get(199999, 1));
+        assertEquals(12345678901L, df.get(149999, 4));
+        assertEquals("0001", df.get(0, 5));
+        assertEquals("X", df.get(179999, 5));
+        assertEquals("199999", df.get(199998, 5));
+        assertEquals(0.5, df.get(119999, 6));
+        assertEquals(200000.0, df.get(199999, 6));
+
+        //Force the parsing in several chunks
+        DataFrame chunked = DataFrame.of(new CsvReader(';', StandardCharsets.UTF_8, 4).read(file));
+        assertEquals(200000, chunked.nrows());
+        assertEquals(df.getColumnNamesTypes(), chunked.getColumnNamesTypes());
+        assertEquals("0004", chunked.get(3, 5));
+        assertEquals("X", chunked.get(179999, 5));
+        assertEquals(4.0, chunked.get(3, 6));
+        for (int i = 0; i < 200000; i += 997) {
+            assertEquals(df.get(i).toString(), chunked.get(i).toString());
+        }
+        assertEquals(df.get(199999).toString(), chunked.get(199999).toString());
+
+        assertThrows(IllegalArgumentException.class, () -> DataFrame.of(file, '"', StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> DataFrame.of(file, ',', StandardCharsets.UTF_16));
+    }
+
+    /**
+     * Tests the {@link DataFrame#toArrow(OutputStream, boolean)}, {@link DataFrame#ofArrow(InputStream)} and
+     * {@link DataFrame#ofParquet(File, String...)} methods.
+     */
+    @Test
+    void arrowTest() throws Exception {
+        for (String extension : new String[]{"arrow", "arrows", "parquet"}) {
+            String path = "./target/" + UUID.randomUUID().toString().replaceAll("-", "_") + "." + extension;
+            assertEquals(path, dataFrame.save(path, true));
+            DataFrame read = DataFrame.of(new File(path));
+            assertNotNull(read);
+            assertFalse(read.isSpatial());
+            assertEquals(dataFrame.getColumnNames(), read.getColumnNames());
+            assertEquals(dataFrame.nrows(), read.nrows());
+            for (int i = 0; i < dataFrame.ncols(); i++) {
+                for (int row = 0; row < dataFrame.nrows(); row++) {
+                    assertEquals(dataFrame.get(row, i), read.get(row, i), dataFrame.names()[i] + " row " + row);
+                }
+            }
+            assertEquals(3, read.filter("COL3 = true").nrows());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataFrame.of(IntVector.of("ID", IntStream.range(0, 100_000).toArray())).toArrow(out, false);
+        DataFrame large = DataFrame.ofArrow(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(DataTypes.IntegerType, large.schema().field(0).type);
+        assertEquals(99_999, large.getInt(99_999, 0));
+
+        String path = "./target/" + UUID.randomUUID().toString().replaceAll("-", "_") + ".parquet";
+        dataFrame.save(path, true);
+        DataFrame projected = DataFrame.ofParquet(new File(path), "COL3", "COL1");
+        assertArrayEquals(new String[]{"COL3", "COL1"}, projected.names());
+        assertEquals(dataFrame.get(4, 0), projected.get(4, 1));
+        assertThrows(IOException.class, () -> DataFrame.ofParquet(new File(path), "UNKNOWN"));
+    }
+
+    /**
+     * Tests the {@link DataFrame#save(IJdbcDataSource, String, boolean, int, int)} method.
+     */
+    @Test
+    void saveDataSourceTest() throws Exception {
+        assertEquals("TOTO_SAVED", dataFrame.save(h2gis, "toto_saved", true, 2, 2));
+        assertEquals(5, h2gis.getRowCount("TOTO_SAVED"));
+        DataFrame saved = DataFrame.of(h2gis.getTable("(SELECT * FROM TOTO_SAVED ORDER BY COL1)"));
+        assertNotNull(saved);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 12; j++) {
+                assertEquals(dataFrame.get(i, j), saved.get(i, j));
+            }
+        }
+        assertNull(saved.get(2, 12));
+        assertEquals(0, new BigDecimal(3).compareTo((BigDecimal) saved.get(3, 12)));
+
+        int count = 2500;
+        DataFrame df = DataFrame.of(IntVector.of("ID", IntStream.range(0, count).toArray()),
+                DoubleVector.of("VAL", IntStream.range(0, count).mapToDouble(i -> i / 2.0).toArray()));
+        //The writers get their own connection from the DataSource
+        H2GIS mem = H2GIS.mem(UUID.randomUUID().toString().replaceAll("-", "_"));
+        assertEquals("DF_SAVED", df.save(mem, "df_saved", true, 100, 3));
+        assertEquals(count, mem.getRowCount("DF_SAVED"));
+        assertEquals(count / 2.0 * (count - 1) / 2.0,
+                ((Number) mem.firstRow("SELECT SUM(VAL) AS S FROM DF_SAVED").get("S")).doubleValue());
+        assertEquals("DF_SAVED", df.save(h2gis, "df_saved", true, 100, 3));
+        assertEquals(count, h2gis.getRowCount("DF_SAVED"));
+        assertEquals("DF_SAVED", df.save(h2gis, "df_saved", true));
+        assertEquals(count, h2gis.getRowCount("DF_SAVED"));
+
+        //An invalid timestamp makes the last writer fail after the other ones committed their rows
+        Object[] dates = IntStream.range(0, count).mapToObj(i -> LocalDateTime.of(2000, 1, 1, 0, 0).plusHours(i))
+                .toArray();
+        dates[count - 1] = "not a timestamp";
+        DataFrame invalid = DataFrame.of(IntVector.of("ID", IntStream.range(0, count).toArray()),
+                Vector.of(new StructField("DATE", DataTypes.DateTimeType), dates));
+        assertThrows(SQLException.class, () -> invalid.save(mem, "invalid_saved", true, 100, 3));
+        assertFalse(mem.hasTable("INVALID_SAVED"));
+        assertThrows(SQLException.class, () -> invalid.save(mem, "invalid_saved", true, 100, 1));
+        assertFalse(mem.hasTable("INVALID_SAVED"));
+    }
+
+    /**
+     * Tests the {@link DataFrame#of(IJdbcTable, File)}, {@link DataFrame#open(File)}, {@link DataFrame#store(File)}
+     * and {@link DataFrame#close()} methods.
+     */
+    @Test
+    void columnStoreTest() throws Exception {
+        File directory = new File("./target/" + UUID.randomUUID().toString().replaceAll("-", "_"));
+        DataFrame mapped = DataFrame.of(h2gis.getTable("toto"), directory);
+        assertNotNull(mapped);
+        assertEquals(dataFrame.getColumnNames(), mapped.getColumnNames());
+        assertEquals(dataFrame.nrows(), mapped.nrows());
+        for (int i = 0; i < dataFrame.ncols(); i++) {
+            assertEquals(dataFrame.schema().field(i).type.isPrimitive(), mapped.schema().field(i).type.isPrimitive());
+            for (int row = 0; row < dataFrame.nrows(); row++) {
+                assertEquals(dataFrame.get(row, i), mapped.get(row, i), dataFrame.names()[i] + " row " + row);
+            }
+        }
+        assertTrue(new File(directory, ColumnStore.PROPERTIES).isFile());
+        assertThrows(SQLException.class, () -> DataFrame.of(h2gis.getTable("toto"), directory));
+
+        DataFrame reopened = DataFrame.open(directory);
+        reopened.next();
+        assertEquals("val0", reopened.getString("COL2"));
+        assertEquals(0.5f, reopened.getFloat("COL8"));
+        assertEquals(2, reopened.filter("COL1 >= 2 AND COL2 IS NOT NULL").nrows());
+        assertEquals(3, reopened.filter("COL3 = true").nrows());
+        DataFrame grouped = reopened.groupBy("COL3").agg(Aggregation.sum("COL9"));
+        assertEquals(6d, grouped.getDouble(0, 1));
+        assertEquals(4d, grouped.getDouble(1, 1));
+
+        File storeDirectory = new File("./target/" + UUID.randomUUID().toString().replaceAll("-", "_"));
+        DataFrame stored = DataFrame.of(DoubleVector.of("X", new double[]{1.5, 2.5}),
+                IntVector.of("Y", new int[]{1, 2}), StringVector.of("Z", "a", null)).store(storeDirectory);
+        assertEquals(DataTypes.DoubleType, stored.schema().field(0).type);
+        assertEquals(2.5, stored.getDouble(1, 0));
+        assertEquals(2, stored.getInt(1, 1));
+        assertNull(stored.get(1, 2));
+        assertEquals(2, stored.of(0, 1).nrows());
+        assertEquals("TOTO_MAPPED", reopened.save(h2gis, "toto_mapped", true));
+        assertEquals(5, h2gis.getRowCount("TOTO_MAPPED"));
+        assertThrows(IOException.class, () -> DataFrame.open(new File("./target")));
+
+        File typedDirectory = new File("./target/" + UUID.randomUUID().toString().replaceAll("-", "_"));
+        DataFrame typed = DataFrame.of(DoubleVector.of("D", new double[]{1.5, 2.5}),
+                IntVector.of("I", new int[]{1, 2}), ShortVector.of("S", new short[]{3, 4}),
+                ByteVector.of("B", new byte[]{5, 6}),
+                BooleanVector.of("BOOL", new boolean[]{true, false}),
+                Vector.of("N", Double.class, new Double[]{null, 7d}),
+                Vector.of("NB", Boolean.class, new Boolean[]{true, null})).store(typedDirectory);
+        assertEquals(DataTypes.ShortType, typed.schema().field("S").type);
+        assertEquals(DataTypes.ByteType, typed.schema().field("B").type);
+        assertEquals(DataTypes.BooleanType, typed.schema().field("BOOL").type);
+        assertArrayEquals(new double[]{1.5, 2.5}, typed.doubleVector(0).array());
+        assertArrayEquals(new int[]{1, 2}, typed.intVector(1).array());
+        assertArrayEquals(new short[]{3, 4}, typed.shortVector(2).array());
+        assertArrayEquals(new byte[]{5, 6}, typed.byteVector(3).array());
+        assertArrayEquals(new boolean[]{true, false}, typed.booleanVector(4).array());
+        assertEquals(2.5, typed.doubleVector("D").getDouble(1));
+        assertEquals(1d, typed.getDouble(0, 4));
+        assertEquals(0L, typed.column(4).getLong(1));
+        assertTrue(Double.isNaN(typed.column(5).getDouble(0)));
+        assertThrows(NullPointerException.class, () -> typed.column(5).getLong(0));
+        assertEquals(1d, typed.column(6).getDouble(0));
+        assertTrue(Double.isNaN(typed.column(6).getDouble(1)));
+        assertEquals("b", DataFrame.of(StringVector.of("T", "a", "b")).store(
+                new File("./target/" + UUID.randomUUID().toString().replaceAll("-", "_"))).stringVector(0).get(1));
+        typed.close();
+        assertThrows(IllegalStateException.class, () -> typed.getDouble(0, 0));
+    }
+
+    /**
+     * Tests that {@link DataFrame#filter(String, List, boolean)} reads the rows of the mapped columns without copying
+     * them into the heap.
+     */
+    @Test
+    void mappedFilterTest() throws Exception {
+        int size = 1 << 20;
+        File directory = new File("./target/" + UUID.randomUUID().toString().replaceAll("-", "_"));
+        DataFrame mapped = DataFrame.of(IntVector.of("I", IntStream.range(0, size).toArray()),
+                DoubleVector.of("D", IntStream.range(0, size).mapToDouble(i -> i / 2d).toArray()),
+                BooleanVector.of("B", new boolean[size])).store(directory);
+        assertEquals(1, filterCount(mapped, "I >= ?", size - 1));
+        assertEquals(1, filterCount(mapped, "D > ?", (size - 2) / 2d));
+        assertEquals(0, filterCount(mapped, "B = ?", true));
+        mapped.close();
+    }
+
+    /**
+     * Filter the {@link DataFrame} and check that less memory than a copy of an int column was allocated.
+     *
+     * @return The count of filtered rows.
+     */
+    private static int filterCount(DataFrame dataFrame, String filter, Object param) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocated = bean.getThreadAllocatedBytes(threadId);
+        int count = dataFrame.filter(filter, List.of(param), false).nrows();
+        allocated = bean.getThreadAllocatedBytes(threadId) - allocated;
+        assertTrue(allocated < (long) dataFrame.nrows() * Integer.BYTES, filter + " allocated " + allocated);
+        return count;
+    }
+
     /**
      * Tests the wrapping of a spatial table into a {@link DataFrame}.
      *
@@ -575,11 +958,236 @@ public class DataFrameTest {
     }
 
     /**
-     * Tests {@link DataFrame#filter(String)} method.
+     * Tests {@link DataFrame#groupBy(String...)}, {@link GroupBy#count()} and {@link GroupBy#agg(Aggregation...)}
+     * methods.
+     */
+    @Test
+    void groupByTest() {
+        int rowCount = 200000;
+        int[] keys = new int[rowCount];
+        String[] types = new String[rowCount];
+        double[] values = new double[rowCount];
+        Integer[] boxed = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            keys[i] = i % 7;
+            types[i] = i % 2 == 0 ? "even" : "odd";
+            values[i] = i;
+            boxed[i] = i % 3 == 0 ? null : i % 5;
+        }
+        smile.data.DataFrame data = smile.data.DataFrame.of(IntVector.of("KEY", keys), StringVector.of("TYPE", types),
+                DoubleVector.of("VALUE", values), Vector.of("BOXED", Integer.class, boxed));
+
+        Aggregation[] aggregations = new Aggregation[]{Aggregation.count(), Aggregation.count("BOXED"),
+                Aggregation.sum("VALUE"), Aggregation.mean("VALUE").as("AVG"), Aggregation.min("VALUE"),
+                Aggregation.max("BOXED"), Aggregation.distinct("BOXED"), Aggregation.distinct("KEY")};
+        DataFrame sequential = new GroupBy(data, new String[]{"KEY", "TYPE"}, 1).agg(aggregations);
+        DataFrame parallel = new GroupBy(data, new String[]{"KEY", "TYPE"}, 4).agg(aggregations);
+        assertEquals(Arrays.asList("KEY", "TYPE", "COUNT", "COUNT_BOXED", "SUM_VALUE", "AVG", "MIN_VALUE",
+                "MAX_BOXED", "DISTINCT_BOXED", "DISTINCT_KEY"), sequential.getColumnNames());
+        assertEquals(14, sequential.nrows());
+        assertEquals(14, parallel.nrows());
+        for (int row = 0; row < 14; row++) {
+            int key = row % 7;
+            String type = row % 2 == 0 ? "even" : "odd";
+            long count = 0;
+            long countBoxed = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = row; i < rowCount; i += 14) {
+                count++;
+                sum += i;
+                min = Math.min(min, i);
+                if (boxed[i] != null) {
+                    countBoxed++;
+                    max = Math.max(max, boxed[i]);
+                }
+            }
+            for (DataFrame result : new DataFrame[]{sequential, parallel}) {
+                assertEquals(key, result.getInt(row, 0));
+                assertEquals(type, result.getString(row, 1));
+                assertEquals(count, result.getLong(row, 2));
+                assertEquals(countBoxed, result.getLong(row, 3));
+                assertEquals(sum, result.getDouble(row, 4));
+                assertEquals(sum / count, result.getDouble(row, 5), 1e-9);
+                assertEquals(min, result.getDouble(row, 6));
+                assertEquals(max, result.getDouble(row, 7));
+                assertEquals(5, result.getLong(row, 8));
+                assertEquals(1, result.getLong(row, 9));
+            }
+        }
+
+        DataFrame count = dataFrame.groupBy("COL3").count();
+        assertEquals(2, count.nrows());
+        assertEquals(dataFrame.schema().field("COL3").type, count.schema().field("COL3").type);
+        assertEquals(5, count.getLong(0, 1) + count.getLong(1, 1));
+        DataFrame empty = dataFrame.groupBy("COL2").agg(Aggregation.mean("COL13"));
+        assertEquals(5, empty.nrows());
+        assertTrue(Double.isNaN(empty.getDouble(2, 1)));
+        assertEquals(4, empty.getDouble(4, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.groupBy());
+        DataFrame caseInsensitive = dataFrame.groupBy("col3").agg(Aggregation.sum("col9"));
+        assertEquals("COL3", caseInsensitive.names()[0]);
+        assertEquals(10d, caseInsensitive.getDouble(0, 1) + caseInsensitive.getDouble(1, 1));
+        assertEquals(2, caseInsensitive.nrows());
+
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.groupBy("NOT_A_COLUMN"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.groupBy("COL1").agg(Aggregation.sum("COL2")));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.groupBy("COL1").agg(Aggregation.sum("NONE")));
+    }
+
+    /**
+     * Tests {@link DataFrame#join(DataFrame, String, JoinType)} and
+     * {@link DataFrame#join(DataFrame, String[], JoinType)} methods.
+     */
+    @Test
+    void joinTest() {
+        int rowCount = 200000;
+        int[] ids = new int[rowCount];
+        double[] values = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            ids[i] = i % 10;
+            values[i] = i;
+        }
+        smile.data.DataFrame left = smile.data.DataFrame.of(IntVector.of("ID", ids), DoubleVector.of("VALUE", values));
+        smile.data.DataFrame right = smile.data.DataFrame.of(LongVector.of("ID", new long[]{0, 2, 4, 6, 8, 2}),
+                StringVector.of("NAME", "zero", "two", "four", "six", "eight", "deux"),
+                DoubleVector.of("VALUE", new double[]{0, 2, 4, 6, 8, 2}));
+
+        for (int partitions : new int[]{1, 4}) {
+            DataFrame inner = DataFrame.of(new HashJoin(left, right, new String[]{"ID"}, JoinType.INNER, partitions).join());
+            assertEquals(Arrays.asList("ID", "VALUE", "NAME", "VALUE_RIGHT"), inner.getColumnNames());
+            assertEquals(rowCount / 10 * 6, inner.nrows());
+            assertEquals(0, inner.getInt(0, 0));
+            assertEquals("zero", inner.getString(0, 2));
+            assertEquals(2, inner.getInt(1, 0));
+            assertEquals("two", inner.getString(1, 2));
+            assertEquals("deux", inner.getString(2, 2));
+            assertEquals(2d, inner.getDouble(2, 3));
+            assertEquals(rowCount - 2d, inner.getDouble(inner.nrows() - 1, 1));
+
+            DataFrame leftJoin = DataFrame.of(new HashJoin(left, right, new String[]{"ID"}, JoinType.LEFT, partitions).join());
+            assertEquals(rowCount / 10 * 11, leftJoin.nrows());
+            assertEquals(1, leftJoin.getInt(1, 0));
+            assertNull(leftJoin.get(1, 2));
+            assertNull(leftJoin.get(1, 3));
+            assertEquals("eight", leftJoin.getString(leftJoin.nrows() - 2, 2));
+        }
+
+        DataFrame reference = DataFrame.of(smile.data.DataFrame.of(StringVector.of("COL2", "val1", "val4", "val9"),
+                BooleanVector.of("COL3", new boolean[]{false, true, true}), IntVector.of("RANK", new int[]{1, 4, 9})));
+        DataFrame joined = dataFrame.join(reference, new String[]{"COL2", "COL3"}, JoinType.INNER);
+        assertEquals(2, joined.nrows());
+        assertEquals(1, joined.getInt(0, "RANK"));
+        assertEquals(4, joined.getInt(1, "RANK"));
+        joined = dataFrame.join(reference, "COL2", JoinType.LEFT);
+        assertEquals(5, joined.nrows());
+        assertNull(joined.get(2, joined.columnIndex("RANK")));
+        assertEquals(4, joined.get(4, joined.columnIndex("RANK")));
+        assertFalse(joined.getColumnNames().contains("COL2_RIGHT"));
+        assertTrue(joined.getColumnNames().contains("COL3_RIGHT"));
+
+        smile.data.DataFrame decimals = smile.data.DataFrame.of(Vector.of("KEY", BigDecimal.class,
+                new BigDecimal[]{new BigDecimal("1.10"), new BigDecimal("1.1000000000000000001"), new BigDecimal("2.0"),
+                        null}));
+        smile.data.DataFrame decimalReference = smile.data.DataFrame.of(Vector.of("KEY",
+                BigDecimal.class, new BigDecimal[]{new BigDecimal("1.1"), new BigDecimal("2"), null}),
+                IntVector.of("RANK", new int[]{1, 2, 3}));
+        DataFrame decimalJoin = DataFrame.of(new HashJoin(decimals, decimalReference, new String[]{"KEY"},
+                JoinType.LEFT, 1).join());
+        assertEquals(4, decimalJoin.nrows());
+        assertEquals(1, decimalJoin.get(0, 1));
+        assertNull(decimalJoin.get(1, 1));
+        assertEquals(2, decimalJoin.get(2, 1));
+        assertNull(decimalJoin.get(3, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.join(reference, "COL1", JoinType.INNER));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.join(reference, new String[0], JoinType.INNER));
+    }
+
+    /**
+     * Tests {@link DataFrame#intColumn(String)}, {@link DataFrame#longColumn(String)},
+     * {@link DataFrame#doubleColumn(String)}, {@link DataFrame#booleanColumn(String)},
+     * {@link DataFrame#stringColumn(String)} and {@link DataFrame#forEachRow(java.util.function.IntConsumer)} methods.
+     */
+    @Test
+    void columnAccessorTest() {
+        ColumnAccessor.OfInt col1 = dataFrame.intColumn("COL1");
+        ColumnAccessor.OfString col2 = dataFrame.stringColumn("COL2");
+        ColumnAccessor.OfBoolean col3 = dataFrame.booleanColumn("COL3");
+        ColumnAccessor.OfLong col7 = dataFrame.longColumn("COL7");
+        ColumnAccessor.OfDouble col8 = dataFrame.doubleColumn("COL8");
+        ColumnAccessor.OfDouble col13 = dataFrame.doubleColumn("COL13");
+        assertEquals("COL8", col8.getName());
+
+        dataFrame.first();
+        dataFrame.next();
+        assertEquals(1, col1.get());
+        assertEquals("val1", col2.get());
+        assertFalse(col3.get());
+        assertEquals(1L, col7.get());
+        assertEquals(1.5, col8.get());
+        assertEquals(1, col13.get());
+        assertFalse(col13.isNull());
+        assertTrue(col13.isNull(2));
+        assertTrue(Double.isNaN(col13.get(2)));
+        assertNull(col2.get(2));
+
+        double[] sum = new double[1];
+        List<Integer> rows = new ArrayList<>();
+        dataFrame.forEachRow(row -> {
+            rows.add(col1.get());
+            sum[0] += col8.get();
+        });
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), rows);
+        assertEquals(12.5, sum[0]);
+        assertEquals(1, dataFrame.getRow());
+
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.doubleColumn("COL2"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.booleanColumn("COL1"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.intColumn("COL8"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.longColumn("COL8"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.longColumn("COL13"));
+    }
+
+    /**
+     * Tests {@link DataFrame#filter(String)}, {@link DataFrame#filter(String, List)} and
+     * {@link DataFrame#filter(String, List, boolean)} methods.
      */
     @Test
     public void filterTest(){
-        assertThrows(UnsupportedOperationException.class, () -> dataFrame.filter("tata"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.filter("tata"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.filter("COL1 = "));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.filter("UNKNOWN = 1"));
+        assertThrows(IllegalArgumentException.class, () -> dataFrame.filter("COL1 = ?"));
+
+        assertEquals(2, dataFrame.filter("COL1 >= 3").nrows());
+        assertEquals(3, dataFrame.filter("where col1 < 3").getInt(2, 0) + 1);
+        assertEquals(1, dataFrame.filter("COL2 = 'val1'").nrows());
+        assertEquals(4, dataFrame.filter("COL2 IS NOT NULL").nrows());
+        assertEquals(2, dataFrame.filter("COL2 IS NULL").getInt(0, 0));
+        //A condition on a null value is never true, even negated
+        assertEquals(3, dataFrame.filter("NOT COL2 = 'val1'").nrows());
+        assertEquals(3, dataFrame.filter("COL2 NOT IN ('val0')").nrows());
+        assertEquals(3, dataFrame.filter("COL8 BETWEEN 1 AND 3.5").nrows());
+        assertEquals(2, dataFrame.filter("COL8 NOT BETWEEN 1 AND 3.5").nrows());
+        assertEquals(3, dataFrame.filter("COL1 IN (0, 2, 4)").nrows());
+        assertEquals(3, dataFrame.filter("COL3 = true").nrows());
+        assertEquals(2, dataFrame.filter("COL3 = true AND (COL1 = 0 OR COL9 >= 4)").nrows());
+        assertEquals(4, dataFrame.filter("COL11 = '2020-04-16'").nrows());
+        assertEquals(3, dataFrame.filter("COL13 > 0.5").nrows());
+        assertEquals(1, dataFrame.filter("COL1 > ? AND COL2 <> ?", Arrays.asList(1, "val3")).nrows());
+        assertEquals(0, dataFrame.filter("COL1 > 10").nrows());
+        assertEquals(13, dataFrame.filter("COL1 > 10").ncols());
+
+        int count = 200000;
+        DataFrame df = DataFrame.of(IntVector.of("ID", IntStream.range(0, count).toArray()),
+                DoubleVector.of("VAL", IntStream.range(0, count).mapToDouble(i -> i % 100).toArray()));
+        DataFrame parallel = df.filter("ID >= 1000 AND VAL < 10", null, true);
+        DataFrame sequential = df.filter("ID >= 1000 AND VAL < 10", null, false);
+        assertEquals((count - 1000) / 10, parallel.nrows());
+        assertArrayEquals(sequential.intVector(0).array(), parallel.intVector(0).array());
     }
 
     @Test
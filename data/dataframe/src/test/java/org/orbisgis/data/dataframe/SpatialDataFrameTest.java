@@ -0,0 +1,210 @@
+/*
+ * Bundle DataFrame is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * DataFrame is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * DataFrame is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * DataFrame is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * DataFrame. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.dataframe;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.orbisgis.data.H2GIS;
+import org.orbisgis.data.api.dataset.ISpatialTable;
+import smile.data.Tuple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.orbisgis.data.dataframe.TestUtils.RANDOM_DS;
+
+/**
+ * Test class for {@link SpatialDataFrame}.
+ */
+public class SpatialDataFrameTest {
+
+    @Test
+    void spatialDataFrameTest() throws Exception {
+        H2GIS h2GIS = RANDOM_DS();
+        h2GIS.execute("DROP TABLE IF EXISTS grid;" +
+                "CREATE TABLE grid (id INT, name VARCHAR, the_geom GEOMETRY(POLYGON, 2154));" +
+                "INSERT INTO grid SELECT X, 'cell' || X, ST_SETSRID(ST_EXPAND(ST_MAKEPOINT(MOD(X, 10) * 10 + 5, " +
+                "(X / 10) * 10 + 5), 5, 5), 2154) FROM SYSTEM_RANGE(0, 99);" +
+                "INSERT INTO grid VALUES (100, 'empty', null);");
+        SpatialDataFrame df = SpatialDataFrame.of(h2GIS.getSpatialTable("GRID"));
+        assertNotNull(df);
+        assertTrue(df.isSpatial());
+        assertEquals(101, df.nrows());
+        assertEquals(2154, df.getSrid());
+        assertEquals(Arrays.asList("THE_GEOM"), df.getGeometricColumns());
+        assertEquals("GEOMETRY", df.getColumnType("THE_GEOM"));
+        assertEquals("POLYGON", df.getGeometryTypes().get("THE_GEOM"));
+        assertEquals("POLYGON ((0 0, 0 100, 100 100, 100 0, 0 0))", df.getExtent().toText());
+        assertEquals(2154, df.getExtent().getSRID());
+        assertEquals("POLYGON ((0 0, 0 10, 100 10, 100 0, 0 0))", df.getExtent(new String[]{"THE_GEOM"}, "ID < 10").toText());
+
+        df.first();
+        Geometry geometry = df.getGeometry();
+        assertEquals("POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0))", geometry.toText());
+        assertEquals(2154, geometry.getSRID());
+        assertEquals(geometry, df.getObject("THE_GEOM"));
+        assertEquals(geometry.toText(), df.getString("THE_GEOM"));
+        assertEquals("cell0", df.getString("NAME"));
+        assertEquals(geometry, df.getObject("the_geom"));
+        assertEquals(geometry.toText(), df.getString("the_geom"));
+        assertEquals("cell0", df.getString("name"));
+        assertEquals(0, df.getInt("id"));
+        assertNull(df.getRaster());
+        assertTrue(df.getRasterColumns().isEmpty());
+        df.last();
+        assertNull(df.getGeometry("THE_GEOM"));
+
+        //The ISpatialTable view iterates the rows and shares the cursor of the frame
+        ISpatialTable<Tuple> table = df.getSpatialTable();
+        assertSame(table, table.asType(ISpatialTable.class));
+        assertInstanceOf(ISpatialTable.class, df.asType(ISpatialTable.class));
+        int count = 0;
+        for (Tuple row : table) {
+            assertEquals(count++, row.getInt("ID"));
+        }
+        assertEquals(101, count);
+        assertEquals(101, table.stream().count());
+        assertTrue(table.first());
+        assertEquals(geometry, table.getGeometry("the_geom"));
+        assertEquals(geometry, table.get("THE_GEOM"));
+        assertEquals("cell0", table.get(1));
+        assertEquals(df.getExtent(), table.getExtent());
+        assertEquals(4326, table.reproject(4326).getSrid());
+
+        WKTReader reader = new WKTReader();
+        assertArrayEquals(new int[]{0, 1, 10, 11}, df.intersects("THE_GEOM", reader.read("POINT(10 10)")));
+        assertArrayEquals(new int[]{55}, df.intersects("THE_GEOM", reader.read("POINT(55 55)")));
+        assertEquals(0, df.intersects("THE_GEOM", reader.read("POINT(500 500)")).length);
+        assertEquals(99, df.nearest("THE_GEOM", reader.read("POINT(200 200)")));
+        assertEquals(45, df.nearest("THE_GEOM", reader.read("POINT(55 42)")));
+
+        assertEquals(45, df.nearest("THE_GEOM", reader.read("POINT(55 42)")));
+        assertEquals("POLYGON ((0 0, 0 100, 100 100, 100 0, 0 0))", df.getExtent().toText());
+
+        SpatialDataFrame reprojected = df.reproject(4326);
+        assertEquals(4326, reprojected.getSrid());
+        assertEquals(101, reprojected.nrows());
+        reprojected.first();
+        Geometry wgs84 = reprojected.getGeometry();
+        assertEquals(4326, wgs84.getSRID());
+        assertEquals(-1.36, wgs84.getEnvelopeInternal().getMinX(), 0.01);
+        assertEquals(-5.98, wgs84.getEnvelopeInternal().getMinY(), 0.01);
+        reprojected.last();
+        assertNull(reprojected.getGeometry());
+        SpatialDataFrame back = reprojected.reproject(2154);
+        back.first();
+        assertEquals(0, back.getGeometry().getEnvelopeInternal().getMinX(), 1e-3);
+        assertEquals(10, back.getGeometry().getEnvelopeInternal().getMaxY(), 1e-3);
+        SpatialDataFrame unknown = SpatialDataFrame.of(df.getInternalDataFrame(), 0, "THE_GEOM");
+        assertThrows(IllegalArgumentException.class, () -> unknown.reproject(4326));
+
+        SpatialDataFrame selection = df.intersects(reader.read("LINESTRING(5 5, 5 25)"));
+        assertEquals(3, selection.nrows());
+        assertEquals(2154, selection.getSrid());
+        selection.first();
+        assertEquals("POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0))", selection.getGeometry().toText());
+
+        DataFrame filtered = df.filter("NAME = 'cell42'");
+        assertTrue(filtered instanceof SpatialDataFrame);
+        filtered.first();
+        assertEquals("POLYGON ((20 40, 20 50, 30 50, 30 40, 20 40))",
+                ((SpatialDataFrame) filtered).getGeometry().toText());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        df.toArrow(out, true);
+        DataFrame arrow = DataFrame.ofArrow(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(arrow instanceof SpatialDataFrame);
+        SpatialDataFrame spatialArrow = (SpatialDataFrame) arrow;
+        assertEquals(2154, spatialArrow.getSrid());
+        assertEquals(Arrays.asList("THE_GEOM"), spatialArrow.getGeometricColumns());
+        assertEquals(101, spatialArrow.nrows());
+        spatialArrow.first();
+        assertEquals("POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0))", spatialArrow.getGeometry().toText());
+        assertEquals("cell0", spatialArrow.getString("NAME"));
+        spatialArrow.last();
+        assertNull(spatialArrow.getGeometry("THE_GEOM"));
+
+        File parquet = new File("./target/spatial_data_frame.parquet");
+        Files.deleteIfExists(parquet.toPath());
+        df.toParquet(new FileOutputStream(parquet));
+        DataFrame read = DataFrame.ofParquet(parquet);
+        assertTrue(read instanceof SpatialDataFrame);
+        SpatialDataFrame spatialParquet = (SpatialDataFrame) read;
+        assertEquals(2154, spatialParquet.getSrid());
+        assertEquals(101, spatialParquet.nrows());
+        spatialParquet.first();
+        assertEquals("POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0))", spatialParquet.getGeometry().toText());
+        spatialParquet.last();
+        assertNull(spatialParquet.getGeometry("THE_GEOM"));
+
+        assertThrows(IllegalArgumentException.class, () -> df.getGeometry("NAME"));
+        assertThrows(IllegalArgumentException.class, () -> SpatialDataFrame.of(df.getInternalDataFrame(), 0, "NAME"));
+    }
+
+    @Test
+    void simplifiedTest() throws Exception {
+        H2GIS h2GIS = RANDOM_DS();
+        h2GIS.execute("DROP TABLE IF EXISTS circles;" +
+                "CREATE TABLE circles (id INT, the_geom GEOMETRY(POLYGON, 2154));" +
+                "INSERT INTO circles SELECT X, ST_SETSRID(ST_BUFFER(ST_MAKEPOINT(X * 1000, 0), 100, 64), 2154) " +
+                "FROM SYSTEM_RANGE(1, 50);" +
+                "INSERT INTO circles VALUES (51, null);");
+        SpatialDataFrame df = SpatialDataFrame.of(h2GIS.getSpatialTable("CIRCLES"));
+        SpatialDataFrame simplified = df.simplified(5);
+        assertEquals(51, simplified.nrows());
+        assertEquals(2154, simplified.getSrid());
+        assertEquals(df.getGeometricColumns(), simplified.getGeometricColumns());
+        df.first();
+        simplified.first();
+        Geometry geometry = df.getGeometry();
+        Geometry simplifiedGeometry = simplified.getGeometry();
+        assertTrue(simplifiedGeometry.getNumPoints() < geometry.getNumPoints());
+        assertTrue(simplifiedGeometry.isValid());
+        assertEquals(geometry.getArea(), simplifiedGeometry.getArea(), geometry.getArea() * 0.05);
+        assertEquals(2154, simplifiedGeometry.getSRID());
+        assertEquals(1, simplified.getInt("ID"));
+        simplified.last();
+        assertNull(simplified.getGeometry("THE_GEOM"));
+        assertThrows(IllegalArgumentException.class, () -> df.simplified(-1));
+    }
+}
@@ -41,12 +41,18 @@ import org.junit.jupiter.api.Test;
 import org.orbisgis.commons.printer.Ascii;
 import org.orbisgis.commons.printer.Html;
 import org.orbisgis.data.H2GIS;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.IntVector;
+import smile.data.vector.Vector;
 
 import java.sql.SQLException;
 import java.sql.Time;
+import java.util.Random;
+import java.util.stream.IntStream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test class for {@link Summary}.
@@ -167,4 +173,60 @@ public class SummaryTest {
                 "</table>\n";
         assertEquals(html, summary.asType(Html.class).toString());
     }
+
+    /**
+     * Test the statistics computed by chunks by the {@link Summary.Builder}.
+     */
+    @Test
+    public void builderTest() {
+        int rows = 300_000;
+        Random random = new Random(42);
+        double[] values = new double[rows];
+        Integer[] boxed = new Integer[rows];
+        double sum = 0;
+        for (int i = 0; i < rows; i++) {
+            values[i] = random.nextGaussian() * 10 + 5;
+            sum += values[i];
+            boxed[i] = i % 3 == 0 ? null : i;
+        }
+        sum -= values[7];
+        values[7] = Double.NaN;
+        double mean = sum / (rows - 1);
+        double squares = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                squares += (value - mean) * (value - mean);
+            }
+        }
+        DataFrame df = DataFrame.of(DoubleVector.of("GAUSS", values),
+                Vector.of(new StructField("BOXED", DataTypes.IntegerObjectType), boxed),
+                IntVector.of("UNIFORM", IntStream.range(0, rows).toArray()));
+        Summary summary = Summary.builder(df).variance().quantiles(0.01, 0.5, 0.99).build();
+        assertArrayEquals(new String[]{"column", "count", "min", "avg", "max", "var", "std", "q0.01", "q0.5",
+                "q0.99"}, summary.names());
+        assertEquals(3, summary.nrows());
+
+        assertEquals("GAUSS", summary.getString(0, 0));
+        assertEquals(rows - 1, summary.getLong(0, 1));
+        assertEquals(mean, summary.getDouble(0, 3), 1e-9);
+        assertEquals(squares / (rows - 2), summary.getDouble(0, 5), 1e-6);
+        assertEquals(Math.sqrt(squares / (rows - 2)), summary.getDouble(0, 6), 1e-9);
+        assertEquals(5, summary.getDouble(0, 8), 0.2);
+
+        assertEquals(rows - rows / 3, summary.getLong(1, 1));
+        assertEquals(1, summary.getDouble(1, 2));
+        assertEquals(rows - 1, summary.getDouble(1, 4));
+
+        assertEquals(rows / 100.0, summary.getDouble(2, 7), rows * 0.001);
+        assertEquals(rows / 2.0, summary.getDouble(2, 8), rows * 0.005);
+        assertEquals(rows * 0.99, summary.getDouble(2, 9), rows * 0.001);
+
+        Summary sequential = Summary.builder(df).variance().parallel(false).build();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(summary.getLong(i, 1), sequential.getLong(i, 1));
+            assertEquals(summary.getDouble(i, 3), sequential.getDouble(i, 3), 1e-9);
+            assertEquals(summary.getDouble(i, 5), sequential.getDouble(i, 5), 1e-6);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Summary.builder(df).quantiles(1.5));
+    }
 }
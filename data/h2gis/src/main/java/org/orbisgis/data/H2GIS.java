@@ -198,6 +198,23 @@ public class H2GIS extends JdbcDataSource {
         }
     }
 
+    /**
+     * Return true if the given query columns contain a geometry one.
+     *
+     * @param metaData {@link ResultSetMetaData} of the query, may be null.
+     * @return True if the query columns contain a geometry one.
+     */
+    private static boolean hasGeometryColumn(ResultSetMetaData metaData) throws SQLException {
+        if (metaData != null) {
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (metaData.getColumnTypeName(i).toLowerCase().startsWith("geometry")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Open the {@link H2GIS} database with the given properties and return the corresponding {@link H2GIS} object.
      *
@@ -278,17 +295,15 @@ public class H2GIS extends JdbcDataSource {
                         return new H2gisTable(location, query, statement, params, this);
                     }
                 } else {
-                    ResultSet rs;
+                    //The columns are read from the prepared query itself, without executing it inside a subquery
+                    boolean hasGeom;
                     if (statement instanceof PreparedStatement) {
-                        PreparedStatement st = con.prepareStatement("(SELECT * FROM " + query + "AS foo WHERE 1=0)");
-                        for (int i = 0; i < params.size(); i++) {
-                            st.setObject(i + 1, params.get(i));
-                        }
-                        rs = st.executeQuery();
+                        hasGeom = hasGeometryColumn(((PreparedStatement) statement).getMetaData());
                     } else {
-                        rs = statement.executeQuery("(SELECT * FROM " + query + "AS foo WHERE 1=0)");
+                        try (PreparedStatement st = con.prepareStatement(query)) {
+                            hasGeom = hasGeometryColumn(st.getMetaData());
+                        }
                     }
-                    boolean hasGeom = GeometryTableUtilities.hasGeometryColumn(rs);
                     if (!getConnection().getAutoCommit()) {
                         super.commit();
                     }
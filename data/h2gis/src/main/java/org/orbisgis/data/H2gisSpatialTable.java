@@ -145,4 +145,18 @@ public class H2gisSpatialTable extends JdbcSpatialTable {
             throw new SQLException("Cannot reproject the table '" + getLocation() + "' in the SRID '" + srid + "'.\n", e);
         }
     }
+
+    @Override
+    public ISpatialTable simplified(double tolerance) throws Exception {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("The tolerance of the simplification cannot be negative.");
+        }
+        try {
+            String query = getGeometryFunctionQuery("ST_SimplifyPreserveTopology", tolerance);
+            return new H2gisSpatialTable(null, query, getStatement(), getParams(), getJdbcDataSource());
+        } catch (SQLException e) {
+            throw new SQLException("Cannot simplify the table '" + getLocation() + "' with the tolerance '" +
+                    tolerance + "'.\n", e);
+        }
+    }
 }
@@ -910,4 +910,37 @@ class H2GISDataSourceTest {
         h2gis.dropTable("","");
         assertTrue(h2gis.getColumnNames("geodata").isEmpty());
     }
+
+    /**
+     * Test the copy of a table from H2GIS to PostGIS and back, with a mixed case geometry column.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "test.postgis", matches = "true")
+    void testCopyBetweenH2GISAndPostGIS() throws Exception {
+        h2gis.execute("DROP TABLE IF EXISTS copy_h2gis, copy_back; " +
+                "CREATE TABLE copy_h2gis (id int, name varchar, \"GeomColumn\" geometry(geometry, 4326));" +
+                "INSERT INTO copy_h2gis VALUES (1, 'a', 'SRID=4326;POINT(1 2)'), " +
+                "(2, null, 'SRID=4326;LINESTRING Z(0 0 1, 1 1 2)'), (3, 'c', null)");
+        postgis.execute("DROP TABLE IF EXISTS copy_postgis");
+
+        assertEquals("copy_postgis", postgis.load(h2gis, "copy_h2gis", "copy_postgis", true, 2));
+        assertEquals(3, postgis.getRowCount("copy_postgis"));
+        assertEquals(4326, ((Number) postgis.firstRow("SELECT Find_SRID('public', 'copy_postgis', " +
+                "'geomcolumn') AS srid").get("srid")).intValue());
+        assertEquals(2.0, ((Number) postgis.firstRow("SELECT ST_Z(ST_PointN(geomcolumn, 2)) AS z " +
+                "FROM copy_postgis WHERE id = 2").get("z")).doubleValue());
+
+        assertEquals("COPY_BACK", h2gis.load(postgis, "copy_postgis", "copy_back", true, 2));
+        assertEquals(3, h2gis.getRowCount("copy_back"));
+        assertEquals(4326, h2gis.getSrid("copy_back"));
+        assertEquals(0L, h2gis.firstRow("SELECT COUNT(*) AS C FROM copy_h2gis A, copy_back B WHERE A.ID = B.ID " +
+                "AND NOT ST_Equals(A.\"GeomColumn\", B.GEOMCOLUMN)").get("C"));
+
+        //A failed copy does not leave the target table
+        assertThrows(Exception.class, () -> postgis.load(h2gis, "(SELECT id, 1 / (id - 3) AS v FROM copy_h2gis " +
+                "ORDER BY id)", "copy_failed", true, 1));
+        assertFalse(postgis.hasTable("copy_failed"));
+        postgis.dropTable("copy_postgis");
+        h2gis.dropTable("copy_h2gis", "copy_back");
+    }
 }
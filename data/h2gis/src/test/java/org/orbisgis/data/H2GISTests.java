@@ -45,6 +45,7 @@ import org.locationtech.jts.geom.Geometry;
 import org.orbisgis.data.api.dataset.IJdbcTable;
 import org.orbisgis.data.api.dataset.ISpatialTable;
 import org.orbisgis.data.api.dataset.ITable;
+import org.orbisgis.data.api.datasource.IJdbcDataSource;
 
 import java.io.File;
 import java.sql.ResultSet;
@@ -429,4 +430,101 @@ public class H2GISTests {
         assertEquals(1, sp.getRowCount());
         assertTrue(((Geometry)sp.firstRow().get("THE_GEOM")).getArea()>0);
     }
+
+    @Test
+    void testCreateIndexes() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(H2GISDBFactory.JDBC_DATABASE_NAME, "./target/indexesH2GIS");
+        H2GIS h2GIS = H2GIS.open(map);
+        for (int i = 0; i < 4; i++) {
+            h2GIS.execute("DROP TABLE IF EXISTS layer" + i + "; CREATE TABLE layer" + i + " AS SELECT X AS id, " +
+                    "ST_MakePoint(X, X) AS the_geom FROM SYSTEM_RANGE(1, 1000)");
+        }
+        assertTrue(h2GIS.createIndex("layer0", "id"));
+        Map<String, Map<String, IJdbcDataSource.IndexType>> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            Map<String, IJdbcDataSource.IndexType> columns = new LinkedHashMap<>();
+            columns.put("id", IJdbcDataSource.IndexType.INDEX);
+            columns.put("the_geom", IJdbcDataSource.IndexType.SPATIAL);
+            indexes.put("layer" + i, columns);
+        }
+        indexes.put("missing", Collections.singletonMap("id", IJdbcDataSource.IndexType.INDEX));
+
+        Map<String, Long> times = h2GIS.createIndexes(indexes, 3);
+        assertEquals(8, times.size());
+        assertEquals(-1L, times.get("layer0.id"));
+        assertFalse(times.containsKey("missing.id"));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(h2GIS.isIndexed("layer" + i, "id"));
+            assertTrue(h2GIS.isSpatialIndexed("layer" + i, "the_geom"));
+            assertTrue(times.get("layer" + i + ".the_geom") >= 0);
+        }
+        assertTrue(h2GIS.createIndexes(indexes, 3).values().stream().allMatch(time -> time == -1));
+        assertTrue(h2GIS.createIndexes(new HashMap<>(), 3).isEmpty());
+        h2GIS.dropTable("layer0", "layer1", "layer2", "layer3");
+    }
+
+    @Test
+    void testSaveToDataSource() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(H2GISDBFactory.JDBC_DATABASE_NAME, "./target/loadH2GIS");
+        H2GIS h2GIS = H2GIS.open(map);
+        map.put(H2GISDBFactory.JDBC_DATABASE_NAME, "./target/loadH2GIS_target");
+        H2GIS target = H2GIS.open(map);
+        h2GIS.execute("DROP TABLE IF EXISTS copy_source; " +
+                "CREATE TABLE copy_source (id int, name varchar, the_geom geometry(geometry, 4326), other geometry);" +
+                "INSERT INTO copy_source VALUES (1, 'a', 'SRID=4326;POLYGON((0 0, 1 0, 1 1, 0 0))', 'POINT(1 2)'), " +
+                "(2, null, 'SRID=4326;LINESTRING Z(0 0 1, 1 1 2)', 'SRID=2154;POINT(1 2)'), " +
+                "(3, 'c', null, null)");
+        target.execute("DROP TABLE IF EXISTS copy_target, copy_query");
+
+        assertEquals("COPY_TARGET", h2GIS.getSpatialTable("copy_source").save(target, "copy_target", true, 2));
+        assertEquals(4326, target.getSrid("copy_target"));
+        assertEquals(3, target.getRowCount("copy_target"));
+        assertEquals(0L, target.firstRow("SELECT COUNT(*) AS C FROM copy_target WHERE id = 1 AND name = 'a' " +
+                "AND NOT ST_Equals(the_geom, 'SRID=4326;POLYGON((0 0, 1 0, 1 1, 0 0))'::GEOMETRY)").get("C"));
+        Geometry line = (Geometry) target.firstRow("SELECT the_geom FROM copy_target WHERE id = 2").get("THE_GEOM");
+        assertEquals(4326, line.getSRID());
+        assertEquals(2, line.getCoordinates()[1].getZ());
+        assertEquals(2154, ((Geometry) target.firstRow("SELECT other FROM copy_target WHERE id = 2")
+                .get("OTHER")).getSRID());
+        assertNull(target.firstRow("SELECT the_geom FROM copy_target WHERE id = 3").get("THE_GEOM"));
+        assertThrows(Exception.class, () -> h2GIS.getSpatialTable("copy_source").save(target, "copy_target", false));
+
+        assertEquals("COPY_QUERY", target.load(h2GIS, "(SELECT id, the_geom FROM copy_source WHERE id < 3)",
+                "copy_query", true, 10));
+        assertEquals(2, target.getRowCount("copy_query"));
+        assertEquals(4326, target.getSpatialTable("copy_query").getSrid());
+
+        //A failed copy does not leave the target table
+        assertThrows(Exception.class, () -> target.load(h2GIS, "(SELECT id, 1 / (id - 3) AS v, the_geom " +
+                "FROM copy_source ORDER BY id)", "copy_failed", true, 1));
+        assertFalse(target.hasTable("copy_failed"));
+
+        //A failed copy replacing a table keeps the existing table and its rows
+        assertThrows(Exception.class, () -> target.load(h2GIS, "(SELECT id, 1 / (id - 3) AS v, the_geom " +
+                "FROM copy_source ORDER BY id)", "copy_target", true, 1));
+        assertEquals(3, target.getRowCount("copy_target"));
+        assertEquals(4326, target.getSrid("copy_target"));
+        assertEquals(1L, target.firstRow("SELECT COUNT(*) AS C FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_NAME LIKE 'COPY_TARGET%'").get("C"));
+
+        //The replaced table keeps the geometry type of the columns with the SRID of their geometries
+        h2GIS.execute("DROP TABLE IF EXISTS copy_typed; " +
+                "CREATE TABLE copy_typed (id int, the_geom geometry(point z), area geometry(polygon));" +
+                "INSERT INTO copy_typed VALUES (1, 'SRID=4326;POINT Z(1 2 3)', " +
+                "'SRID=2154;POLYGON((0 0, 1 0, 1 1, 0 0))')");
+        assertEquals("COPY_TARGET", h2GIS.getSpatialTable("copy_typed").save(target, "copy_target", true, 2));
+        Map<String, Object> column = target.firstRow("SELECT GEOMETRY_TYPE, GEOMETRY_SRID FROM " +
+                "INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'COPY_TARGET' AND COLUMN_NAME = 'THE_GEOM'");
+        assertEquals("POINT Z", column.get("GEOMETRY_TYPE"));
+        assertEquals(4326, column.get("GEOMETRY_SRID"));
+        column = target.firstRow("SELECT GEOMETRY_TYPE, GEOMETRY_SRID FROM " +
+                "INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'COPY_TARGET' AND COLUMN_NAME = 'AREA'");
+        assertEquals("POLYGON", column.get("GEOMETRY_TYPE"));
+        assertEquals(2154, column.get("GEOMETRY_SRID"));
+        assertEquals(1, target.getRowCount("copy_target"));
+        target.dropTable("copy_target", "copy_query");
+        h2GIS.dropTable("copy_source", "copy_typed");
+    }
 }
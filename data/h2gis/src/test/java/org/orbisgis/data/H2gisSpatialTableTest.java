@@ -37,10 +37,22 @@
 package org.orbisgis.data;
 
 
+import groovy.lang.Closure;
+import groovy.sql.Sql;
+import org.h2gis.functions.factory.H2GISDBFactory;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryComponentFilter;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.io.WKBReader;
 import org.orbisgis.data.api.dataset.IJdbcSpatialTable;
 import org.orbisgis.data.api.dataset.IJdbcTable;
 import org.orbisgis.data.api.dataset.ISpatialTable;
@@ -50,7 +62,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -149,6 +172,236 @@ public class H2gisSpatialTableTest {
         assertEquals(2, spLoaded.getRowCount());
     }
 
+    /**
+     * Test the reading of packed geometries, envelopes and WKB from the current row.
+     */
+    @Test
+    void testPackedGeometries() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute("DROP TABLE IF EXISTS packed;" +
+                "CREATE TABLE packed (id INT, the_geom GEOMETRY, other GEOMETRY);" +
+                "INSERT INTO packed VALUES " +
+                "(1, 'SRID=4326;POLYGON((0 0, 10 0, 10 5, 0 5, 0 0), (1 1, 2 1, 2 2, 1 1))', 'POINT(3 4)')," +
+                "(2, 'SRID=4326;MULTILINESTRING Z((-1 -2 3, 4 5 6), (7 8 9, 1 1 1))', 'POINT EMPTY')," +
+                "(3, 'SRID=4326;GEOMETRYCOLLECTION(POINT(20 30), LINESTRING(-5 0, 0 -5))', null)," +
+                "(4, null, 'POINT(1 1)')");
+        IJdbcSpatialTable table = dataSource.getSpatialTable("(SELECT * FROM packed ORDER BY id)");
+        assertFalse(table.isPackedGeometries());
+        table.setPackedGeometries(true);
+        assertTrue(table.isPackedGeometries());
+        Geometry[] expected = new Geometry[]{
+                (Geometry) dataSource.firstRow("SELECT the_geom FROM packed WHERE id = 1").get("THE_GEOM"),
+                (Geometry) dataSource.firstRow("SELECT the_geom FROM packed WHERE id = 2").get("THE_GEOM"),
+                (Geometry) dataSource.firstRow("SELECT the_geom FROM packed WHERE id = 3").get("THE_GEOM")};
+        int i = 0;
+        while (table.next()) {
+            Geometry geometry = table.getGeometry();
+            if (i == 3) {
+                assertNull(geometry);
+                assertNull(table.getGeometry("THE_GEOM"));
+                assertNull(table.getGeometryEnvelope("THE_GEOM"));
+                assertNull(table.getGeometryBytes(2));
+            } else {
+                assertTrue(expected[i].equalsExact(geometry));
+                assertEquals(4326, geometry.getSRID());
+                assertEquals(expected[i].getEnvelopeInternal(), table.getGeometryEnvelope("the_geom"));
+                assertEquals(expected[i].getEnvelopeInternal(), table.getGeometryEnvelope(2));
+                assertTrue(expected[i].equalsExact(new WKBReader().read(table.getGeometryBytes("THE_GEOM"))));
+                geometry.apply((GeometryComponentFilter) component -> {
+                    if (component instanceof LineString) {
+                        assertTrue(((LineString) component).getCoordinateSequence() instanceof
+                                PackedCoordinateSequence.Double);
+                    }
+                });
+            }
+            i++;
+        }
+        assertEquals(4, i);
+        table = dataSource.getSpatialTable("(SELECT * FROM packed ORDER BY id)");
+        table.next();
+        assertEquals(new Envelope(3, 3, 4, 4), table.getGeometryEnvelope("OTHER"));
+        table.next();
+        assertTrue(table.getGeometryEnvelope("OTHER").isNull());
+        dataSource.dropTable("packed");
+    }
+
+    /**
+     * Test the simplification of the geometries on read.
+     */
+    @Test
+    void testSimplified() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute("DROP TABLE IF EXISTS circles;" +
+                "CREATE TABLE circles (id INT, the_geom GEOMETRY(POLYGON, 2154), center GEOMETRY(POINT, 2154));" +
+                "INSERT INTO circles SELECT X, ST_BUFFER(ST_SETSRID(ST_MAKEPOINT(X * 1000, 0), 2154), 100, 64), " +
+                "ST_SETSRID(ST_MAKEPOINT(X * 1000, 0), 2154) FROM SYSTEM_RANGE(1, 10);" +
+                "INSERT INTO circles VALUES (11, null, null);");
+        IJdbcSpatialTable<?> table = dataSource.getSpatialTable("circles");
+        ISpatialTable<?> simplified = table.simplified(5);
+        assertEquals(table.getColumnNames(), simplified.getColumnNames());
+        assertEquals(11, simplified.getRowCount());
+        assertEquals(4, dataSource.getSpatialTable("(SELECT * FROM circles WHERE id < 5)").simplified(5)
+                .getRowCount());
+        assertTrue(simplified.next());
+        Geometry geometry = simplified.getGeometry("THE_GEOM");
+        assertTrue(geometry.getNumPoints() < 20);
+        assertTrue(geometry.isValid());
+        assertEquals(2154, geometry.getSRID());
+        assertEquals("POINT (1000 0)", simplified.getGeometry("CENTER").toText());
+        assertThrows(IllegalArgumentException.class, () -> table.simplified(-1));
+        dataSource.dropTable("circles");
+    }
+
+    /**
+     * Test the spatial join done by the database and in memory.
+     */
+    @Test
+    void testSpatialJoin() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute("DROP TABLE IF EXISTS cells, points;" +
+                "CREATE TABLE cells AS SELECT X AS id, ST_SetSRID(ST_MakeEnvelope(MOD(X, 10), FLOOR(X / 10), " +
+                "MOD(X, 10) + 1, FLOOR(X / 10) + 1), 4326) AS the_geom FROM SYSTEM_RANGE(0, 99);" +
+                "CREATE TABLE points AS SELECT X AS id, CONCAT('p', X) AS name, ST_SetSRID(ST_MakePoint(" +
+                "MOD(X, 40) / 4.0 + 0.1, MOD(X, 37) / 3.7 + 0.05), 4326) AS the_geom FROM SYSTEM_RANGE(1, 1000);" +
+                "INSERT INTO points VALUES (1001, 'outside', 'SRID=4326;POINT(50 50)'::GEOMETRY), (1002, 'empty', null)");
+        IJdbcSpatialTable cells = dataSource.getSpatialTable("CELLS");
+        IJdbcSpatialTable points = dataSource.getSpatialTable("POINTS");
+
+        assertThrows(IllegalArgumentException.class, () -> cells.spatialJoin(points, "ST_Buffer"));
+        assertFalse(dataSource.isSpatialIndexed("CELLS", "THE_GEOM"));
+        IJdbcSpatialTable joined = cells.spatialJoin(points, "st_contains");
+        assertTrue(dataSource.isSpatialIndexed("CELLS", "THE_GEOM"));
+        assertFalse(dataSource.isSpatialIndexed("POINTS", "THE_GEOM"));
+        assertEquals(1000, joined.getRowCount());
+        assertEquals(Arrays.asList("ID", "THE_GEOM", "ID_2", "NAME", "THE_GEOM_2"), joined.getColumnNames());
+
+        IJdbcSpatialTable query = dataSource.getSpatialTable("(SELECT * FROM points)");
+        IJdbcSpatialTable inMemory = query.spatialJoin(cells, "ST_Within");
+        assertTrue(inMemory.getLocation().startsWith("SPATIAL_JOIN_"));
+        assertEquals("LOCAL TEMPORARY", dataSource.firstRow("SELECT TABLE_TYPE FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_NAME = '" + inMemory.getLocation() + "'").get("TABLE_TYPE"));
+        assertEquals(1000, inMemory.getRowCount());
+        assertEquals(Arrays.asList("ID", "NAME", "THE_GEOM", "ID_2", "THE_GEOM_2"), inMemory.getColumnNames());
+        assertEquals(0L, dataSource.firstRow("SELECT COUNT(*) AS C FROM " + inMemory.getLocation() +
+                " WHERE NOT ST_Within(THE_GEOM, THE_GEOM_2)").get("C"));
+        assertEquals(1000L, dataSource.firstRow("SELECT COUNT(DISTINCT ID) AS C FROM " + inMemory.getLocation())
+                .get("C"));
+        assertEquals(0L, dataSource.firstRow("SELECT COUNT(*) AS C FROM " + inMemory.getLocation() +
+                " WHERE ST_SRID(THE_GEOM) <> 4326 OR ST_SRID(THE_GEOM_2) <> 4326").get("C"));
+        dataSource.dropTable(inMemory.getLocation());
+    }
+
+    /**
+     * Test the cache of the extents and its update by the queries of the data source.
+     */
+    @Test
+    void testExtentCache() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.setExtentCacheDuration(60000);
+        dataSource.execute("DROP TABLE IF EXISTS cached; CREATE TABLE cached (id int, the_geom geometry(point, 4326));" +
+                "INSERT INTO cached VALUES (1, 'SRID=4326;POINT(0 0)'::GEOMETRY), (2, 'SRID=4326;POINT(10 10)'::GEOMETRY)");
+        IJdbcSpatialTable table = dataSource.getSpatialTable("cached");
+        assertEquals(new Envelope(0, 10, 0, 10), table.getExtent().getEnvelopeInternal());
+        assertEquals(new Envelope(0, 10, 0, 10), table.getEstimatedExtent().getEnvelopeInternal());
+
+        dataSource.execute("UPDATE cached SET the_geom = 'SRID=4326;POINT(20 20)'::GEOMETRY WHERE id = 2");
+        assertEquals(new Envelope(0, 20, 0, 20), table.getExtent().getEnvelopeInternal());
+
+        dataSource.executeInsert("INSERT INTO cached VALUES (?, ?)", Arrays.asList(3,
+                new GeometryFactory(new PrecisionModel(), 4326).createPoint(new Coordinate(-5, 30))));
+        Geometry extent = dataSource.getSpatialTable("cached").getExtent();
+        assertEquals(new Envelope(-5, 20, 0, 30), extent.getEnvelopeInternal());
+        assertEquals(4326, extent.getSRID());
+
+        try (Statement statement = dataSource.getConnection().createStatement()) {
+            statement.execute("DELETE FROM cached WHERE id = 3");
+        }
+        assertEquals(new Envelope(-5, 20, 0, 30), table.getExtent().getEnvelopeInternal());
+        dataSource.clearExtentCache("cached");
+        assertEquals(new Envelope(0, 20, 0, 20), table.getExtent().getEnvelopeInternal());
+
+        dataSource.execute("DROP TABLE cached; CREATE TABLE cached (id int, the_geom geometry(point, 4326));" +
+                "INSERT INTO cached VALUES (1, 'SRID=4326;POINT(1 1)'::GEOMETRY)");
+        assertEquals(new Envelope(1, 1, 1, 1), table.getExtent().getEnvelopeInternal());
+        assertEquals(new Envelope(1, 1, 1, 1),
+                dataSource.getSpatialTable("(SELECT * FROM cached WHERE id = 1)").getExtent().getEnvelopeInternal());
+
+        //The extents cached with a qualified name are forgotten by the queries using the table name only
+        IJdbcSpatialTable qualified = dataSource.getSpatialTable("PUBLIC.CACHED");
+        assertEquals(new Envelope(1, 1, 1, 1), qualified.getExtent().getEnvelopeInternal());
+        dataSource.execute("INSERT INTO cached VALUES (2, 'SRID=4326;POINT(2 2)'::GEOMETRY)");
+        assertEquals(new Envelope(1, 2, 1, 2), qualified.getExtent().getEnvelopeInternal());
+
+        //A failed insertion does not expand the extent
+        GeometryFactory factory = new GeometryFactory(new PrecisionModel(), 4326);
+        assertThrows(SQLException.class, () -> dataSource.executeInsert("INSERT INTO cached VALUES (?, ?)",
+                Arrays.asList("not an id", factory.createPoint(new Coordinate(100, 100)))));
+        assertEquals(new Envelope(1, 2, 1, 2), table.getExtent().getEnvelopeInternal());
+
+        //An insertion in a transaction forgets the extent, as it may be rolled back
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        try {
+            dataSource.executeInsert("INSERT INTO cached VALUES (?, ?)",
+                    Arrays.asList(3, factory.createPoint(new Coordinate(100, 100))));
+            connection.rollback();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        assertEquals(new Envelope(1, 2, 1, 2), table.getExtent().getEnvelopeInternal());
+
+        //A linked file replaces the cached extent
+        dataSource.execute("CALL SHPWrite('./target/cached_link.shp', " +
+                "'(SELECT 1 AS id, ST_SetSRID(ST_MakePoint(50, 50), 4326) AS the_geom)', true)");
+        dataSource.execute("DROP TABLE IF EXISTS cached_link; CREATE TABLE cached_link AS SELECT * FROM cached");
+        IJdbcSpatialTable linked = dataSource.getSpatialTable("cached_link");
+        assertEquals(new Envelope(1, 2, 1, 2), linked.getExtent().getEnvelopeInternal());
+        dataSource.link(new File("./target/cached_link.shp"), "cached_link", true);
+        assertEquals(new Envelope(50, 50, 50, 50), linked.getExtent().getEnvelopeInternal());
+
+        //Without cache, the modifications done with the connection are seen
+        dataSource.setExtentCacheDuration(0);
+        try (Statement statement = dataSource.getConnection().createStatement()) {
+            statement.execute("DELETE FROM cached WHERE id = 1");
+        }
+        assertEquals(new Envelope(2, 2, 2, 2), table.getExtent().getEnvelopeInternal());
+    }
+
+    /**
+     * Test the client side reprojection into a table and as a stream.
+     */
+    @Test
+    void testReprojectClientSide() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute("DROP TABLE IF EXISTS orbisgis, orbisgis_2154;" +
+                "CREATE TABLE orbisgis AS SELECT X AS id, CONCAT('name', X) AS name, " +
+                "ST_SetSRID(ST_MakeLine(ST_MakePoint(-4 + X / 1000.0, 47), ST_MakePoint(-3, 48 - X / 1000.0)), 4326) " +
+                "AS the_geom FROM SYSTEM_RANGE(1, 10000);" +
+                "INSERT INTO orbisgis VALUES (10001, 'empty', null);");
+        IJdbcSpatialTable sp = dataSource.getSpatialTable("ORBISGIS");
+
+        assertEquals("ORBISGIS_2154", sp.reproject(2154, "ORBISGIS_2154"));
+        IJdbcSpatialTable reprojected = dataSource.getSpatialTable("ORBISGIS_2154");
+        assertEquals(10001, reprojected.getRowCount());
+        assertEquals(2154, reprojected.getSrid());
+        dataSource.execute("CREATE INDEX ON ORBISGIS_2154(ID)");
+        assertEquals(0L, dataSource.firstRow("SELECT COUNT(*) AS C FROM ORBISGIS A, ORBISGIS_2154 B " +
+                "WHERE A.ID = B.ID AND (A.NAME <> B.NAME OR ST_Distance(ST_Transform(A.THE_GEOM, 2154), B.THE_GEOM) " +
+                "> 0.01)").get("C"));
+        assertNull(dataSource.firstRow("SELECT THE_GEOM FROM ORBISGIS_2154 WHERE ID = 10001").get("THE_GEOM"));
+
+        Geometry expected = (Geometry) dataSource.firstRow(
+                "SELECT ST_Transform(THE_GEOM, 2154) AS G FROM ORBISGIS WHERE ID = 1").get("G");
+        try (Stream<Map<String, Object>> rows = sp.reprojectStream(2154)) {
+            List<Map<String, Object>> list = rows.collect(Collectors.toList());
+            assertEquals(10001, list.size());
+            assertEquals("name1", list.get(0).get("NAME"));
+            Geometry geometry = (Geometry) list.get(0).get("THE_GEOM");
+            assertEquals(2154, geometry.getSRID());
+            assertTrue(geometry.equalsExact(expected, 0.01));
+        }
+    }
+
     @Test
     void testSaveQueryInFile() throws Exception {
         new File("target/query_table.shp").delete();
@@ -177,6 +430,174 @@ public class H2gisSpatialTableTest {
         assertInstanceOf(Point.class, spLoaded.getFirstRow().get(1));
     }
 
+    @Test
+    void testSaveLoadArrow() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute(" DROP TABLE IF EXISTS orbisgis, arrow_table, arrow_query;" +
+                "CREATE TABLE orbisgis (id int, name varchar, amount decimal(10, 2), the_day date, stamp timestamp, " +
+                "the_geom geometry(point, 4326));" +
+                "INSERT INTO orbisgis VALUES (1, 'a', 12.5, '2020-04-16', '2020-04-16 12:34:56.789', " +
+                "'SRID=4326;POINT(10 10)'::GEOMETRY), (2, null, null, null, null, null);");
+
+        IJdbcSpatialTable sp = dataSource.getSpatialTable("ORBISGIS");
+        assertEquals("target/arrow_table.arrow", sp.save("target/arrow_table.arrow", true));
+        assertThrows(SQLException.class, () -> sp.save("target/arrow_table.arrow", false));
+        assertEquals("ARROW_TABLE", dataSource.load("target/arrow_table.arrow", true));
+
+        IJdbcSpatialTable loaded = dataSource.getSpatialTable("ARROW_TABLE");
+        assertEquals(2, loaded.getRowCount());
+        assertEquals(4326, loaded.getSrid());
+        Map<String, Object> first = dataSource.firstRow("SELECT * FROM ARROW_TABLE WHERE ID = 1");
+        assertEquals("a", first.get("NAME"));
+        assertEquals(new BigDecimal("12.50"), first.get("AMOUNT"));
+        assertEquals("2020-04-16", first.get("THE_DAY").toString());
+        assertEquals("2020-04-16 12:34:56.789", first.get("STAMP").toString());
+        assertEquals("POINT (10 10)", first.get("THE_GEOM").toString());
+        Map<String, Object> second = dataSource.firstRow("SELECT * FROM ARROW_TABLE WHERE ID = 2");
+        assertNull(second.get("NAME"));
+        assertNull(second.get("AMOUNT"));
+        assertNull(second.get("THE_GEOM"));
+
+        IJdbcTable query = dataSource.getTable("(SELECT ID * 2 AS DOUBLE_ID FROM ORBISGIS)");
+        assertEquals("target/arrow_query.arrows", query.save("target/arrow_query.arrows", true));
+        dataSource.load("target/arrow_query.arrows", "ARROW_QUERY", true);
+        assertEquals(6, ((Number) dataSource.firstRow("SELECT SUM(DOUBLE_ID) AS S FROM ARROW_QUERY").get("S")).intValue());
+    }
+
+    /**
+     * Test the save and the load of a table in the Apache Parquet format.
+     */
+    @Test
+    void testSaveLoadParquet() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute(" DROP TABLE IF EXISTS orbisgis, parquet_table;" +
+                "CREATE TABLE orbisgis (id int, name varchar, amount decimal(10, 2), the_day date, stamp timestamp, " +
+                "the_geom geometry(point, 2154));" +
+                "INSERT INTO orbisgis VALUES (1, 'a', 12.5, '2020-04-16', '2020-04-16 12:34:56.789', " +
+                "'SRID=2154;POINT(10 10)'::GEOMETRY), (2, null, null, null, null, null);");
+
+        IJdbcSpatialTable sp = dataSource.getSpatialTable("ORBISGIS");
+        assertEquals("target/parquet_table.parquet", sp.save("target/parquet_table.parquet", true));
+        assertEquals("PARQUET_TABLE", dataSource.load("target/parquet_table.parquet", true));
+
+        IJdbcSpatialTable loaded = dataSource.getSpatialTable("PARQUET_TABLE");
+        assertEquals(2, loaded.getRowCount());
+        assertEquals(2154, loaded.getSrid());
+        Map<String, Object> first = dataSource.firstRow("SELECT * FROM PARQUET_TABLE WHERE ID = 1");
+        assertEquals("a", first.get("NAME"));
+        assertEquals(new BigDecimal("12.50"), first.get("AMOUNT"));
+        assertEquals("2020-04-16", first.get("THE_DAY").toString());
+        assertEquals("2020-04-16 12:34:56.789", first.get("STAMP").toString());
+        assertEquals("POINT (10 10)", first.get("THE_GEOM").toString());
+        Map<String, Object> second = dataSource.firstRow("SELECT * FROM PARQUET_TABLE WHERE ID = 2");
+        assertNull(second.get("NAME"));
+        assertNull(second.get("THE_GEOM"));
+    }
+
+    /**
+     * Test the split of a table into tiles and the processing of the tiles.
+     */
+    @Test
+    void testTiles() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute("DROP TABLE IF EXISTS tiled, tiled_out;" +
+                "CREATE TABLE tiled AS SELECT X AS id, ST_SetSRID(ST_Expand(ST_MakePoint(MOD(X, 40) * 2.5, " +
+                "FLOOR(X / 40) * 4), 3, 3), 2154) AS the_geom FROM SYSTEM_RANGE(1, 1000);" +
+                "INSERT INTO tiled VALUES (1001, null);");
+        IJdbcSpatialTable table = dataSource.getSpatialTable("TILED");
+
+        List<Envelope> grid = table.getTiles(3, 3);
+        assertEquals(9, grid.size());
+        Envelope extent = table.getExtent().getEnvelopeInternal();
+        assertEquals(extent.getMinX(), grid.get(0).getMinX());
+        assertEquals(extent.getMinY(), grid.get(0).getMinY());
+        assertEquals(extent.getMaxX(), grid.get(8).getMaxX());
+        assertEquals(extent.getMaxY(), grid.get(8).getMaxY());
+        assertEquals("TILED_OUT", table.processTiles(grid,
+                "SELECT id, {tile_id} AS tile, ST_Area({tile_envelope}) AS area, the_geom FROM tiled " +
+                        "WHERE {tile_filter}", "TILED_OUT", 4));
+        assertEquals(1000L, dataSource.firstRow("SELECT COUNT(*) AS C FROM TILED_OUT").get("C"));
+        assertEquals(1000L, dataSource.firstRow("SELECT COUNT(DISTINCT ID) AS C FROM TILED_OUT").get("C"));
+        assertEquals(9L, dataSource.firstRow("SELECT COUNT(DISTINCT TILE) AS C FROM TILED_OUT").get("C"));
+        assertEquals(dataSource.firstRow("SELECT SUM(ST_Area(the_geom)) AS A FROM tiled").get("A"),
+                dataSource.firstRow("SELECT SUM(ST_Area(the_geom)) AS A FROM TILED_OUT").get("A"));
+        assertThrows(SQLException.class, () -> table.processTiles(grid, "SELECT id, 1 / ({tile_id} - 4) AS v " +
+                "FROM tiled WHERE {tile_filter}", "TILED_OUT", 4));
+        assertFalse(dataSource.hasTable("TILED_OUT"));
+
+        List<Envelope> quadtree = table.getTiles(100);
+        assertTrue(quadtree.size() >= 10);
+        List<Object> counts = table.eachTile(quadtree, 3, new Closure<Object>(null) {
+            @Override
+            public Object call(Object... args) {
+                try {
+                    return ((Sql) args[0]).firstRow("SELECT COUNT(*) AS C FROM tiled WHERE " + args[2]).get("C");
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertEquals(quadtree.size(), counts.size());
+        assertEquals(1000L, counts.stream().mapToLong(count -> ((Number) count).longValue()).sum());
+        assertTrue(counts.stream().allMatch(count -> ((Number) count).longValue() <= 100));
+
+        //The tiles are processed with at most threadCount fresh connections, closed at the end
+        Properties properties = new Properties();
+        properties.setProperty(H2GISDBFactory.JDBC_DATABASE_NAME, "./target/test");
+        properties.setProperty(H2GISDBFactory.JDBC_USER, "sa");
+        properties.setProperty(H2GISDBFactory.JDBC_PASSWORD, "");
+        H2GIS pooled = H2GIS.open(H2GISDBFactory.createDataSource(properties));
+        Set<Connection> connections = ConcurrentHashMap.newKeySet();
+        pooled.getSpatialTable("TILED").eachTile(grid, 3, new Closure<Object>(null) {
+            @Override
+            public Object call(Object... args) {
+                return connections.add(((Sql) args[0]).getConnection());
+            }
+        });
+        assertTrue(connections.size() > 1 && connections.size() <= 3);
+        for (Connection connection : connections) {
+            assertTrue(connection.isClosed());
+        }
+    }
+
+    /**
+     * Test that each row is processed by exactly one tile, the lower left corners lying on the borders of the cells
+     * used to count the features and outside of the tiling extent.
+     */
+    @Test
+    void testTilesRowCount() throws Exception {
+        H2GIS dataSource = H2GIS.open("./target/test");
+        dataSource.execute("DROP TABLE IF EXISTS tiled_rows, tiled_rows_out;" +
+                "CREATE TABLE tiled_rows AS SELECT X AS id, ST_SetSRID(ST_MakeEnvelope(MOD(X, 97) * 0.1, " +
+                "FLOOR(X / 97) * 0.3, MOD(X, 97) * 0.1 + 1, FLOOR(X / 97) * 0.3 + 1), 2154) AS the_geom " +
+                "FROM SYSTEM_RANGE(0, 4999);");
+        IJdbcSpatialTable table = dataSource.getSpatialTable("TILED_ROWS");
+        List<Envelope> quadtree = table.getTiles(50);
+        List<Envelope> grid = table.getTiles(7, 5);
+        List<Object> counts = table.eachTile(quadtree, 3, new Closure<Object>(null) {
+            @Override
+            public Object call(Object... args) {
+                try {
+                    return ((Sql) args[0]).firstRow("SELECT COUNT(*) AS C FROM tiled_rows WHERE " + args[2]).get("C");
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertEquals(5000L, counts.stream().mapToLong(count -> ((Number) count).longValue()).sum());
+        //The features are counted in the same cells as the ones selected by the tile filters
+        assertTrue(counts.stream().allMatch(count -> ((Number) count).longValue() <= 50));
+        //Features added outside of the tiling extent are processed by the outer tiles
+        dataSource.execute("INSERT INTO tiled_rows VALUES (5000, 'SRID=2154;POINT(-50 -50)'), " +
+                "(5001, 'SRID=2154;POINT(50 5)'), (5002, 'SRID=2154;POINT(5 50)'), (5003, 'SRID=2154;POINT(50 50)')");
+        for (List<Envelope> tiles : Arrays.asList(quadtree, grid)) {
+            table.processTiles(tiles, "SELECT id, {tile_id} AS tile FROM tiled_rows WHERE {tile_filter}",
+                    "TILED_ROWS_OUT", 3);
+            assertEquals(5004L, dataSource.firstRow("SELECT COUNT(*) AS C FROM TILED_ROWS_OUT").get("C"));
+            assertEquals(5004L, dataSource.firstRow("SELECT COUNT(DISTINCT ID) AS C FROM TILED_ROWS_OUT").get("C"));
+        }
+    }
+
     /**
      * Test the {@link JdbcSpatialTable#isSpatial()} method.
      */
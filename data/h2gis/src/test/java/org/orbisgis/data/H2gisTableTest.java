@@ -46,14 +46,17 @@ import org.h2gis.utilities.dbtypes.DBTypes;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
 import org.orbisgis.commons.printer.Ascii;
 import org.orbisgis.commons.printer.Html;
 import org.orbisgis.data.api.dataset.IJdbcTable;
 import org.orbisgis.data.api.dataset.ISpatialTable;
 import org.orbisgis.data.api.dataset.ITable;
 import org.orbisgis.data.api.datasource.IJdbcDataSource;
+import org.orbisgis.data.jdbc.JdbcColumnSummary;
 import org.orbisgis.data.jdbc.JdbcSpatialTable;
 import org.orbisgis.data.jdbc.JdbcTable;
+import org.orbisgis.data.jdbc.JdbcTableSummary;
 import org.orbisgis.data.jdbc.ResultSetIterator;
 import org.orbisgis.data.jdbc.resultset.StreamResultSet;
 import org.orbisgis.data.jdbc.resultset.StreamSpatialResultSet;
@@ -65,9 +68,13 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -785,6 +792,155 @@ public class H2gisTableTest {
         assertEquals(2, getLinkedTable().getSummary().getRowCount());
     }
 
+    /**
+     * Test the {@link JdbcTable#getSummary(boolean)} method.
+     */
+    @Test
+    void testGetSummaryColumnStatistics() throws Exception {
+        JdbcTableSummary summary = getTable().getSummary(false);
+        assertTrue(summary.getColumnSummaries().isEmpty());
+
+        summary = getTable().getSummary(true);
+        assertEquals(3, summary.getRowCount());
+        assertEquals(5, summary.getColumnCount());
+        assertEquals(5, summary.getColumnSummaries().size());
+
+        JdbcColumnSummary id = summary.getColumnSummary(COL_ID);
+        assertEquals(3, id.getCount());
+        assertEquals(0, id.getNullCount());
+        assertEquals(1, ((Number) id.getMin()).intValue());
+        assertEquals(3, ((Number) id.getMax()).intValue());
+        assertEquals(2.0, id.getMean());
+        assertEquals(1.0, id.getStdDev(), 1e-9);
+        assertEquals(3, id.getDistinctCount());
+        assertNull(id.getExtent());
+
+        JdbcColumnSummary meaning = summary.getColumnSummary(COL_MEANING);
+        assertEquals(2, meaning.getDistinctCount());
+        assertEquals("3D point", meaning.getMin());
+        assertEquals("Simple points", meaning.getMax());
+        assertNull(meaning.getMean());
+
+        JdbcColumnSummary geom = summary.getColumnSummary(COL_THE_GEOM);
+        assertTrue(geom.isGeometric());
+        assertEquals(new Envelope(0, 10, 0, 11), geom.getExtent());
+        assertEquals(3L, geom.getGeometryTypes().get("POINT"));
+        assertEquals(1, geom.getGeometryTypes().size());
+        assertNull(geom.getDistinctCount());
+
+        summary = getBuiltTable().getSummary(true);
+        assertEquals(2, summary.getRowCount());
+        assertEquals(new Envelope(0, 0, 0, 1), summary.getColumnSummary(COL_THE_GEOM).getExtent());
+
+        summary = getEmptyTable().getSummary(true);
+        assertEquals(0, summary.getRowCount());
+        assertNull(summary.getColumnSummary(COL_THE_GEOM).getExtent());
+        assertNull(summary.getColumnSummary(COL_VALUE).getMean());
+        assertTrue(summary.getColumnSummary(COL_THE_GEOM).getGeometryTypes().isEmpty());
+    }
+
+    @Test
+    void testDistinctAndTopValues() throws Exception {
+        assertEquals(3, getTable().getDistinctCount(COL_ID, false));
+        assertEquals(3, getTable().getDistinctCount(COL_ID, true));
+        assertEquals(2, getTable().getDistinctCount(COL_MEANING, false));
+        assertEquals(2, getTable().getDistinctCount(COL_MEANING, true));
+        assertEquals(0, getEmptyTable().getDistinctCount(COL_MEANING, true));
+
+        Map<Object, Long> top = getTable().getTopValues(COL_MEANING, 1);
+        assertEquals(1, top.size());
+        assertEquals(2L, top.get("3D point"));
+        top = getTable().getTopValues(COL_MEANING, 5);
+        assertEquals(Arrays.asList("3D point", "Simple points"), new ArrayList<>(top.keySet()));
+        assertEquals(1L, top.get("Simple points"));
+        assertTrue(getTable().getTopValues(COL_MEANING, 0).isEmpty());
+
+        List<Object> values;
+        try (Stream<Object> stream = getTable().uniqueValues(COL_MEANING)) {
+            values = stream.collect(Collectors.toList());
+        }
+        assertEquals(2, values.size());
+        assertTrue(values.contains("3D point"));
+        assertTrue(values.contains("Simple points"));
+        try (Stream<Object> stream = getTable().uniqueValues(COL_ID, 2)) {
+            assertEquals(2, stream.count());
+        }
+        try (Stream<Object> stream = getEmptyTable().uniqueValues(COL_ID)) {
+            assertFalse(stream.findAny().isPresent());
+        }
+        //Early exit closes the statement with the stream
+        Stream<Object> stream = getTable().uniqueValues(COL_ID);
+        assertTrue(stream.findFirst().isPresent());
+        stream.close();
+    }
+
+    @Test
+    void testPages() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> getTable().pages(COL_ID, 0));
+
+        Iterator<? extends IJdbcTable<?>> it = getTable().pages(COL_ID, 2);
+        assertTrue(it.hasNext());
+        IJdbcTable<?> first = it.next();
+        assertTrue(it.hasNext());
+        IJdbcTable<?> second = it.next();
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+        List<Object> ids = new ArrayList<>();
+        while (second.next()) {
+            ids.add(second.getObject(COL_ID));
+        }
+        while (first.next()) {
+            ids.add(first.getObject(COL_ID));
+        }
+        assertEquals(Arrays.asList(3, 1, 2), ids);
+        first.close();
+        assertTrue(first.getStatement().isClosed());
+        assertFalse(second.getStatement().isClosed());
+        second.close();
+
+        List<Integer> sizes = new ArrayList<>();
+        it = getTable().pages(COL_MEANING, 1);
+        while (it.hasNext()) {
+            IJdbcTable<?> page = it.next();
+            int count = 0;
+            while (page.next()) {
+                count++;
+            }
+            sizes.add(count);
+            page.close();
+        }
+        assertEquals(Arrays.asList(2, 1), sizes);
+        assertFalse(getEmptyTable().pages(COL_ID, 10).hasNext());
+    }
+
+    @Test
+    void testFlatQueries() throws Exception {
+        dataSource.execute("CREATE INDEX ORBISGIS_TABLE_ID_IDX ON " + TABLE_NAME + "(" + COL_ID + ")");
+        JdbcTable<?> table = (JdbcTable<?>) getTable().filter("WHERE ID > 1").getTable()
+                .columns(COL_ID, COL_MEANING).filter("WHERE ID = 3 ORDER BY ID").getTable();
+        assertEquals("(SELECT ID, MEANING FROM ORBISGIS_TABLE WHERE (ID > 1) AND (ID = 3) ORDER BY ID)",
+                table.getBaseQuery());
+        String plan;
+        try (ResultSet rs = connection.createStatement().executeQuery("EXPLAIN " + table.getBaseQuery())) {
+            assertTrue(rs.next());
+            plan = rs.getString(1);
+        }
+        assertTrue(plan.contains("ORBISGIS_TABLE_ID_IDX"), plan);
+        assertTrue(table.next());
+        assertEquals(3, table.getInt(COL_ID));
+        assertFalse(table.next());
+        table.close();
+
+        IJdbcTable<?> page = getTable().pages(COL_ID, 2).next();
+        table = (JdbcTable<?>) page.filter("WHERE MEANING = ?", Collections.singletonList("3D point")).getTable();
+        assertEquals(Arrays.asList(2, "3D point"), table.getParams());
+        assertTrue(table.next());
+        assertEquals(2, table.getInt(COL_ID));
+        assertFalse(table.next());
+        table.close();
+        page.close();
+    }
+
     @Test
     public void filterTest() throws Exception {
         assertArrayEquals(new int[]{5, 1}, getTable().filter("limit 1").getTable().getSize());
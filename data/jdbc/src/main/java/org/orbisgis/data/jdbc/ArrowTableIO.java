@@ -0,0 +1,509 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.orbisgis.commons.arrow.ArrowBatch;
+import org.orbisgis.commons.arrow.ArrowField;
+import org.orbisgis.commons.arrow.ArrowReader;
+import org.orbisgis.commons.arrow.ArrowWriter;
+import org.orbisgis.commons.arrow.IBatchReader;
+import org.orbisgis.commons.arrow.IBatchWriter;
+import org.orbisgis.commons.parquet.ParquetReader;
+import org.orbisgis.commons.parquet.ParquetWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * Export of a query result to an Apache Arrow IPC or Apache Parquet file and import of these files into a table. The
+ * rows are streamed by batches of {@link #BATCH_SIZE} rows in both directions, so the whole table is never loaded in
+ * memory, each batch being a row group of the Parquet files. The geometries are exchanged as WKB binary columns
+ * flagged with the GeoArrow <code>geoarrow.wkb</code> extension type or described in the GeoParquet metadata.
+ */
+final class ArrowTableIO {
+
+    /**
+     * Number of rows by batch.
+     */
+    static final int BATCH_SIZE = 1 << 16;
+
+    private ArrowTableIO() {
+    }
+
+    /**
+     * Return true if the name of the file has an Arrow extension : <code>arrow</code> or <code>feather</code> for the
+     * file format, <code>arrows</code> for the stream format.
+     *
+     * @param filePath Path of the file.
+     * @return True for an Arrow file.
+     */
+    static boolean isArrow(String filePath) {
+        String lower = filePath.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".arrow") || lower.endsWith(".feather") || lower.endsWith(".arrows");
+    }
+
+    /**
+     * Return true if the name of the file has the <code>parquet</code> extension.
+     *
+     * @param filePath Path of the file.
+     * @return True for a Parquet file.
+     */
+    static boolean isParquet(String filePath) {
+        return filePath.toLowerCase(Locale.ROOT).endsWith(".parquet");
+    }
+
+    /**
+     * Return true if the file is an Arrow or a Parquet file.
+     *
+     * @param filePath Path of the file.
+     * @return True for a columnar file supported by this class.
+     */
+    static boolean isSupported(String filePath) {
+        return isArrow(filePath) || isParquet(filePath);
+    }
+
+    /**
+     * Write the result of a query into an Arrow or a Parquet file.
+     *
+     * @param connection Connection to the database.
+     * @param query      Query to export.
+     * @param location   Location of the exported table used to read the SRID of the geometry columns, can be null.
+     * @param file       File to write, the <code>parquet</code> extension selecting the Parquet format and the
+     *                   <code>arrows</code> extension the Arrow stream format.
+     * @throws SQLException Exception thrown in case of error while reading the query or writing the file.
+     */
+    static void write(Connection connection, String query, TableLocation location, File file) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = statement.executeQuery(query)) {
+                ResultSetMetaData metadata = rs.getMetaData();
+                int columnCount = metadata.getColumnCount();
+                List<ArrowField> fields = new ArrayList<>(columnCount);
+                int[] sqlTypes = new int[columnCount];
+                for (int i = 1; i <= columnCount; i++) {
+                    fields.add(field(connection, metadata, i, location));
+                    sqlTypes[i - 1] = metadata.getColumnType(i);
+                }
+                try (IBatchWriter writer = writer(file, fields)) {
+                    WKBWriter wkbWriter = new WKBWriter(3);
+                    Object[] columns = allocate(fields);
+                    BitSet[] nulls = new BitSet[columnCount];
+                    int row = 0;
+                    while (rs.next()) {
+                        for (int i = 0; i < columnCount; i++) {
+                            if (!read(rs, i + 1, fields.get(i), sqlTypes[i], columns[i], row, wkbWriter)) {
+                                if (nulls[i] == null) {
+                                    nulls[i] = new BitSet();
+                                }
+                                nulls[i].set(row);
+                            }
+                        }
+                        if (++row == BATCH_SIZE) {
+                            writer.write(new ArrowBatch(row, columns, nulls));
+                            columns = allocate(fields);
+                            nulls = new BitSet[columnCount];
+                            row = 0;
+                        }
+                    }
+                    if (row > 0) {
+                        writer.write(new ArrowBatch(row, columns, nulls));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot write the file '" + file.getAbsolutePath() + "'.", e);
+        }
+    }
+
+    private static IBatchWriter writer(File file, List<ArrowField> fields) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        if (isParquet(file.getName())) {
+            return new ParquetWriter(out, fields);
+        }
+        return new ArrowWriter(out, fields, !file.getName().toLowerCase(Locale.ROOT).endsWith(".arrows"));
+    }
+
+    private static IBatchReader reader(File file) throws IOException {
+        if (isParquet(file.getName())) {
+            return new ParquetReader(file);
+        }
+        return new ArrowReader(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * Create a table from an Arrow or a Parquet file and insert its rows.
+     *
+     * @param connection Connection to the database.
+     * @param dbType     Type of the database.
+     * @param file       Arrow or Parquet file to read.
+     * @param tableName  Name of the table to create.
+     * @param delete     True to delete the table if it already exists.
+     * @throws SQLException Exception thrown in case of error while reading the file or inserting the rows.
+     */
+    static void read(Connection connection, DBTypes dbType, File file, String tableName, boolean delete)
+            throws SQLException {
+        String table = TableLocation.parse(tableName, dbType).toString(dbType);
+        try (IBatchReader reader = reader(file)) {
+            List<ArrowField> fields = reader.getFields();
+            StringJoiner definitions = new StringJoiner(", ");
+            StringJoiner parameters = new StringJoiner(", ");
+            for (ArrowField field : fields) {
+                definitions.add(TableLocation.quoteIdentifier(field.getName(), dbType) + " " + sqlType(field, dbType));
+                parameters.add(field.isGeometry() ? "ST_GeomFromWKB(?, " + field.getSrid() + ")" : "?");
+            }
+            try (Statement statement = connection.createStatement()) {
+                if (delete) {
+                    statement.execute("DROP TABLE IF EXISTS " + table);
+                }
+                statement.execute("CREATE TABLE " + table + " (" + definitions + ")");
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + table + " VALUES (" + parameters + ")")) {
+                for (ArrowBatch batch = reader.next(); batch != null; batch = reader.next()) {
+                    for (int row = 0; row < batch.getRowCount(); row++) {
+                        for (int i = 0; i < fields.size(); i++) {
+                            write(insert, i, fields.get(i), batch, row);
+                        }
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot read the file '" + file.getAbsolutePath() + "'.", e);
+        }
+    }
+
+    private static ArrowField field(Connection connection, ResultSetMetaData metadata, int column,
+                                    TableLocation location) throws SQLException {
+        String name = metadata.getColumnLabel(column);
+        if (metadata.getColumnTypeName(column).toLowerCase(Locale.ROOT).startsWith("geometry")) {
+            int srid = 0;
+            if (location != null) {
+                try {
+                    srid = GeometryTableUtilities.getSRID(connection, location, name);
+                } catch (SQLException ignored) {
+                    //The SRID is unknown
+                }
+            }
+            return ArrowField.geometry(name, srid);
+        }
+        switch (metadata.getColumnType(column)) {
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return new ArrowField(name, ArrowField.Type.BOOLEAN);
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new ArrowField(name, ArrowField.Type.INT);
+            case Types.BIGINT:
+                return new ArrowField(name, ArrowField.Type.LONG);
+            case Types.REAL:
+                return new ArrowField(name, ArrowField.Type.FLOAT);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new ArrowField(name, ArrowField.Type.DOUBLE);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                int precision = metadata.getPrecision(column);
+                int scale = metadata.getScale(column);
+                if (precision > 0 && precision <= 38 && scale >= 0 && scale <= precision) {
+                    return new ArrowField(name, precision, scale);
+                }
+                return new ArrowField(name, ArrowField.Type.STRING);
+            case Types.DATE:
+                return new ArrowField(name, ArrowField.Type.DATE);
+            case Types.TIME:
+                return new ArrowField(name, ArrowField.Type.TIME);
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return new ArrowField(name, ArrowField.Type.TIMESTAMP);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return new ArrowField(name, ArrowField.Type.BINARY);
+            default:
+                return new ArrowField(name, ArrowField.Type.STRING);
+        }
+    }
+
+    private static Object[] allocate(List<ArrowField> fields) {
+        Object[] columns = new Object[fields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            switch (fields.get(i).getType()) {
+                case BOOLEAN:
+                    columns[i] = new boolean[BATCH_SIZE];
+                    break;
+                case INT:
+                case DATE:
+                    columns[i] = new int[BATCH_SIZE];
+                    break;
+                case LONG:
+                case TIME:
+                case TIMESTAMP:
+                    columns[i] = new long[BATCH_SIZE];
+                    break;
+                case FLOAT:
+                    columns[i] = new float[BATCH_SIZE];
+                    break;
+                case DOUBLE:
+                    columns[i] = new double[BATCH_SIZE];
+                    break;
+                case DECIMAL:
+                    columns[i] = new BigDecimal[BATCH_SIZE];
+                    break;
+                case BINARY:
+                    columns[i] = new byte[BATCH_SIZE][];
+                    break;
+                default:
+                    columns[i] = new String[BATCH_SIZE];
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Read the value of a column of the current row into the batch array.
+     *
+     * @return False if the value is null.
+     */
+    private static boolean read(ResultSet rs, int column, ArrowField field, int sqlType, Object values, int row,
+                                WKBWriter wkbWriter) throws SQLException {
+        switch (field.getType()) {
+            case BOOLEAN:
+                ((boolean[]) values)[row] = rs.getBoolean(column);
+                return !rs.wasNull();
+            case INT:
+                ((int[]) values)[row] = rs.getInt(column);
+                return !rs.wasNull();
+            case LONG:
+                ((long[]) values)[row] = rs.getLong(column);
+                return !rs.wasNull();
+            case FLOAT:
+                ((float[]) values)[row] = rs.getFloat(column);
+                return !rs.wasNull();
+            case DOUBLE:
+                ((double[]) values)[row] = rs.getDouble(column);
+                return !rs.wasNull();
+            case DECIMAL:
+                ((BigDecimal[]) values)[row] = rs.getBigDecimal(column);
+                return !rs.wasNull();
+            case DATE: {
+                LocalDate date = rs.getObject(column, LocalDate.class);
+                ((int[]) values)[row] = date == null ? 0 : (int) date.toEpochDay();
+                return date != null;
+            }
+            case TIME: {
+                LocalTime time = rs.getObject(column, LocalTime.class);
+                ((long[]) values)[row] = time == null ? 0 : time.toNanoOfDay();
+                return time != null;
+            }
+            case TIMESTAMP: {
+                LocalDateTime dateTime;
+                if (sqlType == Types.TIMESTAMP_WITH_TIMEZONE) {
+                    OffsetDateTime offsetDateTime = rs.getObject(column, OffsetDateTime.class);
+                    dateTime = offsetDateTime == null ? null :
+                            offsetDateTime.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+                } else {
+                    dateTime = rs.getObject(column, LocalDateTime.class);
+                }
+                ((long[]) values)[row] = dateTime == null ? 0 :
+                        dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+                return dateTime != null;
+            }
+            case BINARY: {
+                byte[] bytes;
+                if (field.isGeometry()) {
+                    Object value = rs.getObject(column);
+                    if (value instanceof Geometry) {
+                        bytes = wkbWriter.write((Geometry) value);
+                    } else if (value instanceof byte[]) {
+                        bytes = (byte[]) value;
+                    } else {
+                        bytes = value == null ? null : WKBReader.hexToBytes(value.toString());
+                    }
+                } else {
+                    bytes = rs.getBytes(column);
+                }
+                ((byte[][]) values)[row] = bytes;
+                return bytes != null;
+            }
+            default: {
+                Object value = rs.getObject(column);
+                String string = value == null ? null :
+                        value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+                ((String[]) values)[row] = string;
+                return string != null;
+            }
+        }
+    }
+
+    private static String sqlType(ArrowField field, DBTypes dbType) {
+        boolean postgres = dbType == DBTypes.POSTGIS || dbType == DBTypes.POSTGRESQL;
+        if (field.isGeometry()) {
+            return field.getSrid() > 0 ? "GEOMETRY(GEOMETRY, " + field.getSrid() + ")" : "GEOMETRY";
+        }
+        switch (field.getType()) {
+            case BOOLEAN:
+                return "BOOLEAN";
+            case INT:
+                return "INTEGER";
+            case LONG:
+                return "BIGINT";
+            case FLOAT:
+                return "REAL";
+            case DOUBLE:
+                return "DOUBLE PRECISION";
+            case DECIMAL:
+                return "NUMERIC(" + field.getPrecision() + ", " + field.getScale() + ")";
+            case DATE:
+                return "DATE";
+            case TIME:
+                return "TIME";
+            case TIMESTAMP:
+                return "TIMESTAMP";
+            case BINARY:
+                return postgres ? "BYTEA" : "VARBINARY";
+            default:
+                return postgres ? "TEXT" : "VARCHAR";
+        }
+    }
+
+    private static void write(PreparedStatement insert, int column, ArrowField field, ArrowBatch batch, int row)
+            throws SQLException {
+        int index = column + 1;
+        Object values = batch.getColumn(column);
+        if (batch.isNull(column, row)) {
+            insert.setNull(index, field.isGeometry() ? Types.BINARY : sqlType(field.getType()));
+            return;
+        }
+        switch (field.getType()) {
+            case BOOLEAN:
+                insert.setBoolean(index, ((boolean[]) values)[row]);
+                break;
+            case INT:
+                insert.setInt(index, ((int[]) values)[row]);
+                break;
+            case LONG:
+                insert.setLong(index, ((long[]) values)[row]);
+                break;
+            case FLOAT:
+                insert.setFloat(index, ((float[]) values)[row]);
+                break;
+            case DOUBLE:
+                insert.setDouble(index, ((double[]) values)[row]);
+                break;
+            case DECIMAL:
+                insert.setBigDecimal(index, ((BigDecimal[]) values)[row]);
+                break;
+            case DATE:
+                insert.setObject(index, LocalDate.ofEpochDay(((int[]) values)[row]));
+                break;
+            case TIME:
+                insert.setObject(index, LocalTime.ofNanoOfDay(((long[]) values)[row]));
+                break;
+            case TIMESTAMP:
+                long micros = ((long[]) values)[row];
+                insert.setObject(index, LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                        (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC));
+                break;
+            case BINARY:
+                insert.setBytes(index, ((byte[][]) values)[row]);
+                break;
+            default:
+                insert.setString(index, ((String[]) values)[row]);
+        }
+    }
+
+    private static int sqlType(ArrowField.Type type) {
+        switch (type) {
+            case BOOLEAN:
+                return Types.BOOLEAN;
+            case INT:
+                return Types.INTEGER;
+            case LONG:
+                return Types.BIGINT;
+            case FLOAT:
+                return Types.REAL;
+            case DOUBLE:
+                return Types.DOUBLE;
+            case DECIMAL:
+                return Types.NUMERIC;
+            case DATE:
+                return Types.DATE;
+            case TIME:
+                return Types.TIME;
+            case TIMESTAMP:
+                return Types.TIMESTAMP;
+            case BINARY:
+                return Types.VARBINARY;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+}
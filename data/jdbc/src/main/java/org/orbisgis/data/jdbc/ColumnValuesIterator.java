@@ -0,0 +1,131 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator on the values of the first column of a {@link ResultSet}. The rows are read lazily from the database and
+ * the {@link Statement} is closed once the last value has been read or on calling {@link #close()}.
+ */
+public class ColumnValuesIterator implements Iterator<Object>, AutoCloseable {
+
+    /**
+     * Class {@link Logger}
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ColumnValuesIterator.class);
+
+    /**
+     * {@link Statement} owning the iterated {@link ResultSet}.
+     */
+    private final Statement statement;
+    /**
+     * Iterated {@link ResultSet}.
+     */
+    private final ResultSet resultSet;
+    /**
+     * True if the cursor has been moved on the next value which has not been returned yet.
+     */
+    private boolean fetched = false;
+    /**
+     * True if there is no more value to read.
+     */
+    private boolean closed = false;
+
+    /**
+     * Main constructor.
+     *
+     * @param statement {@link Statement} owning the iterated {@link ResultSet}.
+     * @param resultSet Iterated {@link ResultSet}.
+     */
+    public ColumnValuesIterator(Statement statement, ResultSet resultSet) {
+        this.statement = statement;
+        this.resultSet = resultSet;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                fetched = resultSet.next();
+            } catch (SQLException e) {
+                LOGGER.error("Unable to get next value.\n", e);
+                fetched = false;
+            }
+            if (!fetched) {
+                close();
+            }
+        }
+        return fetched;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return resultSet.getObject(1);
+        } catch (SQLException e) {
+            close();
+            throw new IllegalStateException("Unable to read the value.", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOGGER.error("Unable to close the statement.\n", e);
+            }
+        }
+    }
+}
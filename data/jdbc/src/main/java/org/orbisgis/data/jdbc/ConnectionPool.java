@@ -0,0 +1,216 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.orbisgis.data.api.datasource.IJdbcDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrent run of tasks on a pool of connections opened for them.
+ *
+ * The threads only use fresh connections opened from the {@link DataSource} wrapped by the data source, and closed at
+ * the end, so the {@link Connection} of the data source, which may be in a transaction, is never shared between
+ * threads. If no connection can be opened, the tasks are run one after the other on the {@link Connection} of the data
+ * source in the calling thread, which is only logged at the info level the first time.
+ */
+final class ConnectionPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * True once the run of the tasks with the connection of a data source has been logged.
+     */
+    private static final AtomicBoolean SERIAL_RUN_LOGGED = new AtomicBoolean();
+
+    private ConnectionPool() {
+    }
+
+    /**
+     * Task run on a {@link Connection} of the pool.
+     *
+     * @param <R> Type of the result of the task.
+     */
+    interface Task<R> {
+        /**
+         * Run the task.
+         *
+         * @param connection {@link Connection} of the thread.
+         * @param index      Index of the task.
+         * @return The result of the task.
+         * @throws Exception Exception thrown if the task fails.
+         */
+        R run(Connection connection, int index) throws Exception;
+    }
+
+    /**
+     * Run the task on the given indexes concurrently, each thread using its own fresh {@link Connection}. If fewer
+     * connections than threads can be opened, the tasks are run with the opened ones.
+     *
+     * @param dataSource  {@link IJdbcDataSource} to open the connections from.
+     * @param from        First index.
+     * @param to          Last index, exclusive.
+     * @param threadCount Maximal number of threads.
+     * @param task        {@link Task} to run.
+     * @param <R>         Type of the result of the task.
+     * @return The results of the task in the order of the indexes.
+     * @throws SQLException Exception thrown if a task fails.
+     */
+    static <R> List<R> run(IJdbcDataSource dataSource, int from, int to, int threadCount, Task<R> task)
+            throws SQLException {
+        List<R> results = new ArrayList<>(Math.max(0, to - from));
+        if (to <= from) {
+            return results;
+        }
+        List<Connection> connections = open(dataSource, Math.min(threadCount, to - from));
+        if (connections.isEmpty()) {
+            if (SERIAL_RUN_LOGGED.compareAndSet(false, true)) {
+                LOGGER.info("Unable to open new connections, the tasks are run with the connection of the data source.");
+            } else {
+                LOGGER.debug("Unable to open new connections, the tasks are run with the connection of the data source.");
+            }
+            Connection connection = dataSource.getConnection();
+            for (int i = from; i < to; i++) {
+                results.add(runTask(task, connection, i));
+            }
+            return results;
+        }
+        try {
+            BlockingQueue<Connection> pool = new ArrayBlockingQueue<>(connections.size(), false, connections);
+            ExecutorService executor = Executors.newFixedThreadPool(connections.size());
+            try {
+                List<Future<R>> futures = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    int index = i;
+                    futures.add(executor.submit(() -> {
+                        Connection con = pool.take();
+                        try {
+                            return runTask(task, con, index);
+                        } finally {
+                            pool.add(con);
+                        }
+                    }));
+                }
+                for (Future<R> future : futures) {
+                    try {
+                        results.add(future.get());
+                    } catch (ExecutionException e) {
+                        throw e.getCause() instanceof SQLException ? (SQLException) e.getCause() :
+                                new SQLException("Cannot run the tasks.\n", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("The run of the tasks has been interrupted.", e);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            close(connections);
+        }
+        return results;
+    }
+
+    /**
+     * Open at most the given number of connections from the {@link DataSource} wrapped by the data source.
+     *
+     * @return The opened connections, empty if the data source does not wrap a {@link DataSource}.
+     */
+    private static List<Connection> open(IJdbcDataSource dataSource, int count) {
+        List<Connection> connections = new ArrayList<>(count);
+        try {
+            //The data sources opened from a Connection have no DataSource, and log an error when unwrapped
+            DataSource wrapped;
+            if (dataSource instanceof JdbcDataSource) {
+                wrapped = ((JdbcDataSource) dataSource).getDataSource();
+            } else {
+                wrapped = dataSource.isWrapperFor(DataSource.class) ? dataSource.unwrap(DataSource.class) : null;
+            }
+            for (int i = 0; i < count && wrapped != null; i++) {
+                connections.add(wrapped.getConnection());
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to open more connections, the tasks are run with " + connections.size() +
+                    " thread(s).");
+        }
+        return connections;
+    }
+
+    private static void close(List<Connection> connections) throws SQLException {
+        SQLException exception = null;
+        for (Connection con : connections) {
+            try {
+                con.close();
+            } catch (SQLException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Run a task, wrapping its exception into a {@link SQLException}.
+     */
+    private static <R> R runTask(Task<R> task, Connection connection, int index) throws SQLException {
+        try {
+            return task.run(connection, index);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Cannot run the task " + index + ".\n", e);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of the extents of the spatial tables of a data source, by table name and by list of geometry columns.
+ *
+ * The cache is disabled until a maximal age of the extents is given with {@link #setMaxAge(long)}, an extent older
+ * than this age being computed again. The queries executed through the data source are parsed to forget the extents of the modified tables, the whole
+ * cache being cleared if a modifying query cannot be parsed. The rows inserted with a prepared statement having only
+ * parameters as values expand the cached extents instead of forgetting them, unless the connection is in a
+ * transaction which could be rolled back. The modifications done directly on a {@link java.sql.Connection} of the
+ * data source, by triggers or by other sessions are not seen, the cached extents of the modified tables stay stale
+ * until they expire or are forgotten with {@link JdbcDataSource#clearExtentCache(String)} or
+ * {@link JdbcDataSource#updateExtentCache(String)}.
+ */
+final class ExtentCache {
+
+    private static final String IDENTIFIER = "(?:\"[^\"]+\"|`[^`]+`|[\\w$]+)(?:\\s*\\.\\s*(?:\"[^\"]+\"|`[^`]+`|[\\w$]+))*";
+
+    /**
+     * Statements modifying the tables, the first group being the list of the modified tables.
+     */
+    private static final Pattern MODIFICATION = Pattern.compile("\\b(?:INSERT\\s+INTO|UPDATE(?:\\s+ONLY)?|" +
+            "DELETE\\s+FROM(?:\\s+ONLY)?|MERGE\\s+INTO|TRUNCATE(?:\\s+TABLE)?(?:\\s+ONLY)?|" +
+            "DROP\\s+TABLE(?:\\s+IF\\s+EXISTS)?|ALTER\\s+TABLE(?:\\s+IF\\s+EXISTS)?(?:\\s+ONLY)?|" +
+            "CREATE\\s+(?:OR\\s+REPLACE\\s+)?(?:(?:CACHED|MEMORY|LOCAL|GLOBAL|TEMPORARY|TEMP|UNLOGGED|LINKED)\\s+)*" +
+            "TABLE(?:\\s+IF\\s+NOT\\s+EXISTS)?|COPY)\\s+(" + IDENTIFIER + "(?:\\s*,\\s*" + IDENTIFIER + ")*)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Insertion of one row with only parameters as values, the first group being the table.
+     */
+    private static final Pattern PARAMETER_INSERT = Pattern.compile("^\\s*INSERT\\s+INTO\\s+(" + IDENTIFIER +
+            ")\\s*(?:\\([^()]*\\))?\\s*VALUES\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * First word of the read only statements.
+     */
+    private static final Pattern READ_ONLY = Pattern.compile("^\\s*(?:SELECT|WITH|VALUES|TABLE|EXPLAIN|SHOW|" +
+            "COMMIT|ROLLBACK|BEGIN|START|SAVEPOINT|RELEASE|SET|CHECKPOINT|ANALYZE|VACUUM)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final DBTypes dbType;
+
+    /**
+     * Extents by table name and by list of geometry columns.
+     */
+    private final Map<TableKey, Map<String, Entry>> extents = new ConcurrentHashMap<>();
+
+    /**
+     * Maximal age of the cached extents in nanoseconds, 0 if the cache is disabled.
+     */
+    private volatile long maxAge = 0;
+
+    ExtentCache(DBTypes dbType) {
+        this.dbType = dbType;
+    }
+
+    /**
+     * Set the maximal age of the cached extents, the cache being disabled and cleared by a duration of 0.
+     *
+     * @param duration Maximal age of the extents in milliseconds.
+     */
+    void setMaxAge(long duration) {
+        maxAge = TimeUnit.MILLISECONDS.toNanos(Math.max(0, duration));
+        if (maxAge == 0) {
+            extents.clear();
+        }
+    }
+
+    /**
+     * Return a copy of the cached extent.
+     *
+     * @param location Location of the table.
+     * @param columns  Geometry columns of the extent, empty for the first geometry column.
+     * @return A copy of the cached extent, null if it is not cached or expired.
+     */
+    Geometry get(TableLocation location, String... columns) {
+        Map<String, Entry> table = extents.get(key(location));
+        String key = key(columns);
+        Entry entry = table == null ? null : table.get(key);
+        if (entry == null) {
+            return null;
+        } else if (System.nanoTime() - entry.time >= maxAge) {
+            table.remove(key, entry);
+            return null;
+        }
+        return entry.extent.copy();
+    }
+
+    /**
+     * Cache the extent of a table.
+     *
+     * @param location   Location of the table.
+     * @param extent     Extent to cache.
+     * @param singleGeom True if the table has only one geometry column, so the extent can be expanded with inserted
+     *                   geometries.
+     * @param columns    Geometry columns of the extent, empty for the first geometry column.
+     */
+    void put(TableLocation location, Geometry extent, boolean singleGeom, String... columns) {
+        if (extent != null && maxAge > 0) {
+            extents.computeIfAbsent(key(location), k -> new ConcurrentHashMap<>())
+                    .put(key(columns), new Entry(extent.copy(), singleGeom, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Forget the extents of the given table.
+     *
+     * @param tableName Name of the table.
+     */
+    void invalidate(String tableName) {
+        if (tableName != null) {
+            try {
+                TableKey key = key(TableLocation.parse(tableName, dbType));
+                extents.keySet().removeIf(key::matches);
+            } catch (RuntimeException e) {
+                extents.clear();
+            }
+        }
+    }
+
+    /**
+     * Forget all the extents.
+     */
+    void clear() {
+        extents.clear();
+    }
+
+    /**
+     * Forget the extents of the tables modified by the given query.
+     *
+     * @param sql Executed query.
+     */
+    void update(String sql) {
+        update(sql, null);
+    }
+
+    /**
+     * Update the extents of the tables modified by the given query : the extents of a table receiving one row with
+     * only parameters as values are expanded with the envelope of the geometry parameter, the extents of the other
+     * modified tables are forgotten.
+     *
+     * @param sql    Executed query.
+     * @param params Parameters of the query, can be null.
+     */
+    void update(String sql, List<Object> params) {
+        if (sql == null || extents.isEmpty()) {
+            return;
+        }
+        if (params != null) {
+            Matcher insert = PARAMETER_INSERT.matcher(sql);
+            if (insert.matches() && expand(insert.group(1), params)) {
+                return;
+            }
+        }
+        for (String statement : sql.split(";")) {
+            if (statement.trim().isEmpty()) {
+                continue;
+            }
+            Matcher matcher = MODIFICATION.matcher(statement);
+            boolean found = false;
+            while (matcher.find()) {
+                found = true;
+                for (String table : splitIdentifiers(matcher.group(1))) {
+                    invalidate(table);
+                }
+            }
+            if (!found && !READ_ONLY.matcher(statement).find()) {
+                clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Expand the extents of the table with the geometry of the inserted row.
+     *
+     * @return False if the extents cannot be expanded.
+     */
+    private boolean expand(String tableName, List<Object> params) {
+        Geometry geometry = null;
+        for (Object param : params) {
+            if (param instanceof Geometry) {
+                if (geometry != null) {
+                    return false;
+                }
+                geometry = (Geometry) param;
+            }
+        }
+        if (geometry == null) {
+            return false;
+        }
+        TableKey key = key(TableLocation.parse(tableName, dbType));
+        Set<TableKey> keys = extents.keySet().stream().filter(key::matches).collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            return true;
+        }
+        Map<String, Entry> table = keys.size() == 1 ? extents.get(keys.iterator().next()) : null;
+        if (table == null || !table.values().stream().allMatch(entry -> entry.singleGeom)) {
+            //The inserted table is ambiguous or has several geometry columns
+            extents.keySet().removeAll(keys);
+            return true;
+        }
+        if (!geometry.isEmpty()) {
+            Envelope envelope = geometry.getEnvelopeInternal();
+            table.replaceAll((columns, entry) -> {
+                Envelope expanded = new Envelope(entry.extent.getEnvelopeInternal());
+                expanded.expandToInclude(envelope);
+                Geometry extent = entry.extent.getFactory().toGeometry(expanded);
+                extent.setSRID(entry.extent.getSRID());
+                return new Entry(extent, true, entry.time);
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Split a comma separated list of identifiers, ignoring the commas in the quoted identifiers.
+     */
+    private static String[] splitIdentifiers(String identifiers) {
+        return identifiers.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+    }
+
+    /**
+     * Return the key of a table from its catalog, schema and name.
+     */
+    private TableKey key(TableLocation location) {
+        return new TableKey(identifier(location.getCatalog()), identifier(location.getSchema()),
+                identifier(location.getTable()));
+    }
+
+    /**
+     * Return the identifier in the case of the database, the parsed identifiers being still quoted in some qualified
+     * names.
+     */
+    private String identifier(String identifier) {
+        if (identifier == null || identifier.isEmpty()) {
+            return "";
+        }
+        if (identifier.length() > 1 && identifier.startsWith("\"") && identifier.endsWith("\"")) {
+            identifier = identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+        }
+        return TableLocation.capsIdentifier(identifier, dbType);
+    }
+
+    private String key(String... columns) {
+        StringBuilder key = new StringBuilder();
+        for (String column : columns) {
+            key.append(TableLocation.capsIdentifier(column, dbType).toUpperCase(Locale.ROOT)).append(',');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Key of a table, the empty catalog or schema of a name which is not fully qualified matching any catalog or
+     * schema.
+     */
+    private static final class TableKey {
+        private final String catalog;
+        private final String schema;
+        private final String table;
+
+        private TableKey(String catalog, String schema, String table) {
+            this.catalog = catalog;
+            this.schema = schema;
+            this.table = table;
+        }
+
+        /**
+         * Return true if the given key may designate the same table.
+         */
+        private boolean matches(TableKey other) {
+            return table.equals(other.table) && (schema.isEmpty() || other.schema.isEmpty() ||
+                    schema.equals(other.schema)) && (catalog.isEmpty() || other.catalog.isEmpty() ||
+                    catalog.equals(other.catalog));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TableKey)) {
+                return false;
+            }
+            TableKey key = (TableKey) o;
+            return catalog.equals(key.catalog) && schema.equals(key.schema) && table.equals(key.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(catalog, schema, table);
+        }
+    }
+
+    /**
+     * Cached extent.
+     */
+    private static final class Entry {
+        private final Geometry extent;
+        private final boolean singleGeom;
+        /**
+         * Time of the computation of the extent, from {@link System#nanoTime()}.
+         */
+        private final long time;
+
+        private Entry(Geometry extent, boolean singleGeom, long time) {
+            this.extent = extent;
+            this.singleGeom = singleGeom;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.orbisgis.data.api.datasource.IJdbcDataSource;
+import org.orbisgis.data.api.datasource.IJdbcDataSource.IndexType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build of several indexes concurrently, each one on its own {@link Connection} of a {@link ConnectionPool}.
+ */
+final class IndexBuilder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexBuilder.class);
+
+    private IndexBuilder() {
+    }
+
+    /**
+     * Create the given indexes with at most threadCount connections. The columns already indexed are skipped.
+     *
+     * @param dataSource  {@link IJdbcDataSource} containing the tables.
+     * @param indexes     Map of the table names to the map of their column names to the kind of index to create.
+     * @param threadCount Maximum number of indexes built concurrently.
+     * @return A map of the 'table.column' names to the time in milliseconds spent to build their index, -1 if the
+     * column was already indexed. The indexes which cannot be created are not in the map.
+     * @throws SQLException Exception thrown if the build is interrupted.
+     */
+    static Map<String, Long> build(IJdbcDataSource dataSource, Map<String, Map<String, IndexType>> indexes,
+                                   int threadCount) throws SQLException {
+        List<String[]> columns = new ArrayList<>();
+        List<IndexType> types = new ArrayList<>();
+        indexes.forEach((table, tableColumns) -> tableColumns.forEach((column, type) -> {
+            columns.add(new String[]{table, column});
+            types.add(type == null ? IndexType.INDEX : type);
+        }));
+        DBTypes dbType = dataSource.getDataBaseType();
+        List<Long> times = ConnectionPool.run(dataSource, 0, columns.size(), threadCount, (con, i) ->
+                build(con, dbType, columns.get(i)[0], columns.get(i)[1], types.get(i)));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (times.get(i) != null) {
+                result.put(columns.get(i)[0] + "." + columns.get(i)[1], times.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create an index on the column of the table if it is not already indexed.
+     *
+     * @return The time in milliseconds spent to build the index, -1 if the column was already indexed or null if the
+     * index cannot be created.
+     */
+    private static Long build(Connection connection, DBTypes dbType, String tableName, String columnName,
+                              IndexType type) {
+        try {
+            TableLocation table = TableLocation.parse(tableName, dbType);
+            boolean spatial = type == IndexType.SPATIAL;
+            if (spatial ? JDBCUtilities.isSpatialIndexed(connection, table, columnName) :
+                    JDBCUtilities.isIndexed(connection, table, columnName)) {
+                LOGGER.debug("The column '" + columnName + "' of the table '" + tableName + "' is already indexed.");
+                return -1L;
+            }
+            long start = System.currentTimeMillis();
+            boolean created = spatial ? JDBCUtilities.createSpatialIndex(connection, table, columnName) :
+                    JDBCUtilities.createIndex(connection, table, columnName);
+            long time = System.currentTimeMillis() - start;
+            if (!created) {
+                LOGGER.error("Unable to create an index on the column '" + columnName + "' in the table '" +
+                        tableName + "'.");
+                return null;
+            }
+            LOGGER.info("Index on the column '" + columnName + "' of the table '" + tableName + "' created in " +
+                    time + " ms.");
+            return time;
+        } catch (SQLException e) {
+            LOGGER.error("Unable to create an index on the column '" + columnName + "' in the table '" + tableName +
+                    "'.\n" + e.getLocalizedMessage());
+            return null;
+        }
+    }
+}
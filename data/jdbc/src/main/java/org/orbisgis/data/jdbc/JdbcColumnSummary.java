@@ -0,0 +1,282 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statistics of one column of a {@link JdbcTable} computed by the database while building a {@link JdbcTableSummary}.
+ * The statistics which are not relevant for the column type (i.e. mean of a text column, extent of a numeric column)
+ * are null.
+ */
+public class JdbcColumnSummary {
+
+    /**
+     * Name of the column.
+     */
+    private final String name;
+    /**
+     * Name of the database type of the column.
+     */
+    private final String typeName;
+    /**
+     * Count of the non-null values.
+     */
+    private long count;
+    /**
+     * Count of the null values.
+     */
+    private long nullCount;
+    /**
+     * Count of the distinct non-null values.
+     */
+    private Long distinctCount;
+    /**
+     * Minimum value.
+     */
+    private Object min;
+    /**
+     * Maximum value.
+     */
+    private Object max;
+    /**
+     * Mean of the values.
+     */
+    private Double mean;
+    /**
+     * Sample standard deviation of the values.
+     */
+    private Double stdDev;
+    /**
+     * Extent of the geometries.
+     */
+    private Envelope extent;
+    /**
+     * Count of geometries by geometry type.
+     */
+    private final Map<String, Long> geometryTypes = new LinkedHashMap<>();
+
+    /**
+     * Main constructor.
+     *
+     * @param name     Name of the column.
+     * @param typeName Name of the database type of the column.
+     */
+    public JdbcColumnSummary(String name, String typeName) {
+        this.name = name;
+        this.typeName = typeName;
+    }
+
+    /**
+     * Returns the name of the column.
+     *
+     * @return The name of the column.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the database type of the column.
+     *
+     * @return The name of the database type of the column.
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Returns the count of the non-null values.
+     *
+     * @return The count of the non-null values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    void setCount(long count) {
+        this.count = count;
+    }
+
+    /**
+     * Returns the count of the null values.
+     *
+     * @return The count of the null values.
+     */
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    void setNullCount(long nullCount) {
+        this.nullCount = nullCount;
+    }
+
+    /**
+     * Returns the count of the distinct non-null values, null if not computed for the column type.
+     *
+     * @return The count of the distinct non-null values.
+     */
+    public Long getDistinctCount() {
+        return distinctCount;
+    }
+
+    void setDistinctCount(Long distinctCount) {
+        this.distinctCount = distinctCount;
+    }
+
+    /**
+     * Returns the minimum value, null if not computed for the column type or if all the values are null.
+     *
+     * @return The minimum value.
+     */
+    public Object getMin() {
+        return min;
+    }
+
+    void setMin(Object min) {
+        this.min = min;
+    }
+
+    /**
+     * Returns the maximum value, null if not computed for the column type or if all the values are null.
+     *
+     * @return The maximum value.
+     */
+    public Object getMax() {
+        return max;
+    }
+
+    void setMax(Object max) {
+        this.max = max;
+    }
+
+    /**
+     * Returns the mean of a numeric column, null otherwise.
+     *
+     * @return The mean of the values.
+     */
+    public Double getMean() {
+        return mean;
+    }
+
+    void setMean(Double mean) {
+        this.mean = mean;
+    }
+
+    /**
+     * Returns the sample standard deviation of a numeric column, null otherwise.
+     *
+     * @return The sample standard deviation of the values.
+     */
+    public Double getStdDev() {
+        return stdDev;
+    }
+
+    void setStdDev(Double stdDev) {
+        this.stdDev = stdDev;
+    }
+
+    /**
+     * Returns the extent of a geometric column, null otherwise.
+     *
+     * @return The extent of the geometries.
+     */
+    public Envelope getExtent() {
+        return extent;
+    }
+
+    void setExtent(Envelope extent) {
+        this.extent = extent;
+    }
+
+    /**
+     * Returns the count of geometries by geometry type of a geometric column. The map is empty for the other columns.
+     *
+     * @return The count of geometries by geometry type.
+     */
+    public Map<String, Long> getGeometryTypes() {
+        return Collections.unmodifiableMap(geometryTypes);
+    }
+
+    void putGeometryType(String geometryType, long count) {
+        if (count > 0) {
+            geometryTypes.put(geometryType, count);
+        }
+    }
+
+    /**
+     * Returns true if the column is a geometric one.
+     *
+     * @return True if the column is a geometric one, false otherwise.
+     */
+    public boolean isGeometric() {
+        return typeName != null && typeName.toLowerCase().startsWith("geometry");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name).append(" (").append(typeName).append(")")
+                .append("; count : ").append(count)
+                .append("; null count : ").append(nullCount);
+        if (distinctCount != null) {
+            builder.append("; distinct count : ").append(distinctCount);
+        }
+        if (min != null) {
+            builder.append("; min : ").append(min);
+        }
+        if (max != null) {
+            builder.append("; max : ").append(max);
+        }
+        if (mean != null) {
+            builder.append("; mean : ").append(mean);
+        }
+        if (stdDev != null) {
+            builder.append("; stddev : ").append(stdDev);
+        }
+        if (extent != null) {
+            builder.append("; extent : ").append(extent);
+        }
+        if (!geometryTypes.isEmpty()) {
+            builder.append("; geometry types : ").append(geometryTypes);
+        }
+        return builder.toString();
+    }
+}
@@ -158,6 +158,10 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
      * Wrapped {@link DataSource}
      */
     private final DataSource dataSource;
+    /**
+     * Cache of the extents of the spatial tables
+     */
+    private final ExtentCache extentCache;
 
     /**
      * Constructor to create a {@link JdbcDataSource} from a {@link Sql} object.
@@ -170,6 +174,7 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
         this.dataSource = parent.getDataSource();
         this.metaClass = InvokerHelper.getMetaClass(getClass());
         this.databaseType = databaseType;
+        this.extentCache = new ExtentCache(databaseType);
         LOG.setLevel(Level.OFF);
     }
 
@@ -184,6 +189,7 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
         this.dataSource = dataSource;
         this.metaClass = InvokerHelper.getMetaClass(getClass());
         this.databaseType = databaseType;
+        this.extentCache = new ExtentCache(databaseType);
         LOG.setLevel(Level.OFF);
     }
 
@@ -198,6 +204,7 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
         this.dataSource = null;
         this.metaClass = InvokerHelper.getMetaClass(getClass());
         this.databaseType = databaseType;
+        this.extentCache = new ExtentCache(databaseType);
         LOG.setLevel(Level.OFF);
     }
 
@@ -314,6 +321,13 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
         return this.dataSource;
     }
 
+    /**
+     * Return the {@link Connection} of the data source. The cached extents of the spatial tables are not updated by
+     * the queries executed directly on this connection, {@link #clearExtentCache(String)} should be called after
+     * modifying a table with it.
+     *
+     * @return The {@link Connection} of the data source.
+     */
     @Override
     public Connection getConnection() {
         Connection con = super.getConnection();
@@ -443,6 +457,104 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
         return new ResultSetBuilder(this).executeLargeUpdate(sql);
     }
 
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        try {
+            return super.executeUpdate(sql);
+        } finally {
+            extentCache.update(sql);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, List<Object> params) throws SQLException {
+        int result;
+        try {
+            result = super.executeUpdate(sql, params);
+        } catch (SQLException e) {
+            extentCache.update(sql);
+            throw e;
+        }
+        updateExtentCache(sql, params);
+        return result;
+    }
+
+    @Override
+    public List<List<Object>> executeInsert(String sql) throws SQLException {
+        try {
+            return super.executeInsert(sql);
+        } finally {
+            extentCache.update(sql);
+        }
+    }
+
+    @Override
+    public List<List<Object>> executeInsert(String sql, List<Object> params) throws SQLException {
+        List<List<Object>> result;
+        try {
+            result = super.executeInsert(sql, params);
+        } catch (SQLException e) {
+            extentCache.update(sql);
+            throw e;
+        }
+        updateExtentCache(sql, params);
+        return result;
+    }
+
+    @Override
+    public boolean execute(String sql, List<Object> params) throws SQLException {
+        boolean result;
+        try {
+            result = super.execute(sql, params);
+        } catch (SQLException e) {
+            extentCache.update(sql);
+            throw e;
+        }
+        updateExtentCache(sql, params);
+        return result;
+    }
+
+    /**
+     * Update the cached extents after the successful execution of the given query. The extents are only expanded
+     * with the inserted geometries in auto-commit mode, as the rows inserted in a transaction may be rolled back.
+     */
+    private void updateExtentCache(String sql, List<Object> params) throws SQLException {
+        extentCache.update(sql, getConnection().getAutoCommit() ? params : null);
+    }
+
+    /**
+     * Update the cached extents of the spatial tables after the execution of the given query without the methods of
+     * the data source, the extents of the tables modified by the query being forgotten.
+     *
+     * @param sql Executed query.
+     */
+    public void updateExtentCache(String sql) {
+        extentCache.update(sql);
+    }
+
+    @Override
+    public void setExtentCacheDuration(long duration) {
+        extentCache.setMaxAge(duration);
+    }
+
+    @Override
+    public void clearExtentCache(String tableName) {
+        if (tableName == null) {
+            extentCache.clear();
+        } else {
+            extentCache.invalidate(tableName);
+        }
+    }
+
+    /**
+     * Return the cache of the extents of the spatial tables.
+     *
+     * @return The {@link ExtentCache} of the data source.
+     */
+    ExtentCache getExtentCache() {
+        return extentCache;
+    }
+
     @Override
     public GroovyRowResult firstRow(GString gstring) throws SQLException {
         GroovyRowResult row;
@@ -486,11 +598,15 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
             try {
                 if (!getConnection().getAutoCommit()) {
                     super.rollback();
+                    //The extents read in the transaction may contain the rolled back rows
+                    extentCache.clear();
                 }
             } catch (SQLException e2) {
                 LOGGER.error("Unable to rollback.", e2.getLocalizedMessage());
             }
             throw e;
+        } finally {
+            extentCache.update(sql);
         }
     }
 
@@ -707,8 +823,12 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
     @Override
     public String link(String filePath, String tableName, boolean delete) throws Exception {
         String formatedTableName = TableLocation.parse(tableName, getDataBaseType()).toString();
+        try {
             IOMethods.linkedFile(getConnection(), filePath, tableName, delete);
-            return formatedTableName;
+        } finally {
+            extentCache.invalidate(tableName);
+        }
+        return formatedTableName;
     }
 
     @Override
@@ -795,7 +915,11 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
     public String load(String filePath, String tableName, String encoding,
                        boolean delete) throws Exception {
         String formatedTableName = TableLocation.parse(tableName, getDataBaseType()).toString();
-
+            extentCache.invalidate(tableName);
+            if (ArrowTableIO.isSupported(filePath)) {
+                ArrowTableIO.read(getConnection(), getDataBaseType(), new File(filePath), tableName, delete);
+                return formatedTableName;
+            }
             if (ioMethods == null) {
                 ioMethods = new IOMethods();
             }
@@ -918,7 +1042,8 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
 
     @Override
     public String load(IJdbcDataSource dataSource, String inputTableName, boolean deleteIfExists) throws Exception {
-             IOMethods.exportToDataBase(dataSource.getConnection(), inputTableName, getConnection(), inputTableName, deleteIfExists ? -1 : 0, 1000);
+             TableCopy.copy(dataSource.getConnection(), inputTableName, getConnection(), inputTableName, deleteIfExists ? -1 : 0, 1000);
+            extentCache.invalidate(inputTableName);
             TableLocation targetTableLocation = TableLocation.parse(inputTableName, this.getDataBaseType());
             return targetTableLocation.toString();
 
@@ -927,13 +1052,17 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
     @Override
     public String load(IJdbcDataSource dataSource, String inputTableName) throws Exception {
 
-            return IOMethods.exportToDataBase(dataSource.getConnection(), inputTableName, getConnection(), inputTableName, 0, 1000);
+            String outputTableName = TableCopy.copy(dataSource.getConnection(), inputTableName, getConnection(), inputTableName, 0, 1000);
+            extentCache.invalidate(outputTableName);
+            return outputTableName;
 
     }
 
     @Override
     public String load(IJdbcDataSource dataSource, String inputTableName, String outputTableName, boolean deleteIfExists, int batchSize) throws Exception {
-        return IOMethods.exportToDataBase(dataSource.getConnection(), inputTableName, getConnection(), outputTableName, deleteIfExists ? -1 : 0, 1000);
+        String outputTable = TableCopy.copy(dataSource.getConnection(), inputTableName, getConnection(), outputTableName, deleteIfExists ? -1 : 0, batchSize);
+        extentCache.invalidate(outputTable);
+        return outputTable;
     }
 
     @Override
@@ -1137,6 +1266,15 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
         return false;
     }
 
+    @Override
+    public Map<String, Long> createIndexes(Map<String, Map<String, IndexType>> indexes, int threadCount)
+            throws SQLException {
+        if (indexes == null || indexes.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        return IndexBuilder.build(this, indexes, threadCount);
+    }
+
     @Override
     public boolean hasGeometryColumn(String tableName) {
         if (tableName == null) {
@@ -1247,6 +1385,7 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
     }
     @Override
     public boolean setSrid(String tableName, String columnName, int srid) throws Exception{
+       extentCache.invalidate(tableName);
        return GeometryTableUtilities.alterSRID(getConnection(), TableLocation.parse(tableName, getDataBaseType()), columnName, srid);
    }
 
@@ -1272,6 +1411,7 @@ public abstract class JdbcDataSource extends Sql implements IJdbcDataSource, IRe
             if (geomColumn == null || geomColumn.isEmpty()) {
                 throw new IllegalArgumentException("Unable to get the srid");
             }
+            extentCache.invalidate(tableName);
             return GeometryTableUtilities.alterSRID(getConnection(), tableName, geomColumn, srid);
     }
 
@@ -36,9 +36,14 @@
  */
 package org.orbisgis.data.jdbc;
 
+import groovy.lang.Closure;
+import groovy.sql.Sql;
 import org.h2gis.utilities.*;
 import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
 import org.orbisgis.data.api.dataset.IJdbcSpatialTable;
 import org.orbisgis.data.api.dataset.IRaster;
 import org.orbisgis.data.api.datasource.IJdbcDataSource;
@@ -49,6 +54,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
@@ -65,6 +71,15 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcTable.class);
 
+    /**
+     * True if the geometries are decoded into geometries backed by packed coordinate sequences.
+     */
+    private boolean packedGeometries = false;
+    /**
+     * Reader of the packed geometries, reused for all the rows.
+     */
+    private WKBReader packedReader;
+
     /**
      * Main constructor.
      *
@@ -90,7 +105,7 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
     public Geometry getGeometry(int columnIndex) throws Exception {
         SpatialResultSet rs = (SpatialResultSet) getResultSet();
         if (rs != null) {
-            return rs.getGeometry(columnIndex);
+            return packedGeometries ? readPackedGeometry(rs, columnIndex) : rs.getGeometry(columnIndex);
         }
         throw new SQLException("Cannot find any geometry on column index " + columnIndex);
     }
@@ -99,7 +114,7 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
     public Geometry getGeometry(String columnLabel) throws Exception {
         SpatialResultSet rs = (SpatialResultSet) getResultSet();
         if (rs != null) {
-            return rs.getGeometry(columnLabel);
+            return packedGeometries ? readPackedGeometry(rs, rs.findColumn(columnLabel)) : rs.getGeometry(columnLabel);
         }
         throw new SQLException("Cannot find any geometry on column name " + columnLabel);
     }
@@ -108,11 +123,97 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
     public Geometry getGeometry() throws Exception {
         SpatialResultSet rs = (SpatialResultSet) getResultSet();
         if (rs != null) {
-            return rs.getGeometry();
+            return packedGeometries ? readPackedGeometry(rs, getMetaData().getFirstGeometryFieldIndex()) :
+                    rs.getGeometry();
         }
         throw new SQLException("Cannot read the data");
     }
 
+    /**
+     * Decode the WKB of the given column into a geometry backed by packed coordinate sequences, with the reader of
+     * the table.
+     */
+    private Geometry readPackedGeometry(ResultSet rs, int columnIndex) throws SQLException {
+        byte[] wkb = WKBGeometries.bytes(rs, columnIndex);
+        if (wkb == null) {
+            return null;
+        }
+        if (packedReader == null) {
+            packedReader = WKBGeometries.packedReader();
+        }
+        try {
+            return packedReader.read(wkb);
+        } catch (ParseException e) {
+            throw new SQLException("Cannot decode the geometry of the column " + columnIndex + ".", e);
+        }
+    }
+
+    /**
+     * Build the query selecting all the columns of the table, the geometry columns being replaced by the given
+     * function applied on them.
+     *
+     * @param function  Name of the SQL function.
+     * @param arguments Arguments of the function following the geometry.
+     * @return The select query.
+     * @throws SQLException Exception thrown if the columns cannot be read.
+     */
+    protected String getGeometryFunctionQuery(String function, Object... arguments) throws SQLException {
+        ResultSetMetaData meta = getMetaData();
+        StringJoiner fields = new StringJoiner(", ");
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            String columnName = TableLocation.quoteIdentifier(meta.getColumnName(i), getDbType());
+            if (meta.getColumnTypeName(i).toLowerCase().startsWith("geometry")) {
+                StringJoiner call = new StringJoiner(", ", function + "(", ") AS " + columnName);
+                call.add(columnName);
+                for (Object argument : arguments) {
+                    call.add(String.valueOf(argument));
+                }
+                fields.add(call.toString());
+            } else {
+                fields.add(columnName);
+            }
+        }
+        return "SELECT " + fields + " FROM " + getFromClause();
+    }
+
+    @Override
+    public void setPackedGeometries(boolean packed) {
+        this.packedGeometries = packed;
+    }
+
+    @Override
+    public boolean isPackedGeometries() {
+        return packedGeometries;
+    }
+
+    @Override
+    public Envelope getGeometryEnvelope(int columnIndex) throws Exception {
+        return WKBGeometries.envelope(getGeometryBytes(columnIndex));
+    }
+
+    @Override
+    public Envelope getGeometryEnvelope(String columnLabel) throws Exception {
+        return WKBGeometries.envelope(getGeometryBytes(columnLabel));
+    }
+
+    @Override
+    public byte[] getGeometryBytes(int columnIndex) throws Exception {
+        ResultSet rs = getResultSet();
+        if (rs != null) {
+            return WKBGeometries.bytes(rs, columnIndex);
+        }
+        throw new SQLException("Cannot find any geometry on column index " + columnIndex);
+    }
+
+    @Override
+    public byte[] getGeometryBytes(String columnLabel) throws Exception {
+        ResultSet rs = getResultSet();
+        if (rs != null) {
+            return WKBGeometries.bytes(rs, rs.findColumn(columnLabel));
+        }
+        throw new SQLException("Cannot find any geometry on column name " + columnLabel);
+    }
+
     @Override
     public IRaster getRaster(int columnIndex) throws Exception {
         throw new UnsupportedOperationException();
@@ -200,11 +301,17 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
                 return null;
             }
         } else {
+            Geometry extent = getCachedExtent(geometryColumns);
+            if (extent != null) {
+                return extent;
+            }
             Connection con = getJdbcDataSource().getConnection();
             if (con == null) {
                 throw new SQLException("Cannot get the connection to the database");
             }
-            return GeometryTableUtilities.getEnvelope(con, getTableLocation(), geometryColumns);
+            extent = GeometryTableUtilities.getEnvelope(con, getTableLocation(), geometryColumns);
+            cacheExtent(extent, geometryColumns);
+            return extent;
         }
     }
 
@@ -219,24 +326,32 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
             if (rs0 == null) {
                 throw new SQLException("Cannot read the data");
             }
-            Tuple<String, Integer> geomMeta = null;
-            TableLocation tableLocation = getTableLocation();
-            if (tableLocation == null) {
-                geomMeta = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(rs0.getMetaData());
-            } else {
-                geomMeta = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(con, tableLocation);
-            }
+            Tuple<String, Integer> geomMeta = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(rs0.getMetaData());
             if(geomMeta==null){
                 return null;
             }
+            //Without parameters, the envelope is computed by the database instead of reading all the geometries
+            if (getParams() == null || getParams().isEmpty()) {
+                try {
+                    return GeometryTableUtilities.getEnvelope(con, getBaseQuery(), new String[]{geomMeta.first()});
+                } catch (SQLException e) {
+                    LOGGER.debug("Unable to compute the envelope of the query, the geometries are read.", e);
+                }
+            }
             return GeometryTableUtilities.getEnvelope(rs0, geomMeta.first());
         } else {
+            Geometry extent = getCachedExtent();
+            if (extent != null) {
+                return extent;
+            }
             Connection con = getJdbcDataSource().getConnection();
             if (con == null) {
                 throw new SQLException("Cannot get the connection to the database");
             }
             Tuple<String, Integer> geomMeta = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(con, getTableLocation());
-            return GeometryTableUtilities.getEnvelope(con, getTableLocation(), geomMeta.first());
+            extent = GeometryTableUtilities.getEnvelope(con, getTableLocation(), geomMeta.first());
+            cacheExtent(extent);
+            return extent;
         }
     }
 
@@ -245,6 +360,11 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
         if (getTableLocation() == null) {
             throw new UnsupportedOperationException();
         }
+        //The exact extent is the best estimation
+        Geometry extent = getCachedExtent();
+        if (extent != null) {
+            return extent;
+        }
         Connection con = getJdbcDataSource().getConnection();
         if (con == null) {
             throw new SQLException("Cannot get the connection to the database");
@@ -253,6 +373,31 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
         return GeometryTableUtilities.getEstimatedExtent(con, getTableLocation(), geomMeta.first());
     }
 
+    /**
+     * Return a copy of the extent cached by the data source.
+     *
+     * @param geometryColumns Geometry columns of the extent, empty for the first geometry column.
+     * @return The cached extent, null if it is not cached.
+     */
+    private Geometry getCachedExtent(String... geometryColumns) {
+        return getJdbcDataSource() instanceof JdbcDataSource ?
+                ((JdbcDataSource) getJdbcDataSource()).getExtentCache().get(getTableLocation(), geometryColumns) : null;
+    }
+
+    /**
+     * Cache the extent in the data source.
+     *
+     * @param extent          Extent to cache.
+     * @param geometryColumns Geometry columns of the extent, empty for the first geometry column.
+     */
+    private void cacheExtent(Geometry extent, String... geometryColumns) throws Exception {
+        if (extent != null && getJdbcDataSource() instanceof JdbcDataSource) {
+            List<String> columns = getGeometricColumns();
+            ((JdbcDataSource) getJdbcDataSource()).getExtentCache().put(getTableLocation(), extent,
+                    columns != null && columns.size() == 1, geometryColumns);
+        }
+    }
+
 
     @Override
     public void setSrid(int srid) throws Exception {
@@ -266,6 +411,7 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
         }
         String geomColumn = getGeometricColumns().get(0);
         String type = getColumnType(geomColumn);
+        getJdbcDataSource().clearExtentCache(getTableLocation().toString(getDbType()));
         con.createStatement().execute(
                 "ALTER TABLE " + getLocation() + " ALTER COLUMN " + geomColumn + " TYPE geometry(" + type + ", " + srid + ") USING ST_SetSRID(" + geomColumn + "," + srid + ");");
 
@@ -302,6 +448,141 @@ public abstract class JdbcSpatialTable extends JdbcTable<StreamSpatialResultSet>
         }
     }
 
+    @Override
+    public List<Envelope> getTiles(int columnCount, int rowCount) throws Exception {
+        return SpatialTiling.grid(getTilingExtent(), columnCount, rowCount);
+    }
+
+    @Override
+    public List<Envelope> getTiles(int maxFeatures) throws Exception {
+        return SpatialTiling.quadtree(getJdbcDataSource().getConnection(), getFromClause(), getQuotedGeometryColumn(),
+                getTilingExtent(), maxFeatures);
+    }
+
+    @Override
+    public String processTiles(List<Envelope> tiles, String query, String outputTable, int threadCount)
+            throws Exception {
+        if (tiles == null || tiles.isEmpty()) {
+            throw new IllegalArgumentException("There is no tile to process.");
+        }
+        if (query == null || !query.contains("{tile_filter}")) {
+            throw new IllegalArgumentException("The query should contain the {tile_filter} placeholder.");
+        }
+        String geometry = getQuotedGeometryColumn();
+        int srid = getSrid();
+        Envelope bounds = SpatialTiling.bounds(tiles);
+        String output = TableLocation.parse(outputTable, getDbType()).toString(getDbType());
+        ConnectionPool.Task<Integer> task = (con, index) -> {
+            Envelope tile = tiles.get(index);
+            String select = query.replace("{tile_filter}", SpatialTiling.filter(geometry, tile, bounds, srid))
+                    .replace("{tile_envelope}", SpatialTiling.envelope(tile, srid))
+                    .replace("{tile_id}", Integer.toString(index));
+            try (Statement st = con.createStatement()) {
+                return st.executeUpdate(index == 0 ? "CREATE TABLE " + output + " AS " + select :
+                        "INSERT INTO " + output + " " + select);
+            }
+        };
+        Connection con = getJdbcDataSource().getConnection();
+        try (Statement st = con.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + output);
+        }
+        getJdbcDataSource().clearExtentCache(outputTable);
+        try {
+            ConnectionPool.run(getJdbcDataSource(), 0, 1, 1, task);
+            ConnectionPool.run(getJdbcDataSource(), 1, tiles.size(), threadCount, task);
+        } catch (SQLException e) {
+            //Do not leave the results of the processed tiles only
+            try (Statement st = con.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS " + output);
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        return outputTable;
+    }
+
+    @Override
+    public List<Object> eachTile(List<Envelope> tiles, int threadCount, Closure<Object> closure) throws Exception {
+        String geometry = getQuotedGeometryColumn();
+        int srid = getSrid();
+        Envelope bounds = SpatialTiling.bounds(tiles);
+        return ConnectionPool.run(getJdbcDataSource(), 0, tiles.size(), threadCount, (con, index) -> {
+            Envelope tile = tiles.get(index);
+            return closure.call(new Sql(con), tile, SpatialTiling.filter(geometry, tile, bounds, srid));
+        });
+    }
+
+    @Override
+    public String reproject(int srid, String outputTable) throws Exception {
+        Reprojection.write(getJdbcDataSource().getConnection(), getDbType(), getFromClause(), getTableLocation(),
+                TableLocation.parse(outputTable, getDbType()), srid);
+        getJdbcDataSource().clearExtentCache(outputTable);
+        return outputTable;
+    }
+
+    @Override
+    public Stream<Map<String, Object>> reprojectStream(int srid) throws Exception {
+        return Reprojection.stream(getJdbcDataSource().getConnection(), getFromClause(), getTableLocation(), srid);
+    }
+
+    @Override
+    public IJdbcSpatialTable<StreamSpatialResultSet> spatialJoin(IJdbcSpatialTable<?> other, String predicate)
+            throws Exception {
+        String function = SpatialJoin.predicate(predicate);
+        IJdbcDataSource dataSource = getJdbcDataSource();
+        if (!(other instanceof JdbcSpatialTable) || ((JdbcSpatialTable) other).getJdbcDataSource() != dataSource) {
+            throw new IllegalArgumentException("The joined tables should be in the same data source.");
+        }
+        JdbcSpatialTable table = (JdbcSpatialTable) other;
+        String columns = SpatialJoin.columns(getColumnNames(), table.getColumnNames(), getDbType());
+        if (getTableLocation() != null && table.getTableLocation() != null) {
+            String geometry = getGeometricColumns().get(0);
+            String otherGeometry = table.getGeometricColumns().get(0);
+            if (!dataSource.isSpatialIndexed(getLocation(), geometry) &&
+                    !dataSource.isSpatialIndexed(table.getLocation(), otherGeometry)) {
+                if (getRowCount() <= table.getRowCount()) {
+                    dataSource.createSpatialIndex(getLocation(), geometry);
+                } else {
+                    dataSource.createSpatialIndex(table.getLocation(), otherGeometry);
+                }
+            }
+            return dataSource.getSpatialTable("(" + SpatialJoin.query(columns, getFromClause(),
+                    getQuotedGeometryColumn(), table.getFromClause(), table.getQuotedGeometryColumn(), function,
+                    getDbType()) + ")");
+        }
+        String output = SpatialJoin.join(dataSource.getConnection(), getDbType(), columns, getFromClause(),
+                table.getFromClause(), function, getRowCount() <= table.getRowCount());
+        dataSource.clearExtentCache(output);
+        return dataSource.getSpatialTable(output);
+    }
+
+    /**
+     * Return the quoted name of the first geometry column, used to split or to join the table.
+     *
+     * @return The quoted name of the geometry column.
+     */
+    private String getQuotedGeometryColumn() throws Exception {
+        List<String> geomColumns = getGeometricColumns();
+        if (geomColumns == null || geomColumns.isEmpty()) {
+            throw new IllegalArgumentException("The table has no geometry column.");
+        }
+        return TableLocation.quoteIdentifier(geomColumns.get(0), getDbType());
+    }
+
+    /**
+     * Return the extent to split into tiles : the estimated extent if available, the exact one otherwise.
+     *
+     * @return The extent to split, null if the table is empty.
+     */
+    private Envelope getTilingExtent() throws Exception {
+        Geometry extent = getTableLocation() != null ? getEstimatedExtent() : null;
+        if (extent == null || extent.isEmpty()) {
+            extent = getExtent();
+        }
+        return extent == null || extent.isEmpty() ? null : extent.getEnvelopeInternal();
+    }
+
     @Override
     public SpatialResultSetMetaData getMetaData() throws SQLException {
         ResultSet rs = getResultSet();
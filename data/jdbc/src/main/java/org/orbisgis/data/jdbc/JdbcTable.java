@@ -41,9 +41,11 @@ import org.codehaus.groovy.runtime.InvokerHelper;
 import org.h2gis.functions.io.utility.IOMethods;
 import org.h2gis.utilities.*;
 import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.Envelope;
 import org.orbisgis.commons.printer.Ascii;
 import org.orbisgis.commons.printer.Html;
 import org.orbisgis.commons.printer.ICustomPrinter;
+import org.orbisgis.commons.utilities.HyperLogLog;
 import org.orbisgis.data.api.dataset.*;
 import org.orbisgis.data.api.datasource.IJdbcDataSource;
 import org.orbisgis.data.api.dsl.IBuilderResult;
@@ -56,10 +58,14 @@ import org.orbisgis.data.jdbc.resultset.DefaultResultSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.sql.*;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.orbisgis.commons.printer.ICustomPrinter.CellPosition.*;
 
@@ -80,6 +86,15 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
      * Default width of the columns in ascii print
      */
     private static final int ASCII_COLUMN_WIDTH = 20;
+    /**
+     * Count of rows fetched at once when streaming values
+     */
+    private static final int STREAMING_FETCH_SIZE = 10000;
+    /**
+     * Geometry types counted in the column statistics of the summary
+     */
+    private static final String[] GEOMETRY_TYPES = {"POINT", "LINESTRING", "POLYGON", "MULTIPOINT",
+            "MULTILINESTRING", "MULTIPOLYGON", "GEOMETRYCOLLECTION"};
     /**
      * MetaClass use for groovy methods/properties binding
      */
@@ -116,6 +131,10 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
      * {@link ResultSet} properties.
      */
     private IResultSetProperties rsp;
+    /**
+     * True if the statement is owned by this table and should be closed with it.
+     */
+    private boolean closeStatement = false;
 
     /**
      * Main constructor.
@@ -425,6 +444,121 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
         return null;
     }
 
+    @Override
+    public long getDistinctCount(String column, boolean approximate) throws Exception {
+        String col = quoteColumn(column);
+        Connection con = jdbcDataSource.getConnection();
+        if (!approximate) {
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(DISTINCT " + col + ") FROM " + getFromClause())) {
+                rs.next();
+                return rs.getLong(1);
+            } catch (SQLException e) {
+                throw new SQLException("Unable to count the distinct values of the column '" + column + "'.", e);
+            }
+        }
+        HyperLogLog hll = new HyperLogLog();
+        try (Statement st = createStreamingStatement(con);
+             ResultSet rs = st.executeQuery("SELECT " + col + " FROM " + getFromClause() + " WHERE " + col + " IS NOT NULL")) {
+            int type = rs.getMetaData().getColumnType(1);
+            while (rs.next()) {
+                addToSketch(hll, rs, 1, type);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Unable to estimate the distinct values count of the column '" + column + "'.", e);
+        }
+        return hll.estimate();
+    }
+
+    @Override
+    public Map<Object, Long> getTopValues(String column, int k) throws Exception {
+        Map<Object, Long> map = new LinkedHashMap<>();
+        if (k <= 0) {
+            return map;
+        }
+        String col = quoteColumn(column);
+        Connection con = jdbcDataSource.getConnection();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + col + ", COUNT(*) FROM " + getFromClause() +
+                     " WHERE " + col + " IS NOT NULL GROUP BY " + col + " ORDER BY COUNT(*) DESC LIMIT " + k)) {
+            while (rs.next()) {
+                map.put(rs.getObject(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Unable to get the most frequent values of the column '" + column + "'.", e);
+        }
+        return map;
+    }
+
+    @Override
+    public Stream<Object> uniqueValues(String column, int limit) throws Exception {
+        String col = quoteColumn(column);
+        String query = "SELECT DISTINCT " + col + " FROM " + getFromClause() + " WHERE " + col + " IS NOT NULL" +
+                (limit >= 0 ? " LIMIT " + limit : "");
+        Statement st = createStreamingStatement(jdbcDataSource.getConnection());
+        try {
+            ColumnValuesIterator it = new ColumnValuesIterator(st, st.executeQuery(query));
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it,
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false).onClose(it::close);
+        } catch (SQLException e) {
+            st.close();
+            throw new SQLException("Unable to get the unique values of the column '" + column + "'.", e);
+        }
+    }
+
+    @Override
+    public Iterator<IJdbcTable<?>> pages(String keyColumn, int pageSize) throws Exception {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size should be greater than 0.");
+        }
+        return new KeysetPageIterator(jdbcDataSource, getFromClause(), getParams(), quoteColumn(keyColumn),
+                pageSize);
+    }
+
+    /**
+     * Make this table close its statement with its {@link ResultSet}, used when the statement has been created only
+     * for this table.
+     */
+    void closeStatementOnClose() {
+        this.closeStatement = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (resultSet != null) {
+                super.close();
+            }
+        } finally {
+            if (closeStatement && statement != null) {
+                statement.close();
+            }
+        }
+    }
+
+    /**
+     * Create a forward only and read only {@link Statement} fetching the rows by blocks, dedicated to the streaming of
+     * large results.
+     *
+     * @param con {@link Connection} to use.
+     * @return A forward only and read only {@link Statement}.
+     */
+    private static Statement createStreamingStatement(Connection con) throws SQLException {
+        Statement st = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        st.setFetchSize(STREAMING_FETCH_SIZE);
+        return st;
+    }
+
+    /**
+     * Format and quote the given column name according to the DB type.
+     *
+     * @param column Column name to quote.
+     * @return The quoted column name.
+     */
+    private String quoteColumn(String column) {
+        return TableLocation.quoteIdentifier(TableLocation.capsIdentifier(column, getDbType()), getDbType());
+    }
+
     @Override
 
     public Map<String, Object> firstRow() throws Exception {
@@ -451,6 +585,17 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
 
     @Override
     public String save(String filePath, boolean deleteFile) throws Exception {
+        if (ArrowTableIO.isSupported(filePath)) {
+            File file = new File(filePath);
+            if (deleteFile) {
+                Files.deleteIfExists(file.toPath());
+            } else if (file.exists()) {
+                throw new SQLException("The file " + filePath + " already exists.");
+            }
+            ArrowTableIO.write(getJdbcDataSource().getConnection(), "SELECT * FROM " + getFromClause(),
+                    getTableLocation(), file);
+            return filePath;
+        }
         String toSave = getTableLocation() == null ? "(" + getBaseQuery() + ")" : getTableLocation().toString(getDbType());
         try {
             if (ioMethods == null) {
@@ -499,9 +644,11 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
         }
         String inputTableName = getTableLocation() == null ? "(" + getBaseQuery() + ")" : getTableLocation().toString(getDbType());
         try {
-            return IOMethods.exportToDataBase(getJdbcDataSource().getConnection(), inputTableName, dataSource.getConnection(), outputTableName, deleteTable ? -1 : 0, batchSize);
+            String outputTable = TableCopy.copy(getJdbcDataSource().getConnection(), inputTableName, dataSource.getConnection(), outputTableName, deleteTable ? -1 : 0, batchSize);
+            dataSource.clearExtentCache(outputTable);
+            return outputTable;
         } catch (SQLException e) {
-            throw new SQLException("Unable to save the table " + inputTableName + " to " + dataSource.getLocation().toString());
+            throw new SQLException("Unable to save the table " + inputTableName + " to " + dataSource.getLocation().toString(), e);
         }
     }
 
@@ -511,7 +658,9 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
             throw new SQLException("Cannot get the connection to the database");
         }
         String inputTableName = getTableLocation() == null ? "(" + getBaseQuery() + ")" : getTableLocation().toString(getDbType());
-        return IOMethods.exportToDataBase(getJdbcDataSource().getConnection(), inputTableName, dataSource.getConnection(), inputTableName, deleteTable ? -1 : 0, batchSize);
+        String outputTable = TableCopy.copy(getJdbcDataSource().getConnection(), inputTableName, dataSource.getConnection(), inputTableName, deleteTable ? -1 : 0, batchSize);
+        dataSource.clearExtentCache(outputTable);
+        return outputTable;
         }
 
 
@@ -531,7 +680,7 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
 
     public IBuilderResult filter(String filter) {
         String loc = getTableLocation() != null ? getTableLocation().toString(getDbType()) : getBaseQuery();
-        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getResultSetProperties());
+        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getParams(), getResultSetProperties());
         return builder.filter(filter);
     }
 
@@ -539,7 +688,7 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
 
     public IBuilderResult filter(GString filter) {
         String loc = getTableLocation() != null ? getTableLocation().toString(getDbType()) : getBaseQuery();
-        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getResultSetProperties());
+        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getParams(), getResultSetProperties());
         return builder.filter(filter);
     }
 
@@ -547,7 +696,7 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
 
     public IBuilderResult filter(String filter, List<Object> params) {
         String loc = getTableLocation() != null ? getTableLocation().toString(getDbType()) : getBaseQuery();
-        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getResultSetProperties());
+        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getParams(), getResultSetProperties());
         return builder.filter(filter, params);
     }
 
@@ -555,7 +704,7 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
 
     public IFilterBuilder columns(String... columns) {
         String loc = getTableLocation() != null ? getTableLocation().toString(getDbType()) : getBaseQuery();
-        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getResultSetProperties());
+        IQueryBuilder builder = new QueryBuilder(getJdbcDataSource(), loc, getParams(), getResultSetProperties());
         return builder.columns(columns);
     }
 
@@ -667,6 +816,222 @@ public abstract class JdbcTable<T extends ResultSet> extends DefaultResultSet im
         return new JdbcTableSummary(getTableLocation(), getColumnCount(), getRowCount());
     }
 
+    @Override
+    public JdbcTableSummary getSummary(boolean columnStatistics) throws Exception {
+        if (!columnStatistics) {
+            return getSummary();
+        }
+        ResultSet limited = getResultSetLimit(0);
+        List<JdbcColumnSummary> summaries = new ArrayList<>();
+        int[] types;
+        try {
+            ResultSetMetaData metaData = limited.getMetaData();
+            types = new int[metaData.getColumnCount()];
+            for (int i = 1; i <= types.length; i++) {
+                summaries.add(new JdbcColumnSummary(metaData.getColumnName(i), metaData.getColumnTypeName(i)));
+                types[i - 1] = metaData.getColumnType(i);
+            }
+        } finally {
+            if (limited != resultSet) {
+                Statement st = limited.getStatement();
+                limited.close();
+                if (st != null) {
+                    st.close();
+                }
+            }
+        }
+        int columnCount = types.length;
+        StringBuilder query = new StringBuilder("SELECT COUNT(*)");
+        for (int i = 0; i < columnCount; i++) {
+            JdbcColumnSummary summary = summaries.get(i);
+            String column = TableLocation.quoteIdentifier(summary.getName(), getDbType());
+            query.append(", COUNT(").append(column).append(")");
+            int type = types[i];
+            if (summary.isGeometric()) {
+                query.append(", ST_XMIN(ST_EXTENT(").append(column).append("))")
+                        .append(", ST_YMIN(ST_EXTENT(").append(column).append("))")
+                        .append(", ST_XMAX(ST_EXTENT(").append(column).append("))")
+                        .append(", ST_YMAX(ST_EXTENT(").append(column).append("))");
+                String geometryType = (getDbType() == DBTypes.POSTGIS || getDbType() == DBTypes.POSTGRESQL ?
+                        "GEOMETRYTYPE(" : "ST_GEOMETRYTYPE(") + column + ")";
+                for (String name : GEOMETRY_TYPES) {
+                    query.append(", SUM(CASE WHEN UPPER(").append(geometryType).append(") LIKE '").append(name)
+                            .append("%' THEN 1 ELSE 0 END)");
+                }
+            } else if (isNumeric(type)) {
+                query.append(", MIN(").append(column).append("), MAX(").append(column).append(")")
+                        .append(", AVG(").append(column).append("), STDDEV_SAMP(").append(column).append(")")
+                        .append(", COUNT(DISTINCT ").append(column).append(")");
+            } else if (isComparable(type)) {
+                query.append(", MIN(").append(column).append("), MAX(").append(column).append(")")
+                        .append(", COUNT(DISTINCT ").append(column).append(")");
+            } else if (type == Types.BOOLEAN || type == Types.BIT) {
+                query.append(", COUNT(DISTINCT ").append(column).append(")");
+            }
+        }
+        query.append(" FROM ").append(getFromClause());
+
+        Connection con = jdbcDataSource.getConnection();
+        int rowCount;
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(query.toString())) {
+            rs.next();
+            rowCount = rs.getInt(1);
+            int index = 2;
+            for (int i = 0; i < columnCount; i++) {
+                JdbcColumnSummary summary = summaries.get(i);
+                int type = types[i];
+                long count = rs.getLong(index++);
+                summary.setCount(count);
+                summary.setNullCount(rowCount - count);
+                if (summary.isGeometric()) {
+                    double minX = rs.getDouble(index++);
+                    double minY = rs.getDouble(index++);
+                    double maxX = rs.getDouble(index++);
+                    double maxY = rs.getDouble(index++);
+                    if (count > 0) {
+                        summary.setExtent(new Envelope(minX, maxX, minY, maxY));
+                    }
+                    for (String name : GEOMETRY_TYPES) {
+                        summary.putGeometryType(name, rs.getLong(index++));
+                    }
+                } else if (isNumeric(type)) {
+                    summary.setMin(rs.getObject(index++));
+                    summary.setMax(rs.getObject(index++));
+                    summary.setMean(toDouble(rs.getObject(index++)));
+                    summary.setStdDev(toDouble(rs.getObject(index++)));
+                    summary.setDistinctCount(rs.getLong(index++));
+                } else if (isComparable(type)) {
+                    summary.setMin(rs.getObject(index++));
+                    summary.setMax(rs.getObject(index++));
+                    summary.setDistinctCount(rs.getLong(index++));
+                } else if (type == Types.BOOLEAN || type == Types.BIT) {
+                    summary.setDistinctCount(rs.getLong(index++));
+                }
+            }
+            if (!con.getAutoCommit()) {
+                con.commit();
+            }
+        } catch (SQLException e) {
+            try {
+                if (!con.getAutoCommit()) {
+                    con.rollback();
+                }
+            } catch (SQLException e1) {
+                LOGGER.error("Unable to rollback.", e1);
+            }
+            throw new SQLException("Unable to compute the summary of the table '" + getName() + "'.", e);
+        }
+        return new JdbcTableSummary(getTableLocation(), columnCount, rowCount, summaries);
+    }
+
+    /**
+     * Add the non null value of the given column of the current row to the {@link HyperLogLog} sketch.
+     *
+     * @param hll   {@link HyperLogLog} sketch.
+     * @param rs    {@link ResultSet} on the current row.
+     * @param index Index of the column.
+     * @param type  {@link Types} of the column.
+     */
+    private static void addToSketch(HyperLogLog hll, ResultSet rs, int index, int type) throws SQLException {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                long l = rs.getLong(index);
+                if (!rs.wasNull()) {
+                    hll.add(l);
+                }
+                break;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                double d = rs.getDouble(index);
+                if (!rs.wasNull()) {
+                    hll.add(d);
+                }
+                break;
+            default:
+                Object value = rs.getObject(index);
+                if (value != null) {
+                    hll.add(value);
+                }
+        }
+    }
+
+    /**
+     * Returns the FROM clause content of the queries on the table : the table location or the base query as sub-query.
+     *
+     * @return The FROM clause content.
+     */
+    String getFromClause() {
+        if (tableLocation != null) {
+            return tableLocation.toString(getDbType());
+        }
+        if (getBaseQuery().startsWith("(") && getBaseQuery().endsWith(")")) {
+            return getBaseQuery() + " AS FOO";
+        }
+        return "(" + getBaseQuery() + ") AS FOO";
+    }
+
+    /**
+     * Returns true if the given {@link Types} is a numeric one.
+     *
+     * @param type {@link Types} value.
+     * @return True if the given {@link Types} is a numeric one, false otherwise.
+     */
+    private static boolean isNumeric(int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns true if the given {@link Types} is a non-numeric one supporting MIN and MAX aggregates.
+     *
+     * @param type {@link Types} value.
+     * @return True if the given {@link Types} is a comparable one, false otherwise.
+     */
+    private static boolean isComparable(int type) {
+        switch (type) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIME_WITH_TIMEZONE:
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Convert the given aggregate value into a {@link Double}.
+     *
+     * @param value Aggregate value.
+     * @return The {@link Double} value or null.
+     */
+    private static Double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
     public List<Object> getParams() {
         return params;
     }
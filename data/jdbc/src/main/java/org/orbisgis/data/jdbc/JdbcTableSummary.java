@@ -41,6 +41,11 @@ import org.orbisgis.data.api.dataset.IJdbcTable;
 import org.orbisgis.data.api.dataset.IJdbcTableSummary;
 import org.orbisgis.data.api.dataset.ISummary;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Implementation of the interface {@link ISummary} for the JDBC module.
  *
@@ -60,6 +65,10 @@ public class JdbcTableSummary implements IJdbcTableSummary {
      * {@link TableLocation} of the summarized {@link JdbcTable}
      */
     private final TableLocation tableLocation;
+    /**
+     * Statistics of the columns of the summarized {@link JdbcTable}, empty if not computed.
+     */
+    private final Map<String, JdbcColumnSummary> columnSummaries = new LinkedHashMap<>();
 
     public JdbcTableSummary(TableLocation tableLocation, int columnCount, int rowCount) {
         this.tableLocation = tableLocation;
@@ -67,6 +76,22 @@ public class JdbcTableSummary implements IJdbcTableSummary {
         this.rowCount = rowCount;
     }
 
+    /**
+     * Constructor with the statistics of the columns.
+     *
+     * @param tableLocation   {@link TableLocation} of the summarized {@link JdbcTable}.
+     * @param columnCount     Count of column of the summarized {@link JdbcTable}.
+     * @param rowCount        Count of row of the summarized {@link JdbcTable}.
+     * @param columnSummaries Statistics of the columns of the summarized {@link JdbcTable}.
+     */
+    public JdbcTableSummary(TableLocation tableLocation, int columnCount, int rowCount,
+                            List<JdbcColumnSummary> columnSummaries) {
+        this(tableLocation, columnCount, rowCount);
+        if (columnSummaries != null) {
+            columnSummaries.forEach(summary -> this.columnSummaries.put(summary.getName(), summary));
+        }
+    }
+
     /**
      * Returns the {@link TableLocation} of the summarized {@link JdbcTable}.
      *
@@ -94,10 +119,40 @@ public class JdbcTableSummary implements IJdbcTableSummary {
         return columnCount;
     }
 
+    /**
+     * Returns the statistics of the columns of the summarized {@link JdbcTable} by column name. The map is empty if
+     * the statistics have not been computed.
+     *
+     * @return The statistics of the columns of the summarized {@link JdbcTable}.
+     */
+    public Map<String, JdbcColumnSummary> getColumnSummaries() {
+        return Collections.unmodifiableMap(columnSummaries);
+    }
+
+    /**
+     * Returns the statistics of the given column of the summarized {@link JdbcTable}.
+     *
+     * @param columnName Name of the column.
+     * @return The statistics of the column or null if not computed.
+     */
+    public JdbcColumnSummary getColumnSummary(String columnName) {
+        JdbcColumnSummary summary = columnSummaries.get(columnName);
+        if (summary == null) {
+            summary = columnSummaries.values().stream()
+                    .filter(s -> s.getName().equalsIgnoreCase(columnName))
+                    .findFirst().orElse(null);
+        }
+        return summary;
+    }
+
     @Override
     public String toString() {
-        return (tableLocation == null ? IJdbcTable.QUERY_LOCATION : tableLocation.toString()) + "; row count : " +
-                rowCount + "; column count : " + columnCount;
+        StringBuilder builder = new StringBuilder();
+        builder.append(tableLocation == null ? IJdbcTable.QUERY_LOCATION : tableLocation.toString())
+                .append("; row count : ").append(rowCount)
+                .append("; column count : ").append(columnCount);
+        columnSummaries.values().forEach(summary -> builder.append("\n").append(summary));
+        return builder.toString();
     }
 
     @Override
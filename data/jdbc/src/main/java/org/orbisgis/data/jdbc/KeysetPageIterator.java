@@ -0,0 +1,171 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.orbisgis.data.api.dataset.IJdbcTable;
+import org.orbisgis.data.api.datasource.IJdbcDataSource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator on the pages of a table ordered by a key column. The last key of each page is read on moving to the page,
+ * with a query starting after the last key of the previous page, then the page is returned as an independent table
+ * bounded by these two keys.
+ */
+final class KeysetPageIterator implements Iterator<IJdbcTable<?>> {
+
+    /**
+     * {@link IJdbcDataSource} of the table.
+     */
+    private final IJdbcDataSource dataSource;
+    /**
+     * From clause of the table.
+     */
+    private final String from;
+    /**
+     * Parameters of the from clause.
+     */
+    private final List<Object> params;
+    /**
+     * Quoted key column.
+     */
+    private final String key;
+    /**
+     * Number of rows by page.
+     */
+    private final int pageSize;
+    /**
+     * Last key of the previous page, null before the first page.
+     */
+    private Object lastKey = null;
+    /**
+     * Last key of the next page, null if there is no more page.
+     */
+    private Object nextKey = null;
+    /**
+     * True if the last key of the next page has been read.
+     */
+    private boolean fetched = false;
+
+    /**
+     * Main constructor.
+     *
+     * @param dataSource {@link IJdbcDataSource} of the table.
+     * @param from       From clause of the table.
+     * @param params     Parameters of the from clause, may be null.
+     * @param key        Quoted key column.
+     * @param pageSize   Number of rows by page.
+     */
+    KeysetPageIterator(IJdbcDataSource dataSource, String from, List<Object> params, String key, int pageSize) {
+        this.dataSource = dataSource;
+        this.from = from;
+        this.params = params == null ? new ArrayList<>() : params;
+        this.key = key;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Return the condition selecting the rows after the last key of the previous page.
+     */
+    private String getStartCondition() {
+        return key + (lastKey == null ? " IS NOT NULL" : " > ?");
+    }
+
+    /**
+     * Return the parameters of a query on the rows after the last key of the previous page.
+     */
+    private List<Object> getStartParams() {
+        List<Object> list = new ArrayList<>(params);
+        if (lastKey != null) {
+            list.add(lastKey);
+        }
+        return list;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            String query = "SELECT " + key + " FROM " + from + " WHERE " + getStartCondition() + " ORDER BY " + key +
+                    " LIMIT " + pageSize;
+            try (PreparedStatement st = dataSource.getConnection().prepareStatement(query)) {
+                List<Object> list = getStartParams();
+                for (int i = 0; i < list.size(); i++) {
+                    st.setObject(i + 1, list.get(i));
+                }
+                nextKey = null;
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        nextKey = rs.getObject(1);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Unable to read the keys of the next page.", e);
+            }
+            fetched = true;
+        }
+        return nextKey != null;
+    }
+
+    @Override
+    public IJdbcTable<?> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String query = "(SELECT * FROM " + from + " WHERE " + getStartCondition() + " AND " + key + " <= ? ORDER BY " +
+                key + ")";
+        List<Object> list = getStartParams();
+        list.add(nextKey);
+        IJdbcTable<?> page;
+        try {
+            page = dataSource.getTable(query, list);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read the page.", e);
+        }
+        if (page instanceof JdbcTable) {
+            ((JdbcTable<?>) page).closeStatementOnClose();
+        }
+        lastKey = nextKey;
+        fetched = false;
+        return page;
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.cts.CRSFactory;
+import org.cts.IllegalCoordinateException;
+import org.cts.crs.CRSException;
+import org.cts.crs.CoordinateReferenceSystem;
+import org.cts.crs.GeodeticCRS;
+import org.cts.op.CoordinateOperation;
+import org.cts.op.CoordinateOperationException;
+import org.cts.op.CoordinateOperationFactory;
+import org.cts.registry.EPSGRegistry;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Client side reprojection of the geometries of a query result. The rows are read by batches of {@link #BATCH_SIZE}
+ * rows and the geometries of a batch are transformed in parallel. The CTS coordinate operations are built from the
+ * EPSG registry once by source and target SRID and shared by all the threads.
+ */
+final class Reprojection {
+
+    /**
+     * Number of rows by batch.
+     */
+    static final int BATCH_SIZE = 4096;
+
+    private static final CRSFactory CRS_FACTORY = new CRSFactory();
+
+    static {
+        CRS_FACTORY.getRegistryManager().addRegistry(new EPSGRegistry());
+    }
+
+    /**
+     * Coordinate operations by source and target SRID.
+     */
+    private static final Map<Long, CoordinateOperation> OPERATIONS = new ConcurrentHashMap<>();
+
+    private Reprojection() {
+    }
+
+    /**
+     * Return the cached operation transforming the coordinates from the source to the target SRID.
+     *
+     * @param source SRID of the source coordinate reference system.
+     * @param target SRID of the target coordinate reference system.
+     * @return The most precise {@link CoordinateOperation}.
+     */
+    static CoordinateOperation operation(int source, int target) {
+        long key = ((long) source << 32) | (target & 0xFFFFFFFFL);
+        CoordinateOperation operation = OPERATIONS.get(key);
+        if (operation == null) {
+            //The CRS factory is not thread safe
+            synchronized (CRS_FACTORY) {
+                operation = OPERATIONS.get(key);
+                if (operation == null) {
+                    operation = createOperation(source, target);
+                    OPERATIONS.put(key, operation);
+                }
+            }
+        }
+        return operation;
+    }
+
+    private static CoordinateOperation createOperation(int source, int target) {
+        try {
+            CoordinateReferenceSystem sourceCRS = CRS_FACTORY.getCRS("EPSG:" + source);
+            CoordinateReferenceSystem targetCRS = CRS_FACTORY.getCRS("EPSG:" + target);
+            if (!(sourceCRS instanceof GeodeticCRS) || !(targetCRS instanceof GeodeticCRS)) {
+                throw new IllegalArgumentException("Only geodetic coordinate reference systems are supported.");
+            }
+            Set<CoordinateOperation> operations = CoordinateOperationFactory.createCoordinateOperations(
+                    (GeodeticCRS) sourceCRS, (GeodeticCRS) targetCRS);
+            if (operations.isEmpty()) {
+                throw new IllegalArgumentException("No coordinate operation from the SRID '" + source +
+                        "' to the SRID '" + target + "'.");
+            }
+            return CoordinateOperationFactory.getMostPrecise(operations);
+        } catch (CRSException | CoordinateOperationException e) {
+            throw new IllegalArgumentException("Cannot transform the coordinates from the SRID '" + source +
+                    "' to the SRID '" + target + "'.", e);
+        }
+    }
+
+    /**
+     * Return a copy of the given {@link Geometry} transformed into the given SRID.
+     *
+     * @param geometry {@link Geometry} to transform.
+     * @param source   SRID of the geometry, used if the geometry has no SRID.
+     * @param target   SRID of the target coordinate reference system.
+     * @return The transformed {@link Geometry}.
+     */
+    static Geometry transform(Geometry geometry, int source, int target) {
+        int srid = geometry.getSRID() > 0 ? geometry.getSRID() : source;
+        if (srid <= 0) {
+            throw new IllegalArgumentException("The SRID of the geometry is unknown.");
+        }
+        Geometry result = geometry.copy();
+        if (srid != target) {
+            result.apply(new TransformFilter(operation(srid, target)));
+        }
+        result.setSRID(target);
+        return result;
+    }
+
+    /**
+     * Reproject the rows of the given query into a new table. The geometry columns of the new table are typed with
+     * the target SRID.
+     *
+     * @param connection {@link Connection} to use.
+     * @param dbType     Type of the database.
+     * @param from       FROM clause content of the source rows.
+     * @param location   Location of the source table used to read the SRID of the geometry columns, can be null.
+     * @param output     Location of the table to create, replaced if it already exists.
+     * @param srid       SRID of the target coordinate reference system.
+     * @return The count of reprojected rows.
+     * @throws SQLException Exception thrown in case of error while reading or inserting the rows.
+     */
+    static long write(Connection connection, DBTypes dbType, String from, TableLocation location,
+                      TableLocation output, int srid) throws SQLException {
+        String table = output.toString(dbType);
+        boolean autoCommit = connection.getAutoCommit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            Columns columns;
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM " + from + " WHERE 1 = 0")) {
+                columns = new Columns(connection, rs.getMetaData(), location);
+            }
+            StringJoiner definitions = new StringJoiner(", ");
+            for (int i = 0; i < columns.labels.length; i++) {
+                String name = TableLocation.quoteIdentifier(columns.labels[i], dbType);
+                definitions.add(columns.geometries[i] ? "CAST(NULL AS GEOMETRY(GEOMETRY, " + srid + ")) AS " + name :
+                        name);
+            }
+            statement.execute("CREATE TABLE " + table + " AS SELECT " + definitions + " FROM " + from +
+                    " WHERE 1 = 0");
+        }
+        connection.setAutoCommit(false);
+        long count = 0;
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM " + from)) {
+                Columns columns = new Columns(connection, rs.getMetaData(), location);
+                StringJoiner parameters = new StringJoiner(", ");
+                for (boolean geometry : columns.geometries) {
+                    parameters.add(geometry ? "ST_GeomFromWKB(?, " + srid + ")" : "?");
+                }
+                WKBWriter wkbWriter = new WKBWriter(3);
+                Object[][] rows = new Object[BATCH_SIZE][];
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO " + table + " VALUES (" + parameters + ")")) {
+                    for (int size = columns.read(rs, rows, srid); size > 0; size = columns.read(rs, rows, srid)) {
+                        for (int row = 0; row < size; row++) {
+                            for (int i = 0; i < columns.labels.length; i++) {
+                                Object value = rows[row][i];
+                                if (columns.geometries[i]) {
+                                    if (value == null) {
+                                        insert.setNull(i + 1, Types.BINARY);
+                                    } else {
+                                        insert.setBytes(i + 1, wkbWriter.write((Geometry) value));
+                                    }
+                                } else {
+                                    insert.setObject(i + 1, value);
+                                }
+                            }
+                            insert.addBatch();
+                        }
+                        insert.executeBatch();
+                        count += size;
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return count;
+    }
+
+    /**
+     * Return the reprojected rows of the given query as a {@link Stream} of maps of the column labels and the values.
+     * The {@link Stream} should be closed to release the statement.
+     *
+     * @param connection {@link Connection} to use.
+     * @param from       FROM clause content of the source rows.
+     * @param location   Location of the source table used to read the SRID of the geometry columns, can be null.
+     * @param srid       SRID of the target coordinate reference system.
+     * @return The {@link Stream} of the reprojected rows.
+     * @throws SQLException Exception thrown if the query cannot be executed.
+     */
+    static Stream<Map<String, Object>> stream(Connection connection, String from, TableLocation location, int srid)
+            throws SQLException {
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(BATCH_SIZE);
+            ResultSet rs = statement.executeQuery("SELECT * FROM " + from);
+            Columns columns = new Columns(connection, rs.getMetaData(), location);
+            Spliterator<Map<String, Object>> spliterator = new Spliterators.AbstractSpliterator<Map<String, Object>>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                private final Object[][] rows = new Object[BATCH_SIZE][];
+                private int size = 0;
+                private int index = 0;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super Map<String, Object>> action) {
+                    if (index == size) {
+                        try {
+                            size = rs.isClosed() ? 0 : columns.read(rs, rows, srid);
+                        } catch (SQLException e) {
+                            throw new IllegalStateException("Unable to read the rows to reproject.", e);
+                        }
+                        index = 0;
+                        if (size == 0) {
+                            return false;
+                        }
+                    }
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    Object[] row = rows[index];
+                    rows[index++] = null;
+                    for (int i = 0; i < columns.labels.length; i++) {
+                        map.put(columns.labels[i], row[i]);
+                    }
+                    action.accept(map);
+                    return true;
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    //The statement is already closed
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Description of the columns of the source rows.
+     */
+    private static final class Columns {
+        private final String[] labels;
+        private final boolean[] geometries;
+        private final int[] srids;
+        private final WKBReader wkbReader = new WKBReader();
+
+        private Columns(Connection connection, ResultSetMetaData metadata, TableLocation location)
+                throws SQLException {
+            int columnCount = metadata.getColumnCount();
+            labels = new String[columnCount];
+            geometries = new boolean[columnCount];
+            srids = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                labels[i] = metadata.getColumnLabel(i + 1);
+                geometries[i] = metadata.getColumnTypeName(i + 1).toLowerCase(Locale.ROOT).startsWith("geometry");
+                if (geometries[i] && location != null) {
+                    try {
+                        srids[i] = GeometryTableUtilities.getSRID(connection, location, labels[i]);
+                    } catch (SQLException ignored) {
+                        //The SRID is read from the geometries
+                    }
+                }
+            }
+        }
+
+        /**
+         * Read the next batch of rows and reproject their geometries in parallel.
+         *
+         * @param rs   {@link ResultSet} to read.
+         * @param rows Array receiving the rows.
+         * @param srid SRID of the target coordinate reference system.
+         * @return The count of read rows, 0 at the end of the {@link ResultSet}.
+         */
+        private int read(ResultSet rs, Object[][] rows, int srid) throws SQLException {
+            int size = 0;
+            while (size < rows.length && rs.next()) {
+                Object[] row = new Object[labels.length];
+                for (int i = 0; i < labels.length; i++) {
+                    Object value = rs.getObject(i + 1);
+                    row[i] = geometries[i] ? geometry(value) : value;
+                }
+                rows[size++] = row;
+            }
+            IntStream.range(0, size).parallel().forEach(row -> {
+                for (int i = 0; i < labels.length; i++) {
+                    if (geometries[i] && rows[row][i] != null) {
+                        rows[row][i] = transform((Geometry) rows[row][i], srids[i], srid);
+                    }
+                }
+            });
+            return size;
+        }
+
+        private Geometry geometry(Object value) throws SQLException {
+            if (value == null || value instanceof Geometry) {
+                return (Geometry) value;
+            }
+            try {
+                return wkbReader.read(value instanceof byte[] ? (byte[]) value :
+                        WKBReader.hexToBytes(value.toString()));
+            } catch (ParseException e) {
+                throw new SQLException("Unable to read the geometry.", e);
+            }
+        }
+    }
+
+    /**
+     * Filter transforming the coordinates of the geometries.
+     */
+    private static final class TransformFilter implements CoordinateSequenceFilter {
+        private final CoordinateOperation operation;
+
+        private TransformFilter(CoordinateOperation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void filter(CoordinateSequence seq, int i) {
+            boolean hasZ = seq.hasZ();
+            double z = hasZ ? seq.getZ(i) : Double.NaN;
+            double[] xyz;
+            try {
+                xyz = operation.transform(new double[]{seq.getX(i), seq.getY(i), Double.isNaN(z) ? 0 : z});
+            } catch (IllegalCoordinateException | CoordinateOperationException e) {
+                throw new IllegalArgumentException("Cannot transform the coordinate (" + seq.getX(i) + ", " +
+                        seq.getY(i) + ").", e);
+            }
+            seq.setOrdinate(i, CoordinateSequence.X, xyz[0]);
+            seq.setOrdinate(i, CoordinateSequence.Y, xyz[1]);
+            if (hasZ && !Double.isNaN(z) && xyz.length > 2) {
+                seq.setOrdinate(i, CoordinateSequence.Z, xyz[2]);
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean isGeometryChanged() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Spatial join of two tables, written as a query using the spatial indexes of the database or done in memory with an
+ * STRtree when the tables cannot be indexed.
+ */
+final class SpatialJoin {
+
+    /**
+     * Number of rows of the streamed table joined together.
+     */
+    static final int BATCH_SIZE = 4096;
+
+    /**
+     * Supported spatial predicates.
+     */
+    private static final String[] PREDICATES = {"ST_Intersects", "ST_Contains", "ST_Within", "ST_Covers",
+            "ST_CoveredBy", "ST_Overlaps", "ST_Touches", "ST_Crosses", "ST_Equals"};
+
+    private SpatialJoin() {
+    }
+
+    /**
+     * Return the name of the given spatial predicate as written in the queries.
+     *
+     * @param predicate Name of the spatial predicate, case insensitive.
+     * @return The name of the spatial predicate.
+     */
+    static String predicate(String predicate) {
+        for (String name : PREDICATES) {
+            if (name.equalsIgnoreCase(predicate)) {
+                return name;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported spatial predicate '" + predicate + "'.");
+    }
+
+    /**
+     * Return the SELECT clause content of the join, the columns of the right table having the same name as a column
+     * of the left table being suffixed with <code>_2</code>.
+     *
+     * @param left   Column names of the left table, aliased <code>A</code>.
+     * @param right  Column names of the right table, aliased <code>B</code>.
+     * @param dbType Type of the database.
+     * @return The selected columns.
+     */
+    static String columns(Collection<String> left, Collection<String> right, DBTypes dbType) {
+        StringJoiner columns = new StringJoiner(", ");
+        Set<String> names = new HashSet<>();
+        for (String column : left) {
+            names.add(column.toUpperCase(Locale.ROOT));
+            columns.add("A." + TableLocation.quoteIdentifier(column, dbType));
+        }
+        for (String column : right) {
+            String quoted = "B." + TableLocation.quoteIdentifier(column, dbType);
+            if (names.contains(column.toUpperCase(Locale.ROOT))) {
+                String alias = column + "_2";
+                while (!names.add(alias.toUpperCase(Locale.ROOT))) {
+                    alias += "_2";
+                }
+                columns.add(quoted + " AS " + TableLocation.quoteIdentifier(alias, dbType));
+            } else {
+                names.add(column.toUpperCase(Locale.ROOT));
+                columns.add(quoted);
+            }
+        }
+        return columns.toString();
+    }
+
+    /**
+     * Return the join query. PostGIS uses the spatial indexes for its predicates, H2GIS needs the bounding box
+     * filter <code>&amp;&amp;</code> to use them.
+     *
+     * @param columns   Selected columns.
+     * @param left      FROM clause content of the left table.
+     * @param leftGeom  Quoted name of the geometry column of the left table.
+     * @param right     FROM clause content of the right table.
+     * @param rightGeom Quoted name of the geometry column of the right table.
+     * @param predicate Name of the spatial predicate.
+     * @param dbType    Type of the database.
+     * @return The join query.
+     */
+    static String query(String columns, String left, String leftGeom, String right, String rightGeom,
+                        String predicate, DBTypes dbType) {
+        String a = "A." + leftGeom;
+        String b = "B." + rightGeom;
+        boolean postgres = dbType == DBTypes.POSTGIS || dbType == DBTypes.POSTGRESQL;
+        return "SELECT " + columns + " FROM " + left + " AS A, " + right + " AS B WHERE " +
+                (postgres ? "" : a + " && " + b + " AND ") + predicate + "(" + a + ", " + b + ")";
+    }
+
+    /**
+     * Join the tables in memory and store the result in a new temporary table, dropped when the connection is closed.
+     * The rows of the smaller table are read and indexed with an STRtree, then the rows of the other table are read
+     * by batches of {@link #BATCH_SIZE} rows and each batch is joined in parallel.
+     *
+     * @param connection {@link Connection} to use.
+     * @param dbType     Type of the database.
+     * @param columns    Selected columns.
+     * @param left       FROM clause content of the left table.
+     * @param right      FROM clause content of the right table.
+     * @param predicate  Name of the spatial predicate.
+     * @param indexLeft  True to index the left table, false to index the right one.
+     * @return The name of the created temporary table.
+     * @throws SQLException Exception thrown in case of error while reading or inserting the rows.
+     */
+    static String join(Connection connection, DBTypes dbType, String columns, String left, String right,
+                       String predicate, boolean indexLeft) throws SQLException {
+        String output = TableLocation.parse("SPATIAL_JOIN_" +
+                UUID.randomUUID().toString().replace("-", "").toUpperCase(Locale.ROOT), dbType).toString(dbType);
+        try (Statement statement = connection.createStatement()) {
+            boolean postgres = dbType == DBTypes.POSTGIS || dbType == DBTypes.POSTGRESQL;
+            statement.execute("CREATE " + (postgres ? "TEMPORARY" : "LOCAL TEMPORARY") + " TABLE " + output +
+                    " AS SELECT " + columns + " FROM (SELECT * FROM " + left +
+                    ") AS A, (SELECT * FROM " + right + ") AS B WHERE 1 = 0");
+        }
+        //Converse predicate evaluated on the indexed geometries when they are the right operand
+        String operation = indexLeft ? predicate : converse(predicate);
+        WKBReader wkbReader = new WKBReader();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(BATCH_SIZE);
+            List<Object[]> indexedRows = new ArrayList<>();
+            List<PreparedGeometry> prepared = new ArrayList<>();
+            STRtree tree = new STRtree();
+            int indexedGeomIndex;
+            int indexedCount;
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM " + (indexLeft ? left : right))) {
+                ResultSetMetaData metadata = rs.getMetaData();
+                int geomIndex = geometryIndex(metadata);
+                indexedGeomIndex = geomIndex;
+                indexedCount = metadata.getColumnCount();
+                while (rs.next()) {
+                    Object[] row = row(rs, indexedCount, geomIndex, wkbReader);
+                    Geometry geometry = (Geometry) row[geomIndex];
+                    if (geometry != null && !geometry.isEmpty()) {
+                        tree.insert(geometry.getEnvelopeInternal(), indexedRows.size());
+                        indexedRows.add(row);
+                        prepared.add(PreparedGeometryFactory.prepare(geometry));
+                    }
+                }
+            }
+            tree.build();
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM " + (indexLeft ? right : left))) {
+                ResultSetMetaData metadata = rs.getMetaData();
+                int geomIndex = geometryIndex(metadata);
+                int columnCount = metadata.getColumnCount();
+                int firstCount = indexLeft ? indexedCount : columnCount;
+                int firstGeomIndex = indexLeft ? indexedGeomIndex : geomIndex;
+                int secondGeomIndex = indexLeft ? geomIndex : indexedGeomIndex;
+                //The geometries are bound as WKB with their SRID, the JDBC drivers not supporting the JTS objects
+                StringJoiner parameters = new StringJoiner(", ");
+                for (int i = 0; i < indexedCount + columnCount; i++) {
+                    parameters.add(i == firstGeomIndex || i == firstCount + secondGeomIndex ?
+                            "ST_GeomFromWKB(?, ?)" : "?");
+                }
+                WKBWriter wkbWriter = new WKBWriter(3);
+                Object[][] batch = new Object[BATCH_SIZE][];
+                int[][] matches = new int[BATCH_SIZE][];
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO " + output + " VALUES (" + parameters + ")")) {
+                    boolean hasNext = !indexedRows.isEmpty();
+                    while (hasNext) {
+                        int size = 0;
+                        while (size < BATCH_SIZE && (hasNext = rs.next())) {
+                            batch[size++] = row(rs, columnCount, geomIndex, wkbReader);
+                        }
+                        IntStream.range(0, size).parallel().forEach(i ->
+                                matches[i] = match((Geometry) batch[i][geomIndex], tree, prepared, operation));
+                        for (int i = 0; i < size; i++) {
+                            for (int match : matches[i]) {
+                                Object[] indexed = indexedRows.get(match);
+                                Object[] first = indexLeft ? indexed : batch[i];
+                                Object[] second = indexLeft ? batch[i] : indexed;
+                                int parameter = bind(insert, 1, first, firstGeomIndex, wkbWriter);
+                                bind(insert, parameter, second, secondGeomIndex, wkbWriter);
+                                insert.addBatch();
+                            }
+                        }
+                        insert.executeBatch();
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return output;
+    }
+
+    /**
+     * Bind the values of a row from the given parameter index, the geometry being bound as WKB followed by its SRID.
+     *
+     * @return The index of the next parameter.
+     */
+    private static int bind(PreparedStatement insert, int parameter, Object[] row, int geomIndex,
+                            WKBWriter wkbWriter) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            if (i == geomIndex) {
+                Geometry geometry = (Geometry) row[i];
+                insert.setBytes(parameter++, wkbWriter.write(geometry));
+                insert.setInt(parameter++, geometry.getSRID());
+            } else {
+                insert.setObject(parameter++, row[i]);
+            }
+        }
+        return parameter;
+    }
+
+    /**
+     * Return the indexes of the indexed geometries matching the given geometry.
+     */
+    private static int[] match(Geometry geometry, STRtree tree, List<PreparedGeometry> prepared, String operation) {
+        if (geometry == null || geometry.isEmpty()) {
+            return new int[0];
+        }
+        List<?> candidates = tree.query(geometry.getEnvelopeInternal());
+        int[] matches = new int[candidates.size()];
+        int count = 0;
+        for (Object candidate : candidates) {
+            int index = (Integer) candidate;
+            if (evaluate(prepared.get(index), geometry, operation)) {
+                matches[count++] = index;
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Evaluate <code>operation(indexed, geometry)</code>.
+     */
+    private static boolean evaluate(PreparedGeometry indexed, Geometry geometry, String operation) {
+        switch (operation) {
+            case "ST_Intersects":
+                return indexed.intersects(geometry);
+            case "ST_Contains":
+                return indexed.contains(geometry);
+            case "ST_Within":
+                return indexed.within(geometry);
+            case "ST_Covers":
+                return indexed.covers(geometry);
+            case "ST_CoveredBy":
+                return indexed.coveredBy(geometry);
+            case "ST_Overlaps":
+                return indexed.overlaps(geometry);
+            case "ST_Touches":
+                return indexed.touches(geometry);
+            case "ST_Crosses":
+                return indexed.crosses(geometry);
+            default:
+                return indexed.getGeometry().equalsTopo(geometry);
+        }
+    }
+
+    /**
+     * Return the predicate giving the same result with the operands swapped.
+     */
+    private static String converse(String predicate) {
+        switch (predicate) {
+            case "ST_Contains":
+                return "ST_Within";
+            case "ST_Within":
+                return "ST_Contains";
+            case "ST_Covers":
+                return "ST_CoveredBy";
+            case "ST_CoveredBy":
+                return "ST_Covers";
+            default:
+                return predicate;
+        }
+    }
+
+    private static int geometryIndex(ResultSetMetaData metadata) throws SQLException {
+        for (int i = 1; i <= metadata.getColumnCount(); i++) {
+            if (metadata.getColumnTypeName(i).toLowerCase(Locale.ROOT).startsWith("geometry")) {
+                return i - 1;
+            }
+        }
+        throw new SQLException("The table has no geometry column.");
+    }
+
+    private static Object[] row(ResultSet rs, int columnCount, int geomIndex, WKBReader wkbReader)
+            throws SQLException {
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        Object value = row[geomIndex];
+        if (value != null && !(value instanceof Geometry)) {
+            try {
+                row[geomIndex] = wkbReader.read(value instanceof byte[] ? (byte[]) value :
+                        WKBReader.hexToBytes(value.toString()));
+            } catch (ParseException e) {
+                throw new SQLException("Unable to read the geometry.", e);
+            }
+        }
+        return row;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split of a spatial table into tiles, the tiles being processed with a {@link ConnectionPool}.
+ *
+ * A feature belongs to the tile containing the lower left corner of its envelope, the tiles being closed on their
+ * lower sides and open on their upper sides, so each feature is processed once even if it crosses the tile borders.
+ * The sides of the tiles lying on the extent of the whole tiling are not bounded, so the features outside of an
+ * estimated extent are processed by the nearest tile. The geometries are not clipped : a feature crossing the tile
+ * borders is processed whole by its tile, the other tiles do not see it.
+ */
+final class SpatialTiling {
+
+    /**
+     * Number of cells along each axis of the grid used to count the features of the quadtree tiles.
+     */
+    static final int HISTOGRAM_SIZE = 256;
+
+    private SpatialTiling() {
+    }
+
+    /**
+     * Split the given extent into a regular grid.
+     *
+     * @param extent      Extent to split.
+     * @param columnCount Number of tiles along the X axis.
+     * @param rowCount    Number of tiles along the Y axis.
+     * @return The tiles, row by row from the lower left corner.
+     */
+    static List<Envelope> grid(Envelope extent, int columnCount, int rowCount) {
+        if (columnCount <= 0 || rowCount <= 0) {
+            throw new IllegalArgumentException("The number of tiles should be greater than 0.");
+        }
+        List<Envelope> tiles = new ArrayList<>(columnCount * rowCount);
+        if (extent == null || extent.isNull()) {
+            return tiles;
+        }
+        Envelope env = nonDegenerate(extent);
+        double dx = env.getWidth() / columnCount;
+        double dy = env.getHeight() / rowCount;
+        for (int j = 0; j < rowCount; j++) {
+            for (int i = 0; i < columnCount; i++) {
+                tiles.add(new Envelope(
+                        i == 0 ? env.getMinX() : env.getMinX() + i * dx,
+                        i == columnCount - 1 ? env.getMaxX() : env.getMinX() + (i + 1) * dx,
+                        j == 0 ? env.getMinY() : env.getMinY() + j * dy,
+                        j == rowCount - 1 ? env.getMaxY() : env.getMinY() + (j + 1) * dy));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Split the given extent into a quadtree grid, a tile being split while it contains more than the given number of
+     * features. The features are counted by their lower left corner on a {@link #HISTOGRAM_SIZE} cells grid with one
+     * query, the features outside of the extent being counted in the nearest cell.
+     *
+     * @param connection  {@link Connection} to use.
+     * @param from        FROM clause content of the table.
+     * @param geometry    Quoted name of the geometry column.
+     * @param extent      Extent to split.
+     * @param maxFeatures Maximal number of features by tile.
+     * @return The non empty tiles.
+     * @throws SQLException Exception thrown if the features can not be counted.
+     */
+    static List<Envelope> quadtree(Connection connection, String from, String geometry, Envelope extent,
+                                   int maxFeatures) throws SQLException {
+        if (maxFeatures <= 0) {
+            throw new IllegalArgumentException("The maximal number of features should be greater than 0.");
+        }
+        List<Envelope> tiles = new ArrayList<>();
+        if (extent == null || extent.isNull()) {
+            return tiles;
+        }
+        Envelope env = nonDegenerate(extent);
+        int n = HISTOGRAM_SIZE;
+        double dx = env.getWidth() / n;
+        double dy = env.getHeight() / n;
+        String query = "SELECT I, J, COUNT(*) FROM (SELECT " + cellIndex("X", env.getMinX(), dx, n) + " AS I, " +
+                cellIndex("Y", env.getMinY(), dy, n) + " AS J FROM (SELECT ST_XMin(" + geometry + ") AS X, ST_YMin(" +
+                geometry + ") AS Y FROM " + from + " WHERE " + geometry + " IS NOT NULL) AS CORNERS) AS CELLS " +
+                "GROUP BY I, J";
+        //Summed area table of the feature counts
+        long[] sums = new long[(n + 1) * (n + 1)];
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                sums[(rs.getInt(2) + 1) * (n + 1) + rs.getInt(1) + 1] += rs.getLong(3);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Unable to count the features of the tiles.", e);
+        }
+        for (int j = 1; j <= n; j++) {
+            for (int i = 1; i <= n; i++) {
+                sums[j * (n + 1) + i] += sums[(j - 1) * (n + 1) + i] + sums[j * (n + 1) + i - 1] -
+                        sums[(j - 1) * (n + 1) + i - 1];
+            }
+        }
+        split(sums, n, 0, 0, n, n, maxFeatures, env, tiles);
+        return tiles;
+    }
+
+    /**
+     * Recursively split the cells range into four tiles while it contains more than the given number of features.
+     */
+    private static void split(long[] sums, int n, int i0, int j0, int i1, int j1, int maxFeatures, Envelope env,
+                              List<Envelope> tiles) {
+        long count = sums[j1 * (n + 1) + i1] - sums[j0 * (n + 1) + i1] - sums[j1 * (n + 1) + i0] +
+                sums[j0 * (n + 1) + i0];
+        if (count == 0) {
+            return;
+        }
+        if (count <= maxFeatures || (i1 - i0 == 1 && j1 - j0 == 1)) {
+            tiles.add(new Envelope(coordinate(env.getMinX(), env.getMaxX(), i0, n),
+                    coordinate(env.getMinX(), env.getMaxX(), i1, n),
+                    coordinate(env.getMinY(), env.getMaxY(), j0, n),
+                    coordinate(env.getMinY(), env.getMaxY(), j1, n)));
+            return;
+        }
+        int im = i1 - i0 > 1 ? (i0 + i1) / 2 : i1;
+        int jm = j1 - j0 > 1 ? (j0 + j1) / 2 : j1;
+        split(sums, n, i0, j0, im, jm, maxFeatures, env, tiles);
+        if (im < i1) {
+            split(sums, n, im, j0, i1, jm, maxFeatures, env, tiles);
+        }
+        if (jm < j1) {
+            split(sums, n, i0, jm, im, j1, maxFeatures, env, tiles);
+            if (im < i1) {
+                split(sums, n, im, jm, i1, j1, maxFeatures, env, tiles);
+            }
+        }
+    }
+
+    /**
+     * Return the coordinate of the given cell border, the last border being exactly the maximum. The other borders are
+     * computed as <code>min + index * size</code>, like in the SQL expression of {@link #cellIndex}.
+     */
+    private static double coordinate(double min, double max, int index, int n) {
+        return index == n ? max : min + index * ((max - min) / n);
+    }
+
+    /**
+     * Return the SQL expression of the index of the cell containing the given coordinate. The index estimated with
+     * FLOOR may be wrong by one because of the rounding of the division, so it is corrected by comparing the coordinate
+     * with the cell borders computed as in {@link #coordinate}, the counted cell being the one selected by the tile
+     * filters.
+     */
+    private static String cellIndex(String coordinate, double min, double size, int n) {
+        String origin = "CAST(" + min + " AS DOUBLE PRECISION)";
+        String step = "CAST(" + size + " AS DOUBLE PRECISION)";
+        String floor = "CAST(LEAST(" + n + ", GREATEST(-1, FLOOR((" + coordinate + " - " + origin + ") / " + step +
+                "))) AS INTEGER)";
+        return "LEAST(" + (n - 1) + ", GREATEST(0, " + floor + " - CASE WHEN " + coordinate + " < " + origin + " + " +
+                floor + " * " + step + " THEN 1 ELSE 0 END + CASE WHEN " + coordinate + " >= " + origin + " + (" +
+                floor + " + 1) * " + step + " THEN 1 ELSE 0 END))";
+    }
+
+    /**
+     * Return the given extent enlarged along the axis on which it is flat.
+     */
+    private static Envelope nonDegenerate(Envelope extent) {
+        Envelope env = new Envelope(extent);
+        env.expandBy(env.getWidth() == 0 ? 0.5 : 0, env.getHeight() == 0 ? 0.5 : 0);
+        return env;
+    }
+
+    /**
+     * Return the SQL condition selecting the features belonging to the given tile.
+     *
+     * @param geometry Quoted name of the geometry column.
+     * @param tile     Tile.
+     * @param bounds   Extent of all the tiles, on which the tile sides are not bounded.
+     * @param srid     SRID of the geometries.
+     * @return The SQL condition.
+     */
+    static String filter(String geometry, Envelope tile, Envelope bounds, int srid) {
+        //The envelope of a feature intersects the tile containing its lower left corner, so the bounding box filter
+        //selects a superset of the features of the tile and allows the use of the spatial index. The unbounded sides
+        //are pushed to the limits of the single precision boxes of the PostGIS indexes.
+        Envelope box = new Envelope(
+                tile.getMinX() > bounds.getMinX() ? tile.getMinX() : -Float.MAX_VALUE,
+                tile.getMaxX() < bounds.getMaxX() ? tile.getMaxX() : Float.MAX_VALUE,
+                tile.getMinY() > bounds.getMinY() ? tile.getMinY() : -Float.MAX_VALUE,
+                tile.getMaxY() < bounds.getMaxY() ? tile.getMaxY() : Float.MAX_VALUE);
+        StringBuilder filter = new StringBuilder(geometry).append(" IS NOT NULL AND ").append(geometry)
+                .append(" && ").append(envelope(box, srid));
+        String xMin = "ST_XMin(" + geometry + ")";
+        String yMin = "ST_YMin(" + geometry + ")";
+        if (tile.getMinX() > bounds.getMinX()) {
+            filter.append(" AND ").append(xMin).append(" >= ").append(tile.getMinX());
+        }
+        if (tile.getMaxX() < bounds.getMaxX()) {
+            filter.append(" AND ").append(xMin).append(" < ").append(tile.getMaxX());
+        }
+        if (tile.getMinY() > bounds.getMinY()) {
+            filter.append(" AND ").append(yMin).append(" >= ").append(tile.getMinY());
+        }
+        if (tile.getMaxY() < bounds.getMaxY()) {
+            filter.append(" AND ").append(yMin).append(" < ").append(tile.getMaxY());
+        }
+        return filter.toString();
+    }
+
+    /**
+     * Return the SQL expression of the given tile as polygon.
+     *
+     * @param tile Tile.
+     * @param srid SRID of the polygon.
+     * @return The SQL expression of the tile.
+     */
+    static String envelope(Envelope tile, int srid) {
+        return "ST_MakeEnvelope(" + tile.getMinX() + ", " + tile.getMinY() + ", " + tile.getMaxX() + ", " +
+                tile.getMaxY() + ", " + srid + ")";
+    }
+
+    /**
+     * Return the extent of all the given tiles.
+     *
+     * @param tiles Tiles.
+     * @return The extent of the tiles.
+     */
+    static Envelope bounds(List<Envelope> tiles) {
+        Envelope bounds = new Envelope();
+        for (Envelope tile : tiles) {
+            bounds.expandToInclude(tile);
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.h2gis.utilities.GeometryMetaData;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.h2gis.utilities.dbtypes.DBUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Copy of a table between two databases. The geometries are read as EWKB from the source database and bound as bytes
+ * in the target database, so they are never decoded on the client side. The rows are inserted by batches in one
+ * transaction committed at the end, and the target table created by a failed copy is dropped. A replaced table is
+ * copied under a temporary name and only takes the place of the existing table once all the rows are inserted, so a
+ * failed copy leaves it untouched.
+ */
+final class TableCopy {
+
+    /**
+     * Pattern of a select query used as source table.
+     */
+    private static final Pattern QUERY = Pattern.compile(".*(?i)\\b(select|from)\\b.*");
+    /**
+     * SRID of a geometry column without any geometry read.
+     */
+    private static final int NO_SRID = Integer.MIN_VALUE;
+
+    private TableCopy() {
+    }
+
+    /**
+     * Copy the source table or query into the target table.
+     *
+     * @param source      {@link Connection} of the source database.
+     * @param inputTable  Name of the source table or select query enclosed in parenthesis.
+     * @param target      {@link Connection} of the target database.
+     * @param outputTable Name of the target table.
+     * @param mode        -1 to replace the target table, 0 to create it and 1 to insert into the existing table.
+     * @param batchSize   Number of rows inserted by batch.
+     * @return The name of the target table.
+     * @throws SQLException Exception thrown in case of error while copying the table.
+     */
+    static String copy(Connection source, String inputTable, Connection target, String outputTable, int mode,
+                       int batchSize) throws SQLException {
+        if (source == null) {
+            throw new SQLException("The connection to the source database cannot be null.\n");
+        }
+        if (target == null) {
+            throw new SQLException("The connection to the output database cannot be null.\n");
+        }
+        if (mode < -1 || mode > 1) {
+            throw new SQLException("Supported mode to export the table is : \n-1 delete the target table if exists " +
+                    "and create a new table, \n0 create a new table\n1 update the target table if exists");
+        }
+        if (batchSize <= 0) {
+            throw new SQLException("The batch size must be greater than 0.\n");
+        }
+        if (inputTable == null || inputTable.isEmpty()) {
+            throw new SQLException("The source table cannot be null or empty.\n");
+        }
+        if (outputTable == null || outputTable.isEmpty()) {
+            throw new SQLException("The target table cannot be null or empty.\n");
+        }
+        DBTypes sourceType = DBUtils.getDBType(source);
+        DBTypes targetType = DBUtils.getDBType(target);
+        TableLocation outputLocation = TableLocation.parse(outputTable, targetType);
+        String output = outputLocation.toString(targetType);
+        String from;
+        if (QUERY.matcher(inputTable).find()) {
+            if (!inputTable.startsWith("(") || !inputTable.endsWith(")")) {
+                throw new SQLException("The select query must be enclosed in parenthesis: '(SELECT * FROM MYTATBLE)'.");
+            }
+            from = inputTable + " AS FOO";
+        } else {
+            TableLocation inputLocation = TableLocation.parse(inputTable, sourceType);
+            if (!JDBCUtilities.tableExists(source, inputLocation)) {
+                throw new SQLException("The source table doesn't exist.\n");
+            }
+            from = inputLocation.toString(sourceType);
+        }
+
+        try (Statement sourceStatement = source.createStatement()) {
+            String[] columns;
+            boolean[] geometries;
+            //Table receiving the rows, the output table or the temporary copy of a replaced table
+            TableLocation tableLocation;
+            try (ResultSet rs = sourceStatement.executeQuery("SELECT * FROM " + from + " WHERE 1 = 0")) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                tableLocation = createTable(target, metaData, outputLocation, targetType, mode);
+                columns = new String[metaData.getColumnCount()];
+                geometries = new boolean[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = metaData.getColumnName(i + 1);
+                    geometries[i] = metaData.getColumnTypeName(i + 1).toLowerCase(Locale.ROOT).startsWith("geometry");
+                }
+            }
+            String table = tableLocation.toString(targetType);
+            int columnCount = columns.length;
+            StringJoiner select = new StringJoiner(", ");
+            StringJoiner values = new StringJoiner(", ");
+            for (int i = 0; i < columnCount; i++) {
+                String column = TableLocation.quoteIdentifier(columns[i], sourceType);
+                //H2 gives the EWKB of its geometries as bytes, PostGIS needs an explicit binary conversion
+                select.add(geometries[i] && sourceType != DBTypes.H2GIS && sourceType != DBTypes.H2 ?
+                        "ST_AsEWKB(" + column + ")" : column);
+                values.add(geometries[i] && targetType != DBTypes.H2GIS && targetType != DBTypes.H2 ?
+                        "ST_GeomFromEWKB(?)" : "?");
+            }
+            int[] srids = new int[columnCount];
+            Arrays.fill(srids, NO_SRID);
+            boolean autoCommit = target.getAutoCommit();
+            target.setAutoCommit(false);
+            try (ResultSet rs = sourceStatement.executeQuery("SELECT " + select + " FROM " + from);
+                 PreparedStatement insert = target.prepareStatement("INSERT INTO " + table + " VALUES(" + values + ")")) {
+                long count = 0;
+                while (rs.next()) {
+                    for (int i = 1; i <= columnCount; i++) {
+                        if (geometries[i - 1]) {
+                            byte[] wkb = WKBGeometries.bytes(rs, i);
+                            if (wkb != null) {
+                                srids[i - 1] = mergeSrid(srids[i - 1], WKBGeometries.srid(wkb));
+                            }
+                            insert.setBytes(i, wkb);
+                        } else {
+                            insert.setObject(i, rs.getObject(i));
+                        }
+                    }
+                    insert.addBatch();
+                    if (++count % batchSize == 0) {
+                        insert.executeBatch();
+                        insert.clearBatch();
+                    }
+                }
+                if (count % batchSize != 0) {
+                    insert.executeBatch();
+                }
+                if (mode != 1) {
+                    setSrids(target, targetType, tableLocation, columns, geometries, srids);
+                }
+                if (!tableLocation.equals(outputLocation)) {
+                    try (Statement statement = target.createStatement()) {
+                        statement.execute("DROP TABLE " + output);
+                        statement.execute("ALTER TABLE " + table + " RENAME TO " +
+                                TableLocation.quoteIdentifier(outputLocation.getTable(), targetType));
+                    }
+                }
+                //Committed once, so a failed copy does not leave part of the rows
+                target.commit();
+            } catch (SQLException e) {
+                target.rollback();
+                if (mode != 1) {
+                    //The table created outside of the transaction is dropped, a replaced table is kept
+                    try (Statement statement = target.createStatement()) {
+                        statement.execute("DROP TABLE IF EXISTS " + table);
+                        target.commit();
+                    } catch (SQLException ex) {
+                        e.addSuppressed(ex);
+                    }
+                }
+                throw new SQLException("Cannot insert the data in the table " + output, e);
+            } finally {
+                target.setAutoCommit(autoCommit);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Create the target table from the metadata of the source table according to the mode and return the location of
+     * the table receiving the rows. An existing table to replace is kept until the end of the copy, the rows being
+     * inserted into a new table of the same schema with a temporary name.
+     */
+    private static TableLocation createTable(Connection target, ResultSetMetaData metaData,
+                                             TableLocation outputLocation, DBTypes targetType, int mode)
+            throws SQLException {
+        boolean exists = JDBCUtilities.tableExists(target, outputLocation);
+        if (mode == 1) {
+            if (!exists) {
+                throw new SQLException("The target table doesn't exist.\nPlease use a 0 mode to create a new table " +
+                        "and populate it");
+            }
+            return outputLocation;
+        }
+        if (mode == 0 && exists) {
+            throw new SQLException("The target table already exists.\nPlease use a -1 (delete) or 1 (insert) mode " +
+                    "to export the table");
+        }
+        TableLocation location = outputLocation;
+        if (exists) {
+            String name = outputLocation.getTable() + "_" + UUID.randomUUID().toString().replace("-", "");
+            location = new TableLocation(outputLocation.getCatalog(), outputLocation.getSchema(),
+                    TableLocation.capsIdentifier(name, targetType), targetType);
+        }
+        try (Statement statement = target.createStatement()) {
+            statement.execute(JDBCUtilities.createTableDDL(metaData, location.toString(targetType)));
+        } catch (SQLException e) {
+            throw new SQLException("Cannot create the output table", e);
+        }
+        return location;
+    }
+
+    /**
+     * Merge the SRID of a geometry with the SRID of the previous geometries of the column, -1 meaning mixed SRIDs.
+     */
+    private static int mergeSrid(int columnSrid, int srid) {
+        return columnSrid == NO_SRID || columnSrid == srid ? srid : -1;
+    }
+
+    /**
+     * Constrain the geometry columns of the target table to the SRID of their geometries when it is unique, keeping
+     * the geometry type of the columns.
+     */
+    private static void setSrids(Connection target, DBTypes targetType, TableLocation location, String[] columns,
+                                 boolean[] geometries, int[] srids) throws SQLException {
+        Map<String, GeometryMetaData> metaData = null;
+        StringBuilder alter = new StringBuilder();
+        for (int i = 0; i < geometries.length; i++) {
+            if (geometries[i] && srids[i] > 0) {
+                if (metaData == null) {
+                    metaData = GeometryTableUtilities.getMetaData(target, location);
+                }
+                String name = TableLocation.capsIdentifier(columns[i], targetType);
+                GeometryMetaData geometryMetaData = metaData.get(name);
+                String geometryType = geometryMetaData == null || geometryMetaData.getGeometryType() == null ?
+                        "GEOMETRY" : geometryMetaData.getGeometryType();
+                String column = TableLocation.quoteIdentifier(name, targetType);
+                alter.append("ALTER TABLE ").append(location.toString(targetType)).append(" ALTER COLUMN ")
+                        .append(column).append(" TYPE GEOMETRY(").append(geometryType).append(", ")
+                        .append(srids[i]).append(") USING ST_SetSRID(").append(column).append(", ")
+                        .append(srids[i]).append(");\n");
+            }
+        }
+        if (alter.length() > 0) {
+            try (Statement statement = target.createStatement()) {
+                statement.execute(alter.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.io.WKBReader;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Access to the geometries of a {@link ResultSet} as WKB, without the decoding done by the driver.
+ */
+final class WKBGeometries {
+
+    /**
+     * EWKB flags of the geometry type.
+     */
+    private static final int EWKB_Z = 0x80000000;
+    private static final int EWKB_M = 0x40000000;
+    private static final int EWKB_SRID = 0x20000000;
+
+    private WKBGeometries() {
+    }
+
+    /**
+     * Create a {@link WKBReader} decoding the geometries with {@link PackedCoordinateSequenceFactory#DOUBLE_FACTORY}.
+     *
+     * @return A new {@link WKBReader}.
+     */
+    static WKBReader packedReader() {
+        return new WKBReader(new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY));
+    }
+
+    /**
+     * Read the WKB of a geometry column. The drivers returning the geometries as text, like PostgreSQL, give the hex
+     * encoded EWKB which is decoded.
+     *
+     * @param resultSet   {@link ResultSet} positioned on a row.
+     * @param columnIndex Index of the geometric column.
+     * @return The WKB of the geometry, null if the geometry is null.
+     * @throws SQLException Exception thrown if the column cannot be read.
+     */
+    static byte[] bytes(ResultSet resultSet, int columnIndex) throws SQLException {
+        byte[] bytes = resultSet.getBytes(columnIndex);
+        //A binary WKB starts with the byte order 0 or 1, a hex WKB with the character '0'
+        if (bytes != null && bytes.length > 0 && bytes[0] == '0') {
+            return WKBReader.hexToBytes(new String(bytes, StandardCharsets.US_ASCII));
+        }
+        return bytes;
+    }
+
+    /**
+     * Read the SRID of an EWKB geometry from its header.
+     *
+     * @param wkb EWKB of the geometry.
+     * @return The SRID of the geometry, 0 if the WKB does not contain any SRID.
+     */
+    static int srid(byte[] wkb) {
+        ByteBuffer buffer = ByteBuffer.wrap(wkb);
+        buffer.order(buffer.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        return (buffer.getInt() & EWKB_SRID) != 0 ? buffer.getInt() : 0;
+    }
+
+    /**
+     * Compute the envelope of a WKB or EWKB geometry by reading its coordinates, without creating the geometry.
+     *
+     * @param wkb WKB of the geometry.
+     * @return The {@link Envelope} of the geometry, null if the WKB is null.
+     */
+    static Envelope envelope(byte[] wkb) {
+        if (wkb == null) {
+            return null;
+        }
+        Envelope envelope = new Envelope();
+        expand(ByteBuffer.wrap(wkb), envelope);
+        return envelope;
+    }
+
+    /**
+     * Expand the envelope with the geometry starting at the current position of the buffer.
+     */
+    private static void expand(ByteBuffer buffer, Envelope envelope) {
+        buffer.order(buffer.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        int type = buffer.getInt();
+        boolean hasZ = (type & EWKB_Z) != 0;
+        boolean hasM = (type & EWKB_M) != 0;
+        if ((type & EWKB_SRID) != 0) {
+            buffer.getInt();
+        }
+        //ISO WKB codes the dimensions as thousands of the type
+        int code = type & 0x0FFFFFFF;
+        int iso = code / 1000;
+        hasZ |= iso == 1 || iso == 3;
+        hasM |= iso == 2 || iso == 3;
+        int dimension = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+        switch (code % 1000) {
+            case 1:
+                expand(buffer, envelope, 1, dimension);
+                break;
+            case 2:
+                expand(buffer, envelope, buffer.getInt(), dimension);
+                break;
+            case 3:
+                int ringCount = buffer.getInt();
+                for (int i = 0; i < ringCount; i++) {
+                    int pointCount = buffer.getInt();
+                    if (i == 0) {
+                        expand(buffer, envelope, pointCount, dimension);
+                    } else {
+                        buffer.position(buffer.position() + pointCount * dimension * Double.BYTES);
+                    }
+                }
+                break;
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                int geometryCount = buffer.getInt();
+                for (int i = 0; i < geometryCount; i++) {
+                    expand(buffer, envelope);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported WKB geometry type " + code + ".");
+        }
+    }
+
+    /**
+     * Expand the envelope with the given number of points, skipping the empty points.
+     */
+    private static void expand(ByteBuffer buffer, Envelope envelope, int pointCount, int dimension) {
+        for (int i = 0; i < pointCount; i++) {
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+            buffer.position(buffer.position() + (dimension - 2) * Double.BYTES);
+            if (!Double.isNaN(x) && !Double.isNaN(y)) {
+                envelope.expandToInclude(x, y);
+            }
+        }
+    }
+}
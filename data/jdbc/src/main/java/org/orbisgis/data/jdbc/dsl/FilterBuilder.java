@@ -44,7 +44,6 @@ import org.orbisgis.data.api.dsl.IBuilderResult;
 import org.orbisgis.data.api.dsl.IFilterBuilder;
 import org.orbisgis.data.api.dsl.IResultSetProperties;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -55,50 +54,51 @@ import java.util.List;
  */
 public class FilterBuilder extends BuilderResult implements IFilterBuilder {
 
-    private final StringBuilder query;
-    private final List<Object> params;
+    private SelectQuery query;
     private final IJdbcDataSource dataSource;
     private final IResultSetProperties rsp;
 
     public FilterBuilder(IJdbcDataSource dataSource, String query, List<Object> params, IResultSetProperties properties) {
         this.dataSource = dataSource;
-        this.query = new StringBuilder(query == null ? "" : query);
         if(query != null && query.startsWith("(") && query.endsWith(")")) {
-            this.query.append(" as foo");
+            this.query = SelectQuery.of(query, params);
+        }
+        else {
+            this.query = SelectQuery.raw(query, params);
         }
-        this.params = new LinkedList<>(params);
         this.rsp = properties;
     }
 
     public FilterBuilder(IJdbcDataSource dataSource, String query, IResultSetProperties properties) {
+        this(dataSource, query, null, properties);
+    }
+
+    FilterBuilder(IJdbcDataSource dataSource, SelectQuery query, IResultSetProperties properties) {
         this.dataSource = dataSource;
-        this.query = new StringBuilder(query == null ? "" : query);
-        if(query != null && query.startsWith("(") && query.endsWith(")")) {
-            this.query.append(" as foo");
-        }
-        this.params = new LinkedList<>();
+        this.query = query;
         this.rsp = properties;
     }
 
     @Override
     public IBuilderResult filter(String filter) {
         if(filter != null) {
-            query.append(" ").append(filter);
+            query = query.filter(filter, null);
         }
         return this;
     }
 
     @Override
     public IBuilderResult filter(GString filter) {
-        params.addAll(dataSource.getParameters(filter));
-        query.append(" ").append(dataSource.toSql(filter, params));
+        List<Object> params = dataSource.getParameters(filter);
+        query = query.filter(dataSource.toSql(filter, params), params);
         return this;
     }
 
     @Override
     public IBuilderResult filter(String filter, List<Object> params) {
-        this.params.addAll(params);
-        this.query.append(" ").append(filter);
+        if(filter != null) {
+            query = query.filter(filter, params);
+        }
         return this;
     }
 
@@ -109,7 +109,7 @@ public class FilterBuilder extends BuilderResult implements IFilterBuilder {
 
     @Override
     protected String getQuery() {
-        return query.toString();
+        return query.toSql();
     }
 
     @Override
@@ -119,7 +119,7 @@ public class FilterBuilder extends BuilderResult implements IFilterBuilder {
 
     @Override
     public List<Object> getParams() {
-        return params;
+        return query.getParams();
     }
 
     @Override
@@ -57,25 +57,29 @@ import java.util.List;
  */
 public class QueryBuilder extends BuilderResult implements IQueryBuilder {
 
-    private String columns = "*";
-    private final String location;
+    private SelectQuery query;
     private final IJdbcDataSource dataSource;
     private final IResultSetProperties rsp;
 
     public QueryBuilder(IJdbcDataSource dataSource, String nameOrQuery, IResultSetProperties properties) {
+        this(dataSource, nameOrQuery, null, properties);
+    }
+
+    public QueryBuilder(IJdbcDataSource dataSource, String nameOrQuery, List<Object> params,
+                        IResultSetProperties properties) {
         this.dataSource = dataSource;
         if(nameOrQuery.startsWith("(") && nameOrQuery.endsWith(")")) {
-            location = nameOrQuery + " as foo";
+            query = SelectQuery.of(nameOrQuery, params);
         }
         else {
-            location = TableLocation.parse(nameOrQuery, dataSource.getDataBaseType()).toString();
+            query = SelectQuery.from(TableLocation.parse(nameOrQuery, dataSource.getDataBaseType()).toString());
         }
         rsp = properties.copy();
     }
 
     @Override
     public IBuilderResult filter(String filter) {
-        IFilterBuilder filterBuilder = new FilterBuilder(dataSource, getQuery(), getResultSetProperties());
+        IFilterBuilder filterBuilder = new FilterBuilder(dataSource, query, getResultSetProperties());
         if(filter != null) {
             return filterBuilder.filter(filter);
         }
@@ -86,7 +90,7 @@ public class QueryBuilder extends BuilderResult implements IQueryBuilder {
 
     @Override
     public IBuilderResult filter(GString filter) {
-        IFilterBuilder filterBuilder = new FilterBuilder(dataSource, getQuery(), getResultSetProperties());
+        IFilterBuilder filterBuilder = new FilterBuilder(dataSource, query, getResultSetProperties());
         if(filter != null) {
             return filterBuilder.filter(filter);
         }
@@ -97,7 +101,7 @@ public class QueryBuilder extends BuilderResult implements IQueryBuilder {
 
     @Override
     public IBuilderResult filter(String filter, List<Object> params) {
-        IFilterBuilder filterBuilder = new FilterBuilder(dataSource, getQuery(), getResultSetProperties());
+        IFilterBuilder filterBuilder = new FilterBuilder(dataSource, query, getResultSetProperties());
         if(filter != null) {
             return filterBuilder.filter(filter, params);
         }
@@ -108,13 +112,10 @@ public class QueryBuilder extends BuilderResult implements IQueryBuilder {
 
     @Override
     public IFilterBuilder columns(String... columns) {
-        if(columns == null || columns.length == 0 || Arrays.stream(columns).allMatch(s -> s == null || s.isEmpty())) {
-            this.columns = "*";
-        }
-        else {
-            this.columns = String.join(", ", columns);
+        if(columns != null && columns.length != 0 && !Arrays.stream(columns).allMatch(s -> s == null || s.isEmpty())) {
+            query = query.columns(String.join(", ", columns));
         }
-        return new FilterBuilder(dataSource, getQuery(), getResultSetProperties());
+        return new FilterBuilder(dataSource, query, getResultSetProperties());
     }
 
     @Override
@@ -124,7 +125,7 @@ public class QueryBuilder extends BuilderResult implements IQueryBuilder {
 
     @Override
     protected String getQuery() {
-        return "SELECT " + columns + " FROM " + location;
+        return query.toSql();
     }
 
     @Override
@@ -134,7 +135,7 @@ public class QueryBuilder extends BuilderResult implements IQueryBuilder {
 
     @Override
     public List<Object> getParams() {
-        return null;
+        return query.getParams();
     }
 
     public IResultSetProperties getResultSetProperties(){
@@ -44,6 +44,7 @@ import org.orbisgis.data.api.dataset.ITable;
 import org.orbisgis.data.api.datasource.IJdbcDataSource;
 import org.orbisgis.data.api.dsl.IResultSetBuilder;
 import org.orbisgis.data.api.dsl.IResultSetProperties;
+import org.orbisgis.data.jdbc.JdbcDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -278,12 +279,16 @@ public class ResultSetBuilder implements IResultSetBuilder {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        return getStatement().execute(sql);
+        try {
+            return getStatement().execute(sql);
+        } finally {
+            updateExtentCache(sql);
+        }
     }
 
     @Override
     public boolean execute(GString sql) throws SQLException {
-        return getStatement().execute(sql.toString());
+        return execute(sql.toString());
     }
 
     @Override
@@ -292,7 +297,13 @@ public class ResultSetBuilder implements IResultSetBuilder {
         for (String query : queries) {
             st.addBatch(query);
         }
-        return st.executeBatch();
+        try {
+            return st.executeBatch();
+        } finally {
+            for (String query : queries) {
+                updateExtentCache(query);
+            }
+        }
     }
 
     @Override
@@ -301,7 +312,13 @@ public class ResultSetBuilder implements IResultSetBuilder {
         for (GString query : queries) {
             st.addBatch(query.toString());
         }
-        return st.executeBatch();
+        try {
+            return st.executeBatch();
+        } finally {
+            for (GString query : queries) {
+                updateExtentCache(query.toString());
+            }
+        }
     }
 
     @Override
@@ -310,7 +327,13 @@ public class ResultSetBuilder implements IResultSetBuilder {
         for (String query : queries) {
             st.addBatch(query);
         }
-        return st.executeLargeBatch();
+        try {
+            return st.executeLargeBatch();
+        } finally {
+            for (String query : queries) {
+                updateExtentCache(query);
+            }
+        }
     }
 
     @Override
@@ -319,27 +342,52 @@ public class ResultSetBuilder implements IResultSetBuilder {
         for (GString query : queries) {
             st.addBatch(query.toString());
         }
-        return st.executeLargeBatch();
+        try {
+            return st.executeLargeBatch();
+        } finally {
+            for (GString query : queries) {
+                updateExtentCache(query.toString());
+            }
+        }
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        return getStatement().executeUpdate(sql);
+        try {
+            return getStatement().executeUpdate(sql);
+        } finally {
+            updateExtentCache(sql);
+        }
     }
 
     @Override
     public int executeUpdate(GString sql) throws SQLException {
-        return getStatement().executeUpdate(sql.toString());
+        return executeUpdate(sql.toString());
     }
 
     @Override
     public long executeLargeUpdate(String sql) throws SQLException {
-        return getStatement().executeLargeUpdate(sql);
+        try {
+            return getStatement().executeLargeUpdate(sql);
+        } finally {
+            updateExtentCache(sql);
+        }
     }
 
     @Override
     public long executeLargeUpdate(GString sql) throws SQLException {
-        return getStatement().executeLargeUpdate(sql.toString());
+        return executeLargeUpdate(sql.toString());
+    }
+
+    /**
+     * Update the cached extents of the data source after the execution of the given query.
+     *
+     * @param sql Executed query.
+     */
+    private void updateExtentCache(String sql) {
+        if (dataSource instanceof JdbcDataSource) {
+            ((JdbcDataSource) dataSource).updateExtentCache(sql);
+        }
     }
 
     @Override
@@ -0,0 +1,507 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc.dsl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Model of the SELECT query built by the DSL : a projection, a source and the clauses following the source. Filters
+ * and projections are merged into the same SELECT as long as it keeps the meaning of the query, so the query sent to
+ * the database stays flat and its optimizer can use the indexes of the source table. Otherwise the current query
+ * becomes the source of a new one.
+ */
+final class SelectQuery {
+
+    /**
+     * Clauses following the source, in their SQL order.
+     */
+    enum Clause {
+        WHERE("WHERE"), GROUP_BY("GROUP BY"), HAVING("HAVING"), ORDER_BY("ORDER BY"), LIMIT("LIMIT"),
+        OFFSET("OFFSET"), FETCH("FETCH");
+
+        private final String keyword;
+
+        Clause(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    /**
+     * Kind of the SELECT keyword token.
+     */
+    private static final int SELECT = -3;
+    /**
+     * Kind of the FROM keyword token.
+     */
+    private static final int FROM = -2;
+    /**
+     * Kind of the keywords which are not supported by the model.
+     */
+    private static final int UNSUPPORTED = -1;
+    /**
+     * Patterns of the keywords, indexed by their token kind shifted by 3.
+     */
+    private static final Pattern[] KEYWORDS;
+
+    static {
+        List<String> keywords = new ArrayList<>();
+        keywords.add("SELECT");
+        keywords.add("FROM");
+        keywords.add("UNION|INTERSECT|EXCEPT|MINUS|WINDOW|QUALIFY|FOR");
+        for (Clause clause : Clause.values()) {
+            keywords.add(clause.keyword.replace(" ", "\\s+"));
+        }
+        KEYWORDS = keywords.stream()
+                .map(keyword -> Pattern.compile(keyword, Pattern.CASE_INSENSITIVE))
+                .toArray(Pattern[]::new);
+    }
+
+    /**
+     * Pattern of a table name, which may be qualified and quoted.
+     */
+    private static final Pattern TABLE_NAME = Pattern.compile("(\"[^\"]+\"|`[^`]+`|[\\w$]+)(\\.(\"[^\"]+\"|`[^`]+`|[\\w$]+))*");
+    /**
+     * Alias of the nested queries.
+     */
+    private static final String ALIAS = " as foo";
+
+    /**
+     * Piece of SQL with its parameters.
+     */
+    private static final class Part {
+        private final String keyword;
+        private final String sql;
+        private final List<Object> params;
+
+        private Part(String keyword, String sql, List<Object> params) {
+            this.keyword = keyword;
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Keyword found in a SQL string.
+     */
+    private static final class Token {
+        private final int kind;
+        private final int start;
+        private final int end;
+
+        private Token(int kind, int start, int end) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Projection of the query, null if the query is a raw SQL string stored in {@link #tail}.
+     */
+    private Part projection;
+    /**
+     * Source of the query.
+     */
+    private Part source;
+    /**
+     * Clauses following the source.
+     */
+    private final Map<Clause, Part> clauses = new EnumMap<>(Clause.class);
+    /**
+     * SQL following the clauses which could not be read by the model.
+     */
+    private Part tail;
+
+    private SelectQuery() {
+    }
+
+    /**
+     * Create a query selecting all the columns of a table.
+     *
+     * @param location Formatted location of the table.
+     * @return The query.
+     */
+    static SelectQuery from(String location) {
+        SelectQuery query = new SelectQuery();
+        query.projection = new Part(null, "*", Collections.emptyList());
+        query.source = new Part(null, location, Collections.emptyList());
+        return query;
+    }
+
+    /**
+     * Create a query selecting all the columns of a subquery. If the subquery is a flat SELECT on a table, it is used
+     * as it is, otherwise it becomes the source of the query.
+     *
+     * @param subquery Subquery between parentheses.
+     * @param params   Parameters of the subquery, may be null.
+     * @return The query.
+     */
+    static SelectQuery of(String subquery, List<Object> params) {
+        SelectQuery query = parse(subquery, params);
+        if (query != null && "*".equals(query.projection.sql) && TABLE_NAME.matcher(query.source.sql).matches()) {
+            return query;
+        }
+        query = new SelectQuery();
+        query.projection = new Part(null, "*", Collections.emptyList());
+        query.source = new Part(null, subquery + ALIAS, params == null ? Collections.emptyList() : params);
+        return query;
+    }
+
+    /**
+     * Create a query from a raw SQL string. The query is read by the model if it is a flat SELECT, otherwise the
+     * filters are appended to it.
+     *
+     * @param sql    SQL string.
+     * @param params Parameters of the SQL string, may be null.
+     * @return The query.
+     */
+    static SelectQuery raw(String sql, List<Object> params) {
+        SelectQuery query = sql == null ? null : parse(sql, params);
+        if (query == null) {
+            query = new SelectQuery();
+            query.tail = new Part(null, sql == null ? "" : sql, params == null ? new ArrayList<>() : params);
+        }
+        return query;
+    }
+
+    /**
+     * Read a flat SELECT query.
+     *
+     * @param sql    SQL of the query, which may be between parentheses.
+     * @param params Parameters of the query, may be null.
+     * @return The query, or null if the SQL is not a flat SELECT handled by the model.
+     */
+    static SelectQuery parse(String sql, List<Object> params) {
+        String select = unwrap(sql.trim());
+        List<Object> list = params == null ? Collections.emptyList() : params;
+        List<Token> tokens = tokenize(select);
+        if (tokens.size() < 2 || tokens.get(0).kind != SELECT || tokens.get(0).start != 0 ||
+                tokens.get(1).kind != FROM || countParams(select) != list.size()) {
+            return null;
+        }
+        Iterator<Object> it = list.iterator();
+        SelectQuery query = new SelectQuery();
+        query.projection = part(null, select.substring(tokens.get(0).end, tokens.get(1).start), it);
+        int end = tokens.size() > 2 ? tokens.get(2).start : select.length();
+        query.source = part(null, select.substring(tokens.get(1).end, end), it);
+        Map<Clause, Part> clauses = clauses(select, tokens.subList(2, tokens.size()), it);
+        if (query.projection.sql.isEmpty() || query.source.sql.isEmpty() || clauses == null) {
+            return null;
+        }
+        query.clauses.putAll(clauses);
+        return query;
+    }
+
+    /**
+     * Restrict the columns of the query.
+     *
+     * @param columns Comma separated columns.
+     * @return The query with the given columns, which may be a new query using this one as source.
+     */
+    SelectQuery columns(String columns) {
+        if ("*".equals(columns)) {
+            return this;
+        }
+        boolean merge = projection != null && "*".equals(projection.sql) && tail == null &&
+                clauses.keySet().stream().allMatch(clause -> clause == Clause.WHERE);
+        SelectQuery query = merge ? this : nest();
+        query.projection = new Part(null, columns, Collections.emptyList());
+        return query;
+    }
+
+    /**
+     * Apply a filter to the query.
+     *
+     * @param filter SQL filter, like <code>WHERE ... ORDER BY ... LIMIT ...</code>.
+     * @param params Parameters of the filter, may be null.
+     * @return The filtered query, which may be a new query using this one as source.
+     */
+    SelectQuery filter(String filter, List<Object> params) {
+        String sql = filter.trim();
+        if (sql.isEmpty()) {
+            return this;
+        }
+        List<Object> list = params == null ? Collections.emptyList() : params;
+        if (projection == null) {
+            List<Object> tailParams = new ArrayList<>(tail.params);
+            tailParams.addAll(list);
+            tail = new Part(null, tail.sql.isEmpty() ? sql : tail.sql + " " + sql, tailParams);
+            return this;
+        }
+        List<Token> tokens = tokenize(sql);
+        Map<Clause, Part> filters = null;
+        if (!tokens.isEmpty() && tokens.get(0).start == 0 && countParams(sql) == list.size()) {
+            filters = clauses(sql, tokens, list.iterator());
+        }
+        if (filters == null) {
+            SelectQuery query = clauses.isEmpty() && tail == null ? this : nest();
+            query.tail = new Part(null, sql, list);
+            return query;
+        }
+        //Once grouped or limited, the rows of the query can only be filtered by a new query, as well as the ordered
+        //ones when grouping them.
+        boolean grouping = filters.containsKey(Clause.GROUP_BY) || filters.containsKey(Clause.HAVING);
+        boolean closed = tail != null || clauses.keySet().stream().anyMatch(clause -> clause != Clause.WHERE &&
+                (clause != Clause.ORDER_BY || grouping));
+        SelectQuery query = closed ? nest() : this;
+        for (Map.Entry<Clause, Part> entry : filters.entrySet()) {
+            Part existing = query.clauses.get(entry.getKey());
+            Part part = entry.getValue();
+            if (entry.getKey() == Clause.WHERE && existing != null) {
+                List<Object> whereParams = new ArrayList<>(existing.params);
+                whereParams.addAll(part.params);
+                part = new Part(Clause.WHERE.keyword, "(" + existing.sql + ") AND (" + part.sql + ")", whereParams);
+            }
+            query.clauses.put(entry.getKey(), part);
+        }
+        return query;
+    }
+
+    /**
+     * Return the SQL of the query.
+     *
+     * @return The SQL of the query.
+     */
+    String toSql() {
+        StringBuilder sb = new StringBuilder();
+        if (projection != null) {
+            sb.append("SELECT ").append(projection.sql).append(" FROM ").append(source.sql);
+        }
+        for (Part part : clauses.values()) {
+            sb.append(" ").append(part.keyword).append(" ").append(part.sql);
+        }
+        if (tail != null) {
+            if (sb.length() > 0) {
+                sb.append(" ");
+            }
+            sb.append(tail.sql);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the parameters of the query, in the order of their placeholders.
+     *
+     * @return The parameters of the query.
+     */
+    List<Object> getParams() {
+        List<Object> params = new ArrayList<>();
+        if (projection != null) {
+            params.addAll(projection.params);
+            params.addAll(source.params);
+        }
+        clauses.values().forEach(part -> params.addAll(part.params));
+        if (tail != null) {
+            params.addAll(tail.params);
+        }
+        return params;
+    }
+
+    /**
+     * Return a new query selecting all the columns of this one.
+     */
+    private SelectQuery nest() {
+        SelectQuery query = new SelectQuery();
+        query.projection = new Part(null, "*", Collections.emptyList());
+        query.source = new Part(null, "(" + toSql() + ")" + ALIAS, getParams());
+        return query;
+    }
+
+    /**
+     * Read the clauses starting at the given tokens.
+     *
+     * @param sql    SQL containing the clauses.
+     * @param tokens Tokens of the clauses.
+     * @param params Iterator on the parameters of the clauses.
+     * @return The clauses or null if the tokens are not clauses in their SQL order.
+     */
+    private static Map<Clause, Part> clauses(String sql, List<Token> tokens, Iterator<Object> params) {
+        Map<Clause, Part> clauses = new EnumMap<>(Clause.class);
+        int previous = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.kind <= previous) {
+                return null;
+            }
+            previous = token.kind;
+            int end = i + 1 < tokens.size() ? tokens.get(i + 1).start : sql.length();
+            Part part = part(sql.substring(token.start, token.end), sql.substring(token.end, end), params);
+            if (part.sql.isEmpty()) {
+                return null;
+            }
+            clauses.put(Clause.values()[token.kind], part);
+        }
+        return clauses;
+    }
+
+    /**
+     * Create a {@link Part} taking its parameters from the given iterator.
+     */
+    private static Part part(String keyword, String sql, Iterator<Object> params) {
+        List<Object> list = new ArrayList<>();
+        for (int i = countParams(sql); i > 0; i--) {
+            list.add(params.next());
+        }
+        return new Part(keyword, sql.trim(), list);
+    }
+
+    /**
+     * Remove the parentheses surrounding the whole SQL string.
+     */
+    private static String unwrap(String sql) {
+        while (sql.startsWith("(") && closingParenthesis(sql) == sql.length() - 1) {
+            sql = sql.substring(1, sql.length() - 1).trim();
+        }
+        return sql;
+    }
+
+    /**
+     * Return the index of the parenthesis closing the one starting the SQL string, -1 if not found.
+     */
+    private static int closingParenthesis(String sql) {
+        int depth = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the keywords of the SQL string which are outside of parentheses and quotes.
+     */
+    private static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        Matcher[] matchers = new Matcher[KEYWORDS.length];
+        for (int k = 0; k < KEYWORDS.length; k++) {
+            matchers[k] = KEYWORDS[k].matcher(sql);
+        }
+        int depth = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && Character.isLetter(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+                Token token = null;
+                for (int k = 0; k < matchers.length && token == null; k++) {
+                    Matcher matcher = matchers[k].region(i, sql.length());
+                    if (matcher.lookingAt() &&
+                            (matcher.end() == sql.length() || !isIdentifierPart(sql.charAt(matcher.end())))) {
+                        token = new Token(k - 3, i, matcher.end());
+                    }
+                }
+                if (token != null) {
+                    tokens.add(token);
+                    i = token.end;
+                    continue;
+                }
+            }
+            i++;
+        }
+        return tokens;
+    }
+
+    /**
+     * Count the parameter placeholders of the SQL string which are outside of quotes.
+     */
+    private static int countParams(String sql) {
+        int count = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+                continue;
+            }
+            if (c == '?') {
+                count++;
+            }
+            i++;
+        }
+        return count;
+    }
+
+    /**
+     * Return the index following the quoted string starting at the given index.
+     */
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    /**
+     * Return true if the character can be part of an unquoted identifier.
+     */
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc;
+
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class dedicated to {@link ExtentCache} class.
+ */
+public class ExtentCacheTest {
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    /**
+     * Test the update of the cache by the executed queries.
+     */
+    @Test
+    public void testUpdate() {
+        ExtentCache cache = new ExtentCache(DBTypes.H2GIS);
+        cache.setMaxAge(60000);
+        TableLocation roads = TableLocation.parse("roads", DBTypes.H2GIS);
+        TableLocation buildings = TableLocation.parse("public.buildings", DBTypes.H2GIS);
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        cache.put(buildings, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), false);
+        cache.put(buildings, FACTORY.toGeometry(new Envelope(0, 2, 0, 2)), false, "the_geom");
+
+        cache.update("SELECT * FROM roads; SELECT COUNT(*) FROM buildings");
+        assertNotNull(cache.get(roads));
+        assertEquals(new Envelope(0, 2, 0, 2), cache.get(buildings, "THE_GEOM").getEnvelopeInternal());
+
+        cache.update("delete from PUBLIC.\"BUILDINGS\" where id = 1");
+        assertNull(cache.get(buildings));
+        assertNull(cache.get(buildings, "the_geom"));
+        assertNotNull(cache.get(roads));
+
+        cache.update("INSERT INTO roads(id, the_geom) VALUES (?, ?)",
+                Arrays.asList(1, FACTORY.createPoint(new Coordinate(3, -1))));
+        assertEquals(new Envelope(0, 3, -1, 1), cache.get(roads).getEnvelopeInternal());
+
+        cache.update("INSERT INTO roads VALUES (?, ST_Buffer(?, 10))",
+                Arrays.asList(1, FACTORY.createPoint(new Coordinate(3, -1))));
+        assertNull(cache.get(roads));
+
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        cache.update("DROP TABLE IF EXISTS tmp, roads");
+        assertNull(cache.get(roads));
+
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        cache.update("CALL SHPREAD('roads.shp', 'roads_2')");
+        assertNull(cache.get(roads));
+    }
+
+    /**
+     * Test the expiration of the extents and the disabled cache.
+     */
+    @Test
+    public void testMaxAge() throws InterruptedException {
+        ExtentCache cache = new ExtentCache(DBTypes.H2GIS);
+        TableLocation roads = TableLocation.parse("roads", DBTypes.H2GIS);
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        assertNull(cache.get(roads));
+
+        cache.setMaxAge(60000);
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        assertNotNull(cache.get(roads));
+        cache.setMaxAge(0);
+        assertNull(cache.get(roads));
+
+        cache.setMaxAge(1);
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        Thread.sleep(10);
+        assertNull(cache.get(roads));
+    }
+
+    /**
+     * Test the keys of the tables built from their catalog, schema and name.
+     */
+    @Test
+    public void testTableKey() {
+        ExtentCache cache = new ExtentCache(DBTypes.POSTGIS);
+        cache.setMaxAge(60000);
+        TableLocation roads = TableLocation.parse("public.roads", DBTypes.POSTGIS);
+        TableLocation otherRoads = TableLocation.parse("other.\"ROADS\"", DBTypes.POSTGIS);
+        cache.put(roads, FACTORY.toGeometry(new Envelope(0, 1, 0, 1)), true);
+        cache.put(otherRoads, FACTORY.toGeometry(new Envelope(0, 2, 0, 2)), true);
+        assertEquals(new Envelope(0, 1, 0, 1), cache.get(TableLocation.parse("PUBLIC.ROADS", DBTypes.POSTGIS))
+                .getEnvelopeInternal());
+        assertEquals(new Envelope(0, 2, 0, 2), cache.get(otherRoads).getEnvelopeInternal());
+
+        cache.update("DELETE FROM other.roads");
+        assertNull(cache.get(otherRoads));
+        assertNotNull(cache.get(roads));
+
+        cache.put(otherRoads, FACTORY.toGeometry(new Envelope(0, 2, 0, 2)), true);
+        cache.update("INSERT INTO public.roads VALUES (?, ?)",
+                Arrays.asList(1, FACTORY.createPoint(new Coordinate(3, 3))));
+        assertEquals(new Envelope(0, 3, 0, 3), cache.get(roads).getEnvelopeInternal());
+        assertEquals(new Envelope(0, 2, 0, 2), cache.get(otherRoads).getEnvelopeInternal());
+
+        //The schema of an unqualified name is unknown, all the tables having this name are forgotten
+        cache.update("INSERT INTO roads VALUES (?, ?)", Arrays.asList(1, FACTORY.createPoint(new Coordinate(4, 4))));
+        assertNull(cache.get(roads));
+        assertNull(cache.get(otherRoads));
+    }
+}
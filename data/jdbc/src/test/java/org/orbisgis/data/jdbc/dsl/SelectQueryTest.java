@@ -0,0 +1,116 @@
+/*
+ * Bundle JDBC is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * JDBC is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2018 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * JDBC is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * JDBC is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * JDBC. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.data.jdbc.dsl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class dedicated to {@link SelectQuery}.
+ */
+public class SelectQueryTest {
+
+    @Test
+    void tableQueries() {
+        assertEquals("SELECT * FROM TAB", SelectQuery.from("TAB").toSql());
+        assertEquals("SELECT ID, NAME FROM TAB WHERE ID > 2 ORDER BY NAME LIMIT 5", SelectQuery.from("TAB")
+                .columns("ID, NAME")
+                .filter("WHERE ID > 2 ORDER BY NAME LIMIT 5", null)
+                .toSql());
+        assertEquals("SELECT * FROM TAB where a = 1 group By b",
+                SelectQuery.from("TAB").filter(" where a = 1 group By b ", null).toSql());
+        assertEquals("SELECT * FROM TAB WHERE (a = ?) AND (b = ?) ORDER BY c", SelectQuery.from("TAB")
+                .filter("WHERE a = ? ORDER BY b", Collections.singletonList(1))
+                .filter("WHERE b = ? ORDER BY c", Collections.singletonList(2))
+                .toSql());
+        assertEquals("SELECT * FROM TAB", SelectQuery.from("TAB").columns("*").filter(" ", null).toSql());
+    }
+
+    @Test
+    void flattenSubqueries() {
+        SelectQuery query = SelectQuery.of("(SELECT * FROM TAB WHERE ID > ?)", Collections.singletonList(1))
+                .columns("ID, NAME")
+                .filter("WHERE NAME = ? ORDER BY ID LIMIT ?", Arrays.asList("a", 3));
+        assertEquals("SELECT ID, NAME FROM TAB WHERE (ID > ?) AND (NAME = ?) ORDER BY ID LIMIT ?", query.toSql());
+        assertEquals(Arrays.asList(1, "a", 3), query.getParams());
+
+        query = SelectQuery.of("((SELECT * FROM \"sch\".\"tab\" where name = 'where ? limit'))", null)
+                .filter("where id < 3", null);
+        assertEquals("SELECT * FROM \"sch\".\"tab\" WHERE (name = 'where ? limit') AND (id < 3)", query.toSql());
+        assertTrue(query.getParams().isEmpty());
+
+        query = SelectQuery.of("(SELECT * FROM TAB WHERE ID > ? ORDER BY ID)", Collections.singletonList(1))
+                .filter("WHERE NAME = ? ORDER BY NAME", Collections.singletonList("a"));
+        assertEquals("SELECT * FROM TAB WHERE (ID > ?) AND (NAME = ?) ORDER BY NAME", query.toSql());
+        assertEquals(Arrays.asList(1, "a"), query.getParams());
+    }
+
+    @Test
+    void nestSubqueries() {
+        assertEquals("SELECT geom as g FROM (SELECT the_geom AS geom FROM TAB where id=1) as foo",
+                SelectQuery.of("(SELECT the_geom AS geom FROM TAB where id=1)", null).columns("geom as g").toSql());
+        assertEquals("SELECT * FROM (SELECT DISTINCT * FROM TAB) as foo WHERE a = 1",
+                SelectQuery.of("(SELECT DISTINCT * FROM TAB)", null).filter("WHERE a = 1", null).toSql());
+        assertEquals("SELECT * FROM (SELECT * FROM A UNION SELECT * FROM B) as foo LIMIT 1",
+                SelectQuery.of("(SELECT * FROM A UNION SELECT * FROM B)", null).filter("LIMIT 1", null).toSql());
+
+        SelectQuery query = SelectQuery.of("(SELECT * FROM TAB WHERE a = ? LIMIT 10)", Collections.singletonList(1))
+                .filter("WHERE b = ?", Collections.singletonList(2));
+        assertEquals("SELECT * FROM (SELECT * FROM TAB WHERE a = ? LIMIT 10) as foo WHERE b = ?", query.toSql());
+        assertEquals(Arrays.asList(1, 2), query.getParams());
+        assertEquals("SELECT code FROM (SELECT * FROM TAB ORDER BY id) as foo",
+                SelectQuery.of("(SELECT * FROM TAB ORDER BY id)", null).columns("code").toSql());
+        assertEquals("SELECT * FROM (SELECT * FROM TAB ORDER BY id) as foo GROUP BY code",
+                SelectQuery.of("(SELECT * FROM TAB ORDER BY id)", null).filter("GROUP BY code", null).toSql());
+    }
+
+    @Test
+    void unreadableSql() {
+        assertNull(SelectQuery.parse("(SELECT * FROM TAB WHERE a = ?)", null));
+        assertNull(SelectQuery.parse("SELECT * FROM TAB LIMIT 1 WHERE a = 1", null));
+        assertNull(SelectQuery.parse("CALL FUNC()", null));
+        assertEquals("SELECT * FROM TAB AS t JOIN B ON t.id = B.id",
+                SelectQuery.from("TAB").filter("AS t JOIN B ON t.id = B.id", null).toSql());
+        assertEquals("SELECT * FROM (SELECT * FROM TAB WHERE a = 1) as foo t",
+                SelectQuery.from("TAB").filter("WHERE a = 1", null).filter("t", null).toSql());
+        assertEquals("CALL FUNC() a", SelectQuery.raw("CALL FUNC()", null).filter("a", null).toSql());
+    }
+}
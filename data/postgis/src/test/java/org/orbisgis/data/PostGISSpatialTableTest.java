@@ -51,6 +51,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -164,6 +165,30 @@ public class PostGISSpatialTableTest {
         assertEquals(2, spLoaded.getRowCount());
     }
 
+    /**
+     * Test the spatial join done in memory, the joined rows being inserted with their geometries and SRID.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "test.postgis", matches = "true")
+    void testSpatialJoin() throws Exception {
+        postGIS.execute("DROP TABLE IF EXISTS cells, points;" +
+                "CREATE TABLE cells AS SELECT X AS id, ST_SetSRID(ST_MakeEnvelope(MOD(X, 10), FLOOR(X / 10), " +
+                "MOD(X, 10) + 1, FLOOR(X / 10) + 1), 4326)::geometry(polygon, 4326) AS the_geom " +
+                "FROM generate_series(0, 99) AS X;" +
+                "CREATE TABLE points AS SELECT X AS id, CONCAT('p', X) AS name, ST_SetSRID(ST_MakePoint(" +
+                "MOD(X, 40) / 4.0 + 0.1, MOD(X, 37) / 3.7 + 0.05), 4326)::geometry(point, 4326) AS the_geom " +
+                "FROM generate_series(1, 1000) AS X;");
+        IJdbcSpatialTable cells = postGIS.getSpatialTable("cells");
+        IJdbcSpatialTable query = postGIS.getSpatialTable("(SELECT * FROM points)");
+        IJdbcSpatialTable inMemory = query.spatialJoin(cells, "ST_Within");
+        assertEquals(1000, inMemory.getRowCount());
+        assertEquals(Arrays.asList("id", "name", "the_geom", "id_2", "the_geom_2"), inMemory.getColumnNames());
+        assertEquals(0L, postGIS.firstRow("SELECT COUNT(*) AS c FROM " + inMemory.getLocation() +
+                " WHERE NOT ST_Within(the_geom, the_geom_2) OR ST_SRID(the_geom) <> 4326 " +
+                "OR ST_SRID(the_geom_2) <> 4326").get("c"));
+        postGIS.dropTable(inMemory.getLocation());
+    }
+
     @Test
     @EnabledIfSystemProperty(named = "test.postgis", matches = "true")
     void testSaveQueryInFile() throws Exception {